@@ -56,6 +56,7 @@ dependencies {
     api(libs.kotlinStdlib)
 
     // TODO - it might be good to allow projects to contribute state to save and restore, rather than have this project know about everything
+    implementation(projects.buildCachePackaging)
     implementation(projects.buildEvents)
     implementation(projects.buildOperations)
     implementation(projects.coreKotlinExtensions)
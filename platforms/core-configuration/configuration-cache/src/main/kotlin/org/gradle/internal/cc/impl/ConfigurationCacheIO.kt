@@ -16,21 +16,26 @@
 
 package org.gradle.internal.cc.impl
 
+import com.google.common.io.CountingOutputStream
 import org.gradle.api.logging.LogLevel
 import org.gradle.cache.internal.streams.BlockAddress
 import org.gradle.cache.internal.streams.BlockAddressSerializer
 import org.gradle.internal.cc.impl.cacheentry.EntryDetails
 import org.gradle.internal.cc.impl.cacheentry.ModelKey
 import org.gradle.internal.cc.impl.initialization.ConfigurationCacheStartParameter
+import org.gradle.internal.cc.impl.problems.ConfigurationCacheEntrySize
 import org.gradle.internal.cc.impl.problems.ConfigurationCacheProblems
 import org.gradle.internal.cc.impl.serialize.Codecs
 import org.gradle.internal.cc.impl.serialize.DefaultClassDecoder
 import org.gradle.internal.cc.impl.serialize.DefaultClassEncoder
+import org.gradle.internal.cc.impl.serialize.EntrySizeTracer
+import org.gradle.internal.cc.impl.serialize.PipelinedStreamFactory
 import org.gradle.internal.build.BuildStateRegistry
 import org.gradle.internal.buildtree.BuildTreeWorkGraph
 import org.gradle.internal.cc.base.logger
 import org.gradle.internal.cc.base.serialize.service
 import org.gradle.internal.cc.base.serialize.withGradleIsolate
+import org.gradle.internal.concurrent.ExecutorFactory
 import org.gradle.internal.extensions.stdlib.useToRun
 import org.gradle.internal.hash.HashCode
 import org.gradle.internal.operations.BuildOperationProgressEventEmitter
@@ -56,11 +61,20 @@ import org.gradle.internal.serialize.kryo.KryoBackedEncoder
 import org.gradle.internal.service.scopes.Scope
 import org.gradle.internal.service.scopes.ServiceScope
 import org.gradle.util.Path
+import java.io.Closeable
 import java.io.File
 import java.io.InputStream
 import java.io.OutputStream
 
 
+private
+const val LARGEST_FRAMES_TO_REPORT = 20
+
+
+private
+const val MAX_PIPELINED_STREAMS = 4
+
+
 @ServiceScope(Scope.Build::class)
 class ConfigurationCacheIO internal constructor(
     private val startParameter: ConfigurationCacheStartParameter,
@@ -69,11 +83,19 @@ class ConfigurationCacheIO internal constructor(
     private val scopeRegistryListener: ConfigurationCacheClassLoaderScopeRegistryListener,
     private val beanStateReaderLookup: BeanStateReaderLookup,
     private val beanStateWriterLookup: BeanStateWriterLookup,
-    private val eventEmitter: BuildOperationProgressEventEmitter
-) {
+    private val eventEmitter: BuildOperationProgressEventEmitter,
+    executorFactory: ExecutorFactory
+) : Closeable {
     private
     val codecs = codecs()
 
+    private
+    val pipelinedStreams = PipelinedStreamFactory(executorFactory, MAX_PIPELINED_STREAMS)
+
+    override fun close() {
+        pipelinedStreams.close()
+    }
+
     private
     val encryptionService by lazy { service<EncryptionService>() }
 
@@ -201,7 +223,7 @@ class ConfigurationCacheIO internal constructor(
         stateFile: ConfigurationCacheStateFile,
         action: suspend DefaultReadContext.(ConfigurationCacheState) -> T
     ): T {
-        return withReadContextFor(encryptionService.inputStream(stateFile.stateType, stateFile::inputStream)) { codecs ->
+        return withReadContextFor(stateInputStreamFor(stateFile)) { codecs ->
             ConfigurationCacheState(codecs, stateFile, eventEmitter, host).run {
                 action(this)
             }
@@ -213,16 +235,66 @@ class ConfigurationCacheIO internal constructor(
         stateFile: ConfigurationCacheStateFile,
         action: suspend DefaultWriteContext.(ConfigurationCacheState) -> T
     ): T {
-        val (context, codecs) = writerContextFor(encryptionService.outputStream(stateFile.stateType, stateFile::outputStream)) {
-            host.currentBuild.gradle.owner.displayName.displayName + " state"
+        val profile = { host.currentBuild.gradle.owner.displayName.displayName + " state" }
+        if (startParameter.reportEntrySize) {
+            return writeConfigurationCacheStateMeasuringSize(stateFile, profile, action)
+        }
+        val (context, codecs) = writerContextFor(stateOutputStreamFor(stateFile, stateFile::outputStream), profile)
+        return context.useToRun {
+            runWriteOperation {
+                action(ConfigurationCacheState(codecs, stateFile, eventEmitter, host))
+            }
+        }
+    }
+
+    private
+    fun <T> writeConfigurationCacheStateMeasuringSize(
+        stateFile: ConfigurationCacheStateFile,
+        profile: () -> String,
+        action: suspend DefaultWriteContext.(ConfigurationCacheState) -> T
+    ): T {
+        var storedBytes: CountingOutputStream? = null
+        val outputStream = stateOutputStreamFor(stateFile) {
+            CountingOutputStream(stateFile.outputStream()).also { storedBytes = it }
         }
+        val encoder = KryoBackedEncoder(outputStream)
+        val tracer = EntrySizeTracer(encoder::getWritePosition, loggingTracerFor(profile, encoder))
+        val context = writeContextFor(encoder, tracer, codecs)
         return context.useToRun {
             runWriteOperation {
                 action(ConfigurationCacheState(codecs, stateFile, eventEmitter, host))
             }
+        }.also {
+            problems.entrySize(
+                ConfigurationCacheEntrySize(
+                    "${profile()} (${stateFile.stateType})",
+                    startParameter.stateCompression.toString(),
+                    encoder.writePosition,
+                    storedBytes?.count ?: 0,
+                    tracer.largestFrames(LARGEST_FRAMES_TO_REPORT)
+                )
+            )
         }
     }
 
+    private
+    fun stateInputStreamFor(stateFile: ConfigurationCacheStateFile): InputStream =
+        encryptionService.inputStream(stateFile.stateType, stateFile::inputStream).let { inputStream ->
+            startParameter.stateCompression.decompress(inputStream)
+        }.let { inputStream ->
+            if (startParameter.pipelinedStateIo) pipelinedStreams.readAhead(inputStream)
+            else inputStream
+        }
+
+    private
+    fun stateOutputStreamFor(stateFile: ConfigurationCacheStateFile, output: () -> OutputStream): OutputStream =
+        encryptionService.outputStream(stateFile.stateType, output).let { outputStream ->
+            startParameter.stateCompression.compress(outputStream)
+        }.let { outputStream ->
+            if (startParameter.pipelinedStateIo) pipelinedStreams.writeBehind(outputStream)
+            else outputStream
+        }
+
     internal
     fun writeModelTo(model: Any, stateFile: ConfigurationCacheStateFile) {
         writeConfigurationCacheState(stateFile) {
@@ -19,6 +19,7 @@ package org.gradle.internal.cc.impl.initialization
 import org.gradle.StartParameter
 import org.gradle.api.internal.StartParameterInternal
 import org.gradle.api.logging.LogLevel
+import org.gradle.caching.internal.packaging.impl.BuildCacheEntryCompression
 import org.gradle.internal.extensions.stdlib.unsafeLazy
 import org.gradle.internal.cc.impl.Workarounds
 import org.gradle.initialization.StartParameterBuildOptions.ConfigurationCacheProblemsOption
@@ -62,6 +63,24 @@ class ConfigurationCacheStartParameter(
 
     val encryptionRequested: Boolean = options.getInternalFlag("org.gradle.configuration-cache.internal.encryption", true)
 
+    /**
+     * Whether reading and writing the state files is overlapped with decoding and encoding the state,
+     * by moving the file I/O and encryption to a background thread.
+     */
+    val pipelinedStateIo: Boolean = options.getInternalFlag("org.gradle.configuration-cache.internal.pipelined-io")
+
+    /**
+     * How the state files are compressed before being encrypted and written to disk, using the codecs of build cache entries.
+     * For example `gzip:1` or `lz4`, defaults to `store` which does not compress.
+     */
+    val stateCompression: BuildCacheEntryCompression.Specification =
+        BuildCacheEntryCompression.parse(options.getInternalString("org.gradle.configuration-cache.internal.compression", "store"))
+
+    /**
+     * Whether the configuration cache report includes the size of each stored state file, broken down by debug frame.
+     */
+    val reportEntrySize: Boolean = options.getInternalFlag("org.gradle.configuration-cache.internal.report-entry-size")
+
     val keystoreDir: String? = options.getInternalString("org.gradle.configuration-cache.internal.key-store-dir", null)
 
     val encryptionAlgorithm: String = options.getInternalString("org.gradle.configuration-cache.internal.encryption-alg", SupportedEncryptionAlgorithm.getDefault().transformation)
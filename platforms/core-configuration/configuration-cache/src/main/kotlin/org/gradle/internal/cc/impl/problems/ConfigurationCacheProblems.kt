@@ -53,6 +53,7 @@ import org.gradle.internal.service.scopes.ServiceScope
 import org.gradle.problems.buildtree.ProblemReporter
 import org.gradle.problems.buildtree.ProblemReporter.ProblemConsumer
 import java.io.File
+import java.util.concurrent.CopyOnWriteArrayList
 
 
 @ServiceScope(Scope.BuildTree::class)
@@ -108,6 +109,9 @@ class ConfigurationCacheProblems(
     private
     val incompatibleTasks = newConcurrentHashSet<PropertyTrace>()
 
+    private
+    val entrySizes = CopyOnWriteArrayList<ConfigurationCacheEntrySize>()
+
     private
     lateinit var cacheAction: ConfigurationCacheAction
 
@@ -151,6 +155,10 @@ class ConfigurationCacheProblems(
         this.updatedProjects = updatedProjects
     }
 
+    fun entrySize(entrySize: ConfigurationCacheEntrySize) {
+        entrySizes.add(entrySize)
+    }
+
     override fun forIncompatibleTask(trace: PropertyTrace, reason: String): ProblemsListener {
         val notSeenBefore = incompatibleTasks.add(trace)
         if (notSeenBefore) {
@@ -302,7 +310,7 @@ class ConfigurationCacheProblems(
     fun detailsFor(summary: Summary): ConfigurationCacheReportDetails {
         val cacheActionText = cacheAction.summaryText()
         val requestedTasks = startParameter.requestedTasksOrDefault()
-        return ConfigurationCacheReportDetails(buildName, cacheActionText, cacheActionDescription, requestedTasks, summary.problemCount)
+        return ConfigurationCacheReportDetails(buildName, cacheActionText, cacheActionDescription, requestedTasks, summary.problemCount, entrySizes.toList())
     }
 
     private
@@ -24,5 +24,30 @@ data class ConfigurationCacheReportDetails(
     val cacheAction: String,
     val cacheActionDescription: StructuredMessage,
     val requestedTasks: String?,
-    val totalProblemCount: Int
+    val totalProblemCount: Int,
+    val entrySizes: List<ConfigurationCacheEntrySize> = emptyList()
+)
+
+
+/**
+ * How many bytes a state file of the configuration cache entry takes, and which values take the most.
+ */
+data class ConfigurationCacheEntrySize(
+    val stateFile: String,
+    /**
+     * The codec the state file is compressed with, as given by `org.gradle.configuration-cache.internal.compression`.
+     */
+    val compression: String,
+    /**
+     * The number of bytes written by the codecs, before compression and encryption.
+     */
+    val encodedBytes: Long,
+    /**
+     * The number of bytes written to disk.
+     */
+    val storedBytes: Long,
+    /**
+     * The debug frames with the most bytes, largest first, excluding the bytes of nested frames.
+     */
+    val largestFrames: List<Pair<String, Long>>
 )
@@ -78,6 +78,14 @@ class JsonModelWriter(val writer: Writer) {
         }
         comma()
         property("documentationLink", documentationRegistry.getDocumentationFor("configuration_cache"))
+        if (entrySizes.isNotEmpty()) {
+            comma()
+            property("entrySizes") {
+                jsonObjectList(entrySizes) { entrySize ->
+                    writeEntrySize(entrySize)
+                }
+            }
+        }
 
         endObject()
     }
@@ -105,6 +113,31 @@ class JsonModelWriter(val writer: Writer) {
         }
     }
 
+    private
+    fun writeEntrySize(entrySize: ConfigurationCacheEntrySize) {
+        property("stateFile", entrySize.stateFile)
+        comma()
+        property("compression", entrySize.compression)
+        comma()
+        property("encodedBytes") {
+            write(entrySize.encodedBytes.toString())
+        }
+        comma()
+        property("storedBytes") {
+            write(entrySize.storedBytes.toString())
+        }
+        comma()
+        property("largestFrames") {
+            jsonObjectList(entrySize.largestFrames) { (frame, bytes) ->
+                property("frame", frame)
+                comma()
+                property("bytes") {
+                    write(bytes.toString())
+                }
+            }
+        }
+    }
+
     private
     fun writeError(failure: DecoratedFailure) {
         val summary = failure.summary
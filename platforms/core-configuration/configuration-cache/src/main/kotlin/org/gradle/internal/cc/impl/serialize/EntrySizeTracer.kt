@@ -0,0 +1,67 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.cc.impl.serialize
+
+import org.gradle.internal.serialize.graph.Tracer
+
+
+/**
+ * A [Tracer] that measures how many bytes are written within each debug frame, excluding the bytes written by nested frames.
+ *
+ * Frames with the same name are aggregated, so a frame named after a value type accounts for all the values of that type.
+ */
+internal
+class EntrySizeTracer(
+    private val writePosition: () -> Long,
+    private val delegate: Tracer?
+) : Tracer {
+
+    private
+    class Frame(val name: String, val start: Long) {
+        var nestedBytes = 0L
+    }
+
+    private
+    val frames = ArrayDeque<Frame>()
+
+    private
+    val bytesByFrame = HashMap<String, Long>()
+
+    override fun open(frame: String) {
+        delegate?.open(frame)
+        frames.addLast(Frame(frame, writePosition()))
+    }
+
+    override fun close(frame: String) {
+        val closed = frames.removeLast()
+        val bytes = writePosition() - closed.start
+        bytesByFrame.merge(closed.name, bytes - closed.nestedBytes, Long::plus)
+        frames.lastOrNull()?.let { parent ->
+            parent.nestedBytes += bytes
+        }
+        delegate?.close(frame)
+    }
+
+    /**
+     * Returns the [count] frames with the most bytes, largest first.
+     */
+    fun largestFrames(count: Int): List<Pair<String, Long>> =
+        bytesByFrame.entries
+            .sortedByDescending { it.value }
+            .take(count)
+            .map { it.key to it.value }
+}
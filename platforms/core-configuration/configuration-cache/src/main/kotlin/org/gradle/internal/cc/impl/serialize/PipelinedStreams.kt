@@ -0,0 +1,394 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.cc.impl.serialize
+
+import org.gradle.internal.concurrent.ExecutorFactory
+import org.gradle.internal.concurrent.ManagedExecutor
+import java.io.Closeable
+import java.io.IOException
+import java.io.InputStream
+import java.io.OutputStream
+import java.util.concurrent.ArrayBlockingQueue
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executor
+import java.util.concurrent.Semaphore
+
+
+private
+const val DEFAULT_CHUNK_SIZE = 64 * 1024
+
+
+private
+const val DEFAULT_MAX_PENDING_CHUNKS = 16
+
+
+private
+val END_OF_STREAM = ByteArray(0)
+
+
+/**
+ * Pipelines state streams on a bounded, named executor that is stopped together with its owner.
+ *
+ * At most [maxStreams] streams are pipelined at the same time, each of them holding one executor thread until closed.
+ * Streams requested beyond that are returned as is, so the caller never waits for a thread.
+ */
+internal
+class PipelinedStreamFactory(
+    executorFactory: ExecutorFactory,
+    private val maxStreams: Int
+) : Closeable {
+
+    private
+    val lazyExecutor = lazy {
+        executorFactory.create("Configuration cache state I/O", maxStreams)
+    }
+
+    private
+    val executor: ManagedExecutor by lazyExecutor
+
+    private
+    val permits = Semaphore(maxStreams)
+
+    fun writeBehind(delegate: OutputStream): OutputStream =
+        if (permits.tryAcquire()) WriteBehindOutputStream(delegate, executor, permits::release)
+        else delegate
+
+    fun readAhead(delegate: InputStream): InputStream =
+        if (permits.tryAcquire()) ReadAheadInputStream(delegate, executor, permits::release)
+        else delegate
+
+    override fun close() {
+        if (lazyExecutor.isInitialized()) {
+            executor.stop()
+        }
+    }
+}
+
+
+/**
+ * An [OutputStream] that hands filled chunks to a task running on [executor], which writes them to [delegate].
+ *
+ * The thread encoding the state keeps going while previous chunks are encrypted and written to disk.
+ * Closing the stream waits for all chunks to be written, closes [delegate], calls [onClose] and rethrows any failure of the background task.
+ */
+internal
+class WriteBehindOutputStream(
+    private val delegate: OutputStream,
+    executor: Executor,
+    private val onClose: () -> Unit = {},
+    private val chunkSize: Int = DEFAULT_CHUNK_SIZE,
+    maxPendingChunks: Int = DEFAULT_MAX_PENDING_CHUNKS
+) : OutputStream() {
+
+    private
+    val pending = ArrayBlockingQueue<ByteArray>(maxPendingChunks)
+
+    private
+    var chunk = ByteArray(chunkSize)
+
+    private
+    var count = 0
+
+    private
+    var closed = false
+
+    @Volatile
+    private
+    var failure: Throwable? = null
+
+    private
+    val finished = CountDownLatch(1)
+
+    init {
+        executor.execute {
+            try {
+                writeChunks()
+            } finally {
+                finished.countDown()
+            }
+        }
+    }
+
+    override fun write(b: Int) {
+        if (count == chunk.size) {
+            handOff()
+        }
+        chunk[count++] = b.toByte()
+    }
+
+    override fun write(b: ByteArray, off: Int, len: Int) {
+        var offset = off
+        var remaining = len
+        while (remaining > 0) {
+            if (count == chunk.size) {
+                handOff()
+            }
+            val length = minOf(remaining, chunk.size - count)
+            System.arraycopy(b, offset, chunk, count, length)
+            count += length
+            offset += length
+            remaining -= length
+        }
+    }
+
+    override fun flush() {
+        if (count > 0) {
+            handOff()
+        }
+    }
+
+    override fun close() {
+        if (closed) {
+            return
+        }
+        closed = true
+        try {
+            try {
+                flush()
+            } finally {
+                pending.put(END_OF_STREAM)
+                finished.await()
+            }
+        } finally {
+            try {
+                delegate.close()
+            } finally {
+                onClose()
+            }
+        }
+        failure?.let {
+            throw IOException("Could not write configuration cache state.", it)
+        }
+    }
+
+    private
+    fun handOff() {
+        failure?.let {
+            throw IOException("Could not write configuration cache state.", it)
+        }
+        pending.put(if (count == chunk.size) chunk else chunk.copyOf(count))
+        chunk = ByteArray(chunkSize)
+        count = 0
+    }
+
+    private
+    fun writeChunks() {
+        while (true) {
+            val next = pending.take()
+            if (next === END_OF_STREAM) {
+                return
+            }
+            if (failure == null) {
+                try {
+                    delegate.write(next)
+                } catch (e: Throwable) {
+                    // Keep taking chunks, so the encoding thread does not block
+                    failure = e
+                }
+            }
+        }
+    }
+}
+
+
+/**
+ * An [InputStream] that reads chunks from [delegate] in a task running on [executor], ahead of the thread decoding the state.
+ *
+ * Reading from disk and decrypting happen while previously read chunks are decoded.
+ * Any failure of the background task is rethrown once the chunks read before it have been consumed.
+ * Closing the stream stops the background task, closes [delegate] and calls [onClose].
+ */
+internal
+class ReadAheadInputStream(
+    private val delegate: InputStream,
+    executor: Executor,
+    private val onClose: () -> Unit = {},
+    private val chunkSize: Int = DEFAULT_CHUNK_SIZE,
+    maxPendingChunks: Int = DEFAULT_MAX_PENDING_CHUNKS
+) : InputStream() {
+
+    private
+    val chunks = ArrayBlockingQueue<ByteArray>(maxPendingChunks)
+
+    private
+    var current = END_OF_STREAM
+
+    private
+    var position = 0
+
+    private
+    var endOfStream = false
+
+    private
+    var closed = false
+
+    @Volatile
+    private
+    var failure: Throwable? = null
+
+    private
+    val lock = Any()
+
+    /**
+     * The thread running the background task, to be interrupted on close. Guarded by [lock].
+     */
+    private
+    var reader: Thread? = null
+
+    private
+    var readerStopped = false
+
+    private
+    val finished = CountDownLatch(1)
+
+    init {
+        executor.execute {
+            try {
+                if (startReading()) {
+                    try {
+                        readChunks()
+                    } finally {
+                        stopReading()
+                    }
+                }
+            } finally {
+                finished.countDown()
+            }
+        }
+    }
+
+    override fun read(): Int {
+        if (!ensureAvailable()) {
+            return -1
+        }
+        return current[position++].toInt() and 0xff
+    }
+
+    override fun read(b: ByteArray, off: Int, len: Int): Int {
+        if (len == 0) {
+            return 0
+        }
+        if (!ensureAvailable()) {
+            return -1
+        }
+        val length = minOf(len, current.size - position)
+        System.arraycopy(current, position, b, off, length)
+        position += length
+        return length
+    }
+
+    override fun available(): Int =
+        current.size - position
+
+    override fun close() {
+        if (closed) {
+            return
+        }
+        closed = true
+        try {
+            synchronized(lock) {
+                readerStopped = true
+                reader?.interrupt()
+            }
+            finished.await()
+        } finally {
+            try {
+                delegate.close()
+            } finally {
+                onClose()
+            }
+        }
+    }
+
+    private
+    fun startReading(): Boolean = synchronized(lock) {
+        if (readerStopped) {
+            false
+        } else {
+            reader = Thread.currentThread()
+            true
+        }
+    }
+
+    private
+    fun stopReading() {
+        synchronized(lock) {
+            reader = null
+            // Do not leave the executor thread interrupted
+            Thread.interrupted()
+        }
+    }
+
+    private
+    fun ensureAvailable(): Boolean {
+        while (position == current.size) {
+            if (endOfStream) {
+                return false
+            }
+            val next = chunks.take()
+            if (next === END_OF_STREAM) {
+                endOfStream = true
+                failure?.let {
+                    throw IOException("Could not read configuration cache state.", it)
+                }
+                return false
+            }
+            current = next
+            position = 0
+        }
+        return true
+    }
+
+    private
+    fun readChunks() {
+        try {
+            while (true) {
+                val chunk = ByteArray(chunkSize)
+                val length = readFully(chunk)
+                if (length > 0) {
+                    chunks.put(if (length == chunk.size) chunk else chunk.copyOf(length))
+                }
+                if (length < chunk.size) {
+                    break
+                }
+            }
+        } catch (e: InterruptedException) {
+            // Closed before the end of the stream was reached
+            return
+        } catch (e: Throwable) {
+            failure = e
+        }
+        try {
+            chunks.put(END_OF_STREAM)
+        } catch (e: InterruptedException) {
+            // Closed before the end of the stream was consumed
+        }
+    }
+
+    private
+    fun readFully(chunk: ByteArray): Int {
+        var length = 0
+        while (length < chunk.size) {
+            val read = delegate.read(chunk, length, chunk.size - length)
+            if (read < 0) {
+                break
+            }
+            length += read
+        }
+        return length
+    }
+}
@@ -55,6 +55,36 @@ class JsonModelWriterTest {
         )
     }
 
+    @Test
+    fun `encodes entry sizes`() {
+        assertThat(
+            jsonModelFor {
+                beginModel()
+                endModel(
+                    ConfigurationCacheReportDetails(
+                        "", "", StructuredMessage.forText(""), "", 0,
+                        listOf(ConfigurationCacheEntrySize("build state", "lz4", 1000, 200, listOf("java.lang.String" to 600L, "task" to 300L)))
+                    )
+                )
+            },
+            hasEntry(
+                "entrySizes",
+                listOf(
+                    mapOf(
+                        "stateFile" to "build state",
+                        "compression" to "lz4",
+                        "encodedBytes" to 1000,
+                        "storedBytes" to 200,
+                        "largestFrames" to listOf(
+                            mapOf("frame" to "java.lang.String", "bytes" to 600),
+                            mapOf("frame" to "task", "bytes" to 300)
+                        )
+                    )
+                )
+            )
+        )
+    }
+
     private
     fun jsonModelFor(builder: JsonModelWriter.() -> Unit): Map<String, Any> =
         JsonSlurper().parseText(
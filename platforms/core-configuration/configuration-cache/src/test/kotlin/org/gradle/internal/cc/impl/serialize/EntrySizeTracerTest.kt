@@ -0,0 +1,60 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.cc.impl.serialize
+
+import org.hamcrest.CoreMatchers.equalTo
+import org.hamcrest.MatcherAssert.assertThat
+import org.junit.Test
+
+
+class EntrySizeTracerTest {
+
+    private
+    var position = 0L
+
+    private
+    val tracer = EntrySizeTracer({ position }, null)
+
+    @Test
+    fun `attributes bytes to the innermost frame and aggregates frames by name`() {
+        frame("task") {
+            position += 10
+            frame("java.lang.String") {
+                position += 5
+            }
+            frame("java.io.File") {
+                position += 20
+            }
+            frame("java.lang.String") {
+                position += 7
+            }
+            position += 3
+        }
+
+        assertThat(
+            tracer.largestFrames(2),
+            equalTo(listOf("java.io.File" to 20L, "task" to 13L))
+        )
+    }
+
+    private
+    fun frame(name: String, action: () -> Unit) {
+        tracer.open(name)
+        action()
+        tracer.close(name)
+    }
+}
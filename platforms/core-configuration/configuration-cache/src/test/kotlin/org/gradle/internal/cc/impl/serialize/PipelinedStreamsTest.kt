@@ -0,0 +1,176 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.cc.impl.serialize
+
+import org.gradle.internal.concurrent.DefaultExecutorFactory
+import org.hamcrest.CoreMatchers.equalTo
+import org.hamcrest.CoreMatchers.sameInstance
+import org.hamcrest.MatcherAssert.assertThat
+import org.junit.Assert.fail
+import org.junit.After
+import org.junit.Test
+import java.io.ByteArrayInputStream
+import java.io.ByteArrayOutputStream
+import java.io.IOException
+import java.io.InputStream
+import java.io.OutputStream
+import java.util.concurrent.Executors
+import kotlin.random.Random
+
+
+class PipelinedStreamsTest {
+
+    private
+    val bytes = Random(42).nextBytes(100_000)
+
+    private
+    val executor = Executors.newCachedThreadPool()
+
+    @After
+    fun stopExecutor() {
+        executor.shutdownNow()
+    }
+
+    @Test
+    fun `writes all bytes in order`() {
+        val sink = ClosingByteArrayOutputStream()
+
+        WriteBehindOutputStream(sink, executor, chunkSize = 1000, maxPendingChunks = 2).use { outputStream ->
+            outputStream.write(bytes[0].toInt())
+            outputStream.write(bytes, 1, 4999)
+            outputStream.flush()
+            outputStream.write(bytes, 5000, bytes.size - 5000)
+        }
+
+        assertThat(sink.toByteArray(), equalTo(bytes))
+        assertThat(sink.closed, equalTo(true))
+    }
+
+    @Test
+    fun `rethrows write failure on close`() {
+        val failure = IOException("broken")
+        val sink = object : OutputStream() {
+            override fun write(b: Int) = throw failure
+            override fun write(b: ByteArray, off: Int, len: Int) = throw failure
+        }
+
+        try {
+            WriteBehindOutputStream(sink, executor, chunkSize = 10, maxPendingChunks = 1).use { outputStream ->
+                outputStream.write(bytes, 0, 5)
+            }
+            fail()
+        } catch (e: IOException) {
+            assertThat(e.cause, sameInstance(failure))
+        }
+    }
+
+    @Test
+    fun `reads all bytes in order`() {
+        val source = ByteArrayInputStream(bytes)
+
+        val result = ByteArrayOutputStream()
+        ReadAheadInputStream(source, executor, chunkSize = 1000, maxPendingChunks = 2).use { inputStream ->
+            result.write(inputStream.read())
+            val buffer = ByteArray(777)
+            while (true) {
+                val read = inputStream.read(buffer)
+                if (read < 0) {
+                    break
+                }
+                result.write(buffer, 0, read)
+            }
+            assertThat(inputStream.read(), equalTo(-1))
+        }
+
+        assertThat(result.toByteArray(), equalTo(bytes))
+    }
+
+    @Test
+    fun `rethrows read failure after bytes read before the failure`() {
+        val failure = IOException("broken")
+        val source = object : InputStream() {
+            var remaining = 10
+            override fun read(): Int = throw UnsupportedOperationException()
+            override fun read(b: ByteArray, off: Int, len: Int): Int {
+                if (remaining == 0) {
+                    throw failure
+                }
+                val read = minOf(len, remaining)
+                remaining -= read
+                return read
+            }
+        }
+
+        ReadAheadInputStream(source, executor, chunkSize = 4, maxPendingChunks = 1).use { inputStream ->
+            repeat(10) {
+                assertThat(inputStream.read(), equalTo(0))
+            }
+            try {
+                inputStream.read()
+                fail()
+            } catch (e: IOException) {
+                assertThat(e.cause, sameInstance(failure))
+            }
+        }
+    }
+
+    @Test
+    fun `can close before reading all bytes`() {
+        val source = ClosingByteArrayInputStream(bytes)
+
+        ReadAheadInputStream(source, executor, chunkSize = 10, maxPendingChunks = 1).use { inputStream ->
+            assertThat(inputStream.read(), equalTo(bytes[0].toInt() and 0xff))
+        }
+
+        assertThat(source.closed, equalTo(true))
+    }
+
+    @Test
+    fun `pipelines at most the given number of streams at a time`() {
+        PipelinedStreamFactory(DefaultExecutorFactory(), 1).use { factory ->
+            val sink = ClosingByteArrayOutputStream()
+            val first = factory.writeBehind(sink)
+            assertThat(first is WriteBehindOutputStream, equalTo(true))
+
+            val source = ClosingByteArrayInputStream(bytes)
+            assertThat(factory.readAhead(source), sameInstance<InputStream>(source))
+
+            first.close()
+            factory.readAhead(source).use { second ->
+                assertThat(second is ReadAheadInputStream, equalTo(true))
+            }
+        }
+    }
+
+    private
+    class ClosingByteArrayOutputStream : ByteArrayOutputStream() {
+        var closed = false
+
+        override fun close() {
+            closed = true
+        }
+    }
+
+    private
+    class ClosingByteArrayInputStream(bytes: ByteArray) : ByteArrayInputStream(bytes) {
+        var closed = false
+
+        override fun close() {
+            closed = true
+        }
+    }
+}
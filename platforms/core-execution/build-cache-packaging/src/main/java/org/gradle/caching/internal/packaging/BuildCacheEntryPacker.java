@@ -27,8 +27,18 @@
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.Map;
+import java.util.Optional;
 
 public interface BuildCacheEntryPacker {
+    /**
+     * Returns the format of the packed entries when it differs from the gzip compressed format that all Gradle versions can read.
+     *
+     * The format is mixed into the key of the stored entries, so entries in a different format are never loaded by a client that cannot read them.
+     */
+    default Optional<String> getEntryFormat() {
+        return Optional.empty();
+    }
+
     PackResult pack(CacheableEntity entity, Map<String, ? extends FileSystemSnapshot> snapshots, OutputStream output, OriginWriter writeOrigin) throws IOException;
 
     class PackResult {
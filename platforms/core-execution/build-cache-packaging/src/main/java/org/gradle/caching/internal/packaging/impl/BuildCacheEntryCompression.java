@@ -0,0 +1,198 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.internal.packaging.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Locale;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compression applied to build cache entries.
+ *
+ * <p>
+ * Entries compressed with {@link #GZIP} are written as plain gzip streams, so they stay readable by older Gradle versions.
+ * All other codecs prefix the entry with a {@linkplain #MAGIC marker} followed by the codec id.
+ * When reading, the codec is detected from the first bytes of the entry, so entries written with any codec can be loaded
+ * regardless of the codec configured for storing.
+ * </p>
+ */
+public enum BuildCacheEntryCompression {
+    /**
+     * Gzip compression, the default. The level can be tuned to trade entry size for packing speed.
+     */
+    GZIP((byte) 0) {
+        @Override
+        OutputStream wrap(OutputStream output, int level) throws IOException {
+            return new LeveledGZIPOutputStream(output, level);
+        }
+
+        @Override
+        InputStream wrap(InputStream input) throws IOException {
+            return new GZIPInputStream(input);
+        }
+    },
+
+    /**
+     * No compression, useful for outputs that are already compressed like jars or images. The level is ignored.
+     */
+    STORE((byte) 1) {
+        @Override
+        OutputStream wrap(OutputStream output, int level) {
+            return output;
+        }
+
+        @Override
+        InputStream wrap(InputStream input) {
+            return input;
+        }
+    },
+
+    /**
+     * LZ4 compression, which packs and unpacks much faster than gzip at the cost of larger entries. The level is ignored.
+     */
+    LZ4((byte) 2) {
+        @Override
+        OutputStream wrap(OutputStream output, int level) {
+            return new Lz4BlockOutputStream(output);
+        }
+
+        @Override
+        InputStream wrap(InputStream input) {
+            return new Lz4BlockInputStream(input);
+        }
+    };
+
+    /**
+     * Marker written at the start of entries not using {@link #GZIP}.
+     * The first byte can never start a gzip stream, which always starts with {@code 0x1f 0x8b}.
+     */
+    static final byte[] MAGIC = {'G', 'B', 'C', 'E'};
+
+    static final int GZIP_MAGIC_FIRST_BYTE = 0x1f;
+
+    private final byte id;
+
+    BuildCacheEntryCompression(byte id) {
+        this.id = id;
+    }
+
+    byte getId() {
+        return id;
+    }
+
+    abstract OutputStream wrap(OutputStream output, int level) throws IOException;
+
+    abstract InputStream wrap(InputStream input) throws IOException;
+
+    static BuildCacheEntryCompression forId(byte id) {
+        for (BuildCacheEntryCompression compression : values()) {
+            if (compression.id == id && compression != GZIP) {
+                return compression;
+            }
+        }
+        throw new IllegalStateException("Cached entry format error, unknown compression: " + id);
+    }
+
+    /**
+     * The name of the codec, as used in compression specifications.
+     */
+    public String getDisplayName() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Parses a compression specification of the form {@code <codec>[:<level>]}, e.g. {@code gzip:1}, {@code lz4} or {@code store}.
+     */
+    public static Specification parse(String value) {
+        String trimmed = value.trim();
+        int separator = trimmed.indexOf(':');
+        String name = separator < 0 ? trimmed : trimmed.substring(0, separator);
+        BuildCacheEntryCompression compression;
+        try {
+            compression = valueOf(name.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown build cache entry compression: '" + value + "'", e);
+        }
+        int level = Deflater.DEFAULT_COMPRESSION;
+        if (separator >= 0) {
+            try {
+                level = Integer.parseInt(trimmed.substring(separator + 1));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid build cache entry compression level: '" + value + "'", e);
+            }
+            if (level < Deflater.NO_COMPRESSION || level > Deflater.BEST_COMPRESSION) {
+                throw new IllegalArgumentException("Build cache entry compression level must be between 0 and 9: '" + value + "'");
+            }
+        }
+        return new Specification(compression, level);
+    }
+
+    /**
+     * A compression codec together with its level.
+     */
+    public static final class Specification {
+        public static final Specification DEFAULT = new Specification(GZIP, Deflater.DEFAULT_COMPRESSION);
+
+        private final BuildCacheEntryCompression compression;
+        private final int level;
+
+        public Specification(BuildCacheEntryCompression compression, int level) {
+            this.compression = compression;
+            this.level = level;
+        }
+
+        public BuildCacheEntryCompression getCompression() {
+            return compression;
+        }
+
+        public int getLevel() {
+            return level;
+        }
+
+        /**
+         * Compresses the data written to the given stream with this codec, without the marker identifying the codec.
+         */
+        public OutputStream compress(OutputStream output) throws IOException {
+            return compression.wrap(output, level);
+        }
+
+        /**
+         * Decompresses data written by {@link #compress(OutputStream)} with the same codec.
+         */
+        public InputStream decompress(InputStream input) throws IOException {
+            return compression.wrap(input);
+        }
+
+        @Override
+        public String toString() {
+            return level == Deflater.DEFAULT_COMPRESSION
+                ? compression.getDisplayName()
+                : compression.getDisplayName() + ":" + level;
+        }
+    }
+
+    private static class LeveledGZIPOutputStream extends GZIPOutputStream {
+        public LeveledGZIPOutputStream(OutputStream output, int level) throws IOException {
+            super(output);
+            def.setLevel(level);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.internal.packaging.impl;
+
+import org.gradle.caching.internal.CacheableEntity;
+import org.gradle.caching.internal.origin.OriginReader;
+import org.gradle.caching.internal.origin.OriginWriter;
+import org.gradle.caching.internal.packaging.BuildCacheEntryPacker;
+import org.gradle.internal.snapshot.FileSystemSnapshot;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.gradle.caching.internal.packaging.impl.BuildCacheEntryCompression.GZIP;
+import static org.gradle.caching.internal.packaging.impl.BuildCacheEntryCompression.GZIP_MAGIC_FIRST_BYTE;
+import static org.gradle.caching.internal.packaging.impl.BuildCacheEntryCompression.MAGIC;
+
+/**
+ * Compresses build cache entries with a configurable {@link BuildCacheEntryCompression}.
+ *
+ * Entries are always unpacked with the compression they were packed with, independent of the configured one.
+ * Entries not compressed with gzip are stored under a different key, see {@link #getEntryFormat()},
+ * so that clients only reading gzip compressed entries never load them.
+ */
+public class CompressingBuildCacheEntryPacker implements BuildCacheEntryPacker {
+    private final BuildCacheEntryPacker delegate;
+    private final BuildCacheEntryCompression.Specification compression;
+
+    public CompressingBuildCacheEntryPacker(BuildCacheEntryPacker delegate, BuildCacheEntryCompression.Specification compression) {
+        this.delegate = delegate;
+        this.compression = compression;
+    }
+
+    @Override
+    public Optional<String> getEntryFormat() {
+        BuildCacheEntryCompression codec = compression.getCompression();
+        return codec == GZIP
+            ? Optional.empty()
+            : Optional.of(codec.getDisplayName());
+    }
+
+    @Override
+    public PackResult pack(CacheableEntity entity, Map<String, ? extends FileSystemSnapshot> snapshots, OutputStream output, OriginWriter writeOrigin) throws IOException {
+        try (OutputStream compressedOutput = compress(output, compression)) {
+            return delegate.pack(entity, snapshots, compressedOutput, writeOrigin);
+        }
+    }
+
+    @Override
+    public UnpackResult unpack(CacheableEntity entity, InputStream input, OriginReader readOrigin) throws IOException {
+        try (InputStream decompressedInput = decompress(input)) {
+            return delegate.unpack(entity, decompressedInput, readOrigin);
+        }
+    }
+
+    /**
+     * Wraps the given stream so that data written to it is compressed with the given compression.
+     */
+    public static OutputStream compress(OutputStream output, BuildCacheEntryCompression.Specification compression) throws IOException {
+        BuildCacheEntryCompression codec = compression.getCompression();
+        if (codec != GZIP) {
+            output.write(MAGIC);
+            output.write(codec.getId());
+        }
+        return codec.wrap(output, compression.getLevel());
+    }
+
+    /**
+     * Wraps the given stream so that data read from it is decompressed, detecting the compression from the stream header.
+     */
+    public static InputStream decompress(InputStream input) throws IOException {
+        InputStream bufferedInput = input.markSupported() ? input : new BufferedInputStream(input);
+        bufferedInput.mark(1);
+        int first = bufferedInput.read();
+        bufferedInput.reset();
+        if (first == GZIP_MAGIC_FIRST_BYTE) {
+            return GZIP.wrap(bufferedInput);
+        }
+        if (first == -1) {
+            throw new EOFException("Cached entry format error, entry is empty");
+        }
+        byte[] header = new byte[MAGIC.length + 1];
+        new DataInputStream(bufferedInput).readFully(header);
+        if (!Arrays.equals(MAGIC, Arrays.copyOf(header, MAGIC.length))) {
+            throw new IllegalStateException("Cached entry format error, unknown entry header");
+        }
+        return BuildCacheEntryCompression.forId(header[MAGIC.length]).wrap(bufferedInput);
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.internal.packaging.impl;
+
+import io.airlift.compress.lz4.Lz4Decompressor;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads data written by {@link Lz4BlockOutputStream}.
+ */
+class Lz4BlockInputStream extends InputStream {
+    private final DataInputStream input;
+    private final Lz4Decompressor decompressor = new Lz4Decompressor();
+    private final byte[] block = new byte[Lz4BlockOutputStream.BLOCK_SIZE];
+    private byte[] compressed = new byte[0];
+    private int position;
+    private int count;
+    private boolean endOfStream;
+
+    Lz4BlockInputStream(InputStream input) {
+        this.input = new DataInputStream(input);
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!ensureAvailable()) {
+            return -1;
+        }
+        return block[position++] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (!ensureAvailable()) {
+            return -1;
+        }
+        int length = Math.min(len, count - position);
+        System.arraycopy(block, position, b, off, length);
+        position += length;
+        return length;
+    }
+
+    @Override
+    public int available() {
+        return count - position;
+    }
+
+    private boolean ensureAvailable() throws IOException {
+        while (position == count) {
+            if (endOfStream) {
+                return false;
+            }
+            readBlock();
+        }
+        return true;
+    }
+
+    private void readBlock() throws IOException {
+        int length = input.readInt();
+        if (length == 0) {
+            endOfStream = true;
+            return;
+        }
+        int compressedLength = input.readInt();
+        if (length < 0 || length > block.length || compressedLength < 0) {
+            throw new IllegalStateException("Cached entry format error, invalid LZ4 block of length " + length);
+        }
+        if (compressed.length < compressedLength) {
+            compressed = new byte[compressedLength];
+        }
+        input.readFully(compressed, 0, compressedLength);
+        int decompressedLength = decompressor.decompress(compressed, 0, compressedLength, block, 0, length);
+        if (decompressedLength != length) {
+            throw new IllegalStateException("Cached entry format error, LZ4 block decompressed to " + decompressedLength + " bytes instead of " + length);
+        }
+        position = 0;
+        count = length;
+    }
+
+    @Override
+    public void close() throws IOException {
+        input.close();
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.internal.packaging.impl;
+
+import io.airlift.compress.lz4.Lz4Compressor;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Compresses data with LZ4 in independent blocks.
+ *
+ * Each block is written as its uncompressed length, its compressed length and the compressed bytes.
+ * The stream ends with a block of length 0.
+ */
+class Lz4BlockOutputStream extends OutputStream {
+    static final int BLOCK_SIZE = 64 * 1024;
+
+    private final DataOutputStream output;
+    private final Lz4Compressor compressor = new Lz4Compressor();
+    private final byte[] block = new byte[BLOCK_SIZE];
+    private final byte[] compressed = new byte[compressor.maxCompressedLength(BLOCK_SIZE)];
+    private int count;
+    private boolean closed;
+
+    Lz4BlockOutputStream(OutputStream output) {
+        this.output = new DataOutputStream(output);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (count == block.length) {
+            writeBlock();
+        }
+        block[count++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        while (len > 0) {
+            if (count == block.length) {
+                writeBlock();
+            }
+            int length = Math.min(len, block.length - count);
+            System.arraycopy(b, off, block, count, length);
+            count += length;
+            off += length;
+            len -= length;
+        }
+    }
+
+    private void writeBlock() throws IOException {
+        int compressedLength = compressor.compress(block, 0, count, compressed, 0, compressed.length);
+        output.writeInt(count);
+        output.writeInt(compressedLength);
+        output.write(compressed, 0, compressedLength);
+        count = 0;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (count > 0) {
+            writeBlock();
+        }
+        output.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            if (count > 0) {
+                writeBlock();
+            }
+            output.writeInt(0);
+        } finally {
+            output.close();
+        }
+    }
+}
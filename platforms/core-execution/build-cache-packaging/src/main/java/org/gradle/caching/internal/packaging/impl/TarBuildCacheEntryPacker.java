@@ -32,6 +32,7 @@
 import org.gradle.caching.internal.origin.OriginWriter;
 import org.gradle.caching.internal.packaging.BuildCacheEntryPacker;
 import org.gradle.internal.RelativePathSupplier;
+import org.gradle.internal.UncheckedException;
 import org.gradle.internal.file.BufferProvider;
 import org.gradle.internal.file.FileType;
 import org.gradle.internal.file.PathTraversalChecker;
@@ -53,12 +54,14 @@
 
 import javax.annotation.Nullable;
 import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
 import java.io.UncheckedIOException;
 import java.io.UnsupportedEncodingException;
@@ -66,8 +69,15 @@
 import java.net.URLEncoder;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -77,6 +87,12 @@
 
 /**
  * Packages build cache entries to a POSIX TAR file.
+ *
+ * <p>
+ * When an unpack executor is given, unpacking is pipelined: the calling thread reads and decompresses the archive,
+ * while regular files of directory trees are written, chmod-ed and hashed on the executor.
+ * The snapshots are still assembled in archive order, so the result is the same as when unpacking sequentially.
+ * </p>
  */
 public class TarBuildCacheEntryPacker implements BuildCacheEntryPacker {
 
@@ -93,11 +109,24 @@ private interface UnixPermissions {
     private static final String METADATA_PATH = "METADATA";
     private static final Pattern TREE_PATH = Pattern.compile("(missing-)?tree-([^/]+)(?:/(.*))?");
 
+    /**
+     * Files larger than this are unpacked on the calling thread, as buffering them would cost more than it saves.
+     */
+    private static final int MAX_PIPELINED_FILE_SIZE = 1024 * 1024;
+
+    /**
+     * Upper bound for file contents that have been read from the archive, but not yet written to disk.
+     */
+    private static final int MAX_PIPELINED_BYTES_IN_FLIGHT = 64 * MAX_PIPELINED_FILE_SIZE;
+
     private final TarPackerFileSystemSupport fileSystemSupport;
     private final FilePermissionAccess filePermissionAccess;
     private final StreamHasher streamHasher;
     private final Interner<String> stringInterner;
     private final BufferProvider bufferProvider;
+    @Nullable
+    private final Executor unpackExecutor;
+    private final Semaphore unpackBytesInFlight = new Semaphore(MAX_PIPELINED_BYTES_IN_FLIGHT);
 
     public TarBuildCacheEntryPacker(
         TarPackerFileSystemSupport fileSystemSupport,
@@ -105,12 +134,24 @@ public TarBuildCacheEntryPacker(
         StreamHasher streamHasher,
         Interner<String> stringInterner,
         BufferProvider bufferProvider
+    ) {
+        this(fileSystemSupport, filePermissionAccess, streamHasher, stringInterner, bufferProvider, null);
+    }
+
+    public TarBuildCacheEntryPacker(
+        TarPackerFileSystemSupport fileSystemSupport,
+        FilePermissionAccess filePermissionAccess,
+        StreamHasher streamHasher,
+        Interner<String> stringInterner,
+        BufferProvider bufferProvider,
+        @Nullable Executor unpackExecutor
     ) {
         this.fileSystemSupport = fileSystemSupport;
         this.filePermissionAccess = filePermissionAccess;
         this.streamHasher = streamHasher;
         this.stringInterner = stringInterner;
         this.bufferProvider = bufferProvider;
+        this.unpackExecutor = unpackExecutor;
     }
 
     @Override
@@ -266,7 +307,7 @@ private TarArchiveEntry unpackTree(String treeName, TreeType treeType, File tree
         return unpackDirectoryTree(input, rootEntry, snapshots, entries, treeRoot, treeName);
     }
 
-    private RegularFileSnapshot unpackFile(TarArchiveInputStream input, TarArchiveEntry entry, File file, String fileName) throws IOException {
+    private RegularFileSnapshot unpackFile(InputStream input, TarArchiveEntry entry, File file, String fileName) throws IOException {
         try (CountingOutputStream output = new CountingOutputStream(new FileOutputStream(file))) {
             HashCode hash = streamHasher.hashCopy(input, output);
             chmodUnpackedFile(entry, file);
@@ -280,39 +321,196 @@ private RegularFileSnapshot unpackFile(TarArchiveInputStream input, TarArchiveEn
     private TarArchiveEntry unpackDirectoryTree(TarArchiveInputStream input, TarArchiveEntry rootEntry, Map<String, FileSystemLocationSnapshot> snapshots, AtomicLong entries, File treeRoot, String treeName) throws IOException {
         RelativePathParser parser = new RelativePathParser(safeEntryName(rootEntry));
 
-        DirectorySnapshotBuilder builder = MerkleDirectorySnapshotBuilder.noSortingRequired();
-        builder.enterDirectory(DIRECT, stringInterner.intern(treeRoot.getAbsolutePath()), stringInterner.intern(treeRoot.getName()), INCLUDE_EMPTY_DIRS);
+        UnpackingDirectorySnapshotBuilder builder = unpackExecutor == null
+            ? new SequentialDirectorySnapshotBuilder()
+            : new PipelinedDirectorySnapshotBuilder(unpackExecutor);
+        builder.enterDirectory(stringInterner.intern(treeRoot.getAbsolutePath()), stringInterner.intern(treeRoot.getName()));
 
         TarArchiveEntry entry;
 
-        while ((entry = input.getNextEntry()) != null) {
-            boolean isDir = entry.isDirectory();
-            boolean outsideOfRoot = parser.nextPath(safeEntryName(entry), isDir, builder::leaveDirectory);
-            if (outsideOfRoot) {
-                break;
+        try {
+            while ((entry = input.getNextEntry()) != null) {
+                boolean isDir = entry.isDirectory();
+                boolean outsideOfRoot = parser.nextPath(safeEntryName(entry), isDir, builder::leaveDirectory);
+                if (outsideOfRoot) {
+                    break;
+                }
+                entries.incrementAndGet();
+
+                File file = new File(treeRoot, parser.getRelativePath());
+                if (isDir) {
+                    FileUtils.forceMkdir(file);
+                    chmodUnpackedFile(entry, file);
+                    String internedAbsolutePath = stringInterner.intern(file.getAbsolutePath());
+                    String internedName = stringInterner.intern(parser.getName());
+                    builder.enterDirectory(internedAbsolutePath, internedName);
+                } else {
+                    builder.visitFile(input, entry, file, parser.getName());
+                }
             }
-            entries.incrementAndGet();
 
-            File file = new File(treeRoot, parser.getRelativePath());
-            if (isDir) {
-                FileUtils.forceMkdir(file);
-                chmodUnpackedFile(entry, file);
-                String internedAbsolutePath = stringInterner.intern(file.getAbsolutePath());
-                String internedName = stringInterner.intern(parser.getName());
-                builder.enterDirectory(DIRECT, internedAbsolutePath, internedName, INCLUDE_EMPTY_DIRS);
-            } else {
-                RegularFileSnapshot fileSnapshot = unpackFile(input, entry, file, parser.getName());
-                builder.visitLeafElement(fileSnapshot);
-            }
+            parser.exitToRoot(builder::leaveDirectory);
+            builder.leaveDirectory();
+        } catch (IOException | RuntimeException | Error e) {
+            builder.abandon();
+            throw e;
         }
 
-        parser.exitToRoot(builder::leaveDirectory);
-        builder.leaveDirectory();
-
         snapshots.put(treeName, builder.getResult());
         return entry;
     }
 
+    /**
+     * Builds the snapshot of a directory tree while unpacking its files.
+     */
+    private interface UnpackingDirectorySnapshotBuilder {
+        void enterDirectory(String absolutePath, String name);
+
+        void visitFile(TarArchiveInputStream input, TarArchiveEntry entry, File file, String fileName) throws IOException;
+
+        void leaveDirectory();
+
+        /**
+         * Waits for all the pending work, so the result of the unpacking can be discarded safely.
+         */
+        void abandon();
+
+        FileSystemLocationSnapshot getResult() throws IOException;
+    }
+
+    private class SequentialDirectorySnapshotBuilder implements UnpackingDirectorySnapshotBuilder {
+        private final DirectorySnapshotBuilder delegate = MerkleDirectorySnapshotBuilder.noSortingRequired();
+
+        @Override
+        public void enterDirectory(String absolutePath, String name) {
+            delegate.enterDirectory(DIRECT, absolutePath, name, INCLUDE_EMPTY_DIRS);
+        }
+
+        @Override
+        public void visitFile(TarArchiveInputStream input, TarArchiveEntry entry, File file, String fileName) throws IOException {
+            delegate.visitLeafElement(unpackFile(input, entry, file, fileName));
+        }
+
+        @Override
+        public void leaveDirectory() {
+            delegate.leaveDirectory();
+        }
+
+        @Override
+        public void abandon() {
+        }
+
+        @Override
+        public FileSystemLocationSnapshot getResult() {
+            return delegate.getResult();
+        }
+    }
+
+    /**
+     * Writes files on an executor, and replays the visited tree in archive order once all files have been written.
+     */
+    private class PipelinedDirectorySnapshotBuilder implements UnpackingDirectorySnapshotBuilder {
+        private final Executor executor;
+        private final List<TreeEvent> events = new ArrayList<>();
+        private final List<Future<RegularFileSnapshot>> pendingFiles = new ArrayList<>();
+
+        public PipelinedDirectorySnapshotBuilder(Executor executor) {
+            this.executor = executor;
+        }
+
+        @Override
+        public void enterDirectory(String absolutePath, String name) {
+            events.add(builder -> builder.enterDirectory(DIRECT, absolutePath, name, INCLUDE_EMPTY_DIRS));
+        }
+
+        @Override
+        public void visitFile(TarArchiveInputStream input, TarArchiveEntry entry, File file, String fileName) throws IOException {
+            long size = entry.getSize();
+            if (size > MAX_PIPELINED_FILE_SIZE) {
+                RegularFileSnapshot fileSnapshot = unpackFile(input, entry, file, fileName);
+                events.add(builder -> builder.visitLeafElement(fileSnapshot));
+                return;
+            }
+            int length = (int) size;
+            try {
+                unpackBytesInFlight.acquire(length);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while unpacking " + file);
+            }
+            FutureTask<RegularFileSnapshot> pendingFile;
+            try {
+                byte[] content = new byte[length];
+                IOUtils.readFully(input, content);
+                pendingFile = new FutureTask<>(() -> {
+                    try {
+                        return unpackFile(new ByteArrayInputStream(content), entry, file, fileName);
+                    } finally {
+                        unpackBytesInFlight.release(length);
+                    }
+                });
+            } catch (IOException | RuntimeException | Error e) {
+                unpackBytesInFlight.release(length);
+                throw e;
+            }
+            pendingFiles.add(pendingFile);
+            events.add(builder -> builder.visitLeafElement(await(pendingFile)));
+            executor.execute(pendingFile);
+        }
+
+        @Override
+        public void leaveDirectory() {
+            events.add(DirectorySnapshotBuilder::leaveDirectory);
+        }
+
+        @Override
+        public void abandon() {
+            for (Future<RegularFileSnapshot> pendingFile : pendingFiles) {
+                try {
+                    pendingFile.get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                } catch (ExecutionException ignored) {
+                    // We are already failing
+                }
+            }
+        }
+
+        @Override
+        public FileSystemLocationSnapshot getResult() throws IOException {
+            DirectorySnapshotBuilder builder = MerkleDirectorySnapshotBuilder.noSortingRequired();
+            try {
+                for (TreeEvent event : events) {
+                    event.replay(builder);
+                }
+            } catch (IOException | RuntimeException | Error e) {
+                abandon();
+                throw e;
+            }
+            return builder.getResult();
+        }
+
+        private RegularFileSnapshot await(Future<RegularFileSnapshot> pendingFile) throws IOException {
+            try {
+                return pendingFile.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while unpacking");
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof IOException) {
+                    throw (IOException) cause;
+                }
+                throw UncheckedException.throwAsUncheckedException(cause);
+            }
+        }
+    }
+
+    private interface TreeEvent {
+        void replay(DirectorySnapshotBuilder builder) throws IOException;
+    }
+
     /**
      * Returns a safe name for the name of a tar archive entry.
      *
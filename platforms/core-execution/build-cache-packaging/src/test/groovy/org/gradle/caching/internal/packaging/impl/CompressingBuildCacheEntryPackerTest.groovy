@@ -0,0 +1,146 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.internal.packaging.impl
+
+import org.gradle.caching.internal.packaging.BuildCacheEntryPacker
+import spock.lang.Specification
+
+import java.util.zip.GZIPInputStream
+import java.util.zip.GZIPOutputStream
+
+class CompressingBuildCacheEntryPackerTest extends Specification {
+    def content = ("some cacheable output " * 100).bytes
+
+    def "can round-trip entry compressed with #spec"() {
+        def compression = BuildCacheEntryCompression.parse(spec)
+
+        when:
+        def bytes = compress(compression)
+
+        then:
+        decompress(bytes) == content
+
+        where:
+        spec << ["gzip", "gzip:1", "gzip:9", "lz4", "store", "store:0"]
+    }
+
+    def "can round-trip streams compressed with #spec without marker"() {
+        def compression = BuildCacheEntryCompression.parse(spec)
+        def output = new ByteArrayOutputStream()
+
+        when:
+        compression.compress(output).withStream { it.write(content) }
+
+        then:
+        compression.decompress(new ByteArrayInputStream(output.toByteArray())).bytes == content
+        output.toByteArray()[0..3] != BuildCacheEntryCompression.MAGIC as List
+
+        where:
+        spec << ["gzip:1", "lz4", "store"]
+    }
+
+    def "gzip entries are written without marker"() {
+        when:
+        def bytes = compress(BuildCacheEntryCompression.parse("gzip:1"))
+
+        then:
+        new GZIPInputStream(new ByteArrayInputStream(bytes)).bytes == content
+    }
+
+    def "can read plain gzip entries"() {
+        def output = new ByteArrayOutputStream()
+        new GZIPOutputStream(output).withStream { it.write(content) }
+
+        expect:
+        decompress(output.toByteArray()) == content
+    }
+
+    def "stored entries are marked and not compressed"() {
+        when:
+        def bytes = compress(BuildCacheEntryCompression.parse("store"))
+
+        then:
+        bytes.length == content.length + BuildCacheEntryCompression.MAGIC.length + 1
+        bytes[0..3] == BuildCacheEntryCompression.MAGIC as List
+    }
+
+    def "can round-trip entry spanning several LZ4 blocks"() {
+        def random = new Random(1234)
+        def largeContent = new byte[Lz4BlockOutputStream.BLOCK_SIZE * 3 + 17]
+        random.nextBytes(largeContent)
+        def output = new ByteArrayOutputStream()
+        CompressingBuildCacheEntryPacker.compress(output, BuildCacheEntryCompression.parse("lz4")).withStream { it.write(largeContent) }
+
+        expect:
+        CompressingBuildCacheEntryPacker.decompress(new ByteArrayInputStream(output.toByteArray())).bytes == largeContent
+    }
+
+    def "entries compressed with #spec are in format #format"() {
+        def packer = new CompressingBuildCacheEntryPacker(Stub(BuildCacheEntryPacker), BuildCacheEntryCompression.parse(spec))
+
+        expect:
+        packer.entryFormat == Optional.ofNullable(format)
+
+        where:
+        spec     | format
+        "gzip"   | null
+        "gzip:1" | null
+        "lz4"    | "lz4"
+        "store"  | "store"
+    }
+
+    def "fails on unknown entry header"() {
+        when:
+        decompress("not a cache entry".bytes)
+
+        then:
+        def ex = thrown(IllegalStateException)
+        ex.message == "Cached entry format error, unknown entry header"
+    }
+
+    def "fails on unknown codec"() {
+        def bytes = BuildCacheEntryCompression.MAGIC + ([42] as byte[])
+
+        when:
+        decompress(bytes)
+
+        then:
+        def ex = thrown(IllegalStateException)
+        ex.message == "Cached entry format error, unknown compression: 42"
+    }
+
+    def "rejects invalid specification '#spec'"() {
+        when:
+        BuildCacheEntryCompression.parse(spec)
+
+        then:
+        thrown(IllegalArgumentException)
+
+        where:
+        spec << ["lzma", "gzip:fast", "gzip:10"]
+    }
+
+    private byte[] compress(BuildCacheEntryCompression.Specification compression) {
+        def output = new ByteArrayOutputStream()
+        CompressingBuildCacheEntryPacker.compress(output, compression).withStream { it.write(content) }
+        return output.toByteArray()
+    }
+
+    private static byte[] decompress(byte[] bytes) {
+        return CompressingBuildCacheEntryPacker.decompress(new ByteArrayInputStream(bytes)).bytes
+    }
+}
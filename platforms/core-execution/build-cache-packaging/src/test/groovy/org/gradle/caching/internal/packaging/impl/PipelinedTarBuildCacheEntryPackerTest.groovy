@@ -0,0 +1,80 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.internal.packaging.impl
+
+import org.gradle.internal.file.BufferProvider
+import org.gradle.internal.snapshot.FileSystemLocationSnapshot
+import org.gradle.internal.snapshot.RelativePathTracker
+import org.gradle.internal.snapshot.RelativePathTrackingFileSystemSnapshotHierarchyVisitor
+import org.gradle.internal.snapshot.SnapshotVisitResult
+
+import java.util.concurrent.Executor
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+
+import static org.gradle.internal.file.TreeType.DIRECTORY
+
+class PipelinedTarBuildCacheEntryPackerTest extends TarBuildCacheEntryPackerTest {
+    ExecutorService executor
+
+    @Override
+    protected Executor createUnpackExecutor() {
+        executor = Executors.newFixedThreadPool(4)
+        return executor
+    }
+
+    def cleanup() {
+        executor.shutdownNow()
+    }
+
+    def "unpacks the same snapshot as sequential unpacking"() {
+        def sourceOutputDir = temporaryFolder.file("source").createDir()
+        20.times { dirIndex ->
+            def dir = sourceOutputDir.file("dir-$dirIndex").createDir()
+            dir.file("nested").createDir().file("nested.txt") << "nested $dirIndex"
+            50.times { fileIndex ->
+                dir.file("file-${fileIndex}.txt") << "content $dirIndex/$fileIndex\n" * fileIndex
+            }
+        }
+        sourceOutputDir.file("empty").createDir()
+        sourceOutputDir.file("large.bin").bytes = new byte[2 * 1024 * 1024]
+        def output = new ByteArrayOutputStream()
+        pack output, prop(DIRECTORY, sourceOutputDir)
+        def sequentialPacker = new TarBuildCacheEntryPacker(fileSystemSupport, filePermissionAccess, streamHasher, stringInterner, Stub(BufferProvider) {
+            getBuffer() >> new byte[4096]
+        })
+
+        when:
+        def pipelinedResult = unpack new ByteArrayInputStream(output.toByteArray()), prop(DIRECTORY, temporaryFolder.file("target"))
+        def sequentialResult = sequentialPacker.unpack(entity(prop(DIRECTORY, temporaryFolder.file("target"))), new ByteArrayInputStream(output.toByteArray()), readOrigin)
+
+        then:
+        pipelinedResult.entries == sequentialResult.entries
+        describe(pipelinedResult.snapshots["test"]) == describe(sequentialResult.snapshots["test"])
+        pipelinedResult.snapshots["test"].hash == sequentialResult.snapshots["test"].hash
+        temporaryFolder.file("target/dir-3/file-7.txt").text == "content 3/7\n" * 7
+    }
+
+    private static List<String> describe(FileSystemLocationSnapshot root) {
+        def result = []
+        root.accept(new RelativePathTracker(), { snapshot, relativePath ->
+            result << "${relativePath.toRelativePath()}:${snapshot.type}:${snapshot.hash}".toString()
+            SnapshotVisitResult.CONTINUE
+        } as RelativePathTrackingFileSystemSnapshotHierarchyVisitor)
+        return result
+    }
+}
@@ -56,6 +56,11 @@ public abstract class AbstractTaskOutputPackagingBenchmark {
         .put("tar.large", new CommonsTarPacker(64))
         .put("tar.gz", new GzipPacker(new CommonsTarPacker(4)))
         .put("zip", new ZipPacker(4))
+        .put("entry.gzip", new EntryCompressionPacker(new CommonsTarPacker(4), "gzip"))
+        .put("entry.gzip.fast", new EntryCompressionPacker(new CommonsTarPacker(4), "gzip:1"))
+        .put("entry.gzip.best", new EntryCompressionPacker(new CommonsTarPacker(4), "gzip:9"))
+        .put("entry.lz4", new EntryCompressionPacker(new CommonsTarPacker(4), "lz4"))
+        .put("entry.store", new EntryCompressionPacker(new CommonsTarPacker(4), "store"))
         .build();
 
     private static final Map<String, DataAccessor> ACCESSORS = ImmutableMap.<String, DataAccessor>builder()
@@ -104,20 +109,25 @@ public void tearDownIteration() throws IOException {
         DIRECTORY_PROVIDER.tearDownIteration();
     }
 
-    private static ImmutableList<DataSource> createInputFiles(int fileCount, int minFileSize, int maxFileSize, DataAccessor accessor) throws IOException {
+    private ImmutableList<DataSource> createInputFiles(int fileCount, int minFileSize, int maxFileSize, DataAccessor accessor) throws IOException {
         Random random = new Random(1234L);
         ImmutableList.Builder<DataSource> inputs = ImmutableList.builder();
         for (int idx = 0; idx < fileCount; idx++) {
             String name = "input-" + idx + ".bin";
             int fileSize = minFileSize + random.nextInt(maxFileSize - minFileSize);
-            byte[] buffer = new byte[fileSize];
-            random.nextBytes(buffer);
+            byte[] buffer = createContent(random, fileSize);
             DataSource input = accessor.createSource(name, buffer, Level.Trial);
             inputs.add(input);
         }
         return inputs.build();
     }
 
+    protected byte[] createContent(Random random, int size) {
+        byte[] buffer = new byte[size];
+        random.nextBytes(buffer);
+        return buffer;
+    }
+
     private static DataSource packSample(String name, List<DataSource> inputs, Packer packer, DataAccessor accessor) throws IOException {
         long sumLength = 0;
         for (DataSource input : inputs) {
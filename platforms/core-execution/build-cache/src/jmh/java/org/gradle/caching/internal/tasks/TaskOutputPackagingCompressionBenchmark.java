@@ -0,0 +1,67 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.caching.internal.tasks;
+
+import org.openjdk.jmh.annotations.Param;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+/**
+ * Compares the entry compression codecs supported by the build cache against each other.
+ * Besides random data, which is representative of already compressed outputs like jars,
+ * the inputs can be source-like text, which is representative of generated sources and resources.
+ */
+public class TaskOutputPackagingCompressionBenchmark extends AbstractTaskOutputPackagingBenchmark {
+    private static final String[] TOKENS = {
+        "public", "private", "static", "final", "class", "void", "return", "import", "org.gradle.internal.",
+        "String", "List<String>", "new", "this.", "(", ")", "{", "}", ";", "\n    ", "\n", "=", "if", "else"
+    };
+
+    @Param({"entry.gzip", "entry.gzip.fast", "entry.gzip.best", "entry.lz4", "entry.store"})
+    String packer;
+
+    @Param({"direct"})
+    String accessor;
+
+    @Param({"random", "text"})
+    String content;
+
+    @Override
+    protected String getPackerName() {
+        return packer;
+    }
+
+    @Override
+    protected String getAccessorName() {
+        return accessor;
+    }
+
+    @Override
+    protected byte[] createContent(Random random, int size) {
+        if (content.equals("random")) {
+            return super.createContent(random, size);
+        }
+        StringBuilder builder = new StringBuilder(size + 32);
+        while (builder.length() < size) {
+            builder.append(TOKENS[random.nextInt(TOKENS.length)]).append(' ');
+        }
+        builder.setLength(size);
+        return builder.toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -24,10 +24,12 @@
 import org.gradle.caching.BuildCacheService;
 import org.gradle.caching.internal.BuildCacheKeyInternal;
 import org.gradle.caching.internal.CacheableEntity;
+import org.gradle.caching.internal.SimpleBuildCacheKey;
 import org.gradle.caching.internal.controller.operations.PackOperationDetails;
 import org.gradle.caching.internal.controller.operations.PackOperationResult;
 import org.gradle.caching.internal.controller.operations.UnpackOperationDetails;
 import org.gradle.caching.internal.controller.operations.UnpackOperationResult;
+import org.gradle.caching.internal.controller.service.AsyncRemoteBuildCacheServiceHandle;
 import org.gradle.caching.internal.controller.service.BuildCacheLoadResult;
 import org.gradle.caching.internal.controller.service.BuildCacheServiceRole;
 import org.gradle.caching.internal.controller.service.BuildCacheServicesConfiguration;
@@ -49,6 +51,8 @@
 import org.gradle.internal.file.FileType;
 import org.gradle.internal.file.TreeType;
 import org.gradle.internal.hash.HashCode;
+import org.gradle.internal.hash.Hasher;
+import org.gradle.internal.hash.Hashing;
 import org.gradle.internal.operations.BuildOperationContext;
 import org.gradle.internal.operations.BuildOperationDescriptor;
 import org.gradle.internal.operations.BuildOperationProgressEventEmitter;
@@ -68,6 +72,7 @@
 import java.time.Duration;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.atomic.AtomicReference;
 
 public class DefaultBuildCacheController implements BuildCacheController {
@@ -81,6 +86,12 @@ public class DefaultBuildCacheController implements BuildCacheController {
     private final BuildCacheTempFileStore tmp;
     private final PackOperationExecutor packExecutor;
 
+    /**
+     * The format of the entries when it is not the default one, mixed into the keys of the stored entries.
+     */
+    @Nullable
+    private final String entryFormat;
+
     private boolean closed;
 
     public DefaultBuildCacheController(
@@ -93,9 +104,24 @@ public DefaultBuildCacheController(
         BuildCacheEntryPacker packer,
         OriginMetadataFactory originMetadataFactory,
         Interner<String> stringInterner
+    ) {
+        this(config, buildOperationRunner, buildOperationProgressEventEmitter, temporaryFileFactory, logStackTraces, disableRemoteOnError, packer, originMetadataFactory, stringInterner, null);
+    }
+
+    public DefaultBuildCacheController(
+        BuildCacheServicesConfiguration config,
+        BuildOperationRunner buildOperationRunner,
+        BuildOperationProgressEventEmitter buildOperationProgressEventEmitter,
+        TemporaryFileFactory temporaryFileFactory,
+        boolean logStackTraces,
+        boolean disableRemoteOnError,
+        BuildCacheEntryPacker packer,
+        OriginMetadataFactory originMetadataFactory,
+        Interner<String> stringInterner,
+        @Nullable AsyncRemoteStoreConfiguration asyncRemoteStore
     ) {
         this.local = toLocalHandle(config.getLocal(), config.isLocalPush(), buildOperationRunner);
-        this.remote = toRemoteHandle(config.getBuildPath(), config.getRemote(), config.isRemotePush(), buildOperationRunner, buildOperationProgressEventEmitter, logStackTraces, disableRemoteOnError);
+        this.remote = toRemoteHandle(config.getBuildPath(), config.getRemote(), config.isRemotePush(), buildOperationRunner, buildOperationProgressEventEmitter, logStackTraces, disableRemoteOnError, temporaryFileFactory, asyncRemoteStore);
         this.tmp = toTempFileStore(config.getLocal(), temporaryFileFactory);
         this.packExecutor = new PackOperationExecutor(
             buildOperationRunner,
@@ -103,6 +129,7 @@ public DefaultBuildCacheController(
             originMetadataFactory,
             stringInterner
         );
+        this.entryFormat = packer.getEntryFormat().orElse(null);
     }
 
     @Override
@@ -112,35 +139,36 @@ public boolean isEnabled() {
 
     @Override
     public Optional<BuildCacheLoadResult> load(BuildCacheKey key, CacheableEntity entity) {
-        Optional<BuildCacheLoadResult> result = loadLocal(key, entity);
+        BuildCacheKey entryKey = toEntryKey(key);
+        Optional<BuildCacheLoadResult> result = loadLocal(key, entryKey, entity);
         if (result.isPresent()) {
             return result;
         }
-        return loadRemoteAndStoreResultLocally(key, entity);
+        return loadRemoteAndStoreResultLocally(key, entryKey, entity);
     }
 
-    private Optional<BuildCacheLoadResult> loadLocal(BuildCacheKey key, CacheableEntity entity) {
+    private Optional<BuildCacheLoadResult> loadLocal(BuildCacheKey key, BuildCacheKey entryKey, CacheableEntity entity) {
         try {
-            return local.maybeLoad(key, file -> packExecutor.unpack(key, entity, file));
+            return local.maybeLoad(entryKey, file -> packExecutor.unpack(key, entity, file));
         } catch (Exception e) {
             throw new BuildCacheOperationException("Could not load from local cache: " + e.getMessage(), e);
         }
     }
 
-    private Optional<BuildCacheLoadResult> loadRemoteAndStoreResultLocally(BuildCacheKey key, CacheableEntity entity) {
+    private Optional<BuildCacheLoadResult> loadRemoteAndStoreResultLocally(BuildCacheKey key, BuildCacheKey entryKey, CacheableEntity entity) {
         if (!remote.canLoad()) {
             return Optional.empty();
         }
         AtomicReference<Optional<BuildCacheLoadResult>> result = new AtomicReference<>(Optional.empty());
-        tmp.withTempFile(((BuildCacheKeyInternal) key).getHashCodeInternal(), file -> {
+        tmp.withTempFile(((BuildCacheKeyInternal) entryKey).getHashCodeInternal(), file -> {
             Optional<BuildCacheLoadResult> remoteResult;
             try {
-                remoteResult = remote.maybeLoad(key, file, f -> packExecutor.unpack(key, entity, f));
+                remoteResult = remote.maybeLoad(entryKey, file, f -> packExecutor.unpack(key, entity, f));
             } catch (Exception e) {
                 throw new BuildCacheOperationException("Could not load from remote cache: " + e.getMessage(), e);
             }
             if (remoteResult.isPresent()) {
-                local.maybeStore(key, file);
+                local.maybeStore(entryKey, file);
                 result.set(remoteResult);
             }
         });
@@ -152,13 +180,30 @@ public void store(BuildCacheKey key, CacheableEntity entity, Map<String, FileSys
         if (!local.canStore() && !remote.canStore()) {
             return;
         }
-        tmp.withTempFile(((BuildCacheKeyInternal) key).getHashCodeInternal(), file -> {
+        BuildCacheKey entryKey = toEntryKey(key);
+        tmp.withTempFile(((BuildCacheKeyInternal) entryKey).getHashCodeInternal(), file -> {
             packExecutor.pack(file, key, entity, snapshots, executionTime);
-            remote.maybeStore(key, file);
-            local.maybeStore(key, file);
+            remote.maybeStore(entryKey, file);
+            local.maybeStore(entryKey, file);
         });
     }
 
+    /**
+     * Returns the key the entry for the given cache key is stored under.
+     *
+     * Entries in the default format are stored under the cache key itself. Entries in any other format are stored under a key
+     * derived from the cache key and the format, so clients that cannot read the format never find them.
+     */
+    private BuildCacheKey toEntryKey(BuildCacheKey key) {
+        if (entryFormat == null) {
+            return key;
+        }
+        Hasher hasher = Hashing.newHasher();
+        hasher.putHash(((BuildCacheKeyInternal) key).getHashCodeInternal());
+        hasher.putString(entryFormat);
+        return new SimpleBuildCacheKey(hasher.hash());
+    }
+
     @Override
     public void close() throws IOException {
         if (!closed) {
@@ -269,10 +314,53 @@ public BuildOperationDescriptor.Builder description() {
         }
     }
 
-    private static RemoteBuildCacheServiceHandle toRemoteHandle(String buildPath, @Nullable BuildCacheService service, boolean push, BuildOperationRunner buildOperationRunner, BuildOperationProgressEventEmitter buildOperationProgressEventEmitter, boolean logStackTraces, boolean disableOnError) {
-        return service == null
-            ? NullRemoteBuildCacheServiceHandle.INSTANCE
-            : new OpFiringRemoteBuildCacheServiceHandle(buildPath, service, push, BuildCacheServiceRole.REMOTE, buildOperationRunner, buildOperationProgressEventEmitter, logStackTraces, disableOnError);
+    private static RemoteBuildCacheServiceHandle toRemoteHandle(
+        String buildPath,
+        @Nullable BuildCacheService service,
+        boolean push,
+        BuildOperationRunner buildOperationRunner,
+        BuildOperationProgressEventEmitter buildOperationProgressEventEmitter,
+        boolean logStackTraces,
+        boolean disableOnError,
+        TemporaryFileFactory temporaryFileFactory,
+        @Nullable AsyncRemoteStoreConfiguration asyncRemoteStore
+    ) {
+        if (service == null) {
+            if (asyncRemoteStore != null) {
+                asyncRemoteStore.getExecutor().shutdown();
+            }
+            return NullRemoteBuildCacheServiceHandle.INSTANCE;
+        }
+        RemoteBuildCacheServiceHandle handle = new OpFiringRemoteBuildCacheServiceHandle(buildPath, service, push, BuildCacheServiceRole.REMOTE, buildOperationRunner, buildOperationProgressEventEmitter, logStackTraces, disableOnError);
+        if (asyncRemoteStore == null) {
+            return handle;
+        }
+        return new AsyncRemoteBuildCacheServiceHandle(handle, asyncRemoteStore.getExecutor(), temporaryFileFactory, asyncRemoteStore.getMaxBytesInFlight(), buildOperationRunner, buildOperationProgressEventEmitter);
+    }
+
+    /**
+     * Configuration for storing entries to the remote cache in the background.
+     */
+    public static class AsyncRemoteStoreConfiguration {
+        private final ExecutorService executor;
+        private final long maxBytesInFlight;
+
+        /**
+         * @param executor the executor to upload entries on, which is shut down when the controller is closed.
+         * @param maxBytesInFlight the maximum number of bytes of entries waiting for or being uploaded.
+         */
+        public AsyncRemoteStoreConfiguration(ExecutorService executor, long maxBytesInFlight) {
+            this.executor = executor;
+            this.maxBytesInFlight = maxBytesInFlight;
+        }
+
+        public ExecutorService getExecutor() {
+            return executor;
+        }
+
+        public long getMaxBytesInFlight() {
+            return maxBytesInFlight;
+        }
     }
 
     private static LocalBuildCacheServiceHandle toLocalHandle(@Nullable LocalBuildCacheService local, boolean localPush, BuildOperationRunner buildOperationRunner) {
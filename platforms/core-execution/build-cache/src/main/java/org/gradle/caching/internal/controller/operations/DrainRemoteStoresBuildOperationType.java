@@ -0,0 +1,60 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.caching.internal.controller.operations;
+
+import org.gradle.internal.operations.BuildOperationType;
+
+/**
+ * Waiting at the end of the build for the asynchronous stores to the remote build cache to finish.
+ */
+public final class DrainRemoteStoresBuildOperationType implements BuildOperationType<DrainRemoteStoresBuildOperationType.Details, DrainRemoteStoresBuildOperationType.Result> {
+
+    public interface Details {
+
+        /**
+         * The number of stores that were still pending when draining started.
+         */
+        int getPendingStores();
+    }
+
+    public interface Result {
+
+        /**
+         * The number of stores accepted into the queue during the build.
+         */
+        long getQueuedStores();
+
+        /**
+         * The number of stores rejected because the queue was full.
+         */
+        long getDroppedStores();
+
+        /**
+         * The highest number of stores that were queued or uploading at the same time.
+         */
+        int getMaxQueueDepth();
+
+        /**
+         * The highest number of bytes that were queued or uploading at the same time.
+         */
+        long getMaxBytesInFlight();
+    }
+
+    private DrainRemoteStoresBuildOperationType() {
+    }
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.caching.internal.controller.operations;
+
+/**
+ * Emitted when an asynchronous store to the remote build cache is dropped, because too many bytes are already queued.
+ */
+public class RemoteStoreDroppedProgressDetails {
+    private final String cacheKey;
+    private final long archiveSize;
+    private final long bytesInFlight;
+
+    public RemoteStoreDroppedProgressDetails(String cacheKey, long archiveSize, long bytesInFlight) {
+        this.cacheKey = cacheKey;
+        this.archiveSize = archiveSize;
+        this.bytesInFlight = bytesInFlight;
+    }
+
+    public String getCacheKey() {
+        return cacheKey;
+    }
+
+    public long getArchiveSize() {
+        return archiveSize;
+    }
+
+    public long getBytesInFlight() {
+        return bytesInFlight;
+    }
+}
@@ -0,0 +1,269 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.caching.internal.controller.service;
+
+import org.gradle.caching.BuildCacheKey;
+import org.gradle.caching.BuildCacheService;
+import org.gradle.caching.internal.controller.operations.DrainRemoteStoresBuildOperationType;
+import org.gradle.caching.internal.controller.operations.RemoteStoreDroppedProgressDetails;
+import org.gradle.caching.local.internal.TemporaryFileFactory;
+import org.gradle.internal.operations.BuildOperationContext;
+import org.gradle.internal.operations.BuildOperationDescriptor;
+import org.gradle.internal.operations.BuildOperationProgressEventEmitter;
+import org.gradle.internal.operations.BuildOperationRunner;
+import org.gradle.internal.operations.CurrentBuildOperationRef;
+import org.gradle.internal.operations.RunnableBuildOperation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+/**
+ * Stores entries to the remote build cache in the background, so the calling worker does not wait for the upload.
+ *
+ * <p>
+ * Entries to store are copied to a temporary file and uploaded on the given executor.
+ * The total size of the queued and uploading entries is bounded, stores exceeding the bound are dropped.
+ * When the handle is closed, it waits for all pending stores to finish before closing the delegate.
+ * </p>
+ *
+ * <p>
+ * The build operations of the uploads have no parent, as they outlive the operation of the work that produced the entry.
+ * </p>
+ */
+public class AsyncRemoteBuildCacheServiceHandle implements RemoteBuildCacheServiceHandle {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AsyncRemoteBuildCacheServiceHandle.class);
+
+    private final RemoteBuildCacheServiceHandle delegate;
+    private final ExecutorService executor;
+    private final TemporaryFileFactory temporaryFileFactory;
+    private final long maxBytesInFlight;
+    private final BuildOperationRunner buildOperationRunner;
+    private final BuildOperationProgressEventEmitter buildOperationProgressEventEmitter;
+
+    private final List<Future<?>> pendingStores = new ArrayList<>();
+    private long bytesInFlight;
+    private int queueDepth;
+    private long queuedStores;
+    private long droppedStores;
+    private int maxQueueDepth;
+    private long maxBytesInFlightSeen;
+    private boolean closed;
+
+    public AsyncRemoteBuildCacheServiceHandle(
+        RemoteBuildCacheServiceHandle delegate,
+        ExecutorService executor,
+        TemporaryFileFactory temporaryFileFactory,
+        long maxBytesInFlight,
+        BuildOperationRunner buildOperationRunner,
+        BuildOperationProgressEventEmitter buildOperationProgressEventEmitter
+    ) {
+        this.delegate = delegate;
+        this.executor = executor;
+        this.temporaryFileFactory = temporaryFileFactory;
+        this.maxBytesInFlight = maxBytesInFlight;
+        this.buildOperationRunner = buildOperationRunner;
+        this.buildOperationProgressEventEmitter = buildOperationProgressEventEmitter;
+    }
+
+    @Nullable
+    @Override
+    public BuildCacheService getService() {
+        return delegate.getService();
+    }
+
+    @Override
+    public boolean canLoad() {
+        return delegate.canLoad();
+    }
+
+    @Override
+    public Optional<BuildCacheLoadResult> maybeLoad(BuildCacheKey key, File toFile, Function<File, BuildCacheLoadResult> unpackFunction) {
+        return delegate.maybeLoad(key, toFile, unpackFunction);
+    }
+
+    @Override
+    public boolean canStore() {
+        return delegate.canStore();
+    }
+
+    /**
+     * Queues the file to be stored in the remote cache.
+     *
+     * Returns true if the store was queued, and false if it was dropped.
+     */
+    @Override
+    public boolean maybeStore(BuildCacheKey key, File file) {
+        if (!canStore()) {
+            return false;
+        }
+        long size = file.length();
+        if (!reserve(size)) {
+            LOGGER.info("Not storing entry {} in remote build cache, as too many stores are pending", key.getHashCode());
+            buildOperationProgressEventEmitter.emitNowIfCurrent(new RemoteStoreDroppedProgressDetails(key.getHashCode(), size, currentBytesInFlight()));
+            return false;
+        }
+        File queuedFile;
+        try {
+            queuedFile = temporaryFileFactory.createTemporaryFile("build-cache-", "-" + key.getHashCode());
+            Files.copy(file.toPath(), queuedFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException | RuntimeException e) {
+            release(size);
+            LOGGER.warn("Could not queue entry {} for storing in remote build cache: {}", key.getHashCode(), e.getMessage());
+            return false;
+        }
+        Future<?> pendingStore = executor.submit(() -> {
+            try {
+                // The operation that queued the store has usually finished by now, so the upload cannot run as its child
+                CurrentBuildOperationRef.instance().with(null, () -> {
+                    delegate.maybeStore(key, queuedFile);
+                });
+            } finally {
+                deleteQuietly(queuedFile);
+                release(size);
+            }
+        });
+        synchronized (this) {
+            pendingStores.removeIf(Future::isDone);
+            pendingStores.add(pendingStore);
+        }
+        return true;
+    }
+
+    private synchronized boolean reserve(long size) {
+        if (closed || (bytesInFlight > 0 && bytesInFlight + size > maxBytesInFlight)) {
+            droppedStores++;
+            return false;
+        }
+        bytesInFlight += size;
+        queueDepth++;
+        queuedStores++;
+        maxQueueDepth = Math.max(maxQueueDepth, queueDepth);
+        maxBytesInFlightSeen = Math.max(maxBytesInFlightSeen, bytesInFlight);
+        return true;
+    }
+
+    private synchronized void release(long size) {
+        bytesInFlight -= size;
+        queueDepth--;
+    }
+
+    private synchronized long currentBytesInFlight() {
+        return bytesInFlight;
+    }
+
+    private static void deleteQuietly(File file) {
+        try {
+            Files.deleteIfExists(file.toPath());
+        } catch (IOException e) {
+            LOGGER.debug("Could not delete queued build cache entry {}", file, e);
+        }
+    }
+
+    @Override
+    public void close() {
+        List<Future<?>> toDrain;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            toDrain = new ArrayList<>(pendingStores);
+            pendingStores.clear();
+        }
+        try {
+            drain(toDrain);
+        } finally {
+            executor.shutdown();
+            delegate.close();
+        }
+    }
+
+    private void drain(List<Future<?>> toDrain) {
+        buildOperationRunner.run(new RunnableBuildOperation() {
+            @Override
+            public void run(BuildOperationContext context) {
+                for (Future<?> pendingStore : toDrain) {
+                    try {
+                        pendingStore.get();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        break;
+                    } catch (ExecutionException e) {
+                        // Failures are handled and reported by the delegate, this is unexpected
+                        LOGGER.warn("Unexpected failure storing entry in remote build cache", e.getCause());
+                    }
+                }
+                context.setResult(createResult());
+            }
+
+            @Override
+            public BuildOperationDescriptor.Builder description() {
+                int pending = toDrain.size();
+                return BuildOperationDescriptor.displayName("Wait for pending stores to remote build cache")
+                    .details((DrainRemoteStoresBuildOperationType.Details) () -> pending)
+                    .progressDisplayName("Uploading to remote build cache");
+            }
+        });
+    }
+
+    private synchronized DrainRemoteStoresBuildOperationType.Result createResult() {
+        long queued = queuedStores;
+        long dropped = droppedStores;
+        int depth = maxQueueDepth;
+        long bytes = maxBytesInFlightSeen;
+        return new DrainRemoteStoresBuildOperationType.Result() {
+            @Override
+            public long getQueuedStores() {
+                return queued;
+            }
+
+            @Override
+            public long getDroppedStores() {
+                return dropped;
+            }
+
+            @Override
+            public int getMaxQueueDepth() {
+                return depth;
+            }
+
+            @Override
+            public long getMaxBytesInFlight() {
+                return bytes;
+            }
+
+            @Override
+            public String toString() {
+                return "queued=" + queued + ", dropped=" + dropped + ", maxQueueDepth=" + depth + ", maxBytesInFlight=" + bytes;
+            }
+        };
+    }
+}
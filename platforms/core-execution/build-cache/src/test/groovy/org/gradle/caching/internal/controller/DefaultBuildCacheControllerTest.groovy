@@ -265,6 +265,31 @@ class DefaultBuildCacheControllerTest extends Specification {
         1 * remote.store(key, _)
     }
 
+    def "stores and loads entries in a non-default format under a key derived from the format"() {
+        packer = Stub(BuildCacheEntryPacker) {
+            getEntryFormat() >> Optional.of("lz4")
+        }
+        def storedKeys = []
+
+        when:
+        def controller = getController()
+        controller.store(key, cacheableEntity, snapshots, executionTime)
+
+        then:
+        1 * remote.store({ it.hashCode != key.hashCode }, _) >> { BuildCacheKey entryKey, BuildCacheEntryWriter writer -> storedKeys << entryKey.hashCode }
+        1 * local.storeLocally({ it.hashCode != key.hashCode }, _) >> { BuildCacheKey entryKey, File file -> storedKeys << entryKey.hashCode }
+        0 * remote.store(key, _)
+        0 * local.storeLocally(key, _)
+        storedKeys.unique().size() == 1
+
+        when:
+        controller.load(key, cacheableEntity)
+
+        then:
+        1 * local.loadLocally({ it.hashCode == storedKeys[0] }, _)
+        1 * remote.load({ it.hashCode == storedKeys[0] }, _)
+    }
+
     def "close only closes once"() {
         when:
         def controller = getController()
@@ -0,0 +1,211 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.gradle.caching.internal.controller.service
+
+import org.gradle.caching.BuildCacheEntryWriter
+import org.gradle.caching.BuildCacheKey
+import org.gradle.caching.BuildCacheService
+import org.gradle.caching.internal.TestBuildCacheKey
+import org.gradle.caching.internal.controller.operations.DrainRemoteStoresBuildOperationType
+import org.gradle.caching.local.internal.TemporaryFileFactory
+import org.gradle.internal.operations.BuildOperationContext
+import org.gradle.internal.operations.BuildOperationDescriptor
+import org.gradle.internal.operations.BuildOperationState
+import org.gradle.internal.operations.BuildOperationTimeSupplier
+import org.gradle.internal.operations.CurrentBuildOperationRef
+import org.gradle.internal.operations.DefaultBuildOperationIdFactory
+import org.gradle.internal.operations.DefaultBuildOperationRunner
+import org.gradle.internal.operations.NoOpBuildOperationProgressEventEmitter
+import org.gradle.internal.operations.RunnableBuildOperation
+import org.gradle.internal.operations.TestBuildOperationRunner
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+
+import javax.annotation.Nullable
+import java.nio.file.Files
+import java.util.concurrent.ConcurrentLinkedQueue
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.Executors
+import java.util.concurrent.TimeUnit
+
+class AsyncRemoteBuildCacheServiceHandleTest extends Specification {
+
+    @Rule
+    final TestNameTestDirectoryProvider temporaryFolder = new TestNameTestDirectoryProvider(getClass())
+
+    def key = new TestBuildCacheKey(0x12345678)
+    def delegate = Mock(RemoteBuildCacheServiceHandle) {
+        canStore() >> true
+    }
+    def executor = Executors.newFixedThreadPool(2)
+    def buildOperationRunner = new TestBuildOperationRunner()
+    def temporaryFileFactory = { prefix, suffix -> Files.createTempFile(temporaryFolder.testDirectory.toPath(), prefix, suffix).toFile() } as TemporaryFileFactory
+
+    def cleanup() {
+        executor.shutdownNow()
+    }
+
+    def "stores a copy of the entry in the background"() {
+        def handle = createHandle(1024)
+        def file = temporaryFolder.file("entry") << "content"
+        String storedContent = null
+
+        when:
+        def queued = handle.maybeStore(key, file)
+        file.delete()
+        handle.close()
+
+        then:
+        queued
+        1 * delegate.maybeStore(key, _ as File) >> { key, File queuedFile ->
+            storedContent = queuedFile.text
+            true
+        }
+        1 * delegate.close()
+        storedContent == "content"
+
+        and:
+        temporaryFolder.testDirectory.listFiles().findAll { it.name.startsWith("build-cache-") }.empty
+    }
+
+    def "drops stores when too many bytes are in flight"() {
+        def handle = createHandle(10)
+        def blocked = new CountDownLatch(1)
+        def release = new CountDownLatch(1)
+        def first = temporaryFolder.file("first") << "123456"
+        def second = temporaryFolder.file("second") << "123456"
+
+        when:
+        def firstQueued = handle.maybeStore(key, first)
+        blocked.await(10, TimeUnit.SECONDS)
+        def secondQueued = handle.maybeStore(key, second)
+        release.countDown()
+        handle.close()
+
+        then:
+        firstQueued
+        !secondQueued
+        1 * delegate.maybeStore(key, _) >> {
+            blocked.countDown()
+            release.await(10, TimeUnit.SECONDS)
+            true
+        }
+
+        and:
+        def result = buildOperationRunner.log.mostRecentResult(DrainRemoteStoresBuildOperationType)
+        result.queuedStores == 1
+        result.droppedStores == 1
+        result.maxQueueDepth == 1
+        result.maxBytesInFlight == 6
+    }
+
+    def "does not queue stores when delegate cannot store"() {
+        def handle = createHandle(1024)
+        def file = temporaryFolder.file("entry") << "content"
+
+        when:
+        def queued = handle.maybeStore(key, file)
+
+        then:
+        !queued
+        _ * delegate.canStore() >> false
+        0 * delegate.maybeStore(_, _)
+    }
+
+    def "does not accept stores after being closed"() {
+        def handle = createHandle(1024)
+        def file = temporaryFolder.file("entry") << "content"
+
+        when:
+        handle.close()
+        def queued = handle.maybeStore(key, file)
+
+        then:
+        !queued
+        0 * delegate.maybeStore(_, _)
+    }
+
+    def "uploads entries after the operation that queued them has finished"() {
+        def service = Mock(BuildCacheService)
+        def stoppedOperations = new ConcurrentLinkedQueue<Map<String, Object>>()
+        def runner = new DefaultBuildOperationRunner(
+            CurrentBuildOperationRef.instance(),
+            { System.currentTimeMillis() } as BuildOperationTimeSupplier,
+            new DefaultBuildOperationIdFactory(),
+            {
+                new DefaultBuildOperationRunner.BuildOperationExecutionListener() {
+                    @Override
+                    void start(BuildOperationDescriptor descriptor, BuildOperationState operationState) {}
+
+                    @Override
+                    void progress(BuildOperationDescriptor descriptor, String status) {}
+
+                    @Override
+                    void progress(BuildOperationDescriptor descriptor, long progress, long total, String units, String status) {}
+
+                    @Override
+                    void stop(BuildOperationDescriptor descriptor, BuildOperationState operationState, @Nullable BuildOperationState parent, DefaultBuildOperationRunner.ReadableBuildOperationContext context) {
+                        stoppedOperations << [name: descriptor.displayName, parentId: descriptor.parentId, failure: context.failure]
+                    }
+
+                    @Override
+                    void close(BuildOperationDescriptor descriptor, BuildOperationState operationState) {}
+                }
+            } as DefaultBuildOperationRunner.BuildOperationExecutionListenerFactory
+        )
+        def opFiringHandle = new OpFiringRemoteBuildCacheServiceHandle(":", service, true, BuildCacheServiceRole.REMOTE, runner, new NoOpBuildOperationProgressEventEmitter(), false, true)
+        def handle = new AsyncRemoteBuildCacheServiceHandle(opFiringHandle, executor, temporaryFileFactory, 1024, runner, new NoOpBuildOperationProgressEventEmitter())
+        def file = temporaryFolder.file("entry") << "content"
+        def workFinished = new CountDownLatch(1)
+        def storedContent = new ByteArrayOutputStream()
+
+        when:
+        runner.run(new RunnableBuildOperation() {
+            @Override
+            void run(BuildOperationContext context) {
+                assert handle.maybeStore(key, file)
+            }
+
+            @Override
+            BuildOperationDescriptor.Builder description() {
+                BuildOperationDescriptor.displayName("Execute work")
+            }
+        })
+        workFinished.countDown()
+        handle.close()
+
+        then:
+        1 * service.store(key, _) >> { BuildCacheKey key, BuildCacheEntryWriter writer ->
+            assert workFinished.await(10, TimeUnit.SECONDS)
+            writer.writeTo(storedContent)
+        }
+        storedContent.toString() == "content"
+        opFiringHandle.canStore()
+
+        and:
+        def store = stoppedOperations.find { it.name.startsWith("Store entry") }
+        store.failure == null
+        store.parentId == null
+        stoppedOperations.every { it.failure == null }
+    }
+
+    private AsyncRemoteBuildCacheServiceHandle createHandle(long maxBytesInFlight) {
+        new AsyncRemoteBuildCacheServiceHandle(delegate, executor, temporaryFileFactory, maxBytesInFlight, buildOperationRunner, new NoOpBuildOperationProgressEventEmitter())
+    }
+}
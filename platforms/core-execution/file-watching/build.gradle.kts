@@ -7,7 +7,9 @@ description = "File system watchers for keeping the VFS up-to-date"
 dependencies {
     api(projects.snapshots)
     api(projects.buildOperations)
+    api(projects.concurrent)
     api(projects.files)
+    api(projects.persistentCache)
     api(projects.stdlibJavaExtensions)
 
     api(libs.jsr305)
@@ -20,7 +22,6 @@ dependencies {
 
     testImplementation(projects.processServices)
     testImplementation(projects.resources)
-    testImplementation(projects.persistentCache)
     testImplementation(projects.buildOption)
     testImplementation(projects.enterpriseOperations)
     testImplementation(testFixtures(projects.buildOperations))
@@ -0,0 +1,407 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.watch.vfs.impl;
+
+import org.gradle.cache.PersistentCache;
+import org.gradle.internal.concurrent.CompositeStoppable;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.concurrent.ManagedExecutor;
+import org.gradle.internal.file.FileMetadata.AccessType;
+import org.gradle.internal.file.impl.DefaultFileMetadata;
+import org.gradle.internal.hash.HashCode;
+import org.gradle.internal.hash.Hashing;
+import org.gradle.internal.snapshot.DirectorySnapshot;
+import org.gradle.internal.snapshot.FileSystemLocationSnapshot;
+import org.gradle.internal.snapshot.MissingFileSnapshot;
+import org.gradle.internal.snapshot.RegularFileSnapshot;
+import org.gradle.internal.snapshot.SnapshotHierarchy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * On-disk images of the virtual file system, which allow a new daemon to start with the file system state known to the previous one.
+ *
+ * <p>
+ * There is one image per watched hierarchy, usually the root directory of a build, which only contains the locations below that hierarchy.
+ * The images are written in the background after a build and replaced atomically while holding the lock of the cache.
+ * When reading an image, every location is checked against the file system: regular files by their length and modification time,
+ * directories by their modification time, which changes whenever a child is added, removed or renamed, and missing files by still being missing.
+ * Invalid locations are dropped, while the valid parts of an invalid directory are retained.
+ * Locations modified shortly before the root was captured are not trusted, since a later change within the same timestamp tick would go unnoticed.
+ * Directories modified after the root was captured are written without a modification time, so they are checked again by the next daemon.
+ * Locations accessed via symlinks are not written to the image.
+ * </p>
+ */
+public class VirtualFileSystemImage implements Closeable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(VirtualFileSystemImage.class);
+
+    private static final int MAGIC = 0x47564653;
+    private static final int VERSION = 1;
+    private static final long TIMESTAMP_GRANULARITY_MILLIS = 2000;
+
+    private static final byte DIRECTORY = 0;
+    private static final byte REGULAR_FILE = 1;
+    private static final byte MISSING = 2;
+
+    private static final long UNKNOWN_MODIFICATION_TIME = -1;
+
+    private final PersistentCache cache;
+    private final String contentHashAlgorithm;
+    private final ManagedExecutor writeExecutor;
+    private final Map<File, CapturedRoot> pendingWrites = new ConcurrentHashMap<>();
+
+    /**
+     * @param contentHashAlgorithm the algorithm used to hash file contents, an image is ignored when it has been written using a different one.
+     */
+    public VirtualFileSystemImage(PersistentCache cache, String contentHashAlgorithm, ExecutorFactory executorFactory) {
+        this.cache = cache;
+        this.contentHashAlgorithm = contentHashAlgorithm;
+        this.writeExecutor = executorFactory.create("VFS image writer", 1);
+    }
+
+    public File getImageFile(File hierarchy) {
+        return new File(cache.getBaseDir(), Hashing.hashString(hierarchy.getAbsolutePath()).toCompactString() + ".bin");
+    }
+
+    /**
+     * Schedules writing the root snapshots below the given hierarchy to its image.
+     *
+     * The root is considered captured when this method is called.
+     * A write which has not started yet is replaced by the newer state.
+     */
+    public void writeInBackground(File hierarchy, SnapshotHierarchy root) {
+        if (pendingWrites.put(hierarchy, new CapturedRoot(root, System.currentTimeMillis())) == null) {
+            writeExecutor.execute(() -> {
+                CapturedRoot latestRoot = pendingWrites.remove(hierarchy);
+                if (latestRoot != null) {
+                    write(hierarchy, latestRoot.root, latestRoot.capturedAt);
+                }
+            });
+        }
+    }
+
+    void write(File hierarchy, SnapshotHierarchy root) {
+        write(hierarchy, root, System.currentTimeMillis());
+    }
+
+    /**
+     * Writes the root snapshots below the given hierarchy to its image, replacing the existing image.
+     *
+     * @param capturedAt the time the root was captured, which is the reference for trusting modification times when reading the image.
+     */
+    void write(File hierarchy, SnapshotHierarchy root, long capturedAt) {
+        List<FileSystemLocationSnapshot> rootSnapshots = root.rootSnapshotsUnder(hierarchy.getAbsolutePath())
+            .filter(snapshot -> snapshot.getAccessType() == AccessType.DIRECT)
+            .collect(Collectors.toList());
+        File imageFile = getImageFile(hierarchy);
+        try {
+            cache.useCache(() -> {
+                try {
+                    writeImage(imageFile.toPath(), rootSnapshots, capturedAt);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            LOGGER.debug("Wrote virtual file system image with {} root locations to {}", rootSnapshots.size(), imageFile);
+        } catch (RuntimeException e) {
+            LOGGER.info("Unable to write virtual file system image to {}", imageFile, e);
+        }
+    }
+
+    private void writeImage(Path imagePath, List<FileSystemLocationSnapshot> rootSnapshots, long capturedAt) throws IOException {
+        Files.createDirectories(imagePath.getParent());
+        Path tempFile = Files.createTempFile(imagePath.getParent(), imagePath.getFileName().toString(), ".tmp");
+        try {
+            try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+                output.writeInt(MAGIC);
+                output.writeInt(VERSION);
+                output.writeUTF(contentHashAlgorithm);
+                output.writeLong(capturedAt);
+                output.writeInt(rootSnapshots.size());
+                for (FileSystemLocationSnapshot rootSnapshot : rootSnapshots) {
+                    output.writeUTF(rootSnapshot.getAbsolutePath());
+                    output.writeUTF(rootSnapshot.getName());
+                    writeEntry(output, rootSnapshot, capturedAt);
+                }
+            }
+            moveIntoPlace(tempFile, imagePath);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    /**
+     * Reads the snapshots from the image of the given hierarchy which are still up-to-date with the file system.
+     *
+     * Returns an empty list when there is no image or when it cannot be read.
+     */
+    public List<FileSystemLocationSnapshot> readValidSnapshots(File hierarchy) {
+        File imageFile = getImageFile(hierarchy);
+        try {
+            return cache.useCache(() -> {
+                if (!imageFile.isFile()) {
+                    return Collections.<FileSystemLocationSnapshot>emptyList();
+                }
+                try {
+                    return readImage(imageFile);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (RuntimeException e) {
+            LOGGER.info("Unable to read virtual file system image from {}", imageFile, e);
+            return Collections.emptyList();
+        }
+    }
+
+    private List<FileSystemLocationSnapshot> readImage(File imageFile) throws IOException {
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(imageFile.toPath())))) {
+            if (input.readInt() != MAGIC || input.readInt() != VERSION) {
+                LOGGER.info("Ignoring virtual file system image {} with unknown format", imageFile);
+                return Collections.emptyList();
+            }
+            String algorithm = input.readUTF();
+            if (!algorithm.equals(contentHashAlgorithm)) {
+                LOGGER.info("Ignoring virtual file system image {} created with content hash {}", imageFile, algorithm);
+                return Collections.emptyList();
+            }
+            long trustedBefore = input.readLong() - TIMESTAMP_GRANULARITY_MILLIS;
+            int rootCount = input.readInt();
+            List<FileSystemLocationSnapshot> validSnapshots = new ArrayList<>();
+            for (int i = 0; i < rootCount; i++) {
+                String absolutePath = input.readUTF();
+                String name = input.readUTF();
+                FileSystemLocationSnapshot snapshot = readEntry(input, absolutePath, name, trustedBefore, validSnapshots);
+                if (snapshot != null) {
+                    validSnapshots.add(snapshot);
+                }
+            }
+            return validSnapshots;
+        }
+    }
+
+    /**
+     * Waits for the pending writes and releases the cache.
+     */
+    @Override
+    public void close() {
+        CompositeStoppable.stoppable(writeExecutor, cache).stop();
+    }
+
+    private static void writeEntry(DataOutputStream output, FileSystemLocationSnapshot snapshot, long capturedAt) {
+        snapshot.accept(new FileSystemLocationSnapshot.FileSystemLocationSnapshotVisitor() {
+            @Override
+            public void visitDirectory(DirectorySnapshot directorySnapshot) {
+                List<FileSystemLocationSnapshot> children = directorySnapshot.getChildren().stream()
+                    .filter(child -> child.getAccessType() == AccessType.DIRECT)
+                    .collect(Collectors.toList());
+                boolean complete = children.size() == directorySnapshot.getChildren().size();
+                try {
+                    output.writeByte(DIRECTORY);
+                    writeHash(output, directorySnapshot.getHash());
+                    output.writeLong(complete ? modificationTimeAsCaptured(directorySnapshot.getAbsolutePath(), capturedAt) : UNKNOWN_MODIFICATION_TIME);
+                    output.writeInt(children.size());
+                    for (FileSystemLocationSnapshot child : children) {
+                        output.writeUTF(child.getName());
+                        writeEntry(output, child, capturedAt);
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+
+            @Override
+            public void visitRegularFile(RegularFileSnapshot fileSnapshot) {
+                try {
+                    output.writeByte(REGULAR_FILE);
+                    writeHash(output, fileSnapshot.getHash());
+                    output.writeLong(fileSnapshot.getMetadata().getLastModified());
+                    output.writeLong(fileSnapshot.getMetadata().getLength());
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+
+            @Override
+            public void visitMissing(MissingFileSnapshot missingSnapshot) {
+                try {
+                    output.writeByte(MISSING);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        });
+    }
+
+    /**
+     * Reads the entry for the given location.
+     *
+     * Returns the snapshot of the location when it is completely up-to-date.
+     * Otherwise, returns {@code null} and adds the still valid snapshots of its descendants to {@code validDescendants}.
+     */
+    @Nullable
+    private static FileSystemLocationSnapshot readEntry(DataInputStream input, String absolutePath, String name, long trustedBefore, List<FileSystemLocationSnapshot> validDescendants) throws IOException {
+        byte type = input.readByte();
+        switch (type) {
+            case DIRECTORY:
+                HashCode directoryHash = readHash(input);
+                long directoryModified = input.readLong();
+                int childCount = input.readInt();
+                List<FileSystemLocationSnapshot> children = new ArrayList<>(childCount);
+                List<FileSystemLocationSnapshot> validGrandChildren = new ArrayList<>();
+                boolean childrenValid = true;
+                for (int i = 0; i < childCount; i++) {
+                    String childName = input.readUTF();
+                    FileSystemLocationSnapshot child = readEntry(input, absolutePath + File.separatorChar + childName, childName, trustedBefore, validGrandChildren);
+                    if (child == null) {
+                        childrenValid = false;
+                    } else {
+                        children.add(child);
+                    }
+                }
+                if (childrenValid && isDirectoryUnchanged(absolutePath, directoryModified, trustedBefore)) {
+                    return new DirectorySnapshot(absolutePath, name, AccessType.DIRECT, directoryHash, children);
+                }
+                validDescendants.addAll(children);
+                validDescendants.addAll(validGrandChildren);
+                return null;
+            case REGULAR_FILE:
+                HashCode contentHash = readHash(input);
+                long lastModified = input.readLong();
+                long length = input.readLong();
+                if (isRegularFileUnchanged(absolutePath, lastModified, length, trustedBefore)) {
+                    return new RegularFileSnapshot(absolutePath, name, contentHash, DefaultFileMetadata.file(lastModified, length, AccessType.DIRECT));
+                }
+                return null;
+            case MISSING:
+                return isStillMissing(absolutePath)
+                    ? new MissingFileSnapshot(absolutePath, name, AccessType.DIRECT)
+                    : null;
+            default:
+                throw new IOException("Unknown entry type " + type);
+        }
+    }
+
+    private static boolean isDirectoryUnchanged(String absolutePath, long lastModified, long trustedBefore) {
+        if (lastModified == UNKNOWN_MODIFICATION_TIME || lastModified >= trustedBefore) {
+            return false;
+        }
+        try {
+            BasicFileAttributes attributes = readAttributes(absolutePath);
+            return attributes.isDirectory()
+                && attributes.lastModifiedTime().toMillis() == lastModified;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static boolean isRegularFileUnchanged(String absolutePath, long lastModified, long length, long trustedBefore) {
+        if (lastModified >= trustedBefore) {
+            return false;
+        }
+        try {
+            BasicFileAttributes attributes = readAttributes(absolutePath);
+            return attributes.isRegularFile()
+                && attributes.size() == length
+                && attributes.lastModifiedTime().toMillis() == lastModified;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static boolean isStillMissing(String absolutePath) {
+        try {
+            readAttributes(absolutePath);
+            return false;
+        } catch (NoSuchFileException e) {
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Directory snapshots do not record a modification time, so it is read when writing the image.
+     * A directory modified after the root was captured may have children which are not in the snapshot.
+     */
+    private static long modificationTimeAsCaptured(String absolutePath, long capturedAt) {
+        try {
+            long lastModified = readAttributes(absolutePath).lastModifiedTime().toMillis();
+            return lastModified > capturedAt ? UNKNOWN_MODIFICATION_TIME : lastModified;
+        } catch (IOException e) {
+            return UNKNOWN_MODIFICATION_TIME;
+        }
+    }
+
+    private static BasicFileAttributes readAttributes(String absolutePath) throws IOException {
+        return Files.readAttributes(Paths.get(absolutePath), BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+    }
+
+    private static void writeHash(DataOutputStream output, HashCode hash) throws IOException {
+        byte[] bytes = hash.toByteArray();
+        output.writeByte(bytes.length);
+        output.write(bytes);
+    }
+
+    private static HashCode readHash(DataInputStream input) throws IOException {
+        byte[] bytes = new byte[input.readUnsignedByte()];
+        input.readFully(bytes);
+        return HashCode.fromBytes(bytes);
+    }
+
+    private static class CapturedRoot {
+        private final SnapshotHierarchy root;
+        private final long capturedAt;
+
+        public CapturedRoot(SnapshotHierarchy root, long capturedAt) {
+            this.root = root;
+            this.capturedAt = capturedAt;
+        }
+    }
+
+    private static void moveIntoPlace(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
@@ -24,6 +24,7 @@
 import org.gradle.internal.operations.BuildOperationDescriptor;
 import org.gradle.internal.operations.BuildOperationRunner;
 import org.gradle.internal.operations.CallableBuildOperation;
+import org.gradle.internal.snapshot.FileSystemLocationSnapshot;
 import org.gradle.internal.snapshot.FileSystemNode;
 import org.gradle.internal.snapshot.SnapshotHierarchy;
 import org.gradle.internal.vfs.impl.AbstractVirtualFileSystem;
@@ -45,11 +46,13 @@
 import org.slf4j.LoggerFactory;
 
 import javax.annotation.CheckReturnValue;
+import javax.annotation.Nullable;
 import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
@@ -65,6 +68,8 @@ public class WatchingVirtualFileSystem extends AbstractVirtualFileSystem impleme
     private final FileWatchingFilter locationsWrittenByCurrentBuild;
     private final WatchableFileSystemDetector watchableFileSystemDetector;
     private final FileChangeListeners fileChangeListeners;
+    @Nullable
+    private final VirtualFileSystemImage image;
     private final List<File> unsupportedFileSystems = new ArrayList<>();
     private Logger warningLogger = LOGGER;
 
@@ -76,6 +81,14 @@ public class WatchingVirtualFileSystem extends AbstractVirtualFileSystem impleme
     private FileWatcherRegistry watchRegistry;
     private Exception reasonForNotWatchingFiles;
     private boolean stateInvalidatedAtStartOfBuild;
+    /**
+     * Watchable hierarchies which have been restored from the image in this daemon.
+     */
+    private final Set<File> hierarchiesRestoredFromImage = new HashSet<>();
+    /**
+     * Watchable hierarchies registered since the last build finished, which are written to the image.
+     */
+    private final Set<File> hierarchiesToWriteToImage = new LinkedHashSet<>();
 
     public WatchingVirtualFileSystem(
         FileWatcherRegistryFactory watcherRegistryFactory,
@@ -84,6 +97,21 @@ public WatchingVirtualFileSystem(
         FileWatchingFilter locationsWrittenByCurrentBuild,
         WatchableFileSystemDetector watchableFileSystemDetector,
         FileChangeListeners fileChangeListeners
+    ) {
+        this(watcherRegistryFactory, root, daemonDocumentationIndex, locationsWrittenByCurrentBuild, watchableFileSystemDetector, fileChangeListeners, null);
+    }
+
+    /**
+     * @param image when present, each watchable hierarchy is restored from the image once watching has started, and written to the image after each build.
+     */
+    public WatchingVirtualFileSystem(
+        FileWatcherRegistryFactory watcherRegistryFactory,
+        SnapshotHierarchy root,
+        DaemonDocumentationIndex daemonDocumentationIndex,
+        FileWatchingFilter locationsWrittenByCurrentBuild,
+        WatchableFileSystemDetector watchableFileSystemDetector,
+        FileChangeListeners fileChangeListeners,
+        @Nullable VirtualFileSystemImage image
     ) {
         super(root);
         this.watcherRegistryFactory = watcherRegistryFactory;
@@ -91,6 +119,7 @@ public WatchingVirtualFileSystem(
         this.locationsWrittenByCurrentBuild = locationsWrittenByCurrentBuild;
         this.watchableFileSystemDetector = watchableFileSystemDetector;
         this.fileChangeListeners = fileChangeListeners;
+        this.image = image;
     }
 
     @Override
@@ -203,14 +232,18 @@ public BuildOperationDescriptor.Builder description() {
     @Override
     public void registerWatchableHierarchy(File watchableHierarchy) {
         updateRootUnderLock(currentRoot -> {
+            if (image != null) {
+                hierarchiesToWriteToImage.add(watchableHierarchy);
+            }
             if (watchRegistry == null) {
                 watchableHierarchiesRegisteredEarly.add(watchableHierarchy);
                 return currentRoot;
             }
-            return withWatcherChangeErrorHandling(
+            SnapshotHierarchy newRoot = withWatcherChangeErrorHandling(
                 currentRoot,
                 () -> watchRegistry.registerWatchableHierarchy(watchableHierarchy, currentRoot)
             );
+            return restoreFromImage(newRoot, watchableHierarchy);
         });
     }
 
@@ -304,8 +337,8 @@ public BuildOperationDescriptor.Builder description() {
 
     @Override
     public void afterBuildFinished() {
-        updateRootUnderLock(currentRoot ->
-            withWatcherChangeErrorHandling(currentRoot, () -> {
+        updateRootUnderLock(currentRoot -> {
+            SnapshotHierarchy newRoot = withWatcherChangeErrorHandling(currentRoot, () -> {
                 FileWatcherRegistry watchRegistry = this.watchRegistry;
                 if (watchRegistry != null) {
                     return watchRegistry.updateVfsAfterBuildFinished(currentRoot);
@@ -313,7 +346,13 @@ public void afterBuildFinished() {
                     // Drop everything if we can't watch the file system
                     return currentRoot.empty();
                 }
-            }));
+            });
+            if (image != null && watchRegistry != null) {
+                hierarchiesToWriteToImage.forEach(hierarchy -> image.writeInBackground(hierarchy, newRoot));
+            }
+            hierarchiesToWriteToImage.clear();
+            return newRoot;
+        });
     }
 
     /**
@@ -329,8 +368,12 @@ private SnapshotHierarchy startWatching(SnapshotHierarchy currentRoot, WatchMode
                 )));
             SnapshotHierarchy newRoot = watchRegistry.updateVfsOnBuildStarted(currentRoot.empty(), watchMode, unsupportedFileSystems);
             watchableHierarchiesRegisteredEarly.forEach(watchableHierarchy -> watchRegistry.registerWatchableHierarchy(watchableHierarchy, newRoot));
+            SnapshotHierarchy restoredRoot = newRoot;
+            for (File watchableHierarchy : watchableHierarchiesRegisteredEarly) {
+                restoredRoot = restoreFromImage(restoredRoot, watchableHierarchy);
+            }
             watchableHierarchiesRegisteredEarly.clear();
-            return newRoot;
+            return restoredRoot;
         } catch (Exception ex) {
             logWatchingError(ex, FILE_WATCHING_ERROR_MESSAGE_DURING_BUILD);
             closeUnderLock();
@@ -338,6 +381,30 @@ private SnapshotHierarchy startWatching(SnapshotHierarchy currentRoot, WatchMode
         }
     }
 
+    /**
+     * Adds the still valid parts of the image of the watchable hierarchy written by a previous daemon, only done once per hierarchy.
+     */
+    @CheckReturnValue
+    private SnapshotHierarchy restoreFromImage(SnapshotHierarchy currentRoot, File watchableHierarchy) {
+        if (image == null || watchRegistry == null || !hierarchiesRestoredFromImage.add(watchableHierarchy)) {
+            return currentRoot;
+        }
+        List<FileSystemLocationSnapshot> snapshots = image.readValidSnapshots(watchableHierarchy);
+        if (snapshots.isEmpty()) {
+            return currentRoot;
+        }
+        SnapshotCollectingDiffListener diffListener = new SnapshotCollectingDiffListener();
+        SnapshotHierarchy newRoot = currentRoot;
+        for (FileSystemLocationSnapshot snapshot : snapshots) {
+            newRoot = newRoot.store(snapshot.getAbsolutePath(), snapshot, diffListener);
+        }
+        LOGGER.info("Restored {} locations from virtual file system image {}", snapshots.size(), image.getImageFile(watchableHierarchy));
+        SnapshotHierarchy restoredRoot = newRoot;
+        return withWatcherChangeErrorHandling(restoredRoot, () -> diffListener.publishSnapshotDiff((removedSnapshots, addedSnapshots) ->
+            watchRegistry.virtualFileSystemContentsChanged(removedSnapshots, addedSnapshots, restoredRoot)
+        ));
+    }
+
     @Override
     public boolean isWatchingAnyLocations() {
         FileWatcherRegistry watchRegistry = this.watchRegistry;
@@ -523,6 +590,9 @@ public void close() {
             closeUnderLock();
             return currentRoot.empty();
         });
+        if (image != null) {
+            image.close();
+        }
     }
 
     private void closeUnderLock() {
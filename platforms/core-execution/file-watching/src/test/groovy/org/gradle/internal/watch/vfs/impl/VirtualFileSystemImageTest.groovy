@@ -0,0 +1,223 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.watch.vfs.impl
+
+import org.gradle.cache.PersistentCache
+import org.gradle.internal.concurrent.DefaultExecutorFactory
+import org.gradle.internal.file.impl.DefaultFileMetadata
+import org.gradle.internal.hash.TestHashCodes
+import org.gradle.internal.snapshot.CaseSensitivity
+import org.gradle.internal.snapshot.DirectorySnapshot
+import org.gradle.internal.snapshot.FileSystemLocationSnapshot
+import org.gradle.internal.snapshot.RegularFileSnapshot
+import org.gradle.internal.snapshot.SnapshotUtil
+import org.gradle.internal.snapshot.TestSnapshotFixture
+import org.gradle.test.fixtures.file.TestFile
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+
+import java.util.function.Supplier
+
+import static org.gradle.internal.file.FileMetadata.AccessType.DIRECT
+import static org.gradle.internal.file.FileMetadata.AccessType.VIA_SYMLINK
+
+class VirtualFileSystemImageTest extends Specification implements TestSnapshotFixture {
+    @Rule
+    TestNameTestDirectoryProvider temporaryFolder = new TestNameTestDirectoryProvider(getClass())
+
+    def cache = Stub(PersistentCache) {
+        getBaseDir() >> temporaryFolder.file("caches/vfs")
+        useCache(_ as Runnable) >> { Runnable action -> action.run() }
+        useCache(_ as Supplier) >> { Supplier action -> action.get() }
+    }
+    def executorFactory = new DefaultExecutorFactory()
+    def image = new VirtualFileSystemImage(cache, "MD5", executorFactory)
+    def hierarchy = temporaryFolder.testDirectory
+    def longAgo = System.currentTimeMillis() - 60_000
+
+    def cleanup() {
+        executorFactory.stop()
+    }
+
+    def "restores unchanged locations"() {
+        def root = temporaryFolder.createDir("root")
+        def first = fileWithContent(root.file("first.txt"), "first")
+        def second = fileWithContent(root.file("sub/second.txt"), "second")
+        def missingFile = temporaryFolder.file("missing.txt")
+        def snapshot = directorySnapshot(root, [fileSnapshot(first), directorySnapshot(root.file("sub"), [fileSnapshot(second)])])
+
+        when:
+        image.write(hierarchy, buildHierarchy(CaseSensitivity.CASE_SENSITIVE, [snapshot, missing(missingFile.absolutePath)]))
+        def restored = image.readValidSnapshots(hierarchy)
+
+        then:
+        restored*.absolutePath as Set == [root.absolutePath, missingFile.absolutePath] as Set
+        def restoredRoot = restored.find { it.absolutePath == root.absolutePath }
+        restoredRoot instanceof DirectorySnapshot
+        restoredRoot.hash == snapshot.hash
+        SnapshotUtil.indexByAbsolutePath(restoredRoot).collectEntries { path, it -> [path, it.hash] } == SnapshotUtil.indexByAbsolutePath(snapshot).collectEntries { path, it -> [path, it.hash] }
+        (SnapshotUtil.indexByAbsolutePath(restoredRoot)[first.absolutePath] as RegularFileSnapshot).metadata.length == first.length()
+    }
+
+    def "drops changed files and keeps their unchanged siblings"() {
+        def root = temporaryFolder.createDir("root")
+        def changed = fileWithContent(root.file("changed.txt"), "original")
+        def unchanged = fileWithContent(root.file("unchanged.txt"), "unchanged")
+        def snapshot = directorySnapshot(root, [fileSnapshot(changed), fileSnapshot(unchanged)])
+        image.write(hierarchy, buildHierarchy(CaseSensitivity.CASE_SENSITIVE, [snapshot]))
+
+        when:
+        changed.text = "modified content"
+        def restored = image.readValidSnapshots(hierarchy)
+
+        then:
+        restored*.absolutePath == [unchanged.absolutePath]
+    }
+
+    def "drops directories with added children"() {
+        def root = temporaryFolder.createDir("root")
+        def existing = fileWithContent(root.file("existing.txt"), "existing")
+        def snapshot = directorySnapshot(root, [fileSnapshot(existing)])
+        image.write(hierarchy, buildHierarchy(CaseSensitivity.CASE_SENSITIVE, [snapshot]))
+
+        when:
+        root.file("added.txt").text = "added"
+        def restored = image.readValidSnapshots(hierarchy)
+
+        then:
+        restored*.absolutePath == [existing.absolutePath]
+    }
+
+    def "drops directories changed after the root was captured"() {
+        def root = temporaryFolder.createDir("root")
+        def existing = fileWithContent(root.file("existing.txt"), "existing")
+        def snapshot = directorySnapshot(root, [fileSnapshot(existing)])
+        def capturedAt = longAgo + 10_000
+
+        when:
+        root.file("added.txt").text = "added"
+        root.setLastModified(longAgo + 20_000)
+        image.write(hierarchy, buildHierarchy(CaseSensitivity.CASE_SENSITIVE, [snapshot]), capturedAt)
+        def restored = image.readValidSnapshots(hierarchy)
+
+        then:
+        restored*.absolutePath == [existing.absolutePath]
+    }
+
+    def "drops missing files which have been created"() {
+        def missingFile = temporaryFolder.file("missing.txt")
+        image.write(hierarchy, buildHierarchy(CaseSensitivity.CASE_SENSITIVE, [missing(missingFile.absolutePath)]))
+
+        when:
+        missingFile.text = "created"
+
+        then:
+        image.readValidSnapshots(hierarchy).empty
+    }
+
+    def "does not trust files modified shortly before the image was written"() {
+        def file = temporaryFolder.file("recent.txt")
+        file.text = "recent"
+
+        when:
+        image.write(hierarchy, buildHierarchy(CaseSensitivity.CASE_SENSITIVE, [fileSnapshot(file)]))
+
+        then:
+        image.readValidSnapshots(hierarchy).empty
+    }
+
+    def "does not write locations accessed via symlinks"() {
+        def root = temporaryFolder.createDir("root")
+        def file = fileWithContent(root.file("file.txt"), "content")
+        def linked = regularFile(root.file("linked.txt").absolutePath, VIA_SYMLINK)
+        def snapshot = directorySnapshot(root, [fileSnapshot(file), linked])
+
+        when:
+        image.write(hierarchy, buildHierarchy(CaseSensitivity.CASE_SENSITIVE, [snapshot, regularFile(temporaryFolder.file("other").absolutePath, VIA_SYMLINK)]))
+
+        then:
+        image.readValidSnapshots(hierarchy)*.absolutePath == [file.absolutePath]
+    }
+
+    def "ignores image written with a different content hash"() {
+        def file = fileWithContent(temporaryFolder.file("file.txt"), "content")
+        image.write(hierarchy, buildHierarchy(CaseSensitivity.CASE_SENSITIVE, [fileSnapshot(file)]))
+
+        expect:
+        image.readValidSnapshots(hierarchy)*.absolutePath == [file.absolutePath]
+        new VirtualFileSystemImage(cache, "MURMUR3-128", executorFactory).readValidSnapshots(hierarchy).empty
+    }
+
+    def "ignores corrupt image"() {
+        def imageFile = image.getImageFile(hierarchy)
+        imageFile.parentFile.mkdirs()
+        imageFile.bytes = [1, 2, 3] as byte[]
+
+        expect:
+        image.readValidSnapshots(hierarchy).empty
+    }
+
+    def "keeps a separate image for each hierarchy"() {
+        def first = temporaryFolder.createDir("first")
+        def second = temporaryFolder.createDir("second")
+        def firstFile = fileWithContent(first.file("file.txt"), "first")
+        def secondFile = fileWithContent(second.file("file.txt"), "second")
+        def root = buildHierarchy(CaseSensitivity.CASE_SENSITIVE, [fileSnapshot(firstFile), fileSnapshot(secondFile)])
+
+        when:
+        image.write(first, root)
+
+        then:
+        image.readValidSnapshots(first)*.absolutePath == [firstFile.absolutePath]
+        image.readValidSnapshots(second).empty
+
+        when:
+        image.write(second, root)
+
+        then:
+        image.readValidSnapshots(first)*.absolutePath == [firstFile.absolutePath]
+        image.readValidSnapshots(second)*.absolutePath == [secondFile.absolutePath]
+    }
+
+    def "writes the latest state in the background"() {
+        def file = fileWithContent(temporaryFolder.file("file.txt"), "content")
+
+        when:
+        image.writeInBackground(hierarchy, buildHierarchy(CaseSensitivity.CASE_SENSITIVE, [fileSnapshot(file)]))
+        image.close()
+
+        then:
+        image.readValidSnapshots(hierarchy)*.absolutePath == [file.absolutePath]
+    }
+
+    private TestFile fileWithContent(TestFile file, String content) {
+        file.text = content
+        file.setLastModified(longAgo)
+        file.parentFile.setLastModified(longAgo)
+        return file
+    }
+
+    private FileSystemLocationSnapshot fileSnapshot(File file) {
+        new RegularFileSnapshot(file.absolutePath, file.name, TestHashCodes.hashCodeFrom(file.text.hashCode()), DefaultFileMetadata.file(file.lastModified(), file.length(), DIRECT))
+    }
+
+    private FileSystemLocationSnapshot directorySnapshot(TestFile dir, List<FileSystemLocationSnapshot> children) {
+        dir.setLastModified(longAgo)
+        directory(dir.absolutePath, children)
+    }
+}
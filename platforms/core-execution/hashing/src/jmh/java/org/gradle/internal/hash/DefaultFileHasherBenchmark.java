@@ -0,0 +1,117 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.hash;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/**
+ * Measures the throughput of {@link DefaultFileHasher} for the supported content hash functions.
+ */
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@State(Scope.Benchmark)
+public class DefaultFileHasherBenchmark {
+
+    private static final int TOTAL_BYTES = 64 * 1024 * 1024;
+
+    @Param({"MD5", "MURMUR3-128"})
+    String algorithm;
+
+    /**
+     * <ul>
+     *     <li>{@code small}: source-file sized files of 1-8 KiB</li>
+     *     <li>{@code mixed}: mostly small files with the occasional jar-sized file, similar to a typical project</li>
+     *     <li>{@code large}: files of 4-16 MiB</li>
+     * </ul>
+     */
+    @Param({"small", "mixed", "large"})
+    String distribution;
+
+    private Path tempDir;
+    private List<File> files;
+    private DefaultFileHasher hasher;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        HashFunction hashFunction = Hashing.md5().getAlgorithm().equals(algorithm) ? Hashing.md5() : Hashing.murmur3_128();
+        hasher = new DefaultFileHasher(new DefaultStreamHasher(hashFunction));
+
+        tempDir = Files.createTempDirectory("file-hasher-benchmark");
+        files = new ArrayList<>();
+        Random random = new Random(1234L);
+        long remaining = TOTAL_BYTES;
+        while (remaining > 0) {
+            int size = (int) Math.min(remaining, nextFileSize(random));
+            byte[] content = new byte[size];
+            random.nextBytes(content);
+            Path file = tempDir.resolve("file-" + files.size());
+            Files.write(file, content);
+            files.add(file.toFile());
+            remaining -= size;
+        }
+    }
+
+    private int nextFileSize(Random random) {
+        switch (distribution) {
+            case "small":
+                return 1024 + random.nextInt(7 * 1024);
+            case "mixed":
+                return random.nextInt(100) < 95
+                    ? 512 + random.nextInt(16 * 1024)
+                    : 256 * 1024 + random.nextInt(4 * 1024 * 1024);
+            case "large":
+                return 4 * 1024 * 1024 + random.nextInt(12 * 1024 * 1024);
+            default:
+                throw new IllegalArgumentException("Unknown distribution: " + distribution);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (Stream<Path> paths = Files.walk(tempDir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public void hashFiles(Blackhole blackhole) {
+        for (File file : files) {
+            blackhole.consume(hasher.hash(file));
+        }
+    }
+}
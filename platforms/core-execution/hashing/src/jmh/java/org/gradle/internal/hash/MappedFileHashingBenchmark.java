@@ -0,0 +1,88 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.hash;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+
+/**
+ * Compares hashing files through a heap buffer with hashing memory mapped files.
+ */
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@State(Scope.Benchmark)
+public class MappedFileHashingBenchmark {
+
+    @Param({"4096", "65536", "1048576", "67108864", "2147483648"})
+    long fileSize;
+
+    @Param({"heap", "mapped"})
+    String mode;
+
+    @Param({"MD5", "MURMUR3-128"})
+    String algorithm;
+
+    private Path file;
+    private DefaultStreamHasher hasher;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        HashFunction hashFunction = Hashing.md5().getAlgorithm().equals(algorithm) ? Hashing.md5() : Hashing.murmur3_128();
+        hasher = new DefaultStreamHasher(hashFunction, "mapped".equals(mode) ? 0 : Long.MAX_VALUE);
+
+        file = Files.createTempFile("mapped-hashing-benchmark", ".bin");
+        byte[] chunk = new byte[1024 * 1024];
+        new Random(1234L).nextBytes(chunk);
+        try (OutputStream output = Files.newOutputStream(file)) {
+            long remaining = fileSize;
+            while (remaining > 0) {
+                int length = (int) Math.min(chunk.length, remaining);
+                output.write(chunk, 0, length);
+                remaining -= length;
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public HashCode hashFile() throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return hasher.hash(channel);
+        }
+    }
+}
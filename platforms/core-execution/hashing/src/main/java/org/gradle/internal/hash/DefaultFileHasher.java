@@ -19,7 +19,6 @@
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.UncheckedIOException;
 
 public class DefaultFileHasher implements FileHasher {
@@ -31,14 +30,14 @@ public DefaultFileHasher(StreamHasher streamHasher) {
 
     @Override
     public HashCode hash(File file) {
-        InputStream inputStream;
+        FileInputStream inputStream;
         try {
             inputStream = new FileInputStream(file);
         } catch (FileNotFoundException e) {
-            throw new UncheckedIOException(String.format("Failed to create MD5 hash for file '%s' as it does not exist.", file), e);
+            throw new UncheckedIOException(String.format("Failed to create %s hash for file '%s' as it does not exist.", streamHasher.getAlgorithm(), file), e);
         }
         try {
-            return streamHasher.hash(inputStream);
+            return streamHasher.hash(inputStream.getChannel());
         } finally {
             try {
                 inputStream.close();
@@ -21,23 +21,105 @@
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.util.Locale;
 import java.util.Queue;
 import java.util.concurrent.ArrayBlockingQueue;
 
 public class DefaultStreamHasher implements StreamHasher {
+    /**
+     * Files of at least this size are hashed from memory mapped chunks instead of being copied through a heap buffer.
+     *
+     * Memory mapping is not used on Windows, where a mapped file cannot be deleted until the mapping has been garbage collected.
+     * It is also only used by default for hash functions that read mapped buffers directly, see {@link #readsMappedBuffersDirectly(HashFunction)}.
+     */
+    public static final long DEFAULT_MAPPED_HASHING_THRESHOLD = System.getProperty("os.name", "").toLowerCase(Locale.ROOT).contains("windows")
+        ? Long.MAX_VALUE
+        : 1024 * 1024;
+
+    private static final long MAX_MAPPED_CHUNK_SIZE = 256 * 1024 * 1024;
+
     private static final HashCode SIGNATURE = Hashing.signature(DefaultStreamHasher.class);
 
     private final Queue<byte[]> buffers = new ArrayBlockingQueue<byte[]>(16);
+    private final HashFunction hashFunction;
+    private final HashCode signature;
+    private final long mappedHashingThreshold;
+
+    public DefaultStreamHasher() {
+        this(Hashing.defaultFunction());
+    }
+
+    public DefaultStreamHasher(HashFunction hashFunction) {
+        this(hashFunction, readsMappedBuffersDirectly(hashFunction) ? DEFAULT_MAPPED_HASHING_THRESHOLD : Long.MAX_VALUE);
+    }
+
+    public DefaultStreamHasher(HashFunction hashFunction, long mappedHashingThreshold) {
+        this.hashFunction = hashFunction;
+        this.mappedHashingThreshold = mappedHashingThreshold;
+        // Keep the signature of the default function, so existing content hashes stay the same
+        this.signature = hashFunction == Hashing.defaultFunction()
+            ? SIGNATURE
+            : Hashing.signature("CLASS:" + DefaultStreamHasher.class.getName() + ":" + hashFunction.getAlgorithm());
+    }
+
+    /**
+     * Returns the hash function to use for content hashing with the given algorithm name, either {@code MD5} (the default) or {@code MURMUR3-128}.
+     */
+    public static HashFunction contentHashFunction(String algorithm) {
+        if (algorithm.equalsIgnoreCase(Hashing.defaultFunction().getAlgorithm())) {
+            return Hashing.defaultFunction();
+        }
+        if (algorithm.equalsIgnoreCase(Hashing.murmur3_128().getAlgorithm())) {
+            return Hashing.murmur3_128();
+        }
+        throw new IllegalArgumentException(String.format("Unknown content hash algorithm '%s', supported are %s and %s.",
+            algorithm, Hashing.defaultFunction().getAlgorithm(), Hashing.murmur3_128().getAlgorithm()));
+    }
+
+    /**
+     * Message digests copy the content of a direct buffer into a temporary heap array before digesting it,
+     * so hashing a memory mapped file with them copies as much as hashing through the pooled heap buffer.
+     * Murmur3 reads the mapped buffer in place.
+     */
+    private static boolean readsMappedBuffersDirectly(HashFunction hashFunction) {
+        return hashFunction == Hashing.murmur3_128();
+    }
+
+    public HashFunction getHashFunction() {
+        return hashFunction;
+    }
 
     @Override
     public HashCode hash(InputStream inputStream) {
         try {
             return doHash(inputStream, ByteStreams.nullOutputStream());
         } catch (IOException e) {
-            throw new UncheckedIOException("Failed to create MD5 hash for file content.", e);
+            throw new UncheckedIOException("Failed to create " + hashFunction.getAlgorithm() + " hash for file content.", e);
+        }
+    }
+
+    @Override
+    public HashCode hash(FileChannel channel) {
+        try {
+            long position = channel.position();
+            long size = channel.size();
+            if (size - position < mappedHashingThreshold) {
+                return doHash(Channels.newInputStream(channel), ByteStreams.nullOutputStream());
+            }
+            return doHashMapped(channel, position, size);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to create " + hashFunction.getAlgorithm() + " hash for file content.", e);
         }
     }
 
+    @Override
+    public String getAlgorithm() {
+        return hashFunction.getAlgorithm();
+    }
+
     @Override
     public HashCode hashCopy(InputStream inputStream, OutputStream outputStream) throws IOException {
         return doHash(inputStream, outputStream);
@@ -46,8 +128,8 @@ public HashCode hashCopy(InputStream inputStream, OutputStream outputStream) thr
     private HashCode doHash(InputStream inputStream, OutputStream outputStream) throws IOException {
         byte[] buffer = takeBuffer();
         try {
-            PrimitiveHasher hasher = Hashing.newPrimitiveHasher();
-            hasher.putHash(SIGNATURE);
+            PrimitiveHasher hasher = hashFunction.newPrimitiveHasher();
+            hasher.putHash(signature);
             while (true) {
                 int nread = inputStream.read(buffer);
                 if (nread < 0) {
@@ -62,6 +144,24 @@ private HashCode doHash(InputStream inputStream, OutputStream outputStream) thro
         }
     }
 
+    private HashCode doHashMapped(FileChannel channel, long position, long size) throws IOException {
+        PrimitiveHasher hasher = hashFunction.newPrimitiveHasher();
+        hasher.putHash(signature);
+        while (position < size) {
+            long chunkSize = Math.min(MAX_MAPPED_CHUNK_SIZE, size - position);
+            MappedByteBuffer chunk = channel.map(FileChannel.MapMode.READ_ONLY, position, chunkSize);
+            try {
+                hasher.putBytes(chunk);
+            } catch (InternalError e) {
+                // The JVM reports access to a mapped region beyond the end of a file that was truncated while being hashed this way
+                throw new IOException("File was truncated while hashing its content.", e);
+            }
+            position += chunkSize;
+        }
+        channel.position(size);
+        return hasher.hash();
+    }
+
     private void returnBuffer(byte[] buffer) {
         // Retain buffer if there is capacity in the queue, otherwise discard
         buffers.offer(buffer);
@@ -21,6 +21,7 @@
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.channels.FileChannel;
 
 @ServiceScope(Scope.Global.class)
 public interface StreamHasher {
@@ -29,9 +30,19 @@ public interface StreamHasher {
      */
     HashCode hash(InputStream inputStream);
 
+    /**
+     * Returns the hash of the content of the given file channel from its current position. The channel will not be closed by the method.
+     */
+    HashCode hash(FileChannel channel);
+
     /**
      * Returns the hash of the given input stream while copying the data to the output stream.
      * The method will not close either stream.
      */
     HashCode hashCopy(InputStream inputStream, OutputStream outputStream) throws IOException;
+
+    /**
+     * Returns the name of the hash algorithm used for content hashes, such as {@code MD5}.
+     */
+    String getAlgorithm();
 }
@@ -0,0 +1,40 @@
+/*
+ * Copyright 2026 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.hash
+
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+
+class DefaultFileHasherTest extends Specification {
+    @Rule
+    TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider(getClass())
+
+    def "names the hash function in use when the file does not exist with #hashFunction"() {
+        def file = tmpDir.file("missing.txt")
+
+        when:
+        new DefaultFileHasher(new DefaultStreamHasher(hashFunction)).hash(file)
+
+        then:
+        def ex = thrown(UncheckedIOException)
+        ex.message == "Failed to create ${hashFunction.algorithm} hash for file '${file}' as it does not exist."
+
+        where:
+        hashFunction << [Hashing.md5(), Hashing.murmur3_128()]
+    }
+}
@@ -16,9 +16,18 @@
 
 package org.gradle.internal.hash
 
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.IgnoreIf
 import spock.lang.Specification
 
+import java.nio.channels.FileChannel
+import java.nio.file.StandardOpenOption
+
 class DefaultStreamHasherTest extends Specification {
+    @Rule
+    TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider(getClass())
+
     def "can hash input"() {
         def input = new ByteArrayInputStream("hello".bytes)
         when:
@@ -36,4 +45,126 @@ class DefaultStreamHasherTest extends Specification {
         hash.toString() == "af67a92e9f73b51572e9b94e343d2840"
         output.toByteArray() == "hello".bytes
     }
+
+    def "can hash input with murmur3"() {
+        def input = new ByteArrayInputStream("hello".bytes)
+        when:
+        def hash = new DefaultStreamHasher(Hashing.murmur3_128()).hash(input)
+        then:
+        hash.toString() == "f5fd795ff0559c362ee16500ea28cb94"
+    }
+
+    def "selects content hash function by algorithm name"() {
+        expect:
+        DefaultStreamHasher.contentHashFunction(algorithm) == expected
+
+        where:
+        algorithm     | expected
+        "MD5"         | Hashing.md5()
+        "md5"         | Hashing.md5()
+        "MURMUR3-128" | Hashing.murmur3_128()
+        "murmur3-128" | Hashing.murmur3_128()
+    }
+
+    def "fails on unknown content hash function"() {
+        when:
+        DefaultStreamHasher.contentHashFunction("crc32")
+
+        then:
+        def ex = thrown(IllegalArgumentException)
+        ex.message == "Unknown content hash algorithm 'crc32', supported are MD5 and MURMUR3-128."
+    }
+
+    def "names the hash function in use when hashing fails with #hashFunction"() {
+        def input = Stub(InputStream) {
+            read(_) >> { throw new IOException("broken") }
+        }
+
+        when:
+        new DefaultStreamHasher(hashFunction).hash(input)
+
+        then:
+        def ex = thrown(UncheckedIOException)
+        ex.message == "Failed to create ${hashFunction.algorithm} hash for file content."
+
+        where:
+        hashFunction << [Hashing.md5(), Hashing.murmur3_128()]
+    }
+
+    def "hashing memory mapped file content gives the same hash as hashing the stream with #hashFunction"() {
+        def file = tmpDir.file("content.bin")
+        def content = new byte[3 * 1024 * 1024 + 17]
+        new Random(1234L).nextBytes(content)
+        file.bytes = content
+
+        when:
+        def streamHash = new DefaultStreamHasher(hashFunction).hash(new ByteArrayInputStream(content))
+        def mappedHash = FileChannel.open(file.toPath(), StandardOpenOption.READ).withCloseable { channel ->
+            new DefaultStreamHasher(hashFunction, 0).hash(channel)
+        }
+        def channelHash = FileChannel.open(file.toPath(), StandardOpenOption.READ).withCloseable { channel ->
+            new DefaultStreamHasher(hashFunction, Long.MAX_VALUE).hash(channel)
+        }
+
+        then:
+        mappedHash == streamHash
+        channelHash == streamHash
+
+        where:
+        hashFunction << [Hashing.md5(), Hashing.murmur3_128()]
+    }
+
+    def "hashes memory mapped file content from the current position"() {
+        def file = tmpDir.file("content.bin")
+        file.bytes = "skipped-hello".bytes
+
+        when:
+        def hash = FileChannel.open(file.toPath(), StandardOpenOption.READ).withCloseable { channel ->
+            channel.position("skipped-".length())
+            new DefaultStreamHasher(Hashing.defaultFunction(), 0).hash(channel)
+        }
+
+        then:
+        hash.toString() == "af67a92e9f73b51572e9b94e343d2840"
+    }
+
+    def "does not use memory mapping by default for MD5"() {
+        def channel = Mock(FileChannel) {
+            position() >> 0L
+            size() >> 2L * 1024 * 1024
+        }
+
+        when:
+        new DefaultStreamHasher(Hashing.md5()).hash(channel)
+
+        then:
+        1 * channel.read(_) >> -1
+        0 * channel.map(_, _, _)
+    }
+
+    // A mapped file cannot be truncated on Windows
+    @IgnoreIf({ os.windows })
+    def "fails with an IOException when a memory mapped file is truncated while hashing it"() {
+        def file = tmpDir.file("content.bin")
+        file.bytes = new byte[64 * 1024]
+        def channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)
+        def mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, 64 * 1024)
+        FileChannel.open(file.toPath(), StandardOpenOption.WRITE).withCloseable { it.truncate(0) }
+        def truncatingChannel = Stub(FileChannel) {
+            position() >> 0L
+            size() >> 64L * 1024
+            map(_, _, _) >> mapped
+        }
+
+        when:
+        new DefaultStreamHasher(Hashing.murmur3_128(), 0).hash(truncatingChannel)
+
+        then:
+        def ex = thrown(UncheckedIOException)
+        ex.message == "Failed to create MURMUR3-128 hash for file content."
+        ex.cause.message == "File was truncated while hashing its content."
+
+        cleanup:
+        channel?.close()
+    }
 }
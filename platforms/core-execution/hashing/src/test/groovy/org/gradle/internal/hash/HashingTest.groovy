@@ -109,6 +109,25 @@ class HashingTest extends Specification {
         hashStrings(["abc", "de"]) != hashStrings(["ab", "cde"])
     }
 
+    def 'murmur3 hashes have the same length as md5 hashes'() {
+        expect:
+        Hashing.murmur3_128().hashString("hello").toString() == "029bbd41b3a7d8cb191dae486a901e5b"
+        Hashing.murmur3_128().hexDigits == Hashing.md5().hexDigits
+    }
+
+    def 'cannot call murmur3 hash multiple times'() {
+        given:
+        def hasher = Hashing.murmur3_128().newHasher()
+        hasher.putInt(1)
+        hasher.hash()
+
+        when:
+        hasher.hash()
+
+        then:
+        thrown(IllegalStateException)
+    }
+
     def hashStrings(List<String> strings) {
         def hasher = Hashing.newHasher()
         strings.each { hasher.putString(it) }
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.cache.internal.btree;
+
+import org.gradle.internal.serialize.BaseSerializerFactory;
+import org.gradle.internal.serialize.Serializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Random;
+
+/**
+ * Compares a {@link BTreePersistentIndexedCache} backed by the {@link FileBackedBlockStore} with one backed by the {@link MappedFileBlockStore}.
+ */
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@State(Scope.Benchmark)
+public class BlockStoreBenchmark {
+    private static final Serializer<String> STRING_SERIALIZER = BaseSerializerFactory.STRING_SERIALIZER;
+
+    @Param({"10000", "1000000"})
+    int entries;
+
+    @Param({"file", "mapped"})
+    String store;
+
+    private File cacheDir;
+    private BTreePersistentIndexedCache<String, String> cache;
+    private final Random random = new Random(1234L);
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        cacheDir = Files.createTempDirectory("block-store-benchmark").toFile();
+        File cacheFile = new File(cacheDir, "cache.bin");
+        BlockStore fileStore = "mapped".equals(store) ? new MappedFileBlockStore(cacheFile) : new FileBackedBlockStore(cacheFile);
+        cache = new BTreePersistentIndexedCache<>(cacheFile, STRING_SERIALIZER, STRING_SERIALIZER, (short) 512, 512, fileStore);
+        for (int i = 0; i < entries; i++) {
+            cache.put(key(i), value(i));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        cache.close();
+        File[] files = cacheDir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        cacheDir.delete();
+    }
+
+    @Benchmark
+    public String getExisting() {
+        return cache.get(key(random.nextInt(entries)));
+    }
+
+    @Benchmark
+    public String getMissing() {
+        return cache.get(key(entries + random.nextInt(entries)));
+    }
+
+    @Benchmark
+    public void putExisting() {
+        int i = random.nextInt(entries);
+        cache.put(key(i), value(i));
+    }
+
+    private static String key(int i) {
+        return "/some/project/build/classes/java/main/org/gradle/Class" + i + ".class";
+    }
+
+    private static String value(int i) {
+        return "hash-" + Integer.toHexString(i * 31) + "-" + i;
+    }
+}
@@ -37,4 +37,14 @@ public interface AsyncCacheAccess {
      * Blocks until all submitted actions have completed. Rethrows any update failure.
      */
     void flush();
+
+    /**
+     * Returns the access to use for actions that only use the given key.
+     *
+     * Actions submitted to the returned access for the same key run in the order they are submitted, and after all actions for that key previously submitted to this access.
+     * Actions for different keys may run in any order relative to each other.
+     */
+    default AsyncCacheAccess forKey(Object key) {
+        return this;
+    }
 }
@@ -40,7 +40,7 @@ public String toString() {
     @Nullable
     @Override
     public V get(final K key) {
-        return asyncCacheAccess.read(() -> indexedCache.getIfPresent(key));
+        return asyncCacheAccess.forKey(key).read(() -> indexedCache.getIfPresent(key));
     }
 
     @Override
@@ -51,7 +51,7 @@ public V get(K key, Function<? super K, ? extends V> producer, Runnable completi
     @Override
     public void putLater(final K key, final V value, final Runnable completion) {
         try {
-            asyncCacheAccess.enqueue(() -> {
+            asyncCacheAccess.forKey(key).enqueue(() -> {
                 try {
                     indexedCache.put(key, value);
                 } finally {
@@ -67,7 +67,7 @@ public void putLater(final K key, final V value, final Runnable completion) {
     @Override
     public void removeLater(final K key, final Runnable completion) {
         try {
-            asyncCacheAccess.enqueue(() -> {
+            asyncCacheAccess.forKey(key).enqueue(() -> {
                 try {
                     indexedCache.remove(key);
                 } finally {
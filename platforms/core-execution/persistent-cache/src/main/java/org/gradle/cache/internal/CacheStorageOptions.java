@@ -0,0 +1,46 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.cache.internal;
+
+/**
+ * Options for how the indexed caches of a persistent cache are stored, selected via internal options by the process creating the {@link DefaultCacheFactory}.
+ */
+public class CacheStorageOptions {
+    public static final CacheStorageOptions DEFAULT = new CacheStorageOptions(false, 1);
+
+    private final boolean mappedBlockStore;
+    private final int writeBehindShards;
+
+    public CacheStorageOptions(boolean mappedBlockStore, int writeBehindShards) {
+        this.mappedBlockStore = mappedBlockStore;
+        this.writeBehindShards = Math.max(1, writeBehindShards);
+    }
+
+    /**
+     * Whether indexed caches read their blocks from a memory mapped view of the cache file, see {@link org.gradle.cache.internal.btree.MappedFileBlockStore}.
+     */
+    public boolean isMappedBlockStore() {
+        return mappedBlockStore;
+    }
+
+    /**
+     * The number of shards to split the write-behind queue of each cache into, at least one.
+     */
+    public int getWriteBehindShards() {
+        return writeBehindShards;
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.cache.internal;
+
+import org.gradle.internal.operations.BuildOperationType;
+
+/**
+ * A batch of queued operations written to a cache by one shard of a {@link ShardedCacheAccessingWorker}.
+ *
+ * The duration of the operation is the flush latency of the batch, including the time spent waiting to take ownership of the cache.
+ */
+public final class CacheWriteBehindBuildOperationType implements BuildOperationType<CacheWriteBehindBuildOperationType.Details, CacheWriteBehindBuildOperationType.Result> {
+
+    /**
+     * Sent when a shard starts writing a batch of operations.
+     */
+    public interface Details {
+
+        /**
+         * Returns the display name of the cache.
+         */
+        String getCacheDisplayName();
+
+        /**
+         * The index of the shard writing the batch, starting at 0.
+         */
+        int getShard();
+
+        /**
+         * The number of shards of the cache.
+         */
+        int getShardCount();
+
+        /**
+         * The number of operations queued for the shard when the batch started, including the first operation of the batch.
+         */
+        int getQueueDepth();
+    }
+
+    /**
+     * Sent after a shard has written a batch of operations.
+     */
+    public interface Result {
+
+        /**
+         * The number of operations executed in the batch.
+         */
+        int getOperationCount();
+    }
+
+}
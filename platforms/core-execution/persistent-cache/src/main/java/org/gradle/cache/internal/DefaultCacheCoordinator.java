@@ -36,10 +36,12 @@
 import org.gradle.internal.UncheckedException;
 import org.gradle.internal.concurrent.ExecutorFactory;
 import org.gradle.internal.concurrent.ManagedExecutor;
+import org.gradle.internal.operations.BuildOperationRunner;
 import org.gradle.internal.serialize.Serializer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
 import javax.annotation.concurrent.ThreadSafe;
 import java.io.File;
 import java.util.ArrayList;
@@ -64,13 +66,16 @@ public class DefaultCacheCoordinator implements CacheCreationCoordinator, Exclus
     private final File baseDir;
     private final CacheCleanupExecutor cleanupAction;
     private final ExecutorFactory executorFactory;
+    @Nullable
+    private final BuildOperationRunner buildOperationRunner;
+    private final CacheStorageOptions storageOptions;
     private final FileAccess fileAccess;
     private final Map<String, IndexedCacheEntry<?, ?>> caches = new HashMap<>();
     private final AbstractCrossProcessCacheAccess crossProcessCacheAccess;
     private final CacheAccessOperationsStack operations;
 
     private ManagedExecutor cacheUpdateExecutor;
-    private ExclusiveCacheAccessingWorker cacheAccessWorker;
+    private ShardedCacheAccessingWorker cacheAccessWorker;
     private final Lock stateLock = new ReentrantLock(); // protects the following state
     private final Condition condition = stateLock.newCondition();
 
@@ -83,10 +88,20 @@ public class DefaultCacheCoordinator implements CacheCreationCoordinator, Exclus
     private boolean alreadyCleaned;
 
     public DefaultCacheCoordinator(String cacheDisplayName, File lockTarget, LockOptions lockOptions, File baseDir, FileLockManager lockManager, CacheInitializationAction initializationAction, CacheCleanupExecutor cleanupAction, ExecutorFactory executorFactory) {
+        this(cacheDisplayName, lockTarget, lockOptions, baseDir, lockManager, initializationAction, cleanupAction, executorFactory, null);
+    }
+
+    public DefaultCacheCoordinator(String cacheDisplayName, File lockTarget, LockOptions lockOptions, File baseDir, FileLockManager lockManager, CacheInitializationAction initializationAction, CacheCleanupExecutor cleanupAction, ExecutorFactory executorFactory, @Nullable BuildOperationRunner buildOperationRunner) {
+        this(cacheDisplayName, lockTarget, lockOptions, baseDir, lockManager, initializationAction, cleanupAction, executorFactory, buildOperationRunner, CacheStorageOptions.DEFAULT);
+    }
+
+    public DefaultCacheCoordinator(String cacheDisplayName, File lockTarget, LockOptions lockOptions, File baseDir, FileLockManager lockManager, CacheInitializationAction initializationAction, CacheCleanupExecutor cleanupAction, ExecutorFactory executorFactory, @Nullable BuildOperationRunner buildOperationRunner, CacheStorageOptions storageOptions) {
         this.cacheDisplayName = cacheDisplayName;
         this.baseDir = baseDir;
         this.cleanupAction = cleanupAction;
         this.executorFactory = executorFactory;
+        this.buildOperationRunner = buildOperationRunner;
+        this.storageOptions = storageOptions;
         this.operations = new CacheAccessOperationsStack();
 
         Consumer<FileLock> onFileLockAcquireAction = this::afterLockAcquire;
@@ -116,9 +131,9 @@ public DefaultCacheCoordinator(String cacheDisplayName, File lockTarget, LockOpt
 
     private synchronized AsyncCacheAccess getCacheAccessWorker() {
         if (cacheAccessWorker == null) {
-            cacheAccessWorker = new ExclusiveCacheAccessingWorker(cacheDisplayName, this);
+            cacheAccessWorker = new ShardedCacheAccessingWorker(cacheDisplayName, this, storageOptions.getWriteBehindShards(), buildOperationRunner);
             cacheUpdateExecutor = executorFactory.create("Cache worker for " + cacheDisplayName);
-            cacheUpdateExecutor.execute(cacheAccessWorker);
+            cacheAccessWorker.start(cacheUpdateExecutor);
         }
         return cacheAccessWorker;
     }
@@ -347,7 +362,7 @@ public <K, V> boolean cacheExists(IndexedCacheParameters<K, V> parameters) {
     }
 
     <K, V> BTreePersistentIndexedCache<K, V> doCreateCache(File cacheFile, Serializer<K> keySerializer, Serializer<V> valueSerializer) {
-        return new BTreePersistentIndexedCache<>(cacheFile, keySerializer, valueSerializer);
+        return new BTreePersistentIndexedCache<>(cacheFile, keySerializer, valueSerializer, storageOptions.isMappedBlockStore());
     }
 
     /**
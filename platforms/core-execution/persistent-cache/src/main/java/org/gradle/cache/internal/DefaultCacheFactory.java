@@ -45,12 +45,18 @@ public class DefaultCacheFactory implements CacheFactory, Closeable {
     private final FileLockManager lockManager;
     private final ExecutorFactory executorFactory;
     private final BuildOperationRunner buildOperationRunner;
+    private final CacheStorageOptions storageOptions;
     private final Lock lock = new ReentrantLock();
 
     public DefaultCacheFactory(FileLockManager fileLockManager, ExecutorFactory executorFactory, BuildOperationRunner buildOperationRunner) {
+        this(fileLockManager, executorFactory, buildOperationRunner, CacheStorageOptions.DEFAULT);
+    }
+
+    public DefaultCacheFactory(FileLockManager fileLockManager, ExecutorFactory executorFactory, BuildOperationRunner buildOperationRunner, CacheStorageOptions storageOptions) {
         this.lockManager = fileLockManager;
         this.executorFactory = executorFactory;
         this.buildOperationRunner = buildOperationRunner;
+        this.storageOptions = storageOptions;
     }
 
     void onOpen(Object cache) {
@@ -98,9 +104,9 @@ private PersistentCache doOpen(
             ReferencablePersistentCache cache;
             if (!properties.isEmpty() || initializer != null) {
                 Consumer<? super PersistentCache> initAction = initializer != null ? initializer : __ -> {};
-                cache = new DefaultPersistentDirectoryCache(cacheDir, displayName, properties, lockOptions, initAction, cacheCleanupStrategy, lockManager, executorFactory, buildOperationRunner);
+                cache = new DefaultPersistentDirectoryCache(cacheDir, displayName, properties, lockOptions, initAction, cacheCleanupStrategy, lockManager, executorFactory, buildOperationRunner, storageOptions);
             } else {
-                cache = new DefaultPersistentDirectoryStore(cacheDir, displayName, lockOptions, cacheCleanupStrategy, lockManager, executorFactory, buildOperationRunner);
+                cache = new DefaultPersistentDirectoryStore(cacheDir, displayName, lockOptions, cacheCleanupStrategy, lockManager, executorFactory, buildOperationRunner, storageOptions);
             }
             cache.open();
             dirCacheReference = new DirCacheReference(cache, properties, lockOptions);
@@ -48,6 +48,8 @@ public class DefaultPersistentDirectoryStore implements ReferencablePersistentCa
     private final File gcFile;
 
     private final DefaultCacheCleanupExecutor cleanupExecutor;
+    private final BuildOperationRunner buildOperationRunner;
+    private final CacheStorageOptions storageOptions;
     private DefaultCacheCoordinator cacheAccess;
 
     public DefaultPersistentDirectoryStore(
@@ -58,6 +60,19 @@ public DefaultPersistentDirectoryStore(
         FileLockManager fileLockManager,
         ExecutorFactory executorFactory,
         BuildOperationRunner buildOperationRunner
+    ) {
+        this(dir, displayName, lockOptions, cacheCleanupStrategy, fileLockManager, executorFactory, buildOperationRunner, CacheStorageOptions.DEFAULT);
+    }
+
+    public DefaultPersistentDirectoryStore(
+        File dir,
+        @Nullable String displayName,
+        LockOptions lockOptions,
+        CacheCleanupStrategy cacheCleanupStrategy,
+        FileLockManager fileLockManager,
+        ExecutorFactory executorFactory,
+        BuildOperationRunner buildOperationRunner,
+        CacheStorageOptions storageOptions
     ) {
         this.dir = dir;
         this.lockOptions = lockOptions;
@@ -67,6 +82,8 @@ public DefaultPersistentDirectoryStore(
         this.gcFile = new File(dir, "gc.properties");
         this.displayName = displayName != null ? (displayName + " (" + dir + ")") : ("cache directory " + dir.getName() + " (" + dir + ")");
         this.cleanupExecutor = new DefaultCacheCleanupExecutor(this, gcFile, cacheCleanupStrategy, buildOperationRunner);
+        this.buildOperationRunner = buildOperationRunner;
+        this.storageOptions = storageOptions;
     }
 
     @Override
@@ -83,7 +100,7 @@ public DefaultPersistentDirectoryStore open() {
     }
 
     private DefaultCacheCoordinator createCacheAccess() {
-        return new DefaultCacheCoordinator(displayName, getLockTarget(), lockOptions, dir, lockManager, getInitAction(), cleanupExecutor, executorFactory);
+        return new DefaultCacheCoordinator(displayName, getLockTarget(), lockOptions, dir, lockManager, getInitAction(), cleanupExecutor, executorFactory, buildOperationRunner, storageOptions);
     }
 
     private File getLockTarget() {
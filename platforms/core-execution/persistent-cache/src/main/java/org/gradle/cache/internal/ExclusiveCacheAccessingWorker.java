@@ -21,9 +21,14 @@
 import org.gradle.internal.UncheckedException;
 import org.gradle.internal.concurrent.ExecutorPolicy;
 import org.gradle.internal.concurrent.Stoppable;
+import org.gradle.internal.operations.BuildOperationContext;
+import org.gradle.internal.operations.BuildOperationDescriptor;
+import org.gradle.internal.operations.BuildOperationRunner;
+import org.gradle.internal.operations.RunnableBuildOperation;
 import org.gradle.internal.time.CountdownTimer;
 import org.gradle.internal.time.Time;
 
+import javax.annotation.Nullable;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.ArrayBlockingQueue;
@@ -40,6 +45,10 @@ public class ExclusiveCacheAccessingWorker implements Runnable, Stoppable, Async
     private final ExclusiveCacheAccessCoordinator cacheAccess;
     private final long batchWindowMillis;
     private final long maximumLockingTimeMillis;
+    @Nullable
+    private final BuildOperationRunner buildOperationRunner;
+    private final int shard;
+    private final int shardCount;
     private boolean closed;
     private boolean workerCompleted;
     private boolean stopSeen;
@@ -47,15 +56,39 @@ public class ExclusiveCacheAccessingWorker implements Runnable, Stoppable, Async
     private final ExecutorPolicy.CatchAndRecordFailures failureHandler = new ExecutorPolicy.CatchAndRecordFailures();
 
     public ExclusiveCacheAccessingWorker(String displayName, ExclusiveCacheAccessCoordinator cacheAccess) {
+        this(displayName, cacheAccess, defaultQueueCapacity(), null, 0, 1);
+    }
+
+    /**
+     * Creates a worker for one shard of a {@link ShardedCacheAccessingWorker}.
+     * Each batch of operations is run as a {@link CacheWriteBehindBuildOperationType} build operation when a build operation runner is given.
+     *
+     * When there is more than one shard, a batch only runs the operations already queued and holds the cache for a shorter time,
+     * so the other shards are not kept waiting by a shard that is idle or busy.
+     */
+    ExclusiveCacheAccessingWorker(String displayName, ExclusiveCacheAccessCoordinator cacheAccess, int queueCapacity, @Nullable BuildOperationRunner buildOperationRunner, int shard, int shardCount) {
         this.displayName = displayName;
         this.cacheAccess = cacheAccess;
-        this.batchWindowMillis = 200;
-        this.maximumLockingTimeMillis = 5000;
-        HeapProportionalCacheSizer heapProportionalCacheSizer = new HeapProportionalCacheSizer();
-        int queueCapacity = Math.min(4000, heapProportionalCacheSizer.scaleCacheSize(40000));
+        this.batchWindowMillis = shardCount > 1 ? 0 : 200;
+        this.maximumLockingTimeMillis = shardCount > 1 ? 200 : 5000;
+        this.buildOperationRunner = buildOperationRunner;
+        this.shard = shard;
+        this.shardCount = shardCount;
         workQueue = new ArrayBlockingQueue<Runnable>(queueCapacity, true);
     }
 
+    static int defaultQueueCapacity() {
+        HeapProportionalCacheSizer heapProportionalCacheSizer = new HeapProportionalCacheSizer();
+        return Math.min(4000, heapProportionalCacheSizer.scaleCacheSize(40000));
+    }
+
+    /**
+     * Returns the number of operations currently waiting in the queue of this worker.
+     */
+    public int getQueueDepth() {
+        return workQueue.size();
+    }
+
     @Override
     public void enqueue(Runnable task) {
         addToQueue(task);
@@ -164,7 +197,32 @@ private Runnable takeFromQueue() throws InterruptedException {
     }
 
     private void flushOperations(final Runnable updateOperation) {
+        if (buildOperationRunner == null) {
+            doFlushOperations(updateOperation);
+            return;
+        }
+        final int queueDepth = workQueue.size() + 1;
+        buildOperationRunner.run(new RunnableBuildOperation() {
+            @Override
+            public void run(BuildOperationContext context) {
+                int operationCount = doFlushOperations(updateOperation);
+                context.setResult(new WriteBehindResult(operationCount));
+            }
+
+            @Override
+            public BuildOperationDescriptor.Builder description() {
+                return BuildOperationDescriptor.displayName("Write to " + displayName + " (shard " + (shard + 1) + " of " + shardCount + ")")
+                    .details(new WriteBehindDetails(displayName, shard, shardCount, queueDepth));
+            }
+        });
+    }
+
+    /**
+     * Runs the given operation and any further queued operations under the cache lock, returning the number of operations run.
+     */
+    private int doFlushOperations(final Runnable updateOperation) {
         final List<FlushOperationsCommand> flushOperations = new ArrayList<FlushOperationsCommand>();
+        final int[] operationCount = new int[1];
         try {
             cacheAccess.useCache(new Runnable() {
                 @Override
@@ -172,12 +230,16 @@ public void run() {
                     CountdownTimer timer = Time.startCountdownTimer(maximumLockingTimeMillis, TimeUnit.MILLISECONDS);
                     if (updateOperation != null) {
                         failureHandler.onExecute(updateOperation);
+                        operationCount[0]++;
                     }
                     Runnable otherOperation;
                     try {
                         while ((otherOperation = workQueue.poll(batchWindowMillis, TimeUnit.MILLISECONDS)) != null) {
                             failureHandler.onExecute(otherOperation);
                             final Class<? extends Runnable> runnableClass = otherOperation.getClass();
+                            if (runnableClass != FlushOperationsCommand.class && runnableClass != ShutdownOperationsCommand.class) {
+                                operationCount[0]++;
+                            }
                             if (runnableClass == FlushOperationsCommand.class) {
                                 flushOperations.add((FlushOperationsCommand) otherOperation);
                             }
@@ -200,6 +262,7 @@ public void run() {
                 flushOperation.completed();
             }
         }
+        return operationCount[0];
     }
 
     @Override
@@ -226,4 +289,51 @@ public void run() {
             // do nothing
         }
     }
+
+    private static class WriteBehindDetails implements CacheWriteBehindBuildOperationType.Details {
+        private final String cacheDisplayName;
+        private final int shard;
+        private final int shardCount;
+        private final int queueDepth;
+
+        WriteBehindDetails(String cacheDisplayName, int shard, int shardCount, int queueDepth) {
+            this.cacheDisplayName = cacheDisplayName;
+            this.shard = shard;
+            this.shardCount = shardCount;
+            this.queueDepth = queueDepth;
+        }
+
+        @Override
+        public String getCacheDisplayName() {
+            return cacheDisplayName;
+        }
+
+        @Override
+        public int getShard() {
+            return shard;
+        }
+
+        @Override
+        public int getShardCount() {
+            return shardCount;
+        }
+
+        @Override
+        public int getQueueDepth() {
+            return queueDepth;
+        }
+    }
+
+    private static class WriteBehindResult implements CacheWriteBehindBuildOperationType.Result {
+        private final int operationCount;
+
+        WriteBehindResult(int operationCount) {
+            this.operationCount = operationCount;
+        }
+
+        @Override
+        public int getOperationCount() {
+            return operationCount;
+        }
+    }
 }
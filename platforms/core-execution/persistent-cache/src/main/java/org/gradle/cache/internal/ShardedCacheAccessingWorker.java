@@ -0,0 +1,123 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.cache.internal;
+
+import org.gradle.cache.AsyncCacheAccess;
+import org.gradle.cache.ExclusiveCacheAccessCoordinator;
+import org.gradle.internal.concurrent.CompositeStoppable;
+import org.gradle.internal.concurrent.Stoppable;
+import org.gradle.internal.operations.BuildOperationRunner;
+
+import javax.annotation.Nullable;
+import java.util.Arrays;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+
+/**
+ * Splits the write-behind queue of a cache into shards by key hash, each drained by its own {@link ExclusiveCacheAccessingWorker}.
+ *
+ * <p>
+ * Writers only block when the queue of the shard for their key is full, instead of when the single queue of the cache is full.
+ * Each shard runs its batches using {@link ExclusiveCacheAccessCoordinator#useCache(Runnable)}, so batches still run one at a time
+ * and hold the cross-process lock of the cache as before. A shard releases the cache as soon as its queue is empty,
+ * instead of waiting for more operations, so the other shards get their turn.
+ * </p>
+ *
+ * <p>
+ * Actions submitted through {@link #forKey(Object)} keep their order for the same key. Actions submitted without a key
+ * first wait for all shards to drain, so they keep their order relative to all other actions.
+ * </p>
+ */
+public class ShardedCacheAccessingWorker implements AsyncCacheAccess, Stoppable {
+    private final ExclusiveCacheAccessingWorker[] shards;
+
+    public ShardedCacheAccessingWorker(String displayName, ExclusiveCacheAccessCoordinator cacheAccess, int shardCount, @Nullable BuildOperationRunner buildOperationRunner) {
+        if (shardCount < 1) {
+            throw new IllegalArgumentException("Shard count must be at least 1, was " + shardCount);
+        }
+        int queueCapacity = ExclusiveCacheAccessingWorker.defaultQueueCapacity();
+        shards = new ExclusiveCacheAccessingWorker[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = shardCount == 1
+                ? new ExclusiveCacheAccessingWorker(displayName, cacheAccess)
+                : new ExclusiveCacheAccessingWorker(displayName, cacheAccess, queueCapacity, buildOperationRunner, i, shardCount);
+        }
+    }
+
+    /**
+     * Starts a thread for each shard using the given executor.
+     */
+    public void start(Executor executor) {
+        for (ExclusiveCacheAccessingWorker shard : shards) {
+            executor.execute(shard);
+        }
+    }
+
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    /**
+     * Returns the number of operations currently waiting in the queue of each shard.
+     */
+    public int[] getQueueDepths() {
+        return Arrays.stream(shards).mapToInt(ExclusiveCacheAccessingWorker::getQueueDepth).toArray();
+    }
+
+    @Override
+    public AsyncCacheAccess forKey(Object key) {
+        return shards[shardOf(key)];
+    }
+
+    private int shardOf(Object key) {
+        if (shards.length == 1) {
+            return 0;
+        }
+        int hash = key.hashCode();
+        return Math.floorMod(hash ^ (hash >>> 16), shards.length);
+    }
+
+    @Override
+    public void enqueue(Runnable task) {
+        flushOtherShards();
+        shards[0].enqueue(task);
+    }
+
+    @Override
+    public <T> T read(Supplier<T> task) {
+        flushOtherShards();
+        return shards[0].read(task);
+    }
+
+    private void flushOtherShards() {
+        for (int i = 1; i < shards.length; i++) {
+            shards[i].flush();
+        }
+    }
+
+    @Override
+    public void flush() {
+        for (ExclusiveCacheAccessingWorker shard : shards) {
+            shard.flush();
+        }
+    }
+
+    @Override
+    public void stop() {
+        CompositeStoppable.stoppable((Object[]) shards).stop();
+    }
+}
@@ -0,0 +1,431 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.cache.internal.btree;
+
+import org.gradle.api.UncheckedIOException;
+
+import javax.annotation.Nullable;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A {@link BlockStore} that reads blocks from a memory mapped view of the cache file, instead of seeking and reading through a {@link RandomAccessFile}.
+ *
+ * <p>
+ * Uses the same file format as {@link FileBackedBlockStore}, so both stores can open files written by the other.
+ * The file is mapped up to its current length. It is remapped only once it has doubled in size since it was last mapped,
+ * blocks appended in between are read through the file channel. This keeps the number of discarded mappings, which are only released on garbage collection, logarithmic in the size of the file.
+ * Blocks that fit in the mapped region are written to it directly, appended blocks are written through the file channel.
+ * The first {@link #MAX_MAPPED_SIZE} bytes are mapped, blocks beyond that are read through the file channel.
+ * </p>
+ *
+ * <p>
+ * Accessing a mapping of a file which has been truncated by another process fails with an {@link InternalError}, which is reported as a corrupt cache.
+ * </p>
+ *
+ * <p>
+ * Reads do not share a file position or buffer, so they do not need to be serialized with each other. Writes still need to be serialized with all other access.
+ * </p>
+ */
+public class MappedFileBlockStore implements BlockStore {
+    static final long MAX_MAPPED_SIZE = Integer.MAX_VALUE;
+
+    private final File cacheFile;
+    private final WriteBuffer writeBuffer = new WriteBuffer();
+    private final Object mappingLock = new Object();
+    private RandomAccessFile file;
+    private FileChannel channel;
+    private boolean readOnly;
+    private volatile MappedByteBuffer mapped;
+    private long nextBlock;
+    private Factory factory;
+    private volatile long currentFileSize;
+
+    public MappedFileBlockStore(File cacheFile) {
+        this.cacheFile = cacheFile;
+    }
+
+    @Override
+    public String toString() {
+        return "cache '" + cacheFile + "'";
+    }
+
+    @Override
+    public void open(Runnable runnable, Factory factory) {
+        this.factory = factory;
+        try {
+            cacheFile.getParentFile().mkdirs();
+            file = openRandomAccessFile();
+            channel = file.getChannel();
+            currentFileSize = file.length();
+            nextBlock = currentFileSize;
+            if (currentFileSize == 0) {
+                runnable.run();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private RandomAccessFile openRandomAccessFile() throws FileNotFoundException {
+        try {
+            readOnly = false;
+            return new RandomAccessFile(cacheFile, "rw");
+        } catch (FileNotFoundException e) {
+            readOnly = true;
+            return new RandomAccessFile(cacheFile, "r");
+        }
+    }
+
+    @Override
+    public void close() {
+        mapped = null;
+        try {
+            file.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void clear() {
+        mapped = null;
+        try {
+            file.setLength(0);
+            currentFileSize = 0;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        nextBlock = 0;
+    }
+
+    @Override
+    public void attach(BlockPayload block) {
+        if (block.getBlock() == null) {
+            block.setBlock(new BlockImpl(block));
+        }
+    }
+
+    @Override
+    public void remove(BlockPayload block) {
+        BlockImpl blockImpl = (BlockImpl) block.getBlock();
+        blockImpl.detach();
+    }
+
+    @Override
+    public void flush() {
+    }
+
+    @Override
+    public <T extends BlockPayload> T readFirst(Class<T> payloadType) {
+        return read(BlockPointer.pos(0), payloadType);
+    }
+
+    @Override
+    public <T extends BlockPayload> T read(BlockPointer pos, Class<T> payloadType) {
+        assert !pos.isNull();
+        try {
+            T payload = payloadType.cast(factory.create(payloadType));
+            BlockImpl block = new BlockImpl(payload, pos);
+            block.read();
+            return payload;
+        } catch (CorruptedCacheException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void write(BlockPayload block) {
+        BlockImpl blockImpl = (BlockImpl) block.getBlock();
+        try {
+            blockImpl.write();
+        } catch (CorruptedCacheException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private long alloc(long length) {
+        long pos = nextBlock;
+        nextBlock += length;
+        return pos;
+    }
+
+    /**
+     * Returns a buffer containing the given range of the file, positioned at its start.
+     */
+    private ByteBuffer bytesAt(long pos, int length) throws IOException {
+        long end = pos + length;
+        MappedByteBuffer current = mappingContaining(end);
+        if (current != null) {
+            ByteBuffer bytes = current.duplicate();
+            bytes.position((int) pos);
+            bytes.limit((int) end);
+            return bytes;
+        }
+        ByteBuffer bytes = ByteBuffer.allocate(length);
+        while (bytes.hasRemaining()) {
+            if (channel.read(bytes, pos + bytes.position()) < 0) {
+                break;
+            }
+        }
+        bytes.flip();
+        return bytes;
+    }
+
+    /**
+     * Returns the mapping containing the given end of a range, or {@code null} when the range needs to be read through the file channel.
+     */
+    @Nullable
+    private MappedByteBuffer mappingContaining(long end) throws IOException {
+        MappedByteBuffer current = mapped;
+        if (current != null && end <= current.capacity()) {
+            return current;
+        }
+        synchronized (mappingLock) {
+            current = mapped;
+            if (current != null && end <= current.capacity()) {
+                return current;
+            }
+            long size = Math.min(currentFileSize, MAX_MAPPED_SIZE);
+            if (end > size || (current != null && size < 2L * current.capacity() && size < MAX_MAPPED_SIZE)) {
+                return null;
+            }
+            current = channel.map(readOnly ? FileChannel.MapMode.READ_ONLY : FileChannel.MapMode.READ_WRITE, 0, size);
+            mapped = current;
+            return current;
+        }
+    }
+
+    private void writeAt(long pos, ByteBuffer bytes) throws IOException {
+        MappedByteBuffer current = mapped;
+        if (current != null && pos + bytes.remaining() <= current.capacity()) {
+            ByteBuffer target = current.duplicate();
+            target.position((int) pos);
+            try {
+                target.put(bytes);
+            } catch (InternalError e) {
+                throw truncatedException(e);
+            }
+            return;
+        }
+        while (bytes.hasRemaining()) {
+            channel.write(bytes, pos + bytes.position());
+        }
+        if (current != null && pos < current.capacity()) {
+            // Part of the block was written through the channel, remap on the next read
+            mapped = null;
+        }
+    }
+
+    private CorruptedCacheException truncatedException(InternalError e) {
+        CorruptedCacheException exception = new CorruptedCacheException(String.format("%s was truncated while it was mapped.", this));
+        exception.initCause(e);
+        return exception;
+    }
+
+    private final class BlockImpl extends Block {
+        private static final int HEADER_SIZE = 1 + INT_SIZE; // type, payload size
+        private static final int TAIL_SIZE = INT_SIZE;
+
+        private BlockPointer pos;
+        private int payloadSize;
+
+        private BlockImpl(BlockPayload payload, BlockPointer pos) {
+            this(payload);
+            setPos(pos);
+        }
+
+        public BlockImpl(BlockPayload payload) {
+            super(payload);
+            pos = null;
+            payloadSize = -1;
+        }
+
+        @Override
+        public boolean hasPos() {
+            return pos != null;
+        }
+
+        @Override
+        public BlockPointer getPos() {
+            if (pos == null) {
+                pos = BlockPointer.pos(alloc(getSize()));
+            }
+            return pos;
+        }
+
+        @Override
+        public void setPos(BlockPointer pos) {
+            assert this.pos == null && !pos.isNull();
+            this.pos = pos;
+        }
+
+        @Override
+        public int getSize() {
+            if (payloadSize < 0) {
+                payloadSize = getPayload().getSize();
+            }
+            return payloadSize + HEADER_SIZE + TAIL_SIZE;
+        }
+
+        @Override
+        public void setSize(int size) {
+            int newPayloadSize = size - HEADER_SIZE - TAIL_SIZE;
+            assert newPayloadSize >= payloadSize;
+            payloadSize = newPayloadSize;
+        }
+
+        public void write() throws Exception {
+            long pos = getPos().getPos();
+
+            writeBuffer.reset();
+            DataOutputStream outputStream = new DataOutputStream(writeBuffer);
+
+            BlockPayload payload = getPayload();
+
+            // Write header
+            outputStream.writeByte(payload.getType());
+            outputStream.writeInt(payloadSize);
+            long finalSize = pos + HEADER_SIZE + TAIL_SIZE + payloadSize;
+
+            // Write body
+            payload.write(outputStream);
+
+            // Write count
+            long bytesWritten = writeBuffer.size();
+            if (bytesWritten > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Block payload exceeds maximum size");
+            }
+            outputStream.writeInt((int) bytesWritten);
+            outputStream.flush();
+            writeAt(pos, writeBuffer.toByteBuffer());
+
+            // Pad
+            if (currentFileSize < finalSize) {
+                file.setLength(finalSize);
+                currentFileSize = finalSize;
+            }
+        }
+
+        public void read() throws Exception {
+            try {
+                doRead();
+            } catch (InternalError e) {
+                throw truncatedException(e);
+            }
+        }
+
+        private void doRead() throws Exception {
+            long pos = getPos().getPos();
+            assert pos >= 0;
+            if (pos + HEADER_SIZE >= currentFileSize) {
+                throw blockCorruptedException();
+            }
+
+            ByteBuffer header = bytesAt(pos, HEADER_SIZE);
+
+            BlockPayload payload = getPayload();
+
+            // Read header
+            byte type = header.get();
+            if (type != payload.getType()) {
+                throw blockCorruptedException();
+            }
+
+            // Read body
+            payloadSize = header.getInt();
+            if (payloadSize < 0 || pos + HEADER_SIZE + TAIL_SIZE + payloadSize > currentFileSize) {
+                throw blockCorruptedException();
+            }
+            ByteBuffer body = bytesAt(pos + HEADER_SIZE, payloadSize + TAIL_SIZE);
+            int bodyStart = body.position();
+            payload.read(new DataInputStream(new ByteBufferInputStream(body)));
+
+            // Read and verify count
+            long actualCount = HEADER_SIZE + body.position() - bodyStart;
+            if (body.remaining() < INT_SIZE) {
+                throw blockCorruptedException();
+            }
+            long count = body.getInt();
+            if (actualCount != count) {
+                throw blockCorruptedException();
+            }
+        }
+
+        @Override
+        public RuntimeException blockCorruptedException() {
+            return new CorruptedCacheException(String.format("Corrupted %s found in %s.", this,
+                    MappedFileBlockStore.this));
+        }
+    }
+
+    private static class WriteBuffer extends ByteArrayOutputStream {
+        ByteBuffer toByteBuffer() {
+            return ByteBuffer.wrap(buf, 0, count);
+        }
+    }
+
+    private static class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int count = Math.min(len, buffer.remaining());
+            buffer.get(bytes, off, count);
+            return count;
+        }
+
+        @Override
+        public long skip(long n) {
+            int count = (int) Math.min(n, buffer.remaining());
+            buffer.position(buffer.position() + count);
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+}
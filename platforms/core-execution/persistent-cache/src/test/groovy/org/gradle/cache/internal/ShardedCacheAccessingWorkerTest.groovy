@@ -0,0 +1,136 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.cache.internal
+
+import org.gradle.cache.ExclusiveCacheAccessCoordinator
+import org.gradle.internal.operations.TestBuildOperationRunner
+import org.gradle.test.fixtures.concurrent.ConcurrentSpec
+
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.CountDownLatch
+
+class ShardedCacheAccessingWorkerTest extends ConcurrentSpec {
+    def buildOperationRunner = new TestBuildOperationRunner()
+    ExclusiveCacheAccessCoordinator cacheAccess = Stub(ExclusiveCacheAccessCoordinator) {
+        useCache(_) >> { Runnable action -> synchronized (this) { action.run() } }
+    }
+
+    def "routes keys to shards and keeps the order of actions for the same key"() {
+        def worker = new ShardedCacheAccessingWorker("<cache>", cacheAccess, 4, buildOperationRunner)
+        def values = new ConcurrentHashMap<String, List<Integer>>()
+        worker.start(executor)
+
+        when:
+        (0..<100).each { i ->
+            def key = "key${i % 10}"
+            worker.forKey(key).enqueue { values.computeIfAbsent(key) { [] } << i }
+        }
+        def read = worker.forKey("key3").read { values["key3"].clone() }
+        worker.flush()
+
+        then:
+        worker.shardCount == 4
+        read == (0..<100).findAll { it % 10 == 3 }
+        (0..<10).every { key -> values["key$key"] == (0..<100).findAll { it % 10 == key } }
+        worker.forKey("key1").is(worker.forKey("key1"))
+        worker.queueDepths == [0, 0, 0, 0] as int[]
+
+        cleanup:
+        worker?.stop()
+    }
+
+    def "actions without a key run after the actions queued for all shards"() {
+        def worker = new ShardedCacheAccessingWorker("<cache>", cacheAccess, 4, buildOperationRunner)
+        def written = Collections.synchronizedSet(new HashSet<String>())
+        worker.start(executor)
+
+        when:
+        (0..<20).each { i -> worker.forKey("key$i").enqueue { written << "key$i" } }
+        def result = worker.read { written.size() }
+
+        then:
+        result == 20
+
+        cleanup:
+        worker?.stop()
+    }
+
+    def "reads on one shard are not delayed by batches on another shard"() {
+        def worker = new ShardedCacheAccessingWorker("<cache>", cacheAccess, 2, buildOperationRunner)
+        def writingKey = "key0"
+        def readingKey = (1..100).collect { "key$it" }.find { !worker.forKey(it).is(worker.forKey(writingKey)) }
+        def written = Collections.synchronizedList([])
+        worker.start(executor)
+
+        when:
+        def start = System.nanoTime()
+        (0..<10).each { i ->
+            def writeDone = new CountDownLatch(1)
+            worker.forKey(writingKey).enqueue {
+                written << i
+                writeDone.countDown()
+            }
+            writeDone.await()
+            worker.forKey(readingKey).read { written.size() }
+        }
+        def elapsedMillis = (System.nanoTime() - start).intdiv(1_000_000)
+
+        then:
+        // Each read would wait for the writing shard to wait 200ms for more work while holding the cache
+        elapsedMillis < 1000
+        written == (0..<10).toList()
+
+        cleanup:
+        worker?.stop()
+    }
+
+    def "reports each batch written by a shard as a build operation"() {
+        def worker = new ShardedCacheAccessingWorker("<cache>", cacheAccess, 2, buildOperationRunner)
+        worker.start(executor)
+
+        when:
+        (0..<10).each { i -> worker.forKey("key$i").enqueue {} }
+        worker.flush()
+
+        then:
+        def batches = buildOperationRunner.log.all(CacheWriteBehindBuildOperationType)
+        !batches.empty
+        batches.every { it.details.cacheDisplayName == "<cache>" && it.details.shardCount == 2 && it.details.queueDepth >= 1 }
+        batches*.details*.shard.every { it in [0, 1] }
+        batches*.result*.operationCount.sum() == 10
+
+        cleanup:
+        worker?.stop()
+    }
+
+    def "does not report build operations when using a single shard"() {
+        def worker = new ShardedCacheAccessingWorker("<cache>", cacheAccess, 1, buildOperationRunner)
+        def counter = 0
+        worker.start(executor)
+
+        when:
+        worker.forKey("key").enqueue { ++counter }
+        def result = worker.read { counter }
+
+        then:
+        result == 1
+        buildOperationRunner.log.records.empty
+
+        cleanup:
+        worker?.stop()
+    }
+}
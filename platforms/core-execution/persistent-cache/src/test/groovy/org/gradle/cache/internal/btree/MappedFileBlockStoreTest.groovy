@@ -0,0 +1,133 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.cache.internal.btree
+
+import org.gradle.internal.serialize.DefaultSerializer
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.IgnoreIf
+import spock.lang.Specification
+
+class MappedFileBlockStoreTest extends Specification {
+    @Rule
+    TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider(getClass())
+
+    def cacheFile = tmpDir.file("cache.bin")
+
+    def "persists added, updated and removed entries"() {
+        def cache = mappedCache()
+
+        when:
+        (0..<1000).each { cache.put("key_$it", "value_$it") }
+        (0..<1000).step(3).each { cache.put("key_$it", "updated value with a longer payload $it") }
+        (0..<1000).step(5).each { cache.remove("key_$it") }
+        cache.verify()
+        cache.close()
+        cache = mappedCache()
+
+        then:
+        (0..<1000).every { cache.get("key_$it") == expectedValue(it) }
+
+        cleanup:
+        cache?.close()
+    }
+
+    def "can open files written by the file backed store and vice versa"() {
+        when:
+        def fileBacked = fileBackedCache()
+        (0..<200).each { fileBacked.put("key_$it", "value_$it") }
+        fileBacked.close()
+        def mapped = mappedCache()
+        (200..<400).each { mapped.put("key_$it", "value_$it") }
+        mapped.close()
+        fileBacked = fileBackedCache()
+
+        then:
+        (0..<400).every { fileBacked.get("key_$it") == "value_$it" }
+
+        cleanup:
+        fileBacked?.close()
+    }
+
+    def "handles opening a truncated cache file"() {
+        def cache = mappedCache()
+        cache.put("key_1", "value_1")
+
+        when:
+        new RandomAccessFile(cacheFile, "rw").withCloseable { it.setLength(it.length() - 10) }
+        cache.reset()
+
+        then:
+        cache.get("key_1") == null
+        cache.verify()
+
+        cleanup:
+        cache?.close()
+    }
+
+    def "reads entries appended after the file was mapped"() {
+        def cache = mappedCache()
+
+        when:
+        (0..<2000).each {
+            cache.put("key_$it", "value_$it")
+            assert cache.get("key_${it.intdiv(2)}") == "value_${it.intdiv(2)}"
+        }
+
+        then:
+        (0..<2000).every { cache.get("key_$it") == "value_$it" }
+        cache.verify()
+
+        cleanup:
+        cache?.close()
+    }
+
+    @IgnoreIf({ os.windows })
+    def "treats a file truncated by another process while mapped as corrupt"() {
+        def cache = mappedCache()
+        (0..<1000).each { cache.put("key_$it", "value_$it") }
+        cache.close()
+        cache = mappedCache()
+        assert cache.get("key_0") == "value_0"
+
+        when:
+        new RandomAccessFile(cacheFile, "rw").withCloseable { it.setLength(it.length().intdiv(4)) }
+        def values = (0..<1000).collect { cache.get("key_$it") }
+
+        then:
+        values.contains(null)
+        cache.get("key_999") == null
+
+        cleanup:
+        cache?.close()
+    }
+
+    private static String expectedValue(int key) {
+        if (key % 5 == 0) {
+            return null
+        }
+        return key % 3 == 0 ? "updated value with a longer payload $key" : "value_$key"
+    }
+
+    private BTreePersistentIndexedCache<String, String> mappedCache() {
+        new BTreePersistentIndexedCache<String, String>(cacheFile, new DefaultSerializer<String>(), new DefaultSerializer<String>(), (short) 4, 100, new MappedFileBlockStore(cacheFile))
+    }
+
+    private BTreePersistentIndexedCache<String, String> fileBackedCache() {
+        new BTreePersistentIndexedCache<String, String>(cacheFile, new DefaultSerializer<String>(), new DefaultSerializer<String>(), (short) 4, 100, new FileBackedBlockStore(cacheFile))
+    }
+}
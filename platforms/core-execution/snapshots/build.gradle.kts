@@ -7,6 +7,7 @@ description = "Tools to take immutable, comparable snapshots of files and other
 
 dependencies {
     api(projects.stdlibJavaExtensions)
+    api(projects.concurrent)
     api(projects.files)
     api(projects.functional)
     api(projects.hashing)
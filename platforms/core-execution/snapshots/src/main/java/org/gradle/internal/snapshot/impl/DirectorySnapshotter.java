@@ -17,10 +17,12 @@
 package org.gradle.internal.snapshot.impl;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Interner;
 import com.google.common.collect.Iterables;
+import org.gradle.internal.concurrent.ParallelBatchExecutor;
 import org.gradle.internal.file.FileMetadata;
 import org.gradle.internal.file.FileMetadata.AccessType;
 import org.gradle.internal.file.FileType;
@@ -40,10 +42,13 @@
 import java.io.File;
 import java.io.IOException;
 import java.io.UncheckedIOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
 import java.nio.file.FileSystemLoopException;
 import java.nio.file.FileVisitOption;
 import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
+import java.nio.file.LinkOption;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.attribute.BasicFileAttributes;
@@ -56,6 +61,7 @@
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
@@ -89,12 +95,23 @@ public Iterable<String> getRemappedSegments(Iterable<String> segments) {
     private final Interner<String> stringInterner;
     private final DefaultExcludes defaultExcludes;
     private final DirectorySnapshotterStatistics.Collector collector;
+    private final ParallelBatchExecutor hashingExecutor;
 
     public DirectorySnapshotter(FileHasher hasher, Interner<String> stringInterner, Collection<String> defaultExcludes, DirectorySnapshotterStatistics.Collector collector) {
+        this(hasher, stringInterner, defaultExcludes, collector, ParallelBatchExecutor.SEQUENTIAL);
+    }
+
+    /**
+     * @param hashingExecutor the executor to hash the files of the directory in parallel with before building the snapshot,
+     * {@link ParallelBatchExecutor#SEQUENTIAL} to hash them while building it.
+     * The resulting snapshot is the same either way.
+     */
+    public DirectorySnapshotter(FileHasher hasher, Interner<String> stringInterner, Collection<String> defaultExcludes, DirectorySnapshotterStatistics.Collector collector, ParallelBatchExecutor hashingExecutor) {
         this.hasher = hasher;
         this.stringInterner = stringInterner;
         this.defaultExcludes = new DefaultExcludes(defaultExcludes);
         this.collector = collector;
+        this.hashingExecutor = hashingExecutor;
     }
 
     /**
@@ -122,7 +139,10 @@ public FileSystemLocationSnapshot snapshot(
         try {
             AtomicBoolean hasBeenFiltered = new AtomicBoolean();
             Path rootPath = Paths.get(absolutePath);
-            PathVisitor visitor = new PathVisitor(predicate, hasBeenFiltered, hasher, stringInterner, defaultExcludes, collector, EMPTY_SYMBOLIC_LINK_MAPPING, previouslyKnownSnapshots, unfilteredSnapshotRecorder);
+            FileHasher walkHasher = hashingExecutor.threadsFor(0) > 1
+                ? ParallelHashing.hashInParallel(rootPath, predicate, hasher, defaultExcludes, previouslyKnownSnapshots, hashingExecutor)
+                : hasher;
+            PathVisitor visitor = new PathVisitor(predicate, hasBeenFiltered, walkHasher, stringInterner, defaultExcludes, collector, EMPTY_SYMBOLIC_LINK_MAPPING, previouslyKnownSnapshots, unfilteredSnapshotRecorder);
             Files.walkFileTree(rootPath, DONT_FOLLOW_SYMLINKS, Integer.MAX_VALUE, visitor);
             FileSystemLocationSnapshot result = visitor.getResult();
             if (!hasBeenFiltered.get()) {
@@ -134,6 +154,130 @@ public FileSystemLocationSnapshot snapshot(
         }
     }
 
+    /**
+     * Hashes the regular files of a directory tree in parallel, ahead of the sequential walk that builds the snapshot.
+     *
+     * The files are listed on the calling thread, applying the same default excludes and predicate as the sequential walk and not following symlinks.
+     * Listing or hashing failures are left for the sequential walk to report.
+     * The sequential walk then only uses a precomputed hash when the file still has the same length and modification time,
+     * so the resulting snapshot is the same as without parallel hashing.
+     */
+    private static class ParallelHashing {
+        public static FileHasher hashInParallel(
+            Path rootPath,
+            @Nullable SnapshottingFilter.DirectoryWalkerPredicate predicate,
+            FileHasher hasher,
+            DefaultExcludes defaultExcludes,
+            Map<String, ? extends FileSystemLocationSnapshot> previouslyKnownSnapshots,
+            ParallelBatchExecutor hashingExecutor
+        ) {
+            List<FileToHash> files = listFiles(rootPath, predicate, defaultExcludes, previouslyKnownSnapshots);
+            Map<String, HashedFile> hashedFiles = new ConcurrentHashMap<>();
+            hashingExecutor.forEach(files, 0, file -> {
+                try {
+                    HashCode hash = hasher.hash(file.path.toFile(), file.length, file.lastModified);
+                    hashedFiles.put(file.path.toString(), new HashedFile(file.length, file.lastModified, hash));
+                } catch (RuntimeException ignored) {
+                    // Reported by the sequential walk
+                }
+            });
+            return new FileHasher() {
+                @Override
+                public HashCode hash(File file) {
+                    return hasher.hash(file);
+                }
+
+                @Override
+                public HashCode hash(File file, long length, long lastModified) {
+                    HashedFile hashedFile = hashedFiles.get(file.getPath());
+                    if (hashedFile != null && hashedFile.length == length && hashedFile.lastModified == lastModified) {
+                        return hashedFile.hash;
+                    }
+                    return hasher.hash(file, length, lastModified);
+                }
+            };
+        }
+
+        private static List<FileToHash> listFiles(
+            Path rootPath,
+            @Nullable SnapshottingFilter.DirectoryWalkerPredicate predicate,
+            DefaultExcludes defaultExcludes,
+            Map<String, ? extends FileSystemLocationSnapshot> previouslyKnownSnapshots
+        ) {
+            List<FileToHash> files = new ArrayList<>();
+            Deque<DirectoryToList> directories = new ArrayDeque<>();
+            directories.push(new DirectoryToList(rootPath, ImmutableList.of()));
+            while (!directories.isEmpty()) {
+                DirectoryToList directory = directories.pop();
+                try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory.path)) {
+                    for (Path entry : entries) {
+                        BasicFileAttributes attributes = Files.readAttributes(entry, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                        if (attributes.isSymbolicLink() || previouslyKnownSnapshots.containsKey(entry.toString())) {
+                            continue;
+                        }
+                        boolean isDirectory = attributes.isDirectory();
+                        if (!isDirectory && !attributes.isRegularFile()) {
+                            continue;
+                        }
+                        String name = entry.getFileName().toString();
+                        if (isDirectory ? defaultExcludes.excludeDir(name) : defaultExcludes.excludeFile(name)) {
+                            continue;
+                        }
+                        ImmutableList<String> relativePath = ImmutableList.<String>builderWithExpectedSize(directory.relativePath.size() + 1)
+                            .addAll(directory.relativePath)
+                            .add(name)
+                            .build();
+                        if (predicate != null && !predicate.test(entry, name, isDirectory, relativePath)) {
+                            continue;
+                        }
+                        if (isDirectory) {
+                            directories.push(new DirectoryToList(entry, relativePath));
+                        } else {
+                            files.add(new FileToHash(entry, attributes.size(), attributes.lastModifiedTime().toMillis()));
+                        }
+                    }
+                } catch (IOException | DirectoryIteratorException | UncheckedIOException ignored) {
+                    // Reported by the sequential walk
+                }
+            }
+            return files;
+        }
+
+        private static class DirectoryToList {
+            private final Path path;
+            private final ImmutableList<String> relativePath;
+
+            public DirectoryToList(Path path, ImmutableList<String> relativePath) {
+                this.path = path;
+                this.relativePath = relativePath;
+            }
+        }
+
+        private static class FileToHash {
+            private final Path path;
+            private final long length;
+            private final long lastModified;
+
+            public FileToHash(Path path, long length, long lastModified) {
+                this.path = path;
+                this.length = length;
+                this.lastModified = lastModified;
+            }
+        }
+
+        private static class HashedFile {
+            private final long length;
+            private final long lastModified;
+            private final HashCode hash;
+
+            public HashedFile(long length, long lastModified, HashCode hash) {
+                this.length = length;
+                this.lastModified = lastModified;
+                this.hash = hash;
+            }
+        }
+    }
+
     private interface SymbolicLinkMapping {
         String remapAbsolutePath(Path path);
 
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.snapshot.impl
+
+import org.gradle.api.internal.cache.StringInterner
+import org.gradle.api.internal.file.TestFiles
+import org.gradle.api.tasks.util.PatternSet
+import org.gradle.internal.concurrent.DefaultExecutorFactory
+import org.gradle.internal.concurrent.DefaultParallelBatchExecutor
+import org.gradle.internal.fingerprint.impl.PatternSetSnapshottingFilter
+import org.gradle.internal.hash.FileHasher
+import org.gradle.internal.hash.HashCode
+import org.gradle.internal.hash.TestFileHasher
+import org.gradle.internal.snapshot.FileSystemLocationSnapshot
+import org.gradle.internal.snapshot.SnapshotUtil
+import org.gradle.test.fixtures.file.CleanupTestDirectory
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.gradle.util.UsesNativeServices
+import org.junit.Rule
+import spock.lang.Specification
+
+import java.util.concurrent.ConcurrentHashMap
+
+@UsesNativeServices
+@CleanupTestDirectory(fieldName = "tmpDir")
+class ParallelHashingDirectorySnapshotterTest extends Specification {
+    @Rule
+    public final TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider(getClass())
+
+    def fileHasher = new TestFileHasher()
+    def statisticsCollector = Stub(DirectorySnapshotterStatistics.Collector)
+    def executorFactory = new DefaultExecutorFactory()
+    def hashingExecutor = new DefaultParallelBatchExecutor(executorFactory, 4)
+
+    def cleanup() {
+        executorFactory.stop()
+    }
+
+    def "parallel hashing creates the same snapshot as sequential hashing"() {
+        given:
+        def rootDir = tmpDir.createDir("root")
+        (1..10).each { dir ->
+            (1..20).each { file ->
+                rootDir.file("dir$dir/sub${file % 3}/file${file}.txt").text = "content $dir $file"
+            }
+        }
+        rootDir.file(".git/config").text = "excluded by default"
+        def defaultExcludes = [".git", ".git/**"]
+        def recordingHasher = new RecordingFileHasher()
+
+        def patterns = new PatternSet()
+        patterns.exclude("**/file1*")
+        def predicate = filter == null ? null : new PatternSetSnapshottingFilter(patterns, TestFiles.fileSystem()).asDirectoryWalkerPredicate
+
+        when:
+        def sequential = new DirectorySnapshotter(fileHasher, new StringInterner(), defaultExcludes, statisticsCollector)
+            .snapshot(rootDir.absolutePath, predicate, [:], {})
+        def parallel = new DirectorySnapshotter(recordingHasher, new StringInterner(), defaultExcludes, statisticsCollector, hashingExecutor)
+            .snapshot(rootDir.absolutePath, predicate, [:], {})
+
+        then:
+        parallel.hash == sequential.hash
+        SnapshotUtil.indexByAbsolutePath(parallel) == SnapshotUtil.indexByAbsolutePath(sequential)
+        !recordingHasher.hashCounts.keySet().any { it.contains(".git") }
+        // Every file is hashed once, ahead of the walk
+        recordingHasher.hashCounts.size() == (filter == null ? 200 : 90)
+        recordingHasher.hashCounts.values().every { it == 1 }
+
+        where:
+        filter << [null, "with predicate"]
+    }
+
+    def "falls back to hashing files that changed after parallel hashing"() {
+        given:
+        def rootDir = tmpDir.createDir("root")
+        def file = rootDir.file("file.txt")
+        file.text = "original"
+        def hashed = false
+        def hasher = new FileHasher() {
+            @Override
+            HashCode hash(File f) {
+                fileHasher.hash(f)
+            }
+
+            @Override
+            HashCode hash(File f, long length, long lastModified) {
+                def hash = fileHasher.hash(f)
+                if (!hashed) {
+                    hashed = true
+                    f.text = "changed after hashing"
+                }
+                hash
+            }
+        }
+
+        when:
+        FileSystemLocationSnapshot snapshot = new DirectorySnapshotter(hasher, new StringInterner(), [], statisticsCollector, hashingExecutor)
+            .snapshot(rootDir.absolutePath, null, [:], {})
+
+        then:
+        SnapshotUtil.indexByAbsolutePath(snapshot)[file.absolutePath].hash == fileHasher.hash(file)
+    }
+
+    private static class RecordingFileHasher implements FileHasher {
+        private final FileHasher delegate = new TestFileHasher()
+        final Map<String, Integer> hashCounts = new ConcurrentHashMap<>()
+
+        @Override
+        HashCode hash(File file) {
+            delegate.hash(file)
+        }
+
+        @Override
+        HashCode hash(File file, long length, long lastModified) {
+            hashCounts.merge(file.absolutePath, 1, Integer::sum)
+            delegate.hash(file)
+        }
+    }
+}
@@ -16,6 +16,7 @@
 
 package org.gradle.internal.buildoption;
 
+import java.util.Collections;
 import java.util.Map;
 
 public class DefaultInternalOptions implements InternalOptions {
@@ -25,6 +26,14 @@ public DefaultInternalOptions(Map<String, String> startParameterSystemProperties
         this.startParameterSystemProperties = startParameterSystemProperties;
     }
 
+    /**
+     * Returns options read from the JVM system properties only.
+     * This is meant for services that are shared between builds, which have no start parameter to read options from.
+     */
+    public static InternalOptions fromSystemProperties() {
+        return new DefaultInternalOptions(Collections.<String, String>emptyMap());
+    }
+
     @Override
     public <T> Option.Value<T> getOption(InternalOption<T> option) {
         String value = startParameterSystemProperties.get(option.getSystemPropertyName());
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.concurrent;
+
+import org.gradle.internal.UncheckedException;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+public class DefaultParallelBatchExecutor implements ParallelBatchExecutor, Stoppable {
+    @Nullable
+    private final ManagedExecutor executor;
+    private final int maxThreads;
+
+    public DefaultParallelBatchExecutor(ExecutorFactory executorFactory, int maxWorkerCount) {
+        this(maxWorkerCount > 1 ? executorFactory.create("Parallel batch", maxWorkerCount - 1) : null, maxWorkerCount);
+    }
+
+    private DefaultParallelBatchExecutor(@Nullable ManagedExecutor executor, int maxThreads) {
+        this.executor = executor;
+        this.maxThreads = executor == null ? 1 : maxThreads;
+    }
+
+    static ParallelBatchExecutor sequential() {
+        return new DefaultParallelBatchExecutor((ManagedExecutor) null, 1);
+    }
+
+    @Override
+    public int threadsFor(int requestedThreads) {
+        return requestedThreads <= 0 ? maxThreads : Math.min(requestedThreads, maxThreads);
+    }
+
+    @Override
+    public <T> void forEach(Collection<? extends T> items, int requestedThreads, Consumer<? super T> action) {
+        List<? extends T> work = new ArrayList<T>(items);
+        int threads = Math.min(threadsFor(requestedThreads), work.size());
+        AtomicInteger next = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(work.size());
+        AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        Runnable worker = () -> {
+            for (int index = next.getAndIncrement(); index < work.size(); index = next.getAndIncrement()) {
+                try {
+                    action.accept(work.get(index));
+                } catch (Throwable t) {
+                    failure.compareAndSet(null, t);
+                } finally {
+                    done.countDown();
+                }
+            }
+        };
+        for (int i = 1; i < threads; i++) {
+            executor.execute(worker);
+        }
+        worker.run();
+        try {
+            done.await();
+        } catch (InterruptedException e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        }
+        if (failure.get() != null) {
+            throw UncheckedException.throwAsUncheckedException(failure.get());
+        }
+    }
+
+    @Override
+    public void stop() {
+        if (executor != null) {
+            executor.stop();
+        }
+    }
+}
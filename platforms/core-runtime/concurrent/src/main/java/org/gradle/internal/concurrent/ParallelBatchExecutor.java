@@ -0,0 +1,52 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.concurrent;
+
+import org.gradle.internal.service.scopes.Scope;
+import org.gradle.internal.service.scopes.ServiceScope;
+
+import java.util.Collection;
+import java.util.function.Consumer;
+
+/**
+ * Runs an action for each item of a collection concurrently, on the calling thread and on the threads of an executor shared by the build session.
+ *
+ * <p>
+ * The calling thread takes part in the work, so the work completes even when all the threads of the shared executor are busy.
+ * The shared executor has one thread less than the maximum number of workers of the build, so a single batch never uses more threads than that maximum,
+ * and all batches running concurrently for the tasks of a build share the same bounded set of additional threads.
+ * </p>
+ */
+@ServiceScope(Scope.CrossBuildSession.class)
+public interface ParallelBatchExecutor {
+    /**
+     * Runs all work on the calling thread.
+     */
+    ParallelBatchExecutor SEQUENTIAL = DefaultParallelBatchExecutor.sequential();
+
+    /**
+     * Returns the number of threads, including the calling thread, that work asking for the given number of threads uses.
+     * Asking for 0 or fewer threads asks for as many threads as the executor allows.
+     */
+    int threadsFor(int requestedThreads);
+
+    /**
+     * Runs the action for each of the items on at most the requested number of threads, see {@link #threadsFor(int)}, and returns once the action has run for all items.
+     * The first failure of the action is rethrown once the action has run for all other items.
+     */
+    <T> void forEach(Collection<? extends T> items, int requestedThreads, Consumer<? super T> action);
+}
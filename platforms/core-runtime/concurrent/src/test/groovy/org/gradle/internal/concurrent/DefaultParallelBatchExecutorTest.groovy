@@ -0,0 +1,112 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.concurrent
+
+import org.gradle.test.fixtures.concurrent.ConcurrentSpec
+
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.TimeUnit
+import java.util.concurrent.atomic.AtomicInteger
+
+class DefaultParallelBatchExecutorTest extends ConcurrentSpec {
+
+    def factory = new DefaultExecutorFactory()
+
+    def cleanup() {
+        factory.stop()
+    }
+
+    def "bounds the requested number of threads by the maximum number of workers"() {
+        def executor = new DefaultParallelBatchExecutor(factory, 4)
+
+        expect:
+        executor.threadsFor(requested) == expected
+
+        where:
+        requested | expected
+        0         | 4
+        -1        | 4
+        1         | 1
+        2         | 2
+        8         | 4
+    }
+
+    def "runs everything on the calling thread with a single worker"() {
+        def executor = new DefaultParallelBatchExecutor(factory, 1)
+        def threads = ConcurrentHashMap.newKeySet()
+
+        when:
+        executor.forEach(1..20, 0) { threads.add(Thread.currentThread()) }
+
+        then:
+        executor.threadsFor(0) == 1
+        threads == [Thread.currentThread()] as Set
+        ParallelBatchExecutor.SEQUENTIAL.threadsFor(0) == 1
+    }
+
+    def "runs the action for each item concurrently"() {
+        def executor = new DefaultParallelBatchExecutor(factory, 3)
+        def allStarted = new CountDownLatch(3)
+        def processed = ConcurrentHashMap.newKeySet()
+
+        when:
+        executor.forEach(1..3, 0) { item ->
+            allStarted.countDown()
+            assert allStarted.await(10, TimeUnit.SECONDS)
+            processed.add(item)
+        }
+
+        then:
+        processed == [1, 2, 3] as Set
+    }
+
+    def "runs no more than the requested number of actions concurrently"() {
+        def executor = new DefaultParallelBatchExecutor(factory, 8)
+        def running = new AtomicInteger()
+        def maxRunning = new AtomicInteger()
+
+        when:
+        executor.forEach(1..50, 2) {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max)
+            Thread.sleep(1)
+            running.decrementAndGet()
+        }
+
+        then:
+        maxRunning.get() <= 2
+    }
+
+    def "rethrows the first failure after running the action for all other items"() {
+        def executor = new DefaultParallelBatchExecutor(factory, 4)
+        def failure = new RuntimeException("broken")
+        def processed = ConcurrentHashMap.newKeySet()
+
+        when:
+        executor.forEach(1..20, 0) { item ->
+            if (item == 5) {
+                throw failure
+            }
+            processed.add(item)
+        }
+
+        then:
+        def e = thrown(RuntimeException)
+        e == failure
+        processed.size() == 19
+    }
+}
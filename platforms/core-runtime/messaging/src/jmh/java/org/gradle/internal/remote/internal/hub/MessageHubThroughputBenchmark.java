@@ -0,0 +1,123 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.internal.remote.internal.hub;
+
+import org.gradle.internal.Cast;
+import org.gradle.internal.concurrent.CompositeStoppable;
+import org.gradle.internal.concurrent.DefaultExecutorFactory;
+import org.gradle.internal.dispatch.Dispatch;
+import org.gradle.internal.id.UUIDGenerator;
+import org.gradle.internal.remote.ConnectionAcceptor;
+import org.gradle.internal.remote.internal.ConnectCompletion;
+import org.gradle.internal.remote.internal.RemoteConnection;
+import org.gradle.internal.remote.internal.hub.protocol.InterHubMessage;
+import org.gradle.internal.remote.internal.inet.InetAddressFactory;
+import org.gradle.internal.remote.internal.inet.SocketConnection;
+import org.gradle.internal.remote.internal.inet.TcpIncomingConnector;
+import org.gradle.internal.remote.internal.inet.TcpOutgoingConnector;
+import org.gradle.internal.serialize.BaseSerializerFactory;
+import org.gradle.internal.serialize.Serializers;
+import org.gradle.internal.serialize.StatefulSerializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the throughput of small messages sent between two {@link MessageHub} instances connected over a local socket,
+ * with and without coalescing the outgoing messages into fewer flushes.
+ */
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@State(Scope.Benchmark)
+public class MessageHubThroughputBenchmark {
+    private static final int MESSAGES = 10000;
+
+    @Param({"0", "50", "200"})
+    int coalesceWindowMicros;
+
+    @Param({"64", "1024"})
+    int messageSize;
+
+    private DefaultExecutorFactory executorFactory;
+    private ConnectionAcceptor acceptor;
+    private MessageHub sender;
+    private MessageHub receiver;
+    private SocketConnection<InterHubMessage> sendingConnection;
+    private RemoteConnection<InterHubMessage> receivingConnection;
+    private Dispatch<String> outgoing;
+    private String message;
+    private final Semaphore received = new Semaphore(0);
+
+    @Setup(Level.Trial)
+    public void setup() throws InterruptedException {
+        executorFactory = new DefaultExecutorFactory();
+        BlockingQueue<ConnectCompletion> accepted = new LinkedBlockingQueue<>();
+        acceptor = new TcpIncomingConnector(executorFactory, new InetAddressFactory(), new UUIDGenerator()).accept(accepted::add, false);
+        sendingConnection = Cast.uncheckedNonnullCast(new TcpOutgoingConnector().connect(acceptor.getAddress()).create(serializer()));
+        receivingConnection = accepted.take().create(serializer());
+
+        sender = new MessageHub("sender", executorFactory, Throwable::printStackTrace, TimeUnit.MICROSECONDS.toNanos(coalesceWindowMicros), 512);
+        sender.addConnection(sendingConnection);
+        receiver = new MessageHub("receiver", executorFactory, Throwable::printStackTrace);
+        receiver.addHandler("channel", (Dispatch<String>) m -> received.release());
+        receiver.addConnection(receivingConnection);
+        outgoing = sender.getOutgoing("channel", String.class);
+
+        char[] chars = new char[messageSize];
+        Arrays.fill(chars, 'x');
+        message = new String(chars);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        sender.requestStop();
+        receiver.requestStop();
+        CompositeStoppable.stoppable(sender, sendingConnection, receiver, receivingConnection, acceptor, executorFactory).stop();
+        long flushes = Math.max(1, sendingConnection.getFlushCount());
+        System.out.printf("%nSent %d messages in %d flushes, %d messages and %d bytes per flush%n",
+            sendingConnection.getMessagesWritten(), sendingConnection.getFlushCount(),
+            sendingConnection.getMessagesWritten() / flushes, sendingConnection.getBytesWritten() / flushes);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MESSAGES)
+    public void sendMessages() throws InterruptedException {
+        for (int i = 0; i < MESSAGES; i++) {
+            outgoing.dispatch(message);
+        }
+        received.acquire(MESSAGES);
+    }
+
+    private static StatefulSerializer<InterHubMessage> serializer() {
+        StatefulSerializer<Object> payloadSerializer = Cast.uncheckedNonnullCast(Serializers.stateful(BaseSerializerFactory.STRING_SERIALIZER));
+        return new InterHubMessageSerializer(payloadSerializer);
+    }
+}
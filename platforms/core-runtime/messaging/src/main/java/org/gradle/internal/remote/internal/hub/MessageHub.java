@@ -31,6 +31,7 @@
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
@@ -41,15 +42,25 @@
  * Use {@link #addHandler(String, Object)} to create a worker for incoming messages on a given channel.
  * Use {@link #addConnection(RemoteConnection)} to attach another router to this router.
  *
+ * Outgoing messages are flushed to a connection as soon as the messages queued for it have been written, unless a coalescing window is set using
+ * the {@value #COALESCE_WINDOW_PROPERTY} system property. Then, each flush waits up to the given number of microseconds for more messages,
+ * until at most {@value #COALESCE_MAX_MESSAGES_PROPERTY} messages have been written.
+ *
  * TODO - this type could be simplified, as there is no longer any need to send/receive messages to/from multiple connections
  */
 public class MessageHub implements AsyncStoppable {
+    public static final String COALESCE_WINDOW_PROPERTY = "org.gradle.internal.remote.coalesce-window-micros";
+    public static final String COALESCE_MAX_MESSAGES_PROPERTY = "org.gradle.internal.remote.coalesce-max-messages";
+    private static final int DEFAULT_COALESCE_MAX_MESSAGES = 512;
+
     private enum State {Running, Stopping, Stopped}
 
     private static final Discard DISCARD = new Discard();
     private final ManagedExecutor workers;
     private final String displayName;
     private final Action<? super Throwable> errorHandler;
+    private final long coalesceWindowNanos;
+    private final int coalesceMaxMessages;
     private final Lock lock = new ReentrantLock();
     private State state = State.Running;
     private final IncomingQueue incomingQueue = new IncomingQueue(lock);
@@ -60,8 +71,21 @@ private enum State {Running, Stopping, Stopped}
      * @param errorHandler Notified when some async activity fails. Must be thread-safe.
      */
     public MessageHub(String displayName, ExecutorFactory executorFactory, Action<? super Throwable> errorHandler) {
+        this(displayName, executorFactory, errorHandler,
+            TimeUnit.MICROSECONDS.toNanos(Integer.getInteger(COALESCE_WINDOW_PROPERTY, 0)),
+            Integer.getInteger(COALESCE_MAX_MESSAGES_PROPERTY, DEFAULT_COALESCE_MAX_MESSAGES));
+    }
+
+    /**
+     * @param errorHandler Notified when some async activity fails. Must be thread-safe.
+     * @param coalesceWindowNanos How long to wait for more outgoing messages before flushing a connection, 0 to flush as soon as possible.
+     * @param coalesceMaxMessages The maximum number of outgoing messages to write to a connection before flushing it.
+     */
+    public MessageHub(String displayName, ExecutorFactory executorFactory, Action<? super Throwable> errorHandler, long coalesceWindowNanos, int coalesceMaxMessages) {
         this.displayName = displayName;
         this.errorHandler = errorHandler;
+        this.coalesceWindowNanos = coalesceWindowNanos;
+        this.coalesceMaxMessages = coalesceMaxMessages;
         workers = executorFactory.create(displayName + " workers");
     }
 
@@ -323,19 +347,27 @@ public void run() {
                         } finally {
                             lock.unlock();
                         }
-                        for (InterHubMessage message : messages) {
-                            try {
-                                connection.dispatch(message);
-                            } catch (RecoverableMessageIOException e) {
-                                addToIncoming(new StreamFailureMessage(e));
+                        long deadline = System.nanoTime() + coalesceWindowNanos;
+                        int written = 0;
+                        while (true) {
+                            for (InterHubMessage message : messages) {
+                                try {
+                                    connection.dispatch(message);
+                                } catch (RecoverableMessageIOException e) {
+                                    addToIncoming(new StreamFailureMessage(e));
+                                }
+                                if (message instanceof EndOfStream) {
+                                    connection.flush();
+                                    return;
+                                }
                             }
-                            if (message instanceof EndOfStream) {
-                                connection.flush();
-                                return;
+                            written += messages.size();
+                            messages.clear();
+                            if (!takeMore(messages, written, deadline)) {
+                                break;
                             }
                         }
                         connection.flush();
-                        messages.clear();
                     }
                 } finally {
                     lock.lock();
@@ -349,6 +381,25 @@ public void run() {
                 errorHandler.execute(t);
             }
         }
+
+        /**
+         * Waits until the coalescing window ends for more messages to write before flushing the connection.
+         */
+        private boolean takeMore(List<InterHubMessage> messages, int written, long deadline) {
+            if (coalesceWindowNanos <= 0 || written >= coalesceMaxMessages) {
+                return false;
+            }
+            long timeout = deadline - System.nanoTime();
+            if (timeout <= 0) {
+                return false;
+            }
+            lock.lock();
+            try {
+                return queue.take(messages, timeout);
+            } finally {
+                lock.unlock();
+            }
+        }
     }
 
     private class ChannelDispatch<T> implements Dispatch<T> {
@@ -56,6 +56,31 @@ public void take(Collection<InterHubMessage> drainTo) {
         queue.clear();
     }
 
+    /**
+     * Takes the queued messages, waiting at most the given number of nanoseconds for a message to be queued.
+     *
+     * @return true if any messages were taken.
+     */
+    public boolean take(Collection<InterHubMessage> drainTo, long timeoutNanos) {
+        if (queue.isEmpty()) {
+            owner.empty(this);
+            long remaining = timeoutNanos;
+            while (queue.isEmpty()) {
+                if (remaining <= 0) {
+                    return false;
+                }
+                try {
+                    remaining = condition.awaitNanos(remaining);
+                } catch (InterruptedException e) {
+                    throw UncheckedException.throwAsUncheckedException(e);
+                }
+            }
+        }
+        drainTo.addAll(queue);
+        queue.clear();
+        return true;
+    }
+
     public void stop() {
         owner.stopped(this);
     }
@@ -21,11 +21,10 @@
 import org.gradle.internal.remote.internal.hub.protocol.InterHubMessage;
 
 import java.util.ArrayDeque;
-import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Deque;
 import java.util.HashSet;
-import java.util.List;
+import java.util.LinkedHashSet;
 import java.util.Set;
 import java.util.concurrent.locks.Lock;
 
@@ -34,7 +33,7 @@
 public class MultiEndPointQueue implements Dispatch<InterHubMessage> {
     private final Set<EndPointQueue> endpoints = new HashSet<EndPointQueue>();
     private final Deque<InterHubMessage> queue = new ArrayDeque<InterHubMessage>();
-    private final List<EndPointQueue> waiting = new ArrayList<EndPointQueue>();
+    private final Set<EndPointQueue> waiting = new LinkedHashSet<EndPointQueue>();
     private final Lock lock;
     private final QueueInitializer initializer = new QueueInitializer();
 
@@ -49,6 +48,7 @@ public void dispatch(InterHubMessage message) {
     }
 
     void empty(EndPointQueue endPointQueue) {
+        // An endpoint that timed out while waiting for messages may already be waiting
         waiting.add(endPointQueue);
         flush();
     }
@@ -67,7 +67,7 @@ public void drain(Collection<InterHubMessage> drainTo) {
     private void flush() {
         // TODO - need to do a better job of routing messages when there are multiple endpoints. This is just going to forward all queued messages to the first
         // waiting endpoint, even if there are multiple waiting to do work
-        EndPointQueue selected = waiting.isEmpty() ? null : waiting.get(0);
+        EndPointQueue selected = waiting.isEmpty() ? null : waiting.iterator().next();
         while (!queue.isEmpty()) {
             InterHubMessage message = queue.peekFirst();
             switch (message.getDelivery()) {
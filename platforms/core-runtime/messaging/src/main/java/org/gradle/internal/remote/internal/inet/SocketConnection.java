@@ -54,6 +54,9 @@
     private final InputStream instr;
     private final OutputStream outstr;
     private final FlushableEncoder encoder;
+    private long messagesWritten;
+    private long messagesSinceFlush;
+    private long flushCount;
 
     public SocketConnection(SocketChannel socket, MessageSerializer streamSerializer, StatefulSerializer<T> messageSerializer) {
         this.socket = socket;
@@ -125,6 +128,7 @@ private static boolean isEndOfStream(Exception e) {
     public void dispatch(T message) throws MessageIOException {
         try {
             objectWriter.write(message);
+            messagesSinceFlush++;
         } catch (ObjectStreamException e) {
             throw new RecoverableMessageIOException(String.format("Could not write message %s to '%s'.", message, remoteAddress), e);
         } catch (ClassNotFoundException e) {
@@ -141,11 +145,37 @@ public void flush() throws MessageIOException {
         try {
             encoder.flush();
             outstr.flush();
+            if (messagesSinceFlush > 0) {
+                messagesWritten += messagesSinceFlush;
+                messagesSinceFlush = 0;
+                flushCount++;
+            }
         } catch (Throwable e) {
             throw new MessageIOException(String.format("Could not write '%s'.", remoteAddress), e);
         }
     }
 
+    /**
+     * Returns the number of messages written and flushed to the socket.
+     */
+    public long getMessagesWritten() {
+        return messagesWritten;
+    }
+
+    /**
+     * Returns the number of bytes written to the socket.
+     */
+    public long getBytesWritten() {
+        return ((SocketOutputStream) outstr).bytesWritten;
+    }
+
+    /**
+     * Returns the number of flushes that wrote at least one message to the socket.
+     */
+    public long getFlushCount() {
+        return flushCount;
+    }
+
     @Override
     public void stop() {
         CompositeStoppable.stoppable(new Closeable() {
@@ -154,6 +184,10 @@ public void close() throws IOException {
                 flush();
             }
         }, instr, outstr, socket).stop();
+        if (LOGGER.isDebugEnabled() && flushCount > 0) {
+            LOGGER.debug("Wrote {} messages ({} bytes) to '{}' in {} flushes, {} messages and {} bytes per flush on average.",
+                messagesWritten, getBytesWritten(), remoteAddress, flushCount, messagesWritten / flushCount, getBytesWritten() / flushCount);
+        }
     }
 
     private static class SocketInputStream extends InputStream {
@@ -231,6 +265,7 @@ private static class SocketOutputStream extends OutputStream {
         private final SocketChannel socket;
         private final ByteBuffer buffer;
         private final byte[] writeBuffer = new byte[1];
+        private long bytesWritten;
 
         public SocketOutputStream(SocketChannel socket) throws IOException {
             this.socket = socket;
@@ -290,6 +325,7 @@ private int writeWithNonBlockingRetry() throws IOException {
                     Thread.yield();
                 }
             }
+            bytesWritten += count;
             return count;
         }
 
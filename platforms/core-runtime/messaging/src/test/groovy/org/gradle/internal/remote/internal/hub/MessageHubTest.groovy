@@ -31,6 +31,7 @@ import spock.lang.Timeout
 import java.util.concurrent.BlockingQueue
 import java.util.concurrent.CopyOnWriteArrayList
 import java.util.concurrent.LinkedBlockingQueue
+import java.util.concurrent.TimeUnit
 
 @Timeout(60)
 class MessageHubTest extends ConcurrentSpec {
@@ -196,6 +197,70 @@ class MessageHubTest extends ConcurrentSpec {
         connection.stop()
     }
 
+    def "coalesces outgoing messages into a single flush until the message budget is reached"() {
+        def events = new CopyOnWriteArrayList()
+        def coalescingHub = new MessageHub("<hub>", executorFactory, errorHandler, TimeUnit.SECONDS.toNanos(30), 3)
+        RemoteConnection<InterHubMessage> outgoing = Mock()
+        def connection = new MockOutgoingConnection(outgoing)
+
+        given:
+        outgoing.dispatch({ it instanceof ChannelMessage }) >> { ChannelMessage message -> events.add(message.payload) }
+        outgoing.flush() >> {
+            events.add("flush")
+            if (events.size() == 8) {
+                instant.flushed
+            }
+        }
+
+        and:
+        coalescingHub.addConnection(connection)
+
+        when:
+        def dispatcher = coalescingHub.getOutgoing("channel", String)
+        6.times {
+            dispatcher.dispatch("message$it")
+            Thread.sleep(20)
+        }
+        thread.blockUntil.flushed
+
+        then:
+        events == ["message0", "message1", "message2", "flush", "message3", "message4", "message5", "flush"]
+
+        cleanup:
+        connection.stop()
+        coalescingHub.stop()
+    }
+
+    def "flushes coalesced outgoing messages when the window ends"() {
+        def events = new CopyOnWriteArrayList()
+        def coalescingHub = new MessageHub("<hub>", executorFactory, errorHandler, TimeUnit.MILLISECONDS.toNanos(100), 100)
+        RemoteConnection<InterHubMessage> outgoing = Mock()
+        def connection = new MockOutgoingConnection(outgoing)
+
+        given:
+        outgoing.dispatch({ it instanceof ChannelMessage }) >> { ChannelMessage message -> events.add(message.payload) }
+        outgoing.flush() >> {
+            events.add("flush")
+            if (events.size() == 2) {
+                instant.flushed
+            }
+        }
+
+        and:
+        coalescingHub.addConnection(connection)
+
+        when:
+        coalescingHub.getOutgoing("channel", String).dispatch("message")
+        thread.blockUntil.flushed
+
+        then:
+        events == ["message", "flush"]
+
+        cleanup:
+        connection.stop()
+        coalescingHub.stop()
+    }
+
     def "each outgoing message is dispatched to exactly one connection"() {
         def messages = new CopyOnWriteArrayList()
         RemoteConnection<InterHubMessage> outgoing = Mock()
@@ -1,6 +1,7 @@
 plugins {
     id("gradlebuild.distribution.api-java")
     id("gradlebuild.publish-public-libraries")
+    id("gradlebuild.jmh")
 }
 
 description = "API extraction for Java"
@@ -17,6 +18,7 @@ dependencies {
     api(projects.hashing)
     api(projects.files)
     api(projects.snapshots)
+    api(projects.concurrent)
 
     api(libs.jsr305)
     api(libs.asm)
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.fingerprint.classpath.impl;
+
+import com.google.common.collect.Interners;
+import org.gradle.api.internal.changedetection.state.PropertiesFileFilter;
+import org.gradle.api.internal.changedetection.state.ResourceEntryFilter;
+import org.gradle.api.internal.changedetection.state.ResourceFilter;
+import org.gradle.api.internal.changedetection.state.ResourceSnapshotterCacheService;
+import org.gradle.api.internal.changedetection.state.RuntimeClasspathResourceHasher;
+import org.gradle.internal.concurrent.DefaultExecutorFactory;
+import org.gradle.internal.concurrent.DefaultParallelBatchExecutor;
+import org.gradle.internal.file.FileMetadata.AccessType;
+import org.gradle.internal.file.impl.DefaultFileMetadata;
+import org.gradle.internal.fingerprint.FileSystemLocationFingerprint;
+import org.gradle.internal.fingerprint.LineEndingSensitivity;
+import org.gradle.internal.fingerprint.hashing.FileSystemLocationSnapshotHasher;
+import org.gradle.internal.fingerprint.hashing.RegularFileSnapshotContext;
+import org.gradle.internal.fingerprint.hashing.RegularFileSnapshotContextHasher;
+import org.gradle.internal.hash.HashCode;
+import org.gradle.internal.hash.Hashing;
+import org.gradle.internal.snapshot.CompositeFileSystemSnapshot;
+import org.gradle.internal.snapshot.FileSystemLocationSnapshot;
+import org.gradle.internal.snapshot.FileSystemSnapshot;
+import org.gradle.internal.snapshot.RegularFileSnapshot;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Fingerprints a synthetic runtime classpath of 1,000 jars with an empty resource hash cache, as on the first build.
+ */
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@State(Scope.Benchmark)
+public class ClasspathHashingBenchmark {
+    private static final int JAR_COUNT = 1000;
+    private static final int ENTRIES_PER_JAR = 50;
+
+    @Param({"1", "2", "4", "8"})
+    int hashingThreads;
+
+    private Path classpathDir;
+    private FileSystemSnapshot classpath;
+    private DefaultExecutorFactory executorFactory;
+    private DefaultParallelBatchExecutor hashingExecutor;
+    private ClasspathFingerprintingStrategy strategy;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        classpathDir = Files.createTempDirectory("classpath-hashing-benchmark");
+        Random random = new Random(1234L);
+        byte[] content = new byte[2048];
+        List<FileSystemLocationSnapshot> jars = new ArrayList<>();
+        for (int jarIndex = 0; jarIndex < JAR_COUNT; jarIndex++) {
+            File jar = classpathDir.resolve("lib-" + jarIndex + ".jar").toFile();
+            try (ZipOutputStream output = new ZipOutputStream(Files.newOutputStream(jar.toPath()))) {
+                for (int entryIndex = 0; entryIndex < ENTRIES_PER_JAR; entryIndex++) {
+                    output.putNextEntry(new ZipEntry("org/example/lib" + jarIndex + "/Class" + entryIndex + ".class"));
+                    random.nextBytes(content);
+                    output.write(content);
+                    output.closeEntry();
+                }
+            }
+            jars.add(new RegularFileSnapshot(jar.getAbsolutePath(), jar.getName(), Hashing.hashFile(jar), DefaultFileMetadata.file(jar.lastModified(), jar.length(), AccessType.DIRECT)));
+        }
+        classpath = CompositeFileSystemSnapshot.of(jars);
+        executorFactory = new DefaultExecutorFactory();
+        hashingExecutor = new DefaultParallelBatchExecutor(executorFactory, hashingThreads);
+        strategy = ClasspathFingerprintingStrategy.runtimeClasspath(
+            ResourceFilter.FILTER_NOTHING,
+            ResourceEntryFilter.FILTER_NOTHING,
+            PropertiesFileFilter.FILTER_NOTHING,
+            new RuntimeClasspathResourceHasher(),
+            new NonCachingResourceSnapshotterCacheService(),
+            Interners.newStrongInterner(),
+            LineEndingSensitivity.DEFAULT,
+            hashingExecutor,
+            hashingThreads
+        );
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        hashingExecutor.stop();
+        executorFactory.stop();
+        try (Stream<Path> files = Files.walk(classpathDir)) {
+            for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Benchmark
+    public Map<String, FileSystemLocationFingerprint> fingerprintClasspath() {
+        return strategy.collectFingerprints(classpath);
+    }
+
+    private static class NonCachingResourceSnapshotterCacheService implements ResourceSnapshotterCacheService {
+        @Override
+        public HashCode hashFile(FileSystemLocationSnapshot snapshot, FileSystemLocationSnapshotHasher hasher, HashCode configurationHash) throws IOException {
+            return hasher.hash(snapshot);
+        }
+
+        @Override
+        public HashCode hashFile(RegularFileSnapshotContext fileSnapshotContext, RegularFileSnapshotContextHasher hasher, HashCode configurationHash) throws IOException {
+            return hasher.hash(fileSnapshotContext);
+        }
+    }
+}
@@ -30,6 +30,7 @@
 import org.gradle.api.internal.changedetection.state.RuntimeClasspathResourceHasher;
 import org.gradle.api.internal.changedetection.state.ZipHasher;
 import org.gradle.internal.RelativePathSupplier;
+import org.gradle.internal.concurrent.ParallelBatchExecutor;
 import org.gradle.internal.file.FileType;
 import org.gradle.internal.fingerprint.FileSystemLocationFingerprint;
 import org.gradle.internal.fingerprint.FingerprintHashingStrategy;
@@ -54,8 +55,11 @@
 import javax.annotation.Nullable;
 import java.io.IOException;
 import java.io.UncheckedIOException;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static org.gradle.internal.fingerprint.classpath.impl.ClasspathFingerprintingStrategy.NonJarFingerprintingStrategy.IGNORE;
 import static org.gradle.internal.fingerprint.classpath.impl.ClasspathFingerprintingStrategy.NonJarFingerprintingStrategy.USE_FILE_HASH;
@@ -71,6 +75,10 @@
  * The order of the entries in the classpath matters, paths do not matter for the entries.
  * For the resources in each classpath entry, normalization takes the relative path of the resource and possibly normalizes its contents.
  * </p>
+ *
+ * <p>
+ * When using more than one hashing thread, the jars at the roots of the classpath are hashed concurrently before the fingerprints are collected in classpath order.
+ * </p>
  */
 public class ClasspathFingerprintingStrategy extends AbstractFingerprintingStrategy {
     private final NonJarFingerprintingStrategy nonZipFingerprintingStrategy;
@@ -79,6 +87,8 @@ public class ClasspathFingerprintingStrategy extends AbstractFingerprintingStrat
     private final ZipHasher zipHasher;
     private final Interner<String> stringInterner;
     private final HashCode zipHasherConfigurationHash;
+    private final ParallelBatchExecutor hashingExecutor;
+    private final int hashingThreads;
 
     private ClasspathFingerprintingStrategy(
         String identifier,
@@ -86,7 +96,9 @@ private ClasspathFingerprintingStrategy(
         ResourceHasher classpathResourceHasher,
         ZipHasher zipHasher,
         ResourceSnapshotterCacheService cacheService,
-        Interner<String> stringInterner
+        Interner<String> stringInterner,
+        ParallelBatchExecutor hashingExecutor,
+        int hashingThreads
     ) {
         super(identifier, zipHasher);
         this.nonZipFingerprintingStrategy = nonZipFingerprintingStrategy;
@@ -94,6 +106,8 @@ private ClasspathFingerprintingStrategy(
         this.cacheService = cacheService;
         this.stringInterner = stringInterner;
         this.zipHasher = zipHasher;
+        this.hashingExecutor = hashingExecutor;
+        this.hashingThreads = hashingThreads;
 
         Hasher hasher = Hashing.newHasher();
         zipHasher.appendConfigurationToHasher(hasher);
@@ -108,15 +122,57 @@ public static ClasspathFingerprintingStrategy runtimeClasspath(
         ResourceSnapshotterCacheService cacheService,
         Interner<String> stringInterner,
         LineEndingSensitivity lineEndingSensitivity
+    ) {
+        return runtimeClasspath(
+            classpathResourceFilter,
+            manifestAttributeResourceEntryFilter,
+            propertiesFileFilters,
+            runtimeClasspathResourceHasher,
+            cacheService,
+            stringInterner,
+            lineEndingSensitivity,
+            ParallelBatchExecutor.SEQUENTIAL,
+            1
+        );
+    }
+
+    /**
+     * @param hashingExecutor the executor used to hash the jars of a classpath concurrently.
+     * @param hashingThreads the maximum number of jars of a classpath to hash concurrently, see {@link ParallelBatchExecutor#threadsFor(int)}.
+     */
+    public static ClasspathFingerprintingStrategy runtimeClasspath(
+        ResourceFilter classpathResourceFilter,
+        ResourceEntryFilter manifestAttributeResourceEntryFilter,
+        Map<String, ResourceEntryFilter> propertiesFileFilters,
+        RuntimeClasspathResourceHasher runtimeClasspathResourceHasher,
+        ResourceSnapshotterCacheService cacheService,
+        Interner<String> stringInterner,
+        LineEndingSensitivity lineEndingSensitivity,
+        ParallelBatchExecutor hashingExecutor,
+        int hashingThreads
     ) {
         ResourceHasher resourceHasher = runtimeClasspathResourceHasher(runtimeClasspathResourceHasher, lineEndingSensitivity, propertiesFileFilters, manifestAttributeResourceEntryFilter, classpathResourceFilter);
         ZipHasher zipHasher = new ZipHasher(resourceHasher);
-        return new ClasspathFingerprintingStrategy(CLASSPATH_IDENTIFIER, USE_FILE_HASH, resourceHasher, zipHasher, cacheService, stringInterner);
+        return new ClasspathFingerprintingStrategy(CLASSPATH_IDENTIFIER, USE_FILE_HASH, resourceHasher, zipHasher, cacheService, stringInterner, hashingExecutor, hashingThreads);
     }
 
     public static ClasspathFingerprintingStrategy compileClasspath(ResourceHasher classpathResourceHasher, ResourceSnapshotterCacheService cacheService, Interner<String> stringInterner) {
+        return compileClasspath(classpathResourceHasher, cacheService, stringInterner, ParallelBatchExecutor.SEQUENTIAL, 1);
+    }
+
+    /**
+     * @param hashingExecutor the executor used to hash the jars of a classpath concurrently.
+     * @param hashingThreads the maximum number of jars of a classpath to hash concurrently, see {@link ParallelBatchExecutor#threadsFor(int)}.
+     */
+    public static ClasspathFingerprintingStrategy compileClasspath(
+        ResourceHasher classpathResourceHasher,
+        ResourceSnapshotterCacheService cacheService,
+        Interner<String> stringInterner,
+        ParallelBatchExecutor hashingExecutor,
+        int hashingThreads
+    ) {
         ZipHasher zipHasher = new ZipHasher(classpathResourceHasher);
-        return new ClasspathFingerprintingStrategy(COMPILE_CLASSPATH_IDENTIFIER, IGNORE, classpathResourceHasher, zipHasher, cacheService, stringInterner);
+        return new ClasspathFingerprintingStrategy(COMPILE_CLASSPATH_IDENTIFIER, IGNORE, classpathResourceHasher, zipHasher, cacheService, stringInterner, hashingExecutor, hashingThreads);
     }
 
     public static ClasspathFingerprintingStrategy compileClasspathFallbackToRuntimeClasspath(
@@ -128,7 +184,7 @@ public static ClasspathFingerprintingStrategy compileClasspathFallbackToRuntimeC
     ) {
         ZipHasher fallbackZipHasher = new ZipHasher(runtimeClasspathResourceHasher);
         ZipHasher zipHasher = new ZipHasher(classpathResourceHasher, fallbackZipHasher, hashingExceptionReporter);
-        return new ClasspathFingerprintingStrategy(COMPILE_CLASSPATH_IDENTIFIER, IGNORE, classpathResourceHasher, zipHasher, cacheService, stringInterner);
+        return new ClasspathFingerprintingStrategy(COMPILE_CLASSPATH_IDENTIFIER, IGNORE, classpathResourceHasher, zipHasher, cacheService, stringInterner, ParallelBatchExecutor.SEQUENTIAL, 1);
     }
 
     public static ResourceHasher runtimeClasspathResourceHasher(
@@ -160,10 +216,48 @@ private static ResourceHasher metaInfAwareClasspathResourceHasher(ResourceHasher
     public Map<String, FileSystemLocationFingerprint> collectFingerprints(FileSystemSnapshot roots) {
         ImmutableMap.Builder<String, FileSystemLocationFingerprint> builder = ImmutableMap.builder();
         HashSet<String> processedEntries = new HashSet<>();
-        roots.accept(new RelativePathTracker(), new ClasspathFingerprintingVisitor(processedEntries, builder));
+        Map<String, PrecomputedHash> precomputedZipHashes = hashingExecutor.threadsFor(hashingThreads) > 1 ? hashZipRootsConcurrently(roots) : Collections.emptyMap();
+        roots.accept(new RelativePathTracker(), new ClasspathFingerprintingVisitor(processedEntries, precomputedZipHashes, builder));
         return builder.build();
     }
 
+    /**
+     * Hashes the jars at the roots of the classpath concurrently, ahead of the sequential visit that collects the fingerprints in classpath order.
+     *
+     * Jars are hashed through the {@link ResourceSnapshotterCacheService}, so the results are cached and reused the same way as when hashing sequentially.
+     */
+    private Map<String, PrecomputedHash> hashZipRootsConcurrently(FileSystemSnapshot roots) {
+        Map<String, RegularFileSnapshot> zipRoots = new LinkedHashMap<>();
+        roots.roots().forEach(root -> {
+            if (root instanceof RegularFileSnapshot && ZipHasher.isZipFile(root.getName())) {
+                zipRoots.putIfAbsent(root.getAbsolutePath(), (RegularFileSnapshot) root);
+            }
+        });
+        if (zipRoots.size() < 2) {
+            return Collections.emptyMap();
+        }
+
+        Map<String, PrecomputedHash> precomputedHashes = new ConcurrentHashMap<>();
+        hashingExecutor.forEach(zipRoots.values(), hashingThreads, zip -> {
+            try {
+                RegularFileSnapshotContext zipContext = new DefaultRegularFileSnapshotContext(() -> new String[0], zip);
+                precomputedHashes.put(zip.getAbsolutePath(), new PrecomputedHash(cacheService.hashFile(zipContext, zipHasher, zipHasherConfigurationHash)));
+            } catch (IOException | RuntimeException e) {
+                // Hashed again and reported by the sequential visit
+            }
+        });
+        return precomputedHashes;
+    }
+
+    private static class PrecomputedHash {
+        @Nullable
+        private final HashCode hash;
+
+        public PrecomputedHash(@Nullable HashCode hash) {
+            this.hash = hash;
+        }
+    }
+
     public enum NonJarFingerprintingStrategy {
         IGNORE {
             @Nullable
@@ -185,11 +279,13 @@ public HashCode determineNonJarFingerprint(HashCode original) {
 
     private class ClasspathFingerprintingVisitor implements RelativePathTrackingFileSystemSnapshotHierarchyVisitor {
         private final HashSet<String> processedEntries;
+        private final Map<String, PrecomputedHash> precomputedZipHashes;
         private final ImmutableMap.Builder<String, FileSystemLocationFingerprint> builder;
 
 
-        public ClasspathFingerprintingVisitor(HashSet<String> processedEntries, ImmutableMap.Builder<String, FileSystemLocationFingerprint> builder) {
+        public ClasspathFingerprintingVisitor(HashSet<String> processedEntries, Map<String, PrecomputedHash> precomputedZipHashes, ImmutableMap.Builder<String, FileSystemLocationFingerprint> builder) {
             this.processedEntries = processedEntries;
+            this.precomputedZipHashes = precomputedZipHashes;
             this.builder = builder;
         }
 
@@ -237,6 +333,10 @@ private HashCode hashContent(RegularFileSnapshot fileSnapshot, RelativePathSuppl
             RegularFileSnapshotContext fileSnapshotContext = new DefaultRegularFileSnapshotContext(() -> Iterables.toArray(relativePath.getSegments(), String.class), fileSnapshot);
             try {
                 if (ZipHasher.isZipFile(fileSnapshotContext.getSnapshot().getName())) {
+                    PrecomputedHash precomputedHash = relativePath.isRoot() ? precomputedZipHashes.get(fileSnapshot.getAbsolutePath()) : null;
+                    if (precomputedHash != null) {
+                        return precomputedHash.hash;
+                    }
                     return cacheService.hashFile(fileSnapshotContext, zipHasher, zipHasherConfigurationHash);
                 } else if (relativePath.isRoot()) {
                     return nonZipFingerprintingStrategy.determineNonJarFingerprint(fileSnapshot.getHash());
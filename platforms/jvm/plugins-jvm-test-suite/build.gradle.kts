@@ -39,6 +39,7 @@ dependencies {
 
     api(libs.inject)
 
+    implementation(projects.buildOption)
     implementation(projects.core)
     implementation(projects.logging)
     implementation(projects.pluginsJavaBase)
@@ -23,6 +23,7 @@
 import org.gradle.api.internal.tasks.testing.filter.DefaultTestFilter;
 import org.gradle.api.internal.tasks.testing.junitplatform.JUnitPlatformTestFramework;
 import org.gradle.api.tasks.testing.Test;
+import org.gradle.internal.buildoption.InternalOptions;
 
 import javax.inject.Inject;
 
@@ -41,9 +42,12 @@
     @Inject
     protected abstract DependencyFactory getDependencyFactory();
 
+    @Inject
+    protected abstract InternalOptions getInternalOptions();
+
     @Override
     public TestFramework createTestFramework(Test task) {
-        return new JUnitPlatformTestFramework((DefaultTestFilter) task.getFilter(), false, task.getDryRun());
+        return new JUnitPlatformTestFramework((DefaultTestFilter) task.getFilter(), false, task.getDryRun(), getInternalOptions());
     }
 
     @Override
@@ -48,7 +48,9 @@
 import javax.annotation.WillCloseWhenClosed;
 import java.lang.reflect.Modifier;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -186,10 +188,28 @@ private LauncherDiscoveryRequest createLauncherDiscoveryRequest(List<Class<?>> t
         addTestNameFilters(requestBuilder);
         addEnginesFilter(requestBuilder);
         addTagsFilter(requestBuilder);
+        addClassParallelism(requestBuilder);
 
         return requestBuilder.build();
     }
 
+    /**
+     * Runs test classes concurrently on a fixed number of threads, using the parallel execution support of the JUnit Jupiter engine.
+     * The methods of a test class still run one at a time on the same thread, unless the test class asks for concurrent execution itself.
+     */
+    private void addClassParallelism(LauncherDiscoveryRequestBuilder requestBuilder) {
+        int classParallelism = spec.getClassParallelism();
+        if (classParallelism > 1) {
+            Map<String, String> parameters = new HashMap<>();
+            parameters.put("junit.jupiter.execution.parallel.enabled", "true");
+            parameters.put("junit.jupiter.execution.parallel.mode.default", "same_thread");
+            parameters.put("junit.jupiter.execution.parallel.mode.classes.default", "concurrent");
+            parameters.put("junit.jupiter.execution.parallel.config.strategy", "fixed");
+            parameters.put("junit.jupiter.execution.parallel.config.fixed.parallelism", String.valueOf(classParallelism));
+            requestBuilder.configurationParameters(parameters);
+        }
+    }
+
     private void addEnginesFilter(LauncherDiscoveryRequestBuilder requestBuilder) {
         List<String> includeEngines = spec.getIncludeEngines();
         if (!includeEngines.isEmpty()) {
@@ -29,6 +29,7 @@ public class JUnitPlatformSpec implements Serializable {
     private final Set<String> includeTags;
     private final Set<String> excludeTags;
     private final boolean isDryRun;
+    private final int classParallelism;
 
     public JUnitPlatformSpec(
         TestFilterSpec filter,
@@ -37,6 +38,18 @@ public JUnitPlatformSpec(
         Set<String> includeTags,
         Set<String> excludeTags,
         boolean isDryRun
+    ) {
+        this(filter, includeEngines, excludeEngines, includeTags, excludeTags, isDryRun, 1);
+    }
+
+    public JUnitPlatformSpec(
+        TestFilterSpec filter,
+        Set<String> includeEngines,
+        Set<String> excludeEngines,
+        Set<String> includeTags,
+        Set<String> excludeTags,
+        boolean isDryRun,
+        int classParallelism
     ) {
         this.filter = filter;
         this.includeEngines = includeEngines;
@@ -44,6 +57,7 @@ public JUnitPlatformSpec(
         this.includeTags = includeTags;
         this.excludeTags = excludeTags;
         this.isDryRun = isDryRun;
+        this.classParallelism = classParallelism;
     }
 
     public TestFilterSpec getFilter() {
@@ -69,4 +83,11 @@ public List<String> getExcludeTags() {
     public boolean isDryRun() {
         return isDryRun;
     }
+
+    /**
+     * The number of threads used to run test classes concurrently inside the test worker, or 1 to run them one at a time.
+     */
+    public int getClassParallelism() {
+        return classParallelism;
+    }
 }
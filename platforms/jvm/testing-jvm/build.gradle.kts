@@ -40,6 +40,7 @@ dependencies {
     api(libs.inject)
     api(libs.jsr305)
 
+    implementation(projects.buildOption)
     implementation(projects.concurrent)
     implementation(projects.serviceLookup)
     implementation(projects.fileTemp)
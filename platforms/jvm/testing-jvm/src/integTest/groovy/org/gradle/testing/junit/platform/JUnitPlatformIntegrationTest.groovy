@@ -25,6 +25,7 @@ import spock.lang.Timeout
 
 import static org.gradle.testing.fixture.JUnitCoverage.LATEST_PLATFORM_VERSION
 import static org.hamcrest.CoreMatchers.containsString
+import static org.hamcrest.CoreMatchers.not
 
 class JUnitPlatformIntegrationTest extends JUnitPlatformIntegrationSpec {
 
@@ -338,6 +339,55 @@ public class StaticInnerTest {
         }
     }
 
+    @Timeout(60)
+    def "can run test classes concurrently inside a single test worker and capture the output of each"() {
+        given:
+        def numTestClasses = 4
+        executer.withArgument("-Dorg.gradle.internal.testing.junit-platform.class-parallelism=$numTestClasses")
+        buildScriptWithJupiterDependencies("""
+            test {
+                useJUnitPlatform()
+                maxParallelForks = 1
+            }
+        """)
+        file('src/test/java/org/gradle/Tests.java') << """
+            package org.gradle;
+
+            import java.util.concurrent.*;
+            import org.junit.jupiter.api.*;
+
+            class Sync {
+                static CountDownLatch LATCH = new CountDownLatch($numTestClasses);
+            }
+
+            ${(1..numTestClasses).collect { classNumber -> """
+                class Test$classNumber {
+                    @Test
+                    public void test() throws Exception {
+                        Sync.LATCH.countDown();
+                        Sync.LATCH.await();
+                        System.out.println("output of Test$classNumber");
+                    }
+                }
+            """ }.join("") }
+        """
+
+        when:
+        succeeds(':test')
+
+        then:
+        with(new DefaultTestExecutionResult(testDirectory)) {
+            (1..numTestClasses).every { classNumber ->
+                def testClass = testClass("org.gradle.Test$classNumber").assertTestCount(1, 0, 0)
+                testClass.assertStdout(containsString("output of Test$classNumber"))
+                (1..numTestClasses).findAll { it != classNumber }.each { other ->
+                    testClass.assertStdout(not(containsString("output of Test$other")))
+                }
+                true
+            }
+        }
+    }
+
     @Issue("https://github.com/junit-team/junit5/issues/2028 and https://github.com/gradle/gradle/issues/12073")
     def 'properly fails when engine fails during discovery #scenario'() {
         given:
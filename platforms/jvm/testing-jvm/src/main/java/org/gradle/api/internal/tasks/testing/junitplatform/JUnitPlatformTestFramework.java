@@ -30,6 +30,8 @@
 import org.gradle.api.provider.Provider;
 import org.gradle.api.tasks.testing.TestFilter;
 import org.gradle.api.tasks.testing.junitplatform.JUnitPlatformOptions;
+import org.gradle.internal.buildoption.IntegerInternalOption;
+import org.gradle.internal.buildoption.InternalOptions;
 import org.gradle.internal.jvm.UnsupportedJavaRuntimeException;
 import org.gradle.internal.scan.UsedByScanPlugin;
 import org.gradle.process.internal.worker.WorkerProcessBuilder;
@@ -43,6 +45,7 @@
 @UsedByScanPlugin("test-retry")
 public class JUnitPlatformTestFramework implements TestFramework {
     private static final Logger LOGGER = Logging.getLogger(JUnitPlatformTestFramework.class);
+    private static final IntegerInternalOption CLASS_PARALLELISM = new IntegerInternalOption("org.gradle.internal.testing.junit-platform.class-parallelism", 1);
 
     private static final List<TestFrameworkDistributionModule> DISTRIBUTION_MODULES =
         ImmutableList.of(
@@ -67,16 +70,18 @@ public class JUnitPlatformTestFramework implements TestFramework {
     private final DefaultTestFilter filter;
     private final boolean useImplementationDependencies;
     private final Provider<Boolean> dryRun;
+    private final int classParallelism;
 
-    public JUnitPlatformTestFramework(DefaultTestFilter filter, boolean useImplementationDependencies, Provider<Boolean> dryRun) {
-        this(filter, useImplementationDependencies, new JUnitPlatformOptions(), dryRun);
+    public JUnitPlatformTestFramework(DefaultTestFilter filter, boolean useImplementationDependencies, Provider<Boolean> dryRun, InternalOptions internalOptions) {
+        this(filter, useImplementationDependencies, new JUnitPlatformOptions(), dryRun, Math.max(1, internalOptions.getOption(CLASS_PARALLELISM).get()));
     }
 
-    private JUnitPlatformTestFramework(DefaultTestFilter filter, boolean useImplementationDependencies, JUnitPlatformOptions options, Provider<Boolean> dryRun) {
+    private JUnitPlatformTestFramework(DefaultTestFilter filter, boolean useImplementationDependencies, JUnitPlatformOptions options, Provider<Boolean> dryRun, int classParallelism) {
         this.filter = filter;
         this.useImplementationDependencies = useImplementationDependencies;
         this.options = options;
         this.dryRun = dryRun;
+        this.classParallelism = classParallelism;
     }
 
     @UsedByScanPlugin("test-retry")
@@ -89,7 +94,8 @@ public TestFramework copyWithFilters(TestFilter newTestFilters) {
             (DefaultTestFilter) newTestFilters,
             useImplementationDependencies,
             copiedOptions,
-            dryRun
+            dryRun,
+            classParallelism
         );
     }
 
@@ -101,7 +107,8 @@ public WorkerTestClassProcessorFactory getProcessorFactory() {
         validateOptions();
         return new JUnitPlatformTestClassProcessorFactory(new JUnitPlatformSpec(
             filter.toSpec(), options.getIncludeEngines(), options.getExcludeEngines(),
-            options.getIncludeTags(), options.getExcludeTags(), dryRun.get()
+            options.getIncludeTags(), options.getExcludeTags(), dryRun.get(),
+            classParallelism
         ));
     }
 
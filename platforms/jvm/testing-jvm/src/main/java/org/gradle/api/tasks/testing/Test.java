@@ -69,6 +69,8 @@
 import org.gradle.internal.Cast;
 import org.gradle.internal.Factory;
 import org.gradle.internal.actor.ActorFactory;
+import org.gradle.internal.buildoption.InternalFlag;
+import org.gradle.internal.buildoption.InternalOptions;
 import org.gradle.internal.concurrent.CompositeStoppable;
 import org.gradle.internal.deprecation.DeprecationLogger;
 import org.gradle.internal.instrumentation.api.annotations.ToBeReplacedByLazyProperty;
@@ -95,6 +97,7 @@
 import java.io.File;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -168,6 +171,8 @@
 @CacheableTask
 public abstract class Test extends AbstractTestTask implements JavaForkOptions, PatternFilterable {
 
+    private static final InternalFlag DISTRIBUTE_BY_DURATION = new InternalFlag("org.gradle.internal.testing.distribute-by-duration");
+
     private final JavaForkOptions forkOptions;
     private final ModularitySpec modularity;
     private final Property<JavaLauncher> javaLauncher;
@@ -675,7 +680,7 @@ protected JvmTestExecutionSpec createTestExecutionSpec() {
         boolean testIsModule = javaModuleDetector.isModule(modularity.getInferModulePath().get(), getTestClassesDirs());
         FileCollection classpath = javaModuleDetector.inferClasspath(testIsModule, stableClasspath);
         FileCollection modulePath = javaModuleDetector.inferModulePath(testIsModule, stableClasspath);
-        return new JvmTestExecutionSpec(getTestFramework(), classpath, modulePath, getCandidateClassFiles(), isScanForTestClasses(), getTestClassesDirs(), getPath(), getIdentityPath(), getForkEvery(), javaForkOptions, getMaxParallelForks(), getPreviousFailedTestClasses(), testIsModule);
+        return new JvmTestExecutionSpec(getTestFramework(), classpath, modulePath, getCandidateClassFiles(), isScanForTestClasses(), getTestClassesDirs(), getPath(), getIdentityPath(), getForkEvery(), javaForkOptions, getMaxParallelForks(), getPreviousFailedTestClasses(), getPreviousTestClassDurations(), testIsModule);
     }
 
     private void validateExecutableMatchesToolchain() {
@@ -704,6 +709,25 @@ public void execute(TestClassResult testClassResult) {
         }
     }
 
+    private Map<String, Long> getPreviousTestClassDurations() {
+        if (getMaxParallelForks() < 2 || !getServices().get(InternalOptions.class).getOption(DISTRIBUTE_BY_DURATION).get()) {
+            return Collections.emptyMap();
+        }
+        TestResultSerializer serializer = new TestResultSerializer(getBinaryResultsDirectory().getAsFile().get());
+        if (serializer.isHasResults()) {
+            final Map<String, Long> previousTestClassDurations = new HashMap<String, Long>();
+            serializer.read(new Action<TestClassResult>() {
+                @Override
+                public void execute(TestClassResult testClassResult) {
+                    previousTestClassDurations.put(testClassResult.getClassName(), testClassResult.getDuration());
+                }
+            });
+            return previousTestClassDurations;
+        } else {
+            return Collections.emptyMap();
+        }
+    }
+
     @Override
     @TaskAction
     public void executeTests() {
@@ -1044,7 +1068,7 @@ public void useJUnit(Action<? super JUnitOptions> testFrameworkConfigure) {
      * @since 4.6
      */
     public void useJUnitPlatform() {
-        useTestFramework(new JUnitPlatformTestFramework((DefaultTestFilter) getFilter(), true, getDryRun()));
+        useTestFramework(new JUnitPlatformTestFramework((DefaultTestFilter) getFilter(), true, getDryRun(), getServices().get(InternalOptions.class)));
     }
 
     /**
@@ -1,5 +1,6 @@
 plugins {
     id("gradlebuild.distribution.api-java")
+    id("gradlebuild.jmh")
 }
 
 description = "Plugins and domain objects for building different native languages"
@@ -18,6 +19,7 @@ errorprone {
 dependencies {
     api(projects.baseServices)
     api(projects.buildOperations)
+    api(projects.buildOption)
     api(projects.concurrent)
     api(projects.core)
     api(projects.coreApi)
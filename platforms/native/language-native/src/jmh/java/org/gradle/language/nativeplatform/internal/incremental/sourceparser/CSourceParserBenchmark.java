@@ -0,0 +1,162 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.language.nativeplatform.internal.incremental.sourceparser;
+
+import org.gradle.language.nativeplatform.internal.IncludeDirectives;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Parses a corpus of C++ source files with the line reader or the directive line scanner of {@link RegexBackedCSourceParser}, using one or more threads.
+ *
+ * The corpus is the sources found in {@code corpusDir}, or a generated corpus of 2,000 files when {@code corpusDir} is empty.
+ */
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@State(Scope.Benchmark)
+public class CSourceParserBenchmark {
+    private static final int GENERATED_FILES = 2000;
+
+    @Param({""})
+    String corpusDir;
+
+    @Param({"reader", "scanner"})
+    String mode;
+
+    @Param({"1", "4"})
+    int threads;
+
+    private Path generatedDir;
+    private List<File> sourceFiles;
+    private RegexBackedCSourceParser parser;
+    private ExecutorService executor;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        Path corpus;
+        if (corpusDir.isEmpty()) {
+            generatedDir = Files.createTempDirectory("c-source-parser-benchmark");
+            generateCorpus(generatedDir);
+            corpus = generatedDir;
+        } else {
+            corpus = new File(corpusDir).toPath();
+        }
+        try (Stream<Path> files = Files.walk(corpus)) {
+            sourceFiles = files
+                .filter(Files::isRegularFile)
+                .filter(file -> file.toString().matches(".*\\.(c|cc|cpp|cxx|h|hh|hpp|hxx|m|mm)$"))
+                .map(Path::toFile)
+                .collect(Collectors.toList());
+        }
+        parser = new RegexBackedCSourceParser("scanner".equals(mode));
+        executor = Executors.newFixedThreadPool(threads);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        executor.shutdownNow();
+        if (generatedDir != null) {
+            try (Stream<Path> files = Files.walk(generatedDir)) {
+                for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                    Files.delete(file);
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public int parseCorpus() throws InterruptedException, ExecutionException {
+        AtomicInteger nextFile = new AtomicInteger();
+        List<Future<Integer>> results = new ArrayList<>(threads);
+        for (int i = 0; i < threads; i++) {
+            results.add(executor.submit(() -> {
+                int directives = 0;
+                for (int index = nextFile.getAndIncrement(); index < sourceFiles.size(); index = nextFile.getAndIncrement()) {
+                    IncludeDirectives parsed = parser.parseSource(sourceFiles.get(index));
+                    directives += parsed.getAll().size() + parsed.getAllMacros().size() + parsed.getAllMacroFunctions().size();
+                }
+                return directives;
+            }));
+        }
+        int directives = 0;
+        for (Future<Integer> result : results) {
+            directives += result.get();
+        }
+        return directives;
+    }
+
+    /**
+     * Generates sources that look like those of a C++ code base: a license header, include guards, includes, macros and mostly code.
+     */
+    private static void generateCorpus(Path dir) throws IOException {
+        Random random = new Random(1234L);
+        for (int file = 0; file < GENERATED_FILES; file++) {
+            boolean header = file % 2 == 0;
+            Path source = dir.resolve("module" + file / 100).resolve("source" + file + (header ? ".h" : ".cpp"));
+            Files.createDirectories(source.getParent());
+            try (Writer writer = Files.newBufferedWriter(source)) {
+                writer.write("/*\n * Copyright the original author or authors.\n *\n * Licensed under the Apache License, Version 2.0.\n */\n\n");
+                if (header) {
+                    writer.write("#ifndef SOURCE" + file + "_H\n#define SOURCE" + file + "_H\n\n");
+                }
+                for (int include = 0; include < 5 + random.nextInt(20); include++) {
+                    writer.write(random.nextBoolean()
+                        ? "#include <module" + random.nextInt(20) + "/source" + random.nextInt(GENERATED_FILES) + ".h>\n"
+                        : "#include \"source" + random.nextInt(GENERATED_FILES) + ".h\"\n");
+                }
+                writer.write("#define MAX_SIZE_" + file + " 1024\n#define HEADER_" + file + "(name) <name.h>\n\n");
+                for (int function = 0; function < 10 + random.nextInt(30); function++) {
+                    writer.write("// Computes the value of function " + function + " for \"input\"\n");
+                    writer.write("int function" + function + "(const char* input, int length) {\n");
+                    for (int line = 0; line < 5 + random.nextInt(20); line++) {
+                        writer.write("    int value" + line + " = compute(input, length, \"text with /* no comment */\", '\\\\', " + random.nextInt() + "); /* check */\n");
+                    }
+                    writer.write("    return value0;\n}\n\n");
+                }
+                if (header) {
+                    writer.write("#endif\n");
+                }
+            }
+        }
+    }
+}
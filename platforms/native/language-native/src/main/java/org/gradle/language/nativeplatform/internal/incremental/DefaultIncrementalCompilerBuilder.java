@@ -155,7 +155,9 @@ public Set<File> getFiles() {
             IncrementalCompileFilesFactory incrementalCompileFilesFactory = new IncrementalCompileFilesFactory(includeDirectives, sourceIncludesParser, dependencyParser, fileSystemAccess);
             IncrementalCompileProcessor incrementalCompileProcessor = new IncrementalCompileProcessor(compileStateCache, incrementalCompileFilesFactory, buildOperationRunner);
 
-            incrementalCompilation = incrementalCompileProcessor.processSourceFiles(sourceFiles.getFiles());
+            Set<File> files = sourceFiles.getFiles();
+            sourceParser.warmUp(files);
+            incrementalCompilation = incrementalCompileProcessor.processSourceFiles(files);
             DefaultHeaderDependenciesCollector headerDependenciesCollector = new DefaultHeaderDependenciesCollector(directoryFileTreeFactory);
             return headerDependenciesCollector.collectExistingHeaderDependencies(taskPath, includeRoots, incrementalCompilation);
         }
@@ -19,6 +19,7 @@
 import org.gradle.language.nativeplatform.internal.IncludeDirectives;
 
 import java.io.File;
+import java.util.Collection;
 
 /**
  * A parser to extract information from C-compatible source files.
@@ -27,4 +28,11 @@ public interface CSourceParser {
 
     IncludeDirectives parseSource(File sourceFile);
 
+    /**
+     * Parses the given source files ahead of time, possibly concurrently, so that later calls to {@link #parseSource(File)} for them are cheap.
+     * Does nothing by default.
+     */
+    default void warmUp(Collection<File> sourceFiles) {
+    }
+
 }
@@ -16,27 +16,71 @@
 
 package org.gradle.language.nativeplatform.internal.incremental.sourceparser;
 
+import com.google.common.annotations.VisibleForTesting;
 import org.gradle.cache.internal.FileContentCache;
 import org.gradle.cache.internal.FileContentCacheFactory;
+import org.gradle.internal.buildoption.IntegerInternalOption;
+import org.gradle.internal.buildoption.InternalOptions;
+import org.gradle.internal.concurrent.ParallelBatchExecutor;
 import org.gradle.language.nativeplatform.internal.IncludeDirectives;
 
+import javax.inject.Inject;
 import java.io.File;
+import java.util.Collection;
 
 public class CachingCSourceParser implements CSourceParser {
+    /**
+     * The number of threads to parse the source files of a compile task with before processing them, capped by the maximum number of workers.
+     * Uses the maximum number of workers when 0 or less.
+     */
+    public static final IntegerInternalOption PARSING_THREADS_OPTION = new IntegerInternalOption("org.gradle.internal.native.source-parsing-threads", 1);
+
     private final FileContentCache<IncludeDirectives> cache;
+    private final ParallelBatchExecutor parsingExecutor;
+    private final int parsingThreads;
+
+    @Inject
+    public CachingCSourceParser(FileContentCacheFactory cacheFactory, ParallelBatchExecutor parsingExecutor, InternalOptions internalOptions) {
+        this(
+            cacheFactory,
+            new RegexBackedCSourceParser(internalOptions.getOption(RegexBackedCSourceParser.DIRECTIVE_LINE_SCANNER_OPTION).get()),
+            parsingExecutor,
+            internalOptions.getOption(PARSING_THREADS_OPTION).get()
+        );
+    }
 
-    public CachingCSourceParser(FileContentCacheFactory cacheFactory) {
-        final RegexBackedCSourceParser parser = new RegexBackedCSourceParser();
+    @VisibleForTesting
+    CachingCSourceParser(FileContentCacheFactory cacheFactory, CSourceParser parser, ParallelBatchExecutor parsingExecutor, int parsingThreads) {
         cache = cacheFactory.newCache("parsedCSource", 40000, new FileContentCacheFactory.Calculator<IncludeDirectives>() {
             @Override
             public IncludeDirectives calculate(File file, boolean isRegularFile) {
                 return parser.parseSource(file);
             }
         }, IncludeDirectivesSerializer.INSTANCE);
+        this.parsingExecutor = parsingExecutor;
+        this.parsingThreads = parsingThreads;
     }
 
     @Override
     public IncludeDirectives parseSource(File sourceFile) {
         return cache.get(sourceFile);
     }
+
+    /**
+     * Parses the given source files into the cache, when more than one parsing thread is available.
+     * A file that cannot be parsed is left out of the cache, so the failure is reported by {@link #parseSource(File)}.
+     */
+    @Override
+    public void warmUp(Collection<File> sourceFiles) {
+        if (parsingExecutor.threadsFor(parsingThreads) <= 1 || sourceFiles.size() < 2) {
+            return;
+        }
+        parsingExecutor.forEach(sourceFiles, parsingThreads, file -> {
+            try {
+                cache.get(file);
+            } catch (RuntimeException e) {
+                // Parsed again and reported by parseSource()
+            }
+        });
+    }
 }
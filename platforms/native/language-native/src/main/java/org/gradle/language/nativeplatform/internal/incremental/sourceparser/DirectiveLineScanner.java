@@ -0,0 +1,190 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.language.nativeplatform.internal.incremental.sourceparser;
+
+/**
+ * Finds the lines of C source text held in memory that may contain a preprocessor directive, that is the lines that start with {@code #} after any whitespace.
+ *
+ * <p>
+ * Comments are replaced with a single space and line continuations are removed exactly as done by {@link PreprocessingReader},
+ * so the lines found are the same as the lines of {@link PreprocessingReader} that start with {@code #}.
+ * Only these lines are copied, the other lines are skipped without copying, in runs of characters that cannot start a string, a comment or a line continuation.
+ * </p>
+ */
+public class DirectiveLineScanner {
+    private final char[] chars;
+    private final int length;
+    private int pos;
+
+    /**
+     * Whether or not the scanner is currently in the middle of a string literal.
+     */
+    private boolean inString;
+
+    /**
+     * Whether or not the last char has been a backslash.
+     */
+    private boolean quoted;
+
+    public DirectiveLineScanner(char[] chars, int length) {
+        this.chars = chars;
+        this.length = length;
+    }
+
+    /**
+     * Collects the next line that starts with {@code #} after any whitespace into the given buffer. Does not include the line separators.
+     *
+     * @return true if such a line is available, false when end of text reached.
+     */
+    public boolean nextDirectiveLine(StringBuilder buffer) {
+        while (true) {
+            int start = buffer.length();
+            int ch = read();
+            while (ch >= 0 && ch != '\n' && ch != '\r' && isWhitespace(ch)) {
+                buffer.append((char) ch);
+                ch = read();
+            }
+            if (ch == '#') {
+                buffer.append('#');
+                ch = read();
+                while (ch >= 0 && ch != '\n' && ch != '\r') {
+                    buffer.append((char) ch);
+                    ch = read();
+                }
+                endLine(ch);
+                return true;
+            }
+            buffer.setLength(start);
+            if (ch >= 0 && ch != '\n' && ch != '\r') {
+                ch = skipRestOfLine();
+            }
+            if (ch < 0) {
+                return false;
+            }
+            endLine(ch);
+        }
+    }
+
+    private static boolean isWhitespace(int ch) {
+        return Character.isWhitespace(ch) || ch == 0;
+    }
+
+    /**
+     * Skips the rest of the current line.
+     *
+     * @return the character that ended the line, or -1 at the end of the text.
+     */
+    private int skipRestOfLine() {
+        while (true) {
+            int start = pos;
+            while (pos < length) {
+                char ch = chars[pos];
+                if (ch == '\n' || ch == '\r' || ch == '"' || ch == '\\' || ch == '/') {
+                    break;
+                }
+                pos++;
+            }
+            if (pos != start) {
+                quoted = false;
+            }
+            int ch = read();
+            if (ch < 0 || ch == '\n' || ch == '\r') {
+                return ch;
+            }
+        }
+    }
+
+    private void endLine(int ch) {
+        if (ch == '\r' && next() != '\n') {
+            pos--;
+        }
+    }
+
+    /**
+     * Returns the next character in the filtered text, in the same way as {@link PreprocessingReader}:
+     * <ul>
+     *     <li>Comments will be replaced by a single space</li>
+     *     <li>Line continuation (backslash-newline) will be removed</li>
+     * </ul>
+     */
+    private int read() {
+        int ch = next();
+        while (ch == '\\' && discardNewLine()) {
+            ch = next();
+        }
+
+        if (ch == '"' && !quoted) {
+            inString = !inString;
+            quoted = false;
+        } else if (ch == '\\') {
+            quoted = !quoted;
+        } else {
+            quoted = false;
+            if (!inString && ch == '/') {
+                ch = next();
+                if (ch == '/') {
+                    while (ch != '\n' && ch != -1 && ch != '\r') {
+                        ch = next();
+                    }
+                } else if (ch == '*') {
+                    while (ch != -1) {
+                        ch = next();
+                        if (ch == '*') {
+                            ch = next();
+                            while (ch == '*') {
+                                ch = next();
+                            }
+
+                            if (ch == '/') {
+                                ch = ' ';
+                                break;
+                            }
+                        }
+                    }
+                } else {
+                    pos--;
+                    ch = '/';
+                }
+            }
+        }
+
+        return ch;
+    }
+
+    private boolean discardNewLine() {
+        int nextChar = next();
+        if (nextChar == '\n') {
+            return true;
+        } else if (nextChar == '\r') {
+            if (next() == '\n') {
+                return true;
+            }
+            pos -= 2;
+            return false;
+        } else {
+            pos--;
+            return false;
+        }
+    }
+
+    /**
+     * Returns the next raw character, or -1 at the end of the text. Moves past the end of the text, so that any character read can be pushed back by moving back one position.
+     */
+    private int next() {
+        return pos++ < length ? chars[pos - 1] : -1;
+    }
+}
@@ -18,6 +18,7 @@
 
 import com.google.common.collect.ImmutableList;
 import org.gradle.api.GradleException;
+import org.gradle.internal.buildoption.InternalFlag;
 import org.gradle.language.nativeplatform.internal.Expression;
 import org.gradle.language.nativeplatform.internal.Include;
 import org.gradle.language.nativeplatform.internal.IncludeDirectives;
@@ -44,6 +45,25 @@
  * used as the body of these directives.
  */
 public class RegexBackedCSourceParser implements CSourceParser {
+    /**
+     * When enabled, the directive lines of a source file are found with a {@link DirectiveLineScanner} over the whole content of the file,
+     * instead of reading every line with a {@link PreprocessingReader}. Both find the same directives.
+     */
+    public static final InternalFlag DIRECTIVE_LINE_SCANNER_OPTION = new InternalFlag("org.gradle.internal.native.directive-line-scanner");
+
+    private final boolean useDirectiveLineScanner;
+
+    public RegexBackedCSourceParser() {
+        this(false);
+    }
+
+    /**
+     * @param useDirectiveLineScanner whether to find directive lines with a {@link DirectiveLineScanner}, see {@link #DIRECTIVE_LINE_SCANNER_OPTION}.
+     */
+    public RegexBackedCSourceParser(boolean useDirectiveLineScanner) {
+        this.useDirectiveLineScanner = useDirectiveLineScanner;
+    }
+
     @Override
     public IncludeDirectives parseSource(File sourceFile) {
         try (Reader fileReader = new FileReader(sourceFile)) {
@@ -57,30 +77,57 @@ protected IncludeDirectives parseSource(Reader sourceReader) throws IOException
         Set<Include> includes = new LinkedHashSet<>();
         List<Macro> macros = new ArrayList<>();
         List<MacroFunction> macroFunctions = new ArrayList<>();
-        BufferedReader reader = new BufferedReader(sourceReader);
-        PreprocessingReader lineReader = new PreprocessingReader(reader);
         Buffer buffer = new Buffer();
-        while (true) {
-            buffer.reset();
-            if (!lineReader.readNextLine(buffer.value)) {
-                break;
+        if (useDirectiveLineScanner) {
+            char[] chars = new char[8192];
+            int length = 0;
+            int read;
+            while ((read = sourceReader.read(chars, length, chars.length - length)) >= 0) {
+                length += read;
+                if (length == chars.length) {
+                    chars = Arrays.copyOf(chars, chars.length * 2);
+                }
             }
-            buffer.consumeWhitespace();
-            if (!buffer.consume('#')) {
-                continue;
+            DirectiveLineScanner lineScanner = new DirectiveLineScanner(chars, length);
+            while (true) {
+                buffer.reset();
+                if (!lineScanner.nextDirectiveLine(buffer.value)) {
+                    break;
+                }
+                parseLine(buffer, includes, macros, macroFunctions);
             }
-            buffer.consumeWhitespace();
-            if (buffer.consume("define")) {
-                parseDefineDirectiveBody(buffer, macros, macroFunctions);
-            } else if (buffer.consume("include")) {
-                parseIncludeOrImportDirectiveBody(buffer, false, includes);
-            } else if (buffer.consume("import")) {
-                parseIncludeOrImportDirectiveBody(buffer, true, includes);
+        } else {
+            BufferedReader reader = new BufferedReader(sourceReader);
+            PreprocessingReader lineReader = new PreprocessingReader(reader);
+            while (true) {
+                buffer.reset();
+                if (!lineReader.readNextLine(buffer.value)) {
+                    break;
+                }
+                parseLine(buffer, includes, macros, macroFunctions);
             }
         }
         return DefaultIncludeDirectives.of(ImmutableList.copyOf(includes), ImmutableList.copyOf(macros), ImmutableList.copyOf(macroFunctions));
     }
 
+    /**
+     * Parses a line of source, collecting the directive on the line, if any. Consumes all input.
+     */
+    private void parseLine(Buffer buffer, Collection<Include> includes, Collection<Macro> macros, Collection<MacroFunction> macroFunctions) {
+        buffer.consumeWhitespace();
+        if (!buffer.consume('#')) {
+            return;
+        }
+        buffer.consumeWhitespace();
+        if (buffer.consume("define")) {
+            parseDefineDirectiveBody(buffer, macros, macroFunctions);
+        } else if (buffer.consume("include")) {
+            parseIncludeOrImportDirectiveBody(buffer, false, includes);
+        } else if (buffer.consume("import")) {
+            parseIncludeOrImportDirectiveBody(buffer, true, includes);
+        }
+    }
+
     /**
      * Parses an #include/#import directive body. Consumes all input.
      */
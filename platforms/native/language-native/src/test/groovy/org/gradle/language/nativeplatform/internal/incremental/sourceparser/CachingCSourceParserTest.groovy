@@ -0,0 +1,104 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.language.nativeplatform.internal.incremental.sourceparser
+
+import org.gradle.api.GradleException
+import org.gradle.cache.internal.FileContentCache
+import org.gradle.cache.internal.FileContentCacheFactory
+import org.gradle.internal.concurrent.DefaultExecutorFactory
+import org.gradle.internal.concurrent.DefaultParallelBatchExecutor
+import org.gradle.internal.concurrent.ParallelBatchExecutor
+import org.gradle.internal.serialize.Serializer
+import org.gradle.language.nativeplatform.internal.IncludeDirectives
+import spock.lang.Specification
+
+import java.util.concurrent.ConcurrentHashMap
+
+class CachingCSourceParserTest extends Specification {
+    def executorFactory = new DefaultExecutorFactory()
+    def parsingExecutor = new DefaultParallelBatchExecutor(executorFactory, 4)
+    def parser = Mock(CSourceParser)
+    def directives = Stub(IncludeDirectives)
+    def cacheFactory = new InMemoryFileContentCacheFactory()
+    def sourceFiles = (0..<10).collect { new File("source${it}.cpp") }
+
+    def cleanup() {
+        parsingExecutor.stop()
+        executorFactory.stop()
+    }
+
+    def "parses each source file once when warming up with several threads"() {
+        def cachingParser = new CachingCSourceParser(cacheFactory, parser, parsingExecutor, 4)
+
+        when:
+        cachingParser.warmUp(sourceFiles)
+
+        then:
+        sourceFiles.each { 1 * parser.parseSource(it) >> directives }
+        0 * parser._
+
+        when:
+        def result = cachingParser.parseSource(sourceFiles[3])
+
+        then:
+        result == directives
+        0 * parser._
+    }
+
+    def "does not warm up with a single parsing thread"() {
+        def cachingParser = new CachingCSourceParser(cacheFactory, parser, sequential ? ParallelBatchExecutor.SEQUENTIAL : parsingExecutor, threads)
+
+        when:
+        cachingParser.warmUp(sourceFiles)
+
+        then:
+        0 * parser._
+
+        where:
+        sequential | threads
+        false      | 1
+        true       | 4
+    }
+
+    def "reports failures to parse a source file when it is parsed after warming up"() {
+        def cachingParser = new CachingCSourceParser(cacheFactory, parser, parsingExecutor, 4)
+        def failure = new GradleException("broken")
+
+        when:
+        cachingParser.warmUp(sourceFiles)
+
+        then:
+        1 * parser.parseSource(sourceFiles[0]) >> { throw failure }
+        sourceFiles.drop(1).each { 1 * parser.parseSource(it) >> directives }
+
+        when:
+        cachingParser.parseSource(sourceFiles[0])
+
+        then:
+        1 * parser.parseSource(sourceFiles[0]) >> { throw failure }
+        def e = thrown(GradleException)
+        e == failure
+    }
+
+    private static class InMemoryFileContentCacheFactory implements FileContentCacheFactory {
+        @Override
+        <V> FileContentCache<V> newCache(String name, int normalizedCacheSize, FileContentCacheFactory.Calculator<? extends V> calculator, Serializer<V> serializer) {
+            def values = new ConcurrentHashMap<File, V>()
+            return { File file -> values.computeIfAbsent(file) { calculator.calculate(file, true) } } as FileContentCache<V>
+        }
+    }
+}
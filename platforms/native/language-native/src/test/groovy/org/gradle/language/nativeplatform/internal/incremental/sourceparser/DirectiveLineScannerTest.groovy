@@ -0,0 +1,111 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.language.nativeplatform.internal.incremental.sourceparser
+
+import spock.lang.Specification
+
+class DirectiveLineScannerTest extends Specification {
+    private static final List<String> FRAGMENTS = [
+        "#", "#include", "#import", "#define", " ", "\t", "\u0000", "\n", "\r", "\r\n", "\\", "\\\n", "\\\r\n", "\\\r",
+        "\"", "'", "/", "*", "/*", "*/", "//", "<", ">", "(", ")", ",", "##", "foo", "FOO(x)", "_X", "1",
+        "a.h", "\"a.h\"", "<b.h>", " include ", "define X 1", "\u00a0", "\u2028"
+    ]
+
+    def "finds the lines of the preprocessing reader that start with #"() {
+        expect:
+        directiveLines(input) == preprocessedDirectiveLines(input)
+
+        where:
+        input << [
+            "",
+            "#include <a.h>",
+            "  #include <a.h>\nint x;\n\t# define X 1\r\n#import \"b.h\"\r",
+            "int x; #include <a.h>\n#include <b.h>",
+            "/* comment */ #include <a.h>\n// #include <b.h>\n#include /* c */ <c.h> // d",
+            "/* multi\nline */ #define X \\\n  1\n#include <a.h>",
+            "char* s = \"/* not a comment\";\n#include <a.h>\nchar* t = \"*/\";\n#include <b.h>",
+            "char* s = \"unterminated\n#include <a.h>\n\"\n#include <b.h>",
+            "char c = '\"';\n#include <a.h>\n/* \" */\n#include <b.h>",
+            "#include <a.h>\\",
+            "\\\r#include <a.h>",
+            "/* unterminated\n#include <a.h>",
+            "x /\n#include <a.h>",
+            "\u0000#include <a.h>\n #include <b.h>",
+        ]
+    }
+
+    def "finds the same directives as the preprocessing reader for random source text"() {
+        def random = new Random(seed)
+        def input = new StringBuilder()
+        (0..<random.nextInt(200)).each {
+            input.append(FRAGMENTS[random.nextInt(FRAGMENTS.size())])
+        }
+        def text = input.toString()
+
+        expect:
+        directiveLines(text) == preprocessedDirectiveLines(text)
+        new RegexBackedCSourceParser(true).parseSource(new StringReader(text)) == new RegexBackedCSourceParser(false).parseSource(new StringReader(text))
+
+        where:
+        seed << (0..<500)
+    }
+
+    def "parses sources larger than the initial buffer"() {
+        def input = new StringBuilder()
+        (0..<2000).each {
+            input.append("int x${it} = 1; // \"\n#include \"h${it}.h\"\n/* x\n*/ # define M${it} <a/b${it}.h>\n")
+        }
+        def text = input.toString()
+
+        when:
+        def directives = new RegexBackedCSourceParser(true).parseSource(new StringReader(text))
+
+        then:
+        directives.all.size() == 2000
+        directives.allMacros.size() == 2000
+        directives == new RegexBackedCSourceParser(false).parseSource(new StringReader(text))
+    }
+
+    private static List<String> directiveLines(String input) {
+        def scanner = new DirectiveLineScanner(input.toCharArray(), input.length())
+        def lines = []
+        def line = new StringBuilder()
+        while (scanner.nextDirectiveLine(line)) {
+            lines << line.toString()
+            line.setLength(0)
+        }
+        return lines
+    }
+
+    private static List<String> preprocessedDirectiveLines(String input) {
+        def reader = new PreprocessingReader(new StringReader(input))
+        def lines = []
+        def line = new StringBuilder()
+        while (reader.readNextLine(line)) {
+            def text = line.toString()
+            def start = 0
+            while (start < text.length() && (Character.isWhitespace(text.charAt(start)) || text.charAt(start) == '\u0000' as char)) {
+                start++
+            }
+            if (start < text.length() && text.charAt(start) == '#' as char) {
+                lines << text
+            }
+            line.setLength(0)
+        }
+        return lines
+    }
+}
@@ -0,0 +1,267 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.builder;
+
+import org.gradle.api.Action;
+import org.gradle.api.artifacts.component.ComponentIdentifier;
+import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
+import org.gradle.api.internal.artifacts.DefaultModuleIdentifier;
+import org.gradle.internal.component.external.model.DefaultModuleComponentIdentifier;
+import org.gradle.internal.component.model.ComponentOverrideMetadata;
+import org.gradle.internal.component.model.DefaultComponentOverrideMetadata;
+import org.gradle.internal.operations.BuildOperation;
+import org.gradle.internal.operations.BuildOperationConstraint;
+import org.gradle.internal.operations.BuildOperationExecutor;
+import org.gradle.internal.operations.BuildOperationQueue;
+import org.gradle.internal.operations.BuildOperationRef;
+import org.gradle.internal.operations.BuildOperationWorker;
+import org.gradle.internal.operations.RunnableBuildOperation;
+import org.gradle.internal.resolve.resolver.ComponentMetaDataResolver;
+import org.gradle.internal.resolve.result.BuildableComponentResolveResult;
+import org.gradle.internal.resolve.result.DefaultBuildableComponentResolveResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Resolves a synthetic graph of external components whose metadata takes a fixed time to load, the way {@link DependencyGraphBuilder} loads metadata:
+ * the targets of the edges of each node are loaded in parallel, one node at a time.
+ *
+ * Compares a resolution from scratch with one that first loads the metadata of the components selected by a previous resolution,
+ * where a fraction of the components has changed version since. Snapshots are keyed by the root component and variant rather than by the
+ * declared dependencies, so a build that bumps a declared version still warms up with the previous selection.
+ */
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class MetadataWarmUpBenchmark {
+
+    @Param({"3000"})
+    int components;
+
+    @Param({"3"})
+    int dependenciesPerComponent;
+
+    @Param({"200"})
+    int metadataLatencyMicros;
+
+    @Param({"false", "true"})
+    boolean warmUp;
+
+    @Param({"0.0", "0.05"})
+    double changedSinceLastResolution;
+
+    private ModuleComponentIdentifier[] ids;
+    private int[][] dependencies;
+    private Map<ModuleComponentIdentifier, ComponentOverrideMetadata> previouslySelected;
+    private ExecutorService executorService;
+    private BuildOperationExecutor buildOperationExecutor;
+    private SlowMetadataResolver resolver;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Random random = new Random(1234L);
+        ids = new ModuleComponentIdentifier[components];
+        previouslySelected = new LinkedHashMap<>(components);
+        for (int i = 0; i < components; i++) {
+            ids[i] = componentId(i, "1.0");
+            previouslySelected.put(random.nextDouble() < changedSinceLastResolution ? componentId(i, "0.9") : ids[i], DefaultComponentOverrideMetadata.EMPTY);
+        }
+        // Each component depends on some of the components created after it, so the graph has no cycles and every component is reachable
+        dependencies = new int[components][];
+        for (int i = 0; i < components; i++) {
+            List<Integer> targets = new ArrayList<>();
+            int firstChild = i * dependenciesPerComponent + 1;
+            for (int j = firstChild; j < Math.min(firstChild + dependenciesPerComponent, components); j++) {
+                targets.add(j);
+            }
+            if (i + 1 < components) {
+                targets.add(i + 1 + random.nextInt(components - i - 1));
+            }
+            dependencies[i] = targets.stream().mapToInt(Integer::intValue).toArray();
+        }
+        executorService = Executors.newFixedThreadPool(16);
+        buildOperationExecutor = new ParallelBuildOperationExecutor(executorService);
+        resolver = new SlowMetadataResolver(metadataLatencyMicros);
+    }
+
+    @Setup(Level.Invocation)
+    public void clearMetadataCache() {
+        resolver.loaded.clear();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        executorService.shutdownNow();
+    }
+
+    @Benchmark
+    public int resolveGraph() {
+        if (warmUp) {
+            DependencyGraphBuilder.warmUpMetadata(previouslySelected, resolver, buildOperationExecutor);
+        }
+        boolean[] visited = new boolean[components];
+        Queue<Integer> queue = new ArrayDeque<>();
+        queue.add(0);
+        visited[0] = true;
+        load(ids[0]);
+        int count = 1;
+        while (!queue.isEmpty()) {
+            int node = queue.remove();
+            Map<ModuleComponentIdentifier, ComponentOverrideMetadata> targets = new LinkedHashMap<>();
+            for (int target : dependencies[node]) {
+                if (!visited[target]) {
+                    visited[target] = true;
+                    targets.put(ids[target], DefaultComponentOverrideMetadata.EMPTY);
+                    queue.add(target);
+                }
+            }
+            DependencyGraphBuilder.warmUpMetadata(targets, resolver, buildOperationExecutor);
+            for (ModuleComponentIdentifier target : targets.keySet()) {
+                load(target);
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private void load(ModuleComponentIdentifier id) {
+        resolver.resolve(id, DefaultComponentOverrideMetadata.EMPTY, new DefaultBuildableComponentResolveResult());
+    }
+
+    private static ModuleComponentIdentifier componentId(int i, String version) {
+        return DefaultModuleComponentIdentifier.newId(DefaultModuleIdentifier.newId("org.example", "module" + i), version);
+    }
+
+    private static class SlowMetadataResolver implements ComponentMetaDataResolver {
+        private final long latencyNanos;
+        private final ConcurrentHashMap<ComponentIdentifier, Boolean> loaded = new ConcurrentHashMap<>();
+
+        SlowMetadataResolver(int latencyMicros) {
+            this.latencyNanos = TimeUnit.MICROSECONDS.toNanos(latencyMicros);
+        }
+
+        @Override
+        public void resolve(ComponentIdentifier identifier, ComponentOverrideMetadata componentOverrideMetadata, BuildableComponentResolveResult result) {
+            loaded.computeIfAbsent(identifier, id -> {
+                LockSupport.parkNanos(latencyNanos);
+                return Boolean.TRUE;
+            });
+        }
+
+        @Override
+        public boolean isFetchingMetadataCheap(ComponentIdentifier identifier) {
+            return loaded.containsKey(identifier);
+        }
+    }
+
+    private static class ParallelBuildOperationExecutor implements BuildOperationExecutor {
+        private final ExecutorService executorService;
+
+        ParallelBuildOperationExecutor(ExecutorService executorService) {
+            this.executorService = executorService;
+        }
+
+        @Override
+        public <O extends RunnableBuildOperation> void runAll(Action<BuildOperationQueue<O>> schedulingAction) {
+            runAll(schedulingAction, BuildOperationConstraint.MAX_WORKERS);
+        }
+
+        @Override
+        public <O extends RunnableBuildOperation> void runAll(Action<BuildOperationQueue<O>> schedulingAction, BuildOperationConstraint buildOperationConstraint) {
+            List<Future<?>> futures = new ArrayList<>();
+            schedulingAction.execute(new BuildOperationQueue<O>() {
+                @Override
+                public void add(O operation) {
+                    futures.add(executorService.submit(() -> operation.run(null)));
+                }
+
+                @Override
+                public void cancel() {
+                    futures.forEach(future -> future.cancel(false));
+                }
+
+                @Override
+                public void waitForCompletion() {
+                }
+
+                @Override
+                public void setLogLocation(String logLocation) {
+                }
+            });
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (InterruptedException | ExecutionException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        }
+
+        @Override
+        public <O extends RunnableBuildOperation> void runAllWithAccessToProjectState(Action<BuildOperationQueue<O>> schedulingAction) {
+            runAll(schedulingAction);
+        }
+
+        @Override
+        public <O extends RunnableBuildOperation> void runAllWithAccessToProjectState(Action<BuildOperationQueue<O>> schedulingAction, BuildOperationConstraint buildOperationConstraint) {
+            runAll(schedulingAction, buildOperationConstraint);
+        }
+
+        @Override
+        public <O extends BuildOperation> void runAll(BuildOperationWorker<O> worker, Action<BuildOperationQueue<O>> schedulingAction) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public <O extends BuildOperation> void runAll(BuildOperationWorker<O> worker, Action<BuildOperationQueue<O>> schedulingAction, BuildOperationConstraint buildOperationConstraint) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public BuildOperationRef getCurrentOperation() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -51,6 +51,7 @@
 import org.gradle.api.internal.artifacts.ivyservice.modulecache.dynamicversions.TwoStageModuleVersionsCache;
 import org.gradle.api.internal.artifacts.ivyservice.projectmodule.DefaultProjectLocalComponentProvider;
 import org.gradle.api.internal.artifacts.ivyservice.projectmodule.ProjectArtifactResolver;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.builder.MetadataPrefetcher;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.result.AttributeContainerSerializer;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.result.ThisBuildOnlyComponentDetailsSerializer;
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.result.ThisBuildOnlySelectedVariantSerializer;
@@ -106,6 +107,7 @@ void configure(ServiceRegistration registration) {
         registration.add(ThisBuildOnlySelectedVariantSerializer .class);
         registration.add(ConnectionFailureRepositoryDisabler.class);
         registration.add(DefaultProjectLocalComponentProvider.class);
+        registration.add(MetadataPrefetcher.class);
     }
 
     @Provides
@@ -22,6 +22,7 @@
 import org.gradle.api.internal.artifacts.ivyservice.ArtifactCachesProvider;
 import org.gradle.api.internal.artifacts.ivyservice.CacheLayout;
 import org.gradle.api.internal.artifacts.ivyservice.DefaultArtifactCaches;
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.builder.ResolvedGraphSnapshots;
 import org.gradle.api.internal.artifacts.transform.ImmutableTransformWorkspaceServices;
 import org.gradle.api.internal.artifacts.transform.ToPlannedTransformStepConverter;
 import org.gradle.api.internal.artifacts.transform.TransformExecutionResult;
@@ -34,6 +35,8 @@
 import org.gradle.cache.internal.UsedGradleVersions;
 import org.gradle.cache.scopes.GlobalScopedCacheBuilderFactory;
 import org.gradle.execution.plan.ToPlannedNodeConverter;
+import org.gradle.internal.buildoption.DefaultInternalOptions;
+import org.gradle.internal.buildoption.InternalOptions;
 import org.gradle.internal.event.ListenerManager;
 import org.gradle.internal.execution.ExecutionEngine;
 import org.gradle.internal.execution.UnitOfWork;
@@ -50,6 +53,15 @@ ToPlannedNodeConverter createToPlannedTransformStepConverter() {
         return new ToPlannedTransformStepConverter();
     }
 
+    @Provides
+    ResolvedGraphSnapshots createResolvedGraphSnapshots() {
+        InternalOptions internalOptions = DefaultInternalOptions.fromSystemProperties();
+        return new ResolvedGraphSnapshots(
+            internalOptions.getOption(ResolvedGraphSnapshots.ENABLED_OPTION).get(),
+            internalOptions.getOption(ResolvedGraphSnapshots.MAX_SNAPSHOTS_OPTION).get()
+        );
+    }
+
     @Provides
     DefaultArtifactCaches.WritableArtifactCacheLockingParameters createWritableArtifactCacheLockingParameters(FileAccessTimeJournal fileAccessTimeJournal, UsedGradleVersions usedGradleVersions) {
         return new DefaultArtifactCaches.WritableArtifactCacheLockingParameters() {
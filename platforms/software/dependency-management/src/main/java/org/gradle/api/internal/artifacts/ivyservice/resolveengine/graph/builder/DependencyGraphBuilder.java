@@ -22,6 +22,7 @@
 import org.gradle.api.Action;
 import org.gradle.api.GradleException;
 import org.gradle.api.artifacts.component.ComponentSelector;
+import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
 import org.gradle.api.artifacts.component.ModuleComponentSelector;
 import org.gradle.api.attributes.Attribute;
 import org.gradle.api.capabilities.Capability;
@@ -49,15 +50,18 @@
 import org.gradle.api.internal.attributes.ImmutableAttributes;
 import org.gradle.api.internal.attributes.ImmutableAttributesFactory;
 import org.gradle.api.specs.Spec;
+import org.gradle.internal.build.BuildState;
 import org.gradle.internal.component.ResolutionFailureHandler;
 import org.gradle.internal.component.model.ComponentGraphResolveMetadata;
 import org.gradle.internal.component.model.ComponentIdGenerator;
+import org.gradle.internal.component.model.ComponentOverrideMetadata;
 import org.gradle.internal.component.model.DefaultCompatibilityCheckResult;
 import org.gradle.internal.component.model.DependencyMetadata;
 import org.gradle.internal.component.model.GraphVariantSelector;
 import org.gradle.internal.component.model.VariantGraphResolveMetadata;
 import org.gradle.internal.component.resolution.failure.exception.AbstractResolutionFailureException;
 import org.gradle.internal.deprecation.DeprecationLogger;
+import org.gradle.internal.hash.HashCode;
 import org.gradle.internal.operations.BuildOperationConstraint;
 import org.gradle.internal.operations.BuildOperationExecutor;
 import org.gradle.internal.resolve.ModuleVersionResolveException;
@@ -75,6 +79,7 @@
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -95,6 +100,9 @@ public class DependencyGraphBuilder {
     private final VersionParser versionParser;
     private final GraphVariantSelector variantSelector;
     private final BuildOperationExecutor buildOperationExecutor;
+    private final ResolvedGraphSnapshots graphSnapshots;
+    private final MetadataPrefetcher metadataPrefetcher;
+    private final BuildState currentBuild;
 
     @Inject
     public DependencyGraphBuilder(
@@ -106,7 +114,10 @@ public DependencyGraphBuilder(
         ComponentIdGenerator idGenerator,
         VersionParser versionParser,
         GraphVariantSelector variantSelector,
-        BuildOperationExecutor buildOperationExecutor
+        BuildOperationExecutor buildOperationExecutor,
+        ResolvedGraphSnapshots graphSnapshots,
+        MetadataPrefetcher metadataPrefetcher,
+        BuildState currentBuild
     ) {
         this.moduleExclusions = moduleExclusions;
         this.attributesFactory = attributesFactory;
@@ -117,6 +128,9 @@ public DependencyGraphBuilder(
         this.versionParser = versionParser;
         this.variantSelector = variantSelector;
         this.buildOperationExecutor = buildOperationExecutor;
+        this.graphSnapshots = graphSnapshots;
+        this.metadataPrefetcher = metadataPrefetcher;
+        this.currentBuild = currentBuild;
     }
 
     public void resolve(
@@ -162,13 +176,57 @@ public void resolve(
             variantSelector
         );
 
-        traverseGraph(resolveState);
+        HashCode graphKey = graphSnapshots.isEnabled() ? graphSnapshots.keyFor(currentBuild.getBuildRootDir(), rootComponent) : null;
+        if (graphKey != null) {
+            Map<ModuleComponentIdentifier, ComponentOverrideMetadata> previouslySelected = graphSnapshots.getPreviouslySelected(graphKey);
+            if (previouslySelected != null) {
+                warmUpMetadata(previouslySelected, componentMetaDataResolver, buildOperationExecutor);
+            }
+        }
+
+        MetadataPrefetcher.Prefetch prefetch = null;
+        if (metadataPrefetcher.isEnabled()) {
+            prefetch = metadataPrefetcher.start(componentMetaDataResolver, versionSelectorScheme);
+            prefetch.visitDependencies(syntheticDependencies);
+            resolveState.setMetadataPrefetch(prefetch);
+        }
+        try {
+            traverseGraph(resolveState);
+        } finally {
+            if (prefetch != null) {
+                prefetch.stop();
+            }
+        }
 
         validateGraph(resolveState, failingOnDynamicVersions, failingOnChangingVersions);
 
+        if (graphKey != null) {
+            graphSnapshots.recordSelected(graphKey, resolveState);
+        }
+
         assembleResult(resolveState, modelVisitor);
     }
 
+    /**
+     * Loads the metadata of the given components in parallel with the given overrides, ahead of the traversal of the graph.
+     */
+    static void warmUpMetadata(Map<ModuleComponentIdentifier, ComponentOverrideMetadata> components, ComponentMetaDataResolver componentMetaDataResolver, BuildOperationExecutor buildOperationExecutor) {
+        List<Map.Entry<ModuleComponentIdentifier, ComponentOverrideMetadata>> requiringDownload = new ArrayList<>(components.size());
+        for (Map.Entry<ModuleComponentIdentifier, ComponentOverrideMetadata> component : components.entrySet()) {
+            if (!componentMetaDataResolver.isFetchingMetadataCheap(component.getKey())) {
+                requiringDownload.add(component);
+            }
+        }
+        if (requiringDownload.size() > 1) {
+            LOGGER.debug("Submitting {} metadata files selected by the previous resolution to resolve in parallel", requiringDownload.size());
+            buildOperationExecutor.runAll(buildOperationQueue -> {
+                for (Map.Entry<ModuleComponentIdentifier, ComponentOverrideMetadata> component : requiringDownload) {
+                    buildOperationQueue.add(new WarmUpMetadataOperation(component.getKey(), component.getValue(), componentMetaDataResolver));
+                }
+            }, BuildOperationConstraint.UNCONSTRAINED);
+        }
+    }
+
     /**
      * Traverses the dependency graph, resolving conflicts and building the paths from the root configuration.
      */
@@ -0,0 +1,241 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.builder;
+
+import com.google.common.annotations.VisibleForTesting;
+import org.gradle.api.artifacts.VersionConstraint;
+import org.gradle.api.artifacts.component.ComponentSelector;
+import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
+import org.gradle.api.artifacts.component.ModuleComponentSelector;
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.VersionSelectorScheme;
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.buildoption.IntegerInternalOption;
+import org.gradle.internal.buildoption.InternalFlag;
+import org.gradle.internal.buildoption.InternalOptions;
+import org.gradle.internal.component.external.model.DefaultModuleComponentIdentifier;
+import org.gradle.internal.component.model.ComponentOverrideMetadata;
+import org.gradle.internal.component.model.DefaultComponentOverrideMetadata;
+import org.gradle.internal.component.model.DependencyMetadata;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.concurrent.ManagedExecutor;
+import org.gradle.internal.concurrent.Stoppable;
+import org.gradle.internal.operations.BuildOperationRef;
+import org.gradle.internal.operations.BuildOperationRunner;
+import org.gradle.internal.operations.CurrentBuildOperationRef;
+import org.gradle.internal.resolve.resolver.ComponentMetaDataResolver;
+import org.gradle.internal.service.scopes.Scope;
+import org.gradle.internal.service.scopes.ServiceScope;
+
+import javax.annotation.Nullable;
+import javax.inject.Inject;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+/**
+ * Loads the metadata of the external components of a graph on a bounded pool of threads, ahead of the traversal of the graph.
+ *
+ * <p>
+ * Whenever the traversal selects a variant and queues it to be visited, the prefetcher starts loading the metadata of the targets of its
+ * dependencies that select an exact version of a module, so that metadata is available by the time the traversal reaches them.
+ * Only the dependencies of variants the traversal selected are followed. Dependencies with a dynamic or changing version,
+ * a branch or explicit artifacts are never followed.
+ * </p>
+ *
+ * <p>
+ * The prefetcher only warms up the caches used by the {@link ComponentMetaDataResolver}. The traversal still resolves every component
+ * itself, on the resolving thread and in the same order as before, so the resulting graph does not depend on the prefetch.
+ * Each load runs as a child build operation of the resolution that started the prefetch.
+ * </p>
+ */
+@ServiceScope(Scope.BuildTree.class)
+public class MetadataPrefetcher implements Stoppable {
+    public static final InternalFlag ENABLED_OPTION = new InternalFlag("org.gradle.internal.resolution.prefetch-metadata");
+    public static final IntegerInternalOption THREADS_OPTION = new IntegerInternalOption("org.gradle.internal.resolution.prefetch-metadata.threads", 8);
+    public static final IntegerInternalOption MAX_COMPONENTS_OPTION = new IntegerInternalOption("org.gradle.internal.resolution.prefetch-metadata.max-components", 1000);
+
+    private final ExecutorFactory executorFactory;
+    private final BuildOperationRunner buildOperationRunner;
+    private final boolean enabled;
+    private final int threads;
+    private final int maxComponents;
+    private ManagedExecutor executor;
+
+    @Inject
+    public MetadataPrefetcher(ExecutorFactory executorFactory, BuildOperationRunner buildOperationRunner, InternalOptions internalOptions) {
+        this(
+            executorFactory,
+            buildOperationRunner,
+            internalOptions.getOption(ENABLED_OPTION).get(),
+            internalOptions.getOption(THREADS_OPTION).get(),
+            internalOptions.getOption(MAX_COMPONENTS_OPTION).get()
+        );
+    }
+
+    @VisibleForTesting
+    public MetadataPrefetcher(ExecutorFactory executorFactory, BuildOperationRunner buildOperationRunner, boolean enabled, int threads, int maxComponents) {
+        this.executorFactory = executorFactory;
+        this.buildOperationRunner = buildOperationRunner;
+        this.enabled = enabled;
+        this.threads = threads;
+        this.maxComponents = maxComponents;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Starts the prefetch of the metadata of one graph, as part of the current build operation.
+     *
+     * @return the running prefetch, which must be stopped once the graph has been traversed
+     */
+    Prefetch start(ComponentMetaDataResolver componentMetaDataResolver, VersionSelectorScheme versionSelectorScheme) {
+        return new Prefetch(getExecutor(), buildOperationRunner, CurrentBuildOperationRef.instance().get(), componentMetaDataResolver, versionSelectorScheme, maxComponents);
+    }
+
+    private synchronized ManagedExecutor getExecutor() {
+        if (executor == null) {
+            executor = executorFactory.create("Dependency metadata prefetch", threads);
+        }
+        return executor;
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (executor != null) {
+            executor.stop();
+            executor = null;
+        }
+    }
+
+    /**
+     * The prefetch of the metadata of one graph.
+     *
+     * <p>Dependencies are visited on the resolving thread only. Loads run on the executor.</p>
+     */
+    static class Prefetch implements Stoppable {
+        private final Executor executor;
+        private final BuildOperationRunner buildOperationRunner;
+        @Nullable
+        private final BuildOperationRef parent;
+        private final ComponentMetaDataResolver componentMetaDataResolver;
+        private final VersionSelectorScheme versionSelectorScheme;
+        private final int maxComponents;
+        private final Set<ModuleComponentIdentifier> submitted = new HashSet<>();
+        private final Object lock = new Object();
+        // Guarded by lock
+        private int pending;
+        private volatile boolean stopped;
+
+        Prefetch(
+            Executor executor,
+            BuildOperationRunner buildOperationRunner,
+            @Nullable BuildOperationRef parent,
+            ComponentMetaDataResolver componentMetaDataResolver,
+            VersionSelectorScheme versionSelectorScheme,
+            int maxComponents
+        ) {
+            this.executor = executor;
+            this.buildOperationRunner = buildOperationRunner;
+            this.parent = parent;
+            this.componentMetaDataResolver = componentMetaDataResolver;
+            this.versionSelectorScheme = versionSelectorScheme;
+            this.maxComponents = maxComponents;
+        }
+
+        /**
+         * Returns the components whose metadata was scheduled to be loaded.
+         */
+        Set<ModuleComponentIdentifier> getSubmitted() {
+            return submitted;
+        }
+
+        /**
+         * Starts loading the metadata of the targets of the given dependencies of a selected variant.
+         */
+        void visitDependencies(Collection<? extends DependencyMetadata> dependencies) {
+            for (DependencyMetadata dependency : dependencies) {
+                if (stopped || submitted.size() >= maxComponents) {
+                    return;
+                }
+                ModuleComponentIdentifier id = staticTargetOf(dependency);
+                if (id != null && submitted.add(id) && !componentMetaDataResolver.isFetchingMetadataCheap(id)) {
+                    @SuppressWarnings("deprecation")
+                    ComponentOverrideMetadata overrideMetadata = DefaultComponentOverrideMetadata.forDependency(false, null, DefaultComponentOverrideMetadata.extractClientModule(dependency));
+                    synchronized (lock) {
+                        pending++;
+                    }
+                    executor.execute(() -> load(id, overrideMetadata));
+                }
+            }
+        }
+
+        @Nullable
+        private ModuleComponentIdentifier staticTargetOf(DependencyMetadata dependency) {
+            ComponentSelector selector = dependency.getSelector();
+            if (dependency.isConstraint() || dependency.isChanging() || !dependency.getArtifacts().isEmpty() || !(selector instanceof ModuleComponentSelector)) {
+                return null;
+            }
+            ModuleComponentSelector moduleSelector = (ModuleComponentSelector) selector;
+            VersionConstraint versionConstraint = moduleSelector.getVersionConstraint();
+            if (versionConstraint.getBranch() != null) {
+                return null;
+            }
+            String version = versionConstraint.getStrictVersion().isEmpty() ? versionConstraint.getRequiredVersion() : versionConstraint.getStrictVersion();
+            if (version.isEmpty() || versionSelectorScheme.parseSelector(version).isDynamic()) {
+                return null;
+            }
+            return DefaultModuleComponentIdentifier.newId(moduleSelector.getModuleIdentifier(), version);
+        }
+
+        private void load(ModuleComponentIdentifier id, ComponentOverrideMetadata overrideMetadata) {
+            try {
+                if (!stopped) {
+                    CurrentBuildOperationRef.instance().with(parent, () ->
+                        buildOperationRunner.run(new WarmUpMetadataOperation(id, overrideMetadata, componentMetaDataResolver))
+                    );
+                }
+            } finally {
+                synchronized (lock) {
+                    pending--;
+                    if (pending == 0) {
+                        lock.notifyAll();
+                    }
+                }
+            }
+        }
+
+        /**
+         * Stops scheduling the metadata of more components, skips the loads that have not started yet and waits for the ones in progress.
+         */
+        @Override
+        public void stop() {
+            stopped = true;
+            synchronized (lock) {
+                while (pending > 0) {
+                    try {
+                        lock.wait();
+                    } catch (InterruptedException e) {
+                        throw UncheckedException.throwAsUncheckedException(e);
+                    }
+                }
+            }
+        }
+    }
+}
@@ -93,6 +93,8 @@ public class ResolveState implements ComponentStateFactory<ComponentState> {
     private final AttributeDesugaring attributeDesugaring;
     private final ResolutionConflictTracker conflictTracker;
     private final GraphVariantSelector variantSelector;
+    @Nullable
+    private MetadataPrefetcher.Prefetch metadataPrefetch;
 
     public ResolveState(
         ComponentIdGenerator idGenerator,
@@ -248,6 +250,9 @@ public void onMoreSelected(NodeState node) {
         // possible before attempting to resolve them
         if (node.enqueue()) {
             queue.addLast(node);
+            if (metadataPrefetch != null) {
+                metadataPrefetch.visitDependencies(node.getMetadata().getDependencies());
+            }
         }
     }
 
@@ -261,6 +266,13 @@ public void onFewerSelected(NodeState node) {
         }
     }
 
+    /**
+     * Sets the prefetch to notify of the dependencies of every node queued to be visited.
+     */
+    void setMetadataPrefetch(MetadataPrefetcher.Prefetch metadataPrefetch) {
+        this.metadataPrefetch = metadataPrefetch;
+    }
+
     public AttributesSchemaInternal getAttributesSchema() {
         return attributesSchema;
     }
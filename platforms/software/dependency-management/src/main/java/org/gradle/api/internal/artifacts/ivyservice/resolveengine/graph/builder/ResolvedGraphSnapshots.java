@@ -0,0 +1,108 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.builder;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableMap;
+import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
+import org.gradle.api.internal.artifacts.ivyservice.moduleconverter.RootComponentMetadataBuilder;
+import org.gradle.internal.buildoption.IntegerInternalOption;
+import org.gradle.internal.buildoption.InternalFlag;
+import org.gradle.internal.component.model.ComponentOverrideMetadata;
+import org.gradle.internal.component.model.VariantGraphResolveState;
+import org.gradle.internal.hash.HashCode;
+import org.gradle.internal.hash.Hasher;
+import org.gradle.internal.hash.Hashing;
+import org.gradle.internal.service.scopes.Scope;
+import org.gradle.internal.service.scopes.ServiceScope;
+
+import javax.annotation.Nullable;
+import java.io.File;
+import java.util.Map;
+
+/**
+ * Remembers the external components selected by the graphs resolved earlier in this daemon.
+ *
+ * <p>
+ * When a graph is resolved again, the metadata of the components it selected last time is loaded in parallel before the graph is traversed.
+ * The traversal itself is never skipped: a small change to the declared dependencies can have consequences anywhere in the graph through
+ * conflict resolution, substitution rules and component metadata rules, none of which can be proven to be unaffected. Loading the metadata
+ * up front means that the traversal mostly finds it in memory, and only the part of the graph that changed needs to wait for metadata.
+ * </p>
+ *
+ * <p>
+ * Graphs are keyed by their build, root component, root variant and its attributes, but not by the dependencies they declare.
+ * The previous selection is only a hint: when the declared dependencies, repositories or rules have changed since, some of the loaded
+ * metadata is not used by the traversal, while the metadata of the components that did not change is still loaded up front.
+ * </p>
+ */
+@ServiceScope(Scope.UserHome.class)
+public class ResolvedGraphSnapshots {
+    public static final InternalFlag ENABLED_OPTION = new InternalFlag("org.gradle.internal.resolution.graph-snapshots");
+    public static final IntegerInternalOption MAX_SNAPSHOTS_OPTION = new IntegerInternalOption("org.gradle.internal.resolution.graph-snapshots.max", 1000);
+
+    private final boolean enabled;
+    private final Cache<HashCode, ImmutableMap<ModuleComponentIdentifier, ComponentOverrideMetadata>> snapshots;
+
+    public ResolvedGraphSnapshots(boolean enabled, int maxSnapshots) {
+        this.enabled = enabled;
+        this.snapshots = CacheBuilder.newBuilder().maximumSize(maxSnapshots).build();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Returns the key of the graph with the given root in the given build.
+     *
+     * The key does not change when the declared dependencies of the root change, so the components selected before a change are still loaded
+     * as a hint, most of which are usually selected again.
+     */
+    HashCode keyFor(File buildRootDir, RootComponentMetadataBuilder.RootComponentState rootComponent) {
+        VariantGraphResolveState rootVariant = rootComponent.getRootVariant();
+        Hasher hasher = Hashing.newHasher();
+        hasher.putString(buildRootDir.getAbsolutePath());
+        hasher.putString(rootComponent.getComponentIdentifier().getDisplayName());
+        hasher.putString(rootVariant.getName());
+        hasher.putString(rootVariant.getAttributes().toString());
+        return hasher.hash();
+    }
+
+    /**
+     * Returns the external components selected the last time the graph with the given key was resolved, with the overrides
+     * their metadata was resolved with, or null if the graph was not resolved before.
+     */
+    @Nullable
+    Map<ModuleComponentIdentifier, ComponentOverrideMetadata> getPreviouslySelected(HashCode graphKey) {
+        return snapshots.getIfPresent(graphKey);
+    }
+
+    /**
+     * Records the external components selected by the graph with the given key.
+     */
+    void recordSelected(HashCode graphKey, ResolveState resolveState) {
+        ImmutableMap.Builder<ModuleComponentIdentifier, ComponentOverrideMetadata> selected = ImmutableMap.builder();
+        for (ModuleResolveState module : resolveState.getModules()) {
+            ComponentState component = module.getSelected();
+            if (component != null && !module.isVirtualPlatform() && component.getComponentId() instanceof ModuleComponentIdentifier && component.getMetadataResolveFailure() == null) {
+                selected.put((ModuleComponentIdentifier) component.getComponentId(), component.getOverrideMetadata());
+            }
+        }
+        snapshots.put(graphKey, selected.build());
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.builder;
+
+import org.gradle.api.artifacts.component.ModuleComponentIdentifier;
+import org.gradle.internal.component.model.ComponentOverrideMetadata;
+import org.gradle.internal.operations.BuildOperationContext;
+import org.gradle.internal.operations.BuildOperationDescriptor;
+import org.gradle.internal.operations.RunnableBuildOperation;
+import org.gradle.internal.resolve.resolver.ComponentMetaDataResolver;
+import org.gradle.internal.resolve.result.DefaultBuildableComponentResolveResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Loads the metadata of a component ahead of the traversal of a graph, so it is cached by the time the traversal reaches the component.
+ * The result is discarded, and any failure is left for the traversal to report if the component is part of the graph.
+ */
+class WarmUpMetadataOperation implements RunnableBuildOperation {
+    private static final Logger LOGGER = LoggerFactory.getLogger(WarmUpMetadataOperation.class);
+
+    private final ModuleComponentIdentifier componentId;
+    private final ComponentOverrideMetadata overrideMetadata;
+    private final ComponentMetaDataResolver resolver;
+
+    WarmUpMetadataOperation(ModuleComponentIdentifier componentId, ComponentOverrideMetadata overrideMetadata, ComponentMetaDataResolver resolver) {
+        this.componentId = componentId;
+        this.overrideMetadata = overrideMetadata;
+        this.resolver = resolver;
+    }
+
+    @Override
+    public void run(BuildOperationContext context) {
+        try {
+            resolver.resolve(componentId, overrideMetadata, new DefaultBuildableComponentResolveResult());
+        } catch (Exception e) {
+            LOGGER.debug("Could not load metadata of {} ahead of graph traversal.", componentId, e);
+        }
+    }
+
+    @Override
+    public BuildOperationDescriptor.Builder description() {
+        return BuildOperationDescriptor.displayName("Resolve " + componentId);
+    }
+}
@@ -44,12 +44,15 @@ import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.Dependen
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.DependencyGraphVisitor
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.RootGraphNode
 import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.builder.DependencyGraphBuilder
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.builder.MetadataPrefetcher
+import org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.builder.ResolvedGraphSnapshots
 import org.gradle.api.internal.artifacts.publish.DefaultPublishArtifact
 import org.gradle.api.internal.attributes.AttributeDesugaring
 import org.gradle.api.internal.attributes.AttributesSchemaInternal
 import org.gradle.api.internal.attributes.ImmutableAttributes
 import org.gradle.api.specs.Spec
 import org.gradle.internal.Describables
+import org.gradle.internal.build.BuildState
 import org.gradle.internal.component.ResolutionFailureHandler
 import org.gradle.internal.component.external.descriptor.DefaultExclude
 import org.gradle.internal.component.external.model.DefaultModuleComponentIdentifier
@@ -70,10 +73,12 @@ import org.gradle.internal.component.model.GraphVariantSelector
 import org.gradle.internal.component.model.IvyArtifactName
 import org.gradle.internal.component.model.LocalComponentDependencyMetadata
 import org.gradle.internal.component.model.LocalOriginDependencyMetadata
+import org.gradle.internal.concurrent.ExecutorFactory
 import org.gradle.internal.exceptions.DefaultMultiCauseException
 import org.gradle.internal.model.CalculatedValue
 import org.gradle.internal.operations.BuildOperationExecutor
 import org.gradle.internal.operations.BuildOperationQueue
+import org.gradle.internal.operations.TestBuildOperationRunner
 import org.gradle.internal.resolve.ModuleVersionNotFoundException
 import org.gradle.internal.resolve.ModuleVersionResolveException
 import org.gradle.internal.resolve.resolver.ComponentMetaDataResolver
@@ -134,17 +139,7 @@ class DependencyGraphBuilderTest extends Specification {
     def failureDescriberRegistry = DependencyManagementTestUtil.standardResolutionFailureDescriberRegistry()
     def variantSelector = new GraphVariantSelector(new ResolutionFailureHandler(failureDescriberRegistry))
 
-    DependencyGraphBuilder builder = new DependencyGraphBuilder(
-        moduleExclusions,
-        AttributeTestUtil.attributesFactory(),
-        desugaring,
-        versionSelectorScheme,
-        versionComparator,
-        new ComponentIdGenerator(),
-        new VersionParser(),
-        variantSelector,
-        buildOperationProcessor
-    )
+    DependencyGraphBuilder builder = builderWith(new ResolvedGraphSnapshots(false, 10))
 
     def root = rootProject()
     def rootComponent = Stub(RootComponentMetadataBuilder.RootComponentState) {
@@ -154,6 +149,25 @@ class DependencyGraphBuilderTest extends Specification {
         getModuleVersionIdentifier() >> root.moduleVersionId
     }
 
+    private DependencyGraphBuilder builderWith(ResolvedGraphSnapshots graphSnapshots) {
+        new DependencyGraphBuilder(
+            moduleExclusions,
+            AttributeTestUtil.attributesFactory(),
+            desugaring,
+            versionSelectorScheme,
+            versionComparator,
+            new ComponentIdGenerator(),
+            new VersionParser(),
+            variantSelector,
+            buildOperationProcessor,
+            graphSnapshots,
+            new MetadataPrefetcher(Stub(ExecutorFactory), new TestBuildOperationRunner(), false, 1, 0),
+            Stub(BuildState) {
+                getBuildRootDir() >> new File("build-root")
+            }
+        )
+    }
+
     private TestGraphVisitor resolve(Spec<? super DependencyMetadata> edgeFilter = { true }) {
         def graphVisitor = new TestGraphVisitor()
         builder.resolve(
@@ -194,6 +208,82 @@ class DependencyGraphBuilderTest extends Specification {
         result.components == ids(root, a, b, c)
     }
 
+    def "loads metadata of the components selected by the previous resolution before traversing the graph again"() {
+        given:
+        builder = builderWith(new ResolvedGraphSnapshots(true, 10))
+        def a = revision("a")
+        def b = revision("b")
+        def components = [(a.id): a, (b.id): b]
+        components.values().each { to ->
+            def dependencyMetaData = dependsOn(root, to.metadata.moduleVersionId)
+            idResolver.resolve(dependencyMetaData, _, _, _) >> { DependencyMetadata dep, VersionSelector acceptor, VersionSelector rejector, BuildableComponentIdResolveResult result ->
+                result.resolved(to.id, to.metadata.moduleVersionId)
+            }
+        }
+        def loaded = []
+        metaDataResolver.resolve(_, _, _) >> { ComponentIdentifier id, ComponentOverrideMetadata requestMetaData, BuildableComponentResolveResult result ->
+            loaded << id
+            result.resolved(components[id], Stub(ComponentGraphSpecificResolveState))
+        }
+
+        when:
+        resolve().rethrowFailure()
+
+        then:
+        loaded == [a.id, b.id]
+
+        when:
+        loaded.clear()
+        def result = resolve()
+        result.rethrowFailure()
+
+        then:
+        loaded[0..1] as Set == [a.id, b.id] as Set
+        loaded[2..3] == [a.id, b.id]
+        result.components == ids(root, a, b)
+    }
+
+    def "loads metadata of the components selected by the previous resolution after a declared version changed"() {
+        given:
+        builder = builderWith(new ResolvedGraphSnapshots(true, 10))
+        def a = revision("a")
+        def b1 = revision("b", "1.0")
+        def b2 = revision("b", "2.0")
+        def components = [(a.id): a, (b1.id): b1, (b2.id): b2]
+        def loaded = []
+        metaDataResolver.resolve(_, _, _) >> { ComponentIdentifier id, ComponentOverrideMetadata requestMetaData, BuildableComponentResolveResult result ->
+            loaded << id
+            result.resolved(components[id], Stub(ComponentGraphSpecificResolveState))
+        }
+        def declare = { ComponentGraphResolveState to ->
+            def dependencyMetaData = dependsOn(root, to.metadata.moduleVersionId)
+            idResolver.resolve(dependencyMetaData, _, _, _) >> { DependencyMetadata dep, VersionSelector acceptor, VersionSelector rejector, BuildableComponentIdResolveResult result ->
+                result.resolved(to.id, to.metadata.moduleVersionId)
+            }
+            dependencyMetaData
+        }
+        declare(a)
+        def dependencyOnB1 = declare(b1)
+
+        when:
+        resolve().rethrowFailure()
+
+        then:
+        loaded == [a.id, b1.id]
+
+        when:
+        root.candidatesForGraphVariantSelection.getVariantByConfigurationName("default").metadata.dependencies.remove(dependencyOnB1)
+        declare(b2)
+        loaded.clear()
+        def result = resolve()
+        result.rethrowFailure()
+
+        then:
+        loaded[0..1] as Set == [a.id, b1.id] as Set
+        loaded[2..3] == [a.id, b2.id]
+        result.components == ids(root, a, b2)
+    }
+
     def "honors component replacements"() {
         given:
         def a = revision('a') // a->c
@@ -0,0 +1,225 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.artifacts.ivyservice.resolveengine.graph.builder
+
+import org.gradle.api.artifacts.component.ComponentIdentifier
+import org.gradle.api.artifacts.component.ModuleComponentIdentifier
+import org.gradle.api.internal.artifacts.DefaultModuleIdentifier
+import org.gradle.api.internal.artifacts.dependencies.DefaultMutableVersionConstraint
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.DefaultVersionComparator
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.DefaultVersionSelectorScheme
+import org.gradle.api.internal.artifacts.ivyservice.ivyresolve.strategy.VersionParser
+import org.gradle.internal.component.external.model.DefaultModuleComponentIdentifier
+import org.gradle.internal.component.model.ComponentGraphResolveState
+import org.gradle.internal.component.model.ComponentGraphSpecificResolveState
+import org.gradle.internal.component.model.ComponentOverrideMetadata
+import org.gradle.internal.component.model.DependencyMetadata
+import org.gradle.internal.component.model.GraphSelectionCandidates
+import org.gradle.internal.component.model.VariantGraphResolveMetadata
+import org.gradle.internal.component.model.VariantGraphResolveState
+import org.gradle.internal.concurrent.DefaultExecutorFactory
+import org.gradle.internal.operations.TestBuildOperationRunner
+import org.gradle.internal.resolve.resolver.ComponentMetaDataResolver
+import org.gradle.internal.resolve.result.BuildableComponentResolveResult
+import spock.lang.Specification
+
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.atomic.AtomicInteger
+
+import static org.gradle.internal.component.external.model.DefaultModuleComponentSelector.newSelector
+
+class MetadataPrefetcherTest extends Specification {
+    def executorFactory = new DefaultExecutorFactory()
+    def buildOperationRunner = new TestBuildOperationRunner()
+    def versionSelectorScheme = new DefaultVersionSelectorScheme(new DefaultVersionComparator(), new VersionParser())
+    def repository = new SlowRepository(Stub(ComponentGraphSpecificResolveState))
+
+    def cleanup() {
+        executorFactory.stop()
+    }
+
+    def "loads the metadata of the targets of the visited dependencies in parallel"() {
+        def prefetcher = new MetadataPrefetcher(executorFactory, buildOperationRunner, true, 4, 100)
+        ["a", "b", "c", "d"].each { publish(it) }
+
+        when:
+        def prefetch = prefetcher.start(repository, versionSelectorScheme)
+        prefetch.visitDependencies(dependencies("a:1.0", "b:1.0"))
+        prefetch.visitDependencies(dependencies("b:1.0", "c:1.0", "d:1.0"))
+        prefetch.stop()
+
+        then:
+        repository.loaded.size() == 4
+        repository.loaded as Set == ids("a", "b", "c", "d")
+        repository.maxConcurrentLoads.get() > 1
+        buildOperationRunner.operations*.displayName as Set == ids("a", "b", "c", "d").collect { "Resolve ${it}".toString() } as Set
+    }
+
+    def "does not follow the dependencies of the loaded components"() {
+        def prefetcher = new MetadataPrefetcher(executorFactory, buildOperationRunner, true, 4, 100)
+        publish("a", "b:1.0")
+        publish("b")
+
+        when:
+        def prefetch = prefetcher.start(repository, versionSelectorScheme)
+        prefetch.visitDependencies(dependencies("a:1.0"))
+        prefetch.stop()
+
+        then:
+        repository.loaded == [id("a")]
+    }
+
+    def "does not follow dependencies without an exact version"() {
+        def prefetcher = new MetadataPrefetcher(executorFactory, buildOperationRunner, true, 4, 100)
+        publish("e")
+
+        when:
+        def prefetch = prefetcher.start(repository, versionSelectorScheme)
+        prefetch.visitDependencies(dependencies("b:1.+", "c:[1.0,2.0)", "d:latest.release", "e:1.0"))
+        prefetch.visitDependencies([dependency("g:1.0", true)])
+        prefetch.stop()
+
+        then:
+        repository.loaded == [id("e")]
+    }
+
+    def "ignores components that cannot be loaded"() {
+        def prefetcher = new MetadataPrefetcher(executorFactory, buildOperationRunner, true, 4, 100)
+        publish("b")
+
+        when:
+        def prefetch = prefetcher.start(repository, versionSelectorScheme)
+        prefetch.visitDependencies(dependencies("missing:1.0", "b:1.0"))
+        prefetch.stop()
+
+        then:
+        repository.loaded as Set == ids("b", "missing")
+    }
+
+    def "does not schedule more than the maximum number of components"() {
+        def prefetcher = new MetadataPrefetcher(executorFactory, buildOperationRunner, true, 4, 3)
+        ["b", "c", "d", "e"].each { publish(it) }
+
+        when:
+        def prefetch = prefetcher.start(repository, versionSelectorScheme)
+        prefetch.visitDependencies(dependencies("b:1.0", "c:1.0", "d:1.0", "e:1.0"))
+        prefetch.stop()
+
+        then:
+        prefetch.submitted.size() == 3
+        repository.loaded.size() == 3
+    }
+
+    def "stopping waits for the loads in progress and skips the others"() {
+        def prefetcher = new MetadataPrefetcher(executorFactory, buildOperationRunner, true, 1, 100)
+        ["a", "b", "c"].each { publish(it) }
+
+        when:
+        def prefetch = prefetcher.start(repository, versionSelectorScheme)
+        prefetch.visitDependencies(dependencies("a:1.0", "b:1.0", "c:1.0"))
+        repository.firstLoadStarted.await()
+        prefetch.stop()
+        def loadedWhenStopped = repository.loaded.toList()
+        prefetcher.stop()
+
+        then:
+        repository.concurrentLoads.get() == 0
+        loadedWhenStopped == [id("a")]
+        repository.loaded == [id("a")]
+    }
+
+    private void publish(String name, String... dependencyNotations) {
+        def variantDependencies = dependencies(dependencyNotations)
+        def metadata = Stub(VariantGraphResolveMetadata) {
+            getDependencies() >> variantDependencies
+        }
+        def variant = Stub(VariantGraphResolveState) {
+            getMetadata() >> metadata
+        }
+        def candidates = Stub(GraphSelectionCandidates) {
+            getVariantsForAttributeMatching() >> []
+            getLegacyVariant() >> variant
+        }
+        repository.components[id(name)] = Stub(ComponentGraphResolveState) {
+            getCandidatesForGraphVariantSelection() >> candidates
+        }
+    }
+
+    private List<DependencyMetadata> dependencies(String... notations) {
+        notations.collect { dependency(it) }
+    }
+
+    private DependencyMetadata dependency(String notation, boolean changing = false) {
+        def (name, version) = notation.split(":")
+        def selector = newSelector(DefaultModuleIdentifier.newId("org", name), new DefaultMutableVersionConstraint(version))
+        return Stub(DependencyMetadata) {
+            getSelector() >> selector
+            getArtifacts() >> []
+            isChanging() >> changing
+        }
+    }
+
+    private static ModuleComponentIdentifier id(String name) {
+        DefaultModuleComponentIdentifier.newId(DefaultModuleIdentifier.newId("org", name), "1.0")
+    }
+
+    private static Set<ModuleComponentIdentifier> ids(String... names) {
+        names.collect { id(it) } as Set
+    }
+
+    /**
+     * Stands in for a remote Maven repository, taking a while to load the metadata of each component.
+     */
+    private static class SlowRepository implements ComponentMetaDataResolver {
+        final ComponentGraphSpecificResolveState graphState
+        final Map<ComponentIdentifier, ComponentGraphResolveState> components = new ConcurrentHashMap<>()
+        final List<ComponentIdentifier> loaded = new CopyOnWriteArrayList<>()
+        final AtomicInteger concurrentLoads = new AtomicInteger()
+        final AtomicInteger maxConcurrentLoads = new AtomicInteger()
+        final CountDownLatch firstLoadStarted = new CountDownLatch(1)
+
+        SlowRepository(ComponentGraphSpecificResolveState graphState) {
+            this.graphState = graphState
+        }
+
+        @Override
+        void resolve(ComponentIdentifier identifier, ComponentOverrideMetadata componentOverrideMetadata, BuildableComponentResolveResult result) {
+            def current = concurrentLoads.incrementAndGet()
+            maxConcurrentLoads.accumulateAndGet(current) { a, b -> Math.max(a, b) }
+            firstLoadStarted.countDown()
+            try {
+                Thread.sleep(100)
+                loaded << identifier
+            } finally {
+                concurrentLoads.decrementAndGet()
+            }
+            def component = components[identifier]
+            if (component == null) {
+                result.notFound((ModuleComponentIdentifier) identifier)
+            } else {
+                result.resolved(component, graphState)
+            }
+        }
+
+        @Override
+        boolean isFetchingMetadataCheap(ComponentIdentifier identifier) {
+            return false
+        }
+    }
+}
@@ -44,6 +44,10 @@ public void stopRedirecting() {
         redirector.stop();
     }
 
+    /**
+     * Sets the test that owns the output written by the current thread from now on, and by any thread that has not started a test itself.
+     * This way, the output of test classes running concurrently on several threads is attributed to the test running on the thread writing it.
+     */
     public void setOutputOwner(Object testId) {
         assert testId != null;
         if (System.out != null) {
@@ -52,22 +56,33 @@ public void setOutputOwner(Object testId) {
         if (System.err != null) {
             System.err.flush();
         }
-        outForwarder.outputOwner = testId;
-        errForwarder.outputOwner = testId;
+        outForwarder.setOutputOwner(testId);
+        errForwarder.setOutputOwner(testId);
     }
 
     static class Forwarder implements StandardOutputRedirector.OutputListener {
         final TestResultProcessor processor;
         final TestOutputEvent.Destination dest;
-        Object outputOwner;
+        volatile Object outputOwner;
+        @SuppressWarnings("ThreadLocalUsage")
+        final ThreadLocal<Object> threadOutputOwner = new ThreadLocal<Object>();
 
         public Forwarder(TestResultProcessor processor, TestOutputEvent.Destination dest) {
             this.processor = processor;
             this.dest = dest;
         }
 
+        void setOutputOwner(Object testId) {
+            outputOwner = testId;
+            threadOutputOwner.set(testId);
+        }
+
         @Override
         public void onOutput(CharSequence output) {
+            Object outputOwner = threadOutputOwner.get();
+            if (outputOwner == null) {
+                outputOwner = this.outputOwner;
+            }
             if (outputOwner == null) {
                 throw new RuntimeException("Unable send output event from test executor. Please report this problem. Destination: " + dest + ", event: " + output.toString());
             }
@@ -78,4 +78,25 @@ class TestOutputRedirectorTest extends Specification {
         })
         0 * _
     }
+
+    def "attributes output to the test owned by the writing thread"() {
+        def f = new TestOutputRedirector.Forwarder(processor, TestOutputEvent.Destination.StdOut)
+        def otherThread = new Thread({
+            f.setOutputOwner("2")
+            f.onOutput("from 2")
+        })
+
+        when:
+        f.setOutputOwner("1")
+        otherThread.start()
+        otherThread.join()
+        f.onOutput("from 1")
+        new Thread({ f.onOutput("from unknown thread") }).with { start(); join() }
+
+        then:
+        1 * processor.output("2", { it.message == "from 2" })
+        1 * processor.output("1", { it.message == "from 1" })
+        1 * processor.output("2", { it.message == "from unknown thread" })
+        0 * _
+    }
 }
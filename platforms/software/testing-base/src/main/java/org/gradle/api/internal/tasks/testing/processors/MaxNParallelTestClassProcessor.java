@@ -25,30 +25,70 @@
 import org.gradle.internal.actor.ActorFactory;
 import org.gradle.internal.concurrent.CompositeStoppable;
 import org.gradle.internal.dispatch.DispatchException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Manages a set of parallel TestClassProcessors. Uses a simple round-robin algorithm to assign test classes to
  * processors.
+ *
+ * <p>When the durations of the test classes in a previous run are known, the test classes are instead collected in batches
+ * of a few test classes per processor. Each batch is assigned to the processors longest first, each test class to the processor
+ * with the smallest total duration so far, as soon as it is full, so the processors start while test classes are still being
+ * detected. Test classes that did not run before are assumed to take the average duration. Each processor receives the
+ * test classes of a batch in the order they were detected, and the utilization of each processor is logged at the end.</p>
  */
 public class MaxNParallelTestClassProcessor implements TestClassProcessor {
+    private static final Logger LOGGER = LoggerFactory.getLogger(MaxNParallelTestClassProcessor.class);
+    private static final int BATCH_SIZE_PER_PROCESSOR = 8;
+
     private final int maxProcessors;
     private final Factory<TestClassProcessor> factory;
     private final ActorFactory actorFactory;
+    private final Map<String, Long> previousTestClassDurations;
+    private final long averageDuration;
     private TestResultProcessor resultProcessor;
     private int pos;
     private List<TestClassProcessor> processors = new ArrayList<TestClassProcessor>();
     private List<TestClassProcessor> rawProcessors = new ArrayList<TestClassProcessor>();
     private List<Actor> actors = new ArrayList<Actor>();
+    private List<TestClassRunInfo> pendingTestClasses = new ArrayList<TestClassRunInfo>();
+    private List<UtilizationTrackingTestClassProcessor> trackedProcessors = new ArrayList<UtilizationTrackingTestClassProcessor>();
     private Actor resultProcessorActor;
     private volatile boolean stoppedNow;
 
     public MaxNParallelTestClassProcessor(int maxProcessors, Factory<TestClassProcessor> factory, ActorFactory actorFactory) {
+        this(maxProcessors, factory, actorFactory, Collections.<String, Long>emptyMap());
+    }
+
+    /**
+     * @param previousTestClassDurations the duration in milliseconds of each test class in a previous run. When empty, test classes are assigned round-robin.
+     */
+    public MaxNParallelTestClassProcessor(int maxProcessors, Factory<TestClassProcessor> factory, ActorFactory actorFactory, Map<String, Long> previousTestClassDurations) {
         this.maxProcessors = maxProcessors;
         this.factory = factory;
         this.actorFactory = actorFactory;
+        this.previousTestClassDurations = previousTestClassDurations;
+        this.averageDuration = average(previousTestClassDurations.values());
+    }
+
+    private static long average(Collection<Long> durations) {
+        if (durations.isEmpty()) {
+            return 0;
+        }
+        long total = 0;
+        for (Long duration : durations) {
+            total += duration;
+        }
+        return total / durations.size();
     }
 
     @Override
@@ -64,15 +104,17 @@ public void processTestClass(TestClassRunInfo testClass) {
             return;
         }
 
+        if (!previousTestClassDurations.isEmpty()) {
+            pendingTestClasses.add(testClass);
+            if (pendingTestClasses.size() >= maxProcessors * BATCH_SIZE_PER_PROCESSOR) {
+                processPendingTestClassesByDuration();
+            }
+            return;
+        }
+
         TestClassProcessor processor;
         if (processors.size() < maxProcessors) {
-            processor = factory.create();
-            rawProcessors.add(processor);
-            Actor actor = actorFactory.createActor(processor);
-            processor = actor.getProxy(TestClassProcessor.class);
-            actors.add(actor);
-            processors.add(processor);
-            processor.startProcessing(resultProcessor);
+            processor = startProcessor(factory.create());
         } else {
             processor = processors.get(pos);
             pos = (pos + 1) % processors.size();
@@ -80,13 +122,108 @@ public void processTestClass(TestClassRunInfo testClass) {
         processor.processTestClass(testClass);
     }
 
+    private TestClassProcessor startProcessor(TestClassProcessor processor) {
+        rawProcessors.add(processor);
+        Actor actor = actorFactory.createActor(processor);
+        TestClassProcessor asyncProcessor = actor.getProxy(TestClassProcessor.class);
+        actors.add(actor);
+        processors.add(asyncProcessor);
+        asyncProcessor.startProcessing(resultProcessor);
+        return asyncProcessor;
+    }
+
+    private void processPendingTestClassesByDuration() {
+        List<TestClassRunInfo> testClasses = pendingTestClasses;
+        pendingTestClasses = new ArrayList<TestClassRunInfo>();
+        if (testClasses.isEmpty() || stoppedNow) {
+            return;
+        }
+
+        final long[] estimates = new long[testClasses.size()];
+        List<Integer> longestFirst = new ArrayList<Integer>(testClasses.size());
+        for (int i = 0; i < testClasses.size(); i++) {
+            Long duration = previousTestClassDurations.get(testClasses.get(i).getTestClassName());
+            estimates[i] = duration == null ? averageDuration : duration;
+            longestFirst.add(i);
+        }
+        // A stable sort, so test classes with the same duration keep their order
+        Collections.sort(longestFirst, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer left, Integer right) {
+                return Long.compare(estimates[right], estimates[left]);
+            }
+        });
+
+        int[] targets = new int[testClasses.size()];
+        for (Integer testClass : longestFirst) {
+            int target = leastLoadedProcessor();
+            if (target == trackedProcessors.size()) {
+                UtilizationTrackingTestClassProcessor tracked = new UtilizationTrackingTestClassProcessor(factory.create());
+                trackedProcessors.add(tracked);
+                startProcessor(tracked);
+            }
+            UtilizationTrackingTestClassProcessor tracked = trackedProcessors.get(target);
+            tracked.testClassCount++;
+            tracked.estimatedMillis += estimates[testClass];
+            targets[testClass] = target;
+        }
+
+        for (int i = 0; i < testClasses.size(); i++) {
+            processors.get(targets[i]).processTestClass(testClasses.get(i));
+        }
+    }
+
+    /**
+     * Returns the index of the processor with the smallest total duration so far, or the number of processors when a new processor should be started.
+     */
+    private int leastLoadedProcessor() {
+        int target = trackedProcessors.size();
+        long targetLoad = 0;
+        int targetCount = 0;
+        if (target == maxProcessors) {
+            target = 0;
+            targetLoad = trackedProcessors.get(0).estimatedMillis;
+            targetCount = trackedProcessors.get(0).testClassCount;
+        }
+        for (int i = 0; i < trackedProcessors.size(); i++) {
+            UtilizationTrackingTestClassProcessor processor = trackedProcessors.get(i);
+            if (processor.estimatedMillis < targetLoad || (processor.estimatedMillis == targetLoad && processor.testClassCount < targetCount)) {
+                target = i;
+                targetLoad = processor.estimatedMillis;
+                targetCount = processor.testClassCount;
+            }
+        }
+        return target;
+    }
+
     @Override
     public void stop() {
+        processPendingTestClassesByDuration();
         try {
             CompositeStoppable.stoppable(processors).add(actors).add(resultProcessorActor).stop();
         } catch (DispatchException e) {
             throw UncheckedException.throwAsUncheckedException(e.getCause());
         }
+        reportUtilization();
+    }
+
+    private void reportUtilization() {
+        if (trackedProcessors.isEmpty() || !LOGGER.isInfoEnabled()) {
+            return;
+        }
+        long start = Long.MAX_VALUE;
+        long end = Long.MIN_VALUE;
+        for (UtilizationTrackingTestClassProcessor processor : trackedProcessors) {
+            start = Math.min(start, processor.startNanos);
+            end = Math.max(end, processor.endNanos);
+        }
+        long wallTime = Math.max(1, TimeUnit.NANOSECONDS.toMillis(end - start));
+        for (int i = 0; i < trackedProcessors.size(); i++) {
+            UtilizationTrackingTestClassProcessor processor = trackedProcessors.get(i);
+            long busyTime = TimeUnit.NANOSECONDS.toMillis(processor.endNanos - processor.startNanos);
+            LOGGER.info("Test fork {} ran {} test classes, estimated at {}ms, busy for {}ms ({}% of {}ms).",
+                i + 1, processor.testClassCount, processor.estimatedMillis, busyTime, busyTime * 100 / wallTime, wallTime);
+        }
     }
 
     @Override
@@ -96,4 +233,46 @@ public void stopNow() {
             processor.stopNow();
         }
     }
+
+    /**
+     * Records when a processor started and finished processing its test classes. The start and end are recorded from the thread of the processor's actor,
+     * the assigned test classes from the thread that dispatches them.
+     */
+    private static class UtilizationTrackingTestClassProcessor implements TestClassProcessor {
+        private final TestClassProcessor delegate;
+        private int testClassCount;
+        private long estimatedMillis;
+        private volatile long startNanos;
+        private volatile long endNanos;
+
+        UtilizationTrackingTestClassProcessor(TestClassProcessor delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void startProcessing(TestResultProcessor resultProcessor) {
+            startNanos = System.nanoTime();
+            endNanos = startNanos;
+            delegate.startProcessing(resultProcessor);
+        }
+
+        @Override
+        public void processTestClass(TestClassRunInfo testClass) {
+            delegate.processTestClass(testClass);
+        }
+
+        @Override
+        public void stop() {
+            try {
+                delegate.stop();
+            } finally {
+                endNanos = System.nanoTime();
+            }
+        }
+
+        @Override
+        public void stopNow() {
+            delegate.stopNow();
+        }
+    }
 }
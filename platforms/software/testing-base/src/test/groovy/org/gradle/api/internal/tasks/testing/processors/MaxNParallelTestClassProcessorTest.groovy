@@ -202,4 +202,134 @@ class MaxNParallelTestClassProcessorTest extends Specification {
         1 * processor1.stopNow()
         1 * processor2.stopNow()
     }
+
+    def "assigns test classes to processors by previous duration when durations are known"() {
+        def durations = [slow1: 100L, slow2: 90L, medium: 50L, fast1: 10L, fast2: 10L, fast3: 10L]
+        def processor = new MaxNParallelTestClassProcessor(2, factory, actorFactory, durations)
+        TestClassProcessor processor1 = Mock()
+        TestClassProcessor processor2 = Mock()
+        TestClassProcessor asyncProcessor1 = Mock()
+        TestClassProcessor asyncProcessor2 = Mock()
+        Actor actor1 = Mock()
+        Actor actor2 = Mock()
+        def tests = ["fast1", "slow1", "fast2", "medium", "unknown", "slow2", "fast3"].collectEntries { [it, testClass(it)] }
+
+        1 * actorFactory.createActor(resultProcessor) >> resultProcessorActor
+        1 * resultProcessorActor.getProxy(TestResultProcessor) >> asyncResultProcessor
+        processor.startProcessing(resultProcessor)
+
+        when:
+        tests.values().each { processor.processTestClass(it) }
+
+        then:
+        0 * factory.create()
+
+        when:
+        processor.stop()
+
+        then:
+        2 * factory.create() >>> [processor1, processor2]
+        1 * actorFactory.createActor({ it.delegate == processor1 }) >> actor1
+        1 * actorFactory.createActor({ it.delegate == processor2 }) >> actor2
+        1 * actor1.getProxy(TestClassProcessor) >> asyncProcessor1
+        1 * actor2.getProxy(TestClassProcessor) >> asyncProcessor2
+        1 * asyncProcessor1.startProcessing(asyncResultProcessor)
+        1 * asyncProcessor1.processTestClass(tests.slow1)
+        1 * asyncProcessor1.processTestClass(tests.fast2)
+        1 * asyncProcessor1.processTestClass(tests.unknown)
+        1 * asyncProcessor2.startProcessing(asyncResultProcessor)
+        1 * asyncProcessor2.processTestClass(tests.fast1)
+        1 * asyncProcessor2.processTestClass(tests.medium)
+        1 * asyncProcessor2.processTestClass(tests.slow2)
+        1 * asyncProcessor2.processTestClass(tests.fast3)
+        0 * asyncProcessor1.processTestClass(_)
+        0 * asyncProcessor2.processTestClass(_)
+
+        then:
+        1 * asyncProcessor1.stop()
+        1 * asyncProcessor2.stop()
+        1 * resultProcessorActor.stop()
+    }
+
+    def "does not start more processors than there are test classes when distributing by duration"() {
+        def processor = new MaxNParallelTestClassProcessor(4, factory, actorFactory, [a: 10L])
+        TestClassProcessor processor1 = Mock()
+        TestClassProcessor asyncProcessor1 = Mock()
+        Actor actor1 = Mock()
+        def test = testClass("a")
+
+        1 * actorFactory.createActor(resultProcessor) >> resultProcessorActor
+        1 * resultProcessorActor.getProxy(TestResultProcessor) >> asyncResultProcessor
+        processor.startProcessing(resultProcessor)
+
+        when:
+        processor.processTestClass(test)
+        processor.stop()
+
+        then:
+        1 * factory.create() >> processor1
+        1 * actorFactory.createActor(_) >> actor1
+        1 * actor1.getProxy(TestClassProcessor) >> asyncProcessor1
+        1 * asyncProcessor1.processTestClass(test)
+        1 * asyncProcessor1.stop()
+    }
+
+    def "assigns each batch of test classes by duration before detection has finished"() {
+        def durations = (1..9).collectEntries { ["test$it".toString(), 10L * it] }
+        def processor = new MaxNParallelTestClassProcessor(1, factory, actorFactory, durations)
+        TestClassProcessor processor1 = Mock()
+        TestClassProcessor asyncProcessor1 = Mock()
+        Actor actor1 = Mock()
+        def tests = (1..9).collect { testClass("test$it") }
+
+        1 * actorFactory.createActor(resultProcessor) >> resultProcessorActor
+        1 * resultProcessorActor.getProxy(TestResultProcessor) >> asyncResultProcessor
+        processor.startProcessing(resultProcessor)
+
+        when:
+        tests.take(8).each { processor.processTestClass(it) }
+
+        then:
+        1 * factory.create() >> processor1
+        1 * actorFactory.createActor({ it.delegate == processor1 }) >> actor1
+        1 * actor1.getProxy(TestClassProcessor) >> asyncProcessor1
+        1 * asyncProcessor1.startProcessing(asyncResultProcessor)
+        tests.take(8).each { 1 * asyncProcessor1.processTestClass(it) }
+        0 * asyncProcessor1._
+
+        when:
+        processor.processTestClass(tests[8])
+        processor.stop()
+
+        then:
+        0 * factory.create()
+        1 * asyncProcessor1.processTestClass(tests[8])
+
+        then:
+        1 * asyncProcessor1.stop()
+        1 * resultProcessorActor.stop()
+    }
+
+    def "does not start processors after stopNow when distributing by duration"() {
+        def processor = new MaxNParallelTestClassProcessor(2, factory, actorFactory, [a: 10L])
+
+        1 * actorFactory.createActor(resultProcessor) >> resultProcessorActor
+        1 * resultProcessorActor.getProxy(TestResultProcessor) >> asyncResultProcessor
+        processor.startProcessing(resultProcessor)
+
+        when:
+        processor.processTestClass(testClass("a"))
+        processor.stopNow()
+        processor.stop()
+
+        then:
+        0 * factory.create()
+        1 * resultProcessorActor.stop()
+    }
+
+    private TestClassRunInfo testClass(String name) {
+        return Stub(TestClassRunInfo) {
+            getTestClassName() >> name
+        }
+    }
 }
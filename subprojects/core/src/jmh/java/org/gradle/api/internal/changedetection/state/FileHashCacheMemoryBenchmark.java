@@ -0,0 +1,144 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection.state;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.gradle.api.internal.cache.StringInterner;
+import org.gradle.api.internal.changedetection.state.CachingFileHasher.FileInfo;
+import org.gradle.internal.hash.HashCode;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.Random;
+
+/**
+ * Measures the heap retained by the in-memory file hashes of {@link CachingFileHasher}.
+ * In the default mode, they are kept as objects in a Guava cache of 400,000 entries like the in-memory cache of the persistent cache.
+ * In the compact mode, they are kept in a {@link CompactFileInfoStore}, and the in-memory cache only keeps the last 1,000 entries.
+ * Both modes keep all files up to 400,000 files.
+ *
+ * The retained heap per file is reported as the {@code retainedBytesPerFile} secondary result.
+ */
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@BenchmarkMode(Mode.SingleShotTime)
+@State(Scope.Benchmark)
+public class FileHashCacheMemoryBenchmark {
+    private static final int FILES_PER_DIRECTORY = 100;
+    private static final int DIRECTORIES_PER_MODULE = 100;
+
+    @Param({"100000", "400000"})
+    int fileCount;
+
+    @Param({"default", "compact"})
+    String mode;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class RetainedHeap {
+        public long retainedBytesPerFile;
+    }
+
+    @Benchmark
+    public Object storeFileHashes(RetainedHeap retainedHeap) {
+        long heapBefore = usedHeapAfterGc();
+        Object fileHashes = "compact".equals(mode) ? storeCompact() : storeDefault();
+        retainedHeap.retainedBytesPerFile = (usedHeapAfterGc() - heapBefore) / fileCount;
+        return fileHashes;
+    }
+
+    private Object storeDefault() {
+        StringInterner interner = new StringInterner();
+        Cache<String, FileInfo> cache = CacheBuilder.newBuilder().maximumSize(400_000).build();
+        Random random = new Random(1234L);
+        for (int file = 0; file < fileCount; file++) {
+            cache.put(interner.intern(path(file)), fileInfo(random));
+        }
+        return cache;
+    }
+
+    private Object storeCompact() {
+        CompactFileInfoStore compactStore = new CompactFileInfoStore(4_000_000, new StringInterner());
+        Cache<String, FileInfo> cache = CacheBuilder.newBuilder().maximumSize(1_000).build();
+        Random random = new Random(1234L);
+        for (int file = 0; file < fileCount; file++) {
+            String path = path(file);
+            HashCode hash = hash(random);
+            long length = length(random);
+            long timestamp = timestamp(random);
+            compactStore.put(path, hash, length, timestamp);
+            cache.put(path, new FileInfo(hash, length, timestamp));
+        }
+        return new Object[] {compactStore, cache};
+    }
+
+    /**
+     * Returns the path of a source file of a workspace with modules of 100 packages of 100 files each.
+     */
+    private static String path(int file) {
+        int directory = file / FILES_PER_DIRECTORY;
+        int module = directory / DIRECTORIES_PER_MODULE;
+        char separator = File.separatorChar;
+        return new StringBuilder()
+            .append(separator).append("home").append(separator).append("user").append(separator).append("workspace")
+            .append(separator).append("module-").append(module)
+            .append(separator).append("src").append(separator).append("main").append(separator).append("java")
+            .append(separator).append("org").append(separator).append("example").append(separator).append("module").append(module)
+            .append(separator).append("package").append(directory % DIRECTORIES_PER_MODULE)
+            .append(separator).append("SourceFile").append(file % FILES_PER_DIRECTORY).append(".java")
+            .toString();
+    }
+
+    private static FileInfo fileInfo(Random random) {
+        return new FileInfo(hash(random), length(random), timestamp(random));
+    }
+
+    private static HashCode hash(Random random) {
+        byte[] hash = new byte[16];
+        random.nextBytes(hash);
+        return HashCode.fromBytes(hash);
+    }
+
+    private static long length(Random random) {
+        return random.nextInt(100_000);
+    }
+
+    private static long timestamp(Random random) {
+        return 1_700_000_000_000L + random.nextInt();
+    }
+
+    private static long usedHeapAfterGc() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+}
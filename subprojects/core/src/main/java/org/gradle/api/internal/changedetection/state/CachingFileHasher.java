@@ -30,10 +30,18 @@
 import org.gradle.internal.serialize.HashCodeSerializer;
 import org.gradle.internal.serialize.InterningStringSerializer;
 
+import javax.annotation.Nullable;
 import java.io.File;
 
 public class CachingFileHasher implements FileHasher {
+    /**
+     * The number of entries of the persistent cache to keep in memory as objects when using a {@link CompactFileInfoStore}.
+     */
+    private static final int IN_MEMORY_SIZE_WITH_COMPACT_STORE = 1000;
+
     private final IndexedCache<String, FileInfo> cache;
+    @Nullable
+    private final CompactFileInfoStore compactStore;
     private final FileHasher delegate;
     private final FileSystem fileSystem;
     private final StringInterner stringInterner;
@@ -49,13 +57,33 @@ public CachingFileHasher(
         FileSystem fileSystem,
         int inMemorySize,
         FileHasherStatistics.Collector statisticsCollector
+    ) {
+        this(delegate, store, stringInterner, timestampInspector, cacheName, fileSystem, inMemorySize, statisticsCollector, 0);
+    }
+
+    /**
+     * @param compactStoreSize the number of files and directories to keep in memory in a {@link CompactFileInfoStore}
+     * instead of as objects in the in-memory cache, or {@code 0} to not use a compact store.
+     * With a compact store, the in-memory cache only keeps {@value #IN_MEMORY_SIZE_WITH_COMPACT_STORE} entries.
+     */
+    public CachingFileHasher(
+        FileHasher delegate,
+        CrossBuildFileHashCache store,
+        StringInterner stringInterner,
+        FileTimeStampInspector timestampInspector,
+        String cacheName,
+        FileSystem fileSystem,
+        int inMemorySize,
+        FileHasherStatistics.Collector statisticsCollector,
+        int compactStoreSize
     ) {
         this.delegate = delegate;
         this.fileSystem = fileSystem;
         this.cache = store.createIndexedCache(
             IndexedCacheParameters.of(cacheName, new InterningStringSerializer(stringInterner), new FileInfoSerializer()),
-            inMemorySize,
+            compactStoreSize > 0 ? IN_MEMORY_SIZE_WITH_COMPACT_STORE : inMemorySize,
             true);
+        this.compactStore = compactStoreSize > 0 ? new CompactFileInfoStore(compactStoreSize, stringInterner) : null;
         this.stringInterner = stringInterner;
         this.timestampInspector = timestampInspector;
         this.statisticsCollector = statisticsCollector;
@@ -68,37 +96,53 @@ public String toString() {
 
     @Override
     public HashCode hash(File file) {
-        return snapshot(file).getHash();
+        FileMetadata fileMetadata = fileSystem.stat(file);
+        return hash(file, fileMetadata.getLength(), fileMetadata.getLastModified());
     }
 
     @Override
     public HashCode hash(File file, long length, long lastModified) {
-        return snapshot(file, length, lastModified).getHash();
-    }
-
-    private FileInfo snapshot(File file) {
-        FileMetadata fileMetadata = fileSystem.stat(file);
-        return snapshot(file, fileMetadata.getLength(), fileMetadata.getLastModified());
-    }
-
-    private FileInfo snapshot(File file, long length, long timestamp) {
         String absolutePath = file.getAbsolutePath();
-        if (timestampInspector.timestampCanBeUsedToDetectFileChange(absolutePath, timestamp)) {
-            FileInfo info = cache.getIfPresent(absolutePath);
-
-            if (info != null && length == info.length && timestamp == info.timestamp) {
-                return info;
+        if (timestampInspector.timestampCanBeUsedToDetectFileChange(absolutePath, lastModified)) {
+            HashCode hash = getIfUnchanged(absolutePath, length, lastModified);
+            if (hash != null) {
+                return hash;
             }
         }
 
         HashCode hash = delegate.hash(file);
-        FileInfo info = new FileInfo(hash, length, timestamp);
-        cache.put(stringInterner.intern(absolutePath), info);
+        if (compactStore != null) {
+            compactStore.put(absolutePath, hash, length, lastModified);
+            cache.put(absolutePath, new FileInfo(hash, length, lastModified));
+        } else {
+            cache.put(stringInterner.intern(absolutePath), new FileInfo(hash, length, lastModified));
+        }
         statisticsCollector.reportFileHashed(length);
-        return info;
+        return hash;
+    }
+
+    @Nullable
+    private HashCode getIfUnchanged(String absolutePath, long length, long timestamp) {
+        if (compactStore != null) {
+            HashCode hash = compactStore.getHash(absolutePath, length, timestamp);
+            if (hash != null) {
+                return hash;
+            }
+        }
+        FileInfo info = cache.getIfPresent(absolutePath);
+        if (info == null || length != info.length || timestamp != info.timestamp) {
+            return null;
+        }
+        if (compactStore != null) {
+            compactStore.put(absolutePath, info.hash, length, timestamp);
+        }
+        return info.hash;
     }
 
     public void discard(String path) {
+        if (compactStore != null) {
+            compactStore.remove(path);
+        }
         cache.remove(path);
     }
 
@@ -0,0 +1,334 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection.state;
+
+import com.google.common.collect.Interner;
+import org.gradle.internal.hash.HashCode;
+
+import javax.annotation.Nullable;
+import java.io.File;
+import java.util.Arrays;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * A compact in-memory store for the hash, length and timestamp of files, keyed by absolute path.
+ *
+ * <p>
+ * Paths are stored as a trie of path segments, so the directories shared by the files of a workspace are stored only once.
+ * Each node of the trie is an index into flat arrays, which hold the parent and the segment of the node and,
+ * if a file has been stored at the node, its length and timestamp. The bytes of the hashes are copied into a single array per partition.
+ * So there are no objects per stored file, apart from its interned name. A hit creates a new {@link HashCode} from the stored bytes.
+ * </p>
+ *
+ * <p>
+ * The paths are spread over a number of partitions, each with its own trie and lock.
+ * When a partition would need more than its share of {@code maxNodes} nodes, only that partition is cleared,
+ * so a full store drops a small fraction of its entries at a time.
+ * All hashes of a partition have the same length. A partition is cleared when a hash with a different length is stored.
+ * </p>
+ */
+class CompactFileInfoStore {
+    private static final int MAX_PARTITIONS = 16;
+    private static final int MIN_NODES_PER_PARTITION = 1024;
+
+    private final Partition[] partitions;
+
+    public CompactFileInfoStore(int maxNodes, Interner<String> segmentInterner) {
+        int partitionCount = Integer.highestOneBit(Math.max(1, Math.min(MAX_PARTITIONS, maxNodes / MIN_NODES_PER_PARTITION)));
+        this.partitions = new Partition[partitionCount];
+        for (int i = 0; i < partitionCount; i++) {
+            partitions[i] = new Partition(maxNodes / partitionCount, segmentInterner);
+        }
+    }
+
+    /**
+     * Returns the stored hash of the file, if the file has been stored with the given length and timestamp.
+     */
+    @Nullable
+    public HashCode getHash(String absolutePath, long length, long timestamp) {
+        return partitionFor(absolutePath).getHash(absolutePath, length, timestamp);
+    }
+
+    public void put(String absolutePath, HashCode hash, long length, long timestamp) {
+        partitionFor(absolutePath).put(absolutePath, hash, length, timestamp);
+    }
+
+    public void remove(String absolutePath) {
+        partitionFor(absolutePath).remove(absolutePath);
+    }
+
+    /**
+     * Returns the number of files stored.
+     */
+    public int size() {
+        int size = 0;
+        for (Partition partition : partitions) {
+            size += partition.size();
+        }
+        return size;
+    }
+
+    /**
+     * Returns the number of nodes of the tries, that is the number of distinct files and directories seen in the stored paths of each partition.
+     */
+    public int getNodeCount() {
+        int nodeCount = 0;
+        for (Partition partition : partitions) {
+            nodeCount += partition.getNodeCount();
+        }
+        return nodeCount;
+    }
+
+    private Partition partitionFor(String absolutePath) {
+        int hash = absolutePath.hashCode();
+        return partitions[(hash ^ (hash >>> 16)) & (partitions.length - 1)];
+    }
+
+    private static class Partition {
+        private static final int INITIAL_CAPACITY = 1024;
+        private static final int NO_NODE = -1;
+        /**
+         * The length stored for nodes that hold no file, that is for directories and removed files.
+         */
+        private static final long NO_FILE = -1;
+
+        private final int maxNodes;
+        private final Interner<String> segmentInterner;
+        private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+        private int nodeCount;
+        private int[] parents;
+        private String[] segments;
+        private long[] lengths;
+        private long[] timestamps;
+        /**
+         * The number of bytes of each hash of the partition, 0 until a file has been stored.
+         */
+        private int hashLength;
+        /**
+         * The bytes of the hash of the file stored at each node, {@link #hashLength} bytes per node.
+         */
+        private byte[] hashes;
+        private int storedFileCount;
+        /**
+         * An open addressing hash table from parent and segment to node, holding {@code node + 1} and {@code 0} for empty slots.
+         */
+        private int[] index;
+
+        Partition(int maxNodes, Interner<String> segmentInterner) {
+            this.maxNodes = maxNodes;
+            this.segmentInterner = segmentInterner;
+            clear();
+        }
+
+        @Nullable
+        HashCode getHash(String absolutePath, long length, long timestamp) {
+            lock.readLock().lock();
+            try {
+                int node = findNode(absolutePath);
+                if (node == NO_NODE || lengths[node] == NO_FILE || lengths[node] != length || timestamps[node] != timestamp) {
+                    return null;
+                }
+                return HashCode.fromBytes(Arrays.copyOfRange(hashes, node * hashLength, (node + 1) * hashLength));
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        void put(String absolutePath, HashCode hash, long length, long timestamp) {
+            byte[] hashBytes = hash.toByteArray();
+            lock.writeLock().lock();
+            try {
+                if (hashBytes.length != hashLength) {
+                    hashLength = hashBytes.length;
+                    clear();
+                }
+                int node = findOrAddNode(absolutePath);
+                if (node == NO_NODE) {
+                    clear();
+                    node = findOrAddNode(absolutePath);
+                    if (node == NO_NODE) {
+                        return;
+                    }
+                }
+                if (lengths[node] == NO_FILE) {
+                    storedFileCount++;
+                }
+                System.arraycopy(hashBytes, 0, hashes, node * hashLength, hashLength);
+                lengths[node] = length;
+                timestamps[node] = timestamp;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        void remove(String absolutePath) {
+            lock.writeLock().lock();
+            try {
+                int node = findNode(absolutePath);
+                if (node != NO_NODE && lengths[node] != NO_FILE) {
+                    lengths[node] = NO_FILE;
+                    storedFileCount--;
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        int size() {
+            lock.readLock().lock();
+            try {
+                return storedFileCount;
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        int getNodeCount() {
+            lock.readLock().lock();
+            try {
+                return nodeCount;
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        private void clear() {
+            int capacity = Math.min(INITIAL_CAPACITY, Math.max(maxNodes, 1));
+            nodeCount = 0;
+            parents = new int[capacity];
+            segments = new String[capacity];
+            lengths = new long[capacity];
+            timestamps = new long[capacity];
+            hashes = new byte[capacity * hashLength];
+            storedFileCount = 0;
+            index = new int[tableSizeFor(capacity)];
+        }
+
+        /**
+         * Returns the node for the given path, or {@link #NO_NODE} if the path has no node.
+         */
+        private int findNode(String path) {
+            int node = NO_NODE;
+            int start = 0;
+            int length = path.length();
+            while (start <= length) {
+                int end = segmentEnd(path, start);
+                node = findChild(node, path, start, end);
+                if (node == NO_NODE) {
+                    return NO_NODE;
+                }
+                start = end + 1;
+            }
+            return node;
+        }
+
+        /**
+         * Returns the node for the given path, adding nodes as needed, or {@link #NO_NODE} if the partition is full.
+         */
+        private int findOrAddNode(String path) {
+            int node = NO_NODE;
+            int start = 0;
+            int length = path.length();
+            while (start <= length) {
+                int end = segmentEnd(path, start);
+                int child = findChild(node, path, start, end);
+                if (child == NO_NODE) {
+                    child = addChild(node, path, start, end);
+                    if (child == NO_NODE) {
+                        return NO_NODE;
+                    }
+                }
+                node = child;
+                start = end + 1;
+            }
+            return node;
+        }
+
+        private static int segmentEnd(String path, int start) {
+            int end = path.indexOf(File.separatorChar, start);
+            return end < 0 ? path.length() : end;
+        }
+
+        private int findChild(int parent, String path, int start, int end) {
+            int mask = index.length - 1;
+            for (int slot = hash(parent, path, start, end) & mask; index[slot] != 0; slot = (slot + 1) & mask) {
+                int candidate = index[slot] - 1;
+                String segment = segments[candidate];
+                if (parents[candidate] == parent && segment.length() == end - start && path.regionMatches(start, segment, 0, end - start)) {
+                    return candidate;
+                }
+            }
+            return NO_NODE;
+        }
+
+        private int addChild(int parent, String path, int start, int end) {
+            if (nodeCount == maxNodes) {
+                return NO_NODE;
+            }
+            if (nodeCount == parents.length) {
+                grow();
+            }
+            int node = nodeCount++;
+            parents[node] = parent;
+            segments[node] = segmentInterner.intern(path.substring(start, end));
+            lengths[node] = NO_FILE;
+            insertIntoIndex(node);
+            return node;
+        }
+
+        private void grow() {
+            int capacity = (int) Math.min((long) parents.length * 2, maxNodes);
+            parents = Arrays.copyOf(parents, capacity);
+            segments = Arrays.copyOf(segments, capacity);
+            lengths = Arrays.copyOf(lengths, capacity);
+            timestamps = Arrays.copyOf(timestamps, capacity);
+            hashes = Arrays.copyOf(hashes, capacity * hashLength);
+            index = new int[tableSizeFor(capacity)];
+            for (int node = 0; node < nodeCount; node++) {
+                insertIntoIndex(node);
+            }
+        }
+
+        private void insertIntoIndex(int node) {
+            String segment = segments[node];
+            int mask = index.length - 1;
+            int slot = hash(parents[node], segment, 0, segment.length()) & mask;
+            while (index[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            index[slot] = node + 1;
+        }
+
+        /**
+         * Returns a power of two table size that keeps the index at most half full.
+         */
+        private static int tableSizeFor(int capacity) {
+            return Integer.highestOneBit(Math.max(capacity, 1) * 2 - 1) << 1;
+        }
+
+        private static int hash(int parent, String path, int start, int end) {
+            int hash = parent;
+            for (int i = start; i < end; i++) {
+                hash = 31 * hash + path.charAt(i);
+            }
+            hash *= 0x9E3779B9;
+            return hash ^ (hash >>> 16);
+        }
+    }
+}
@@ -26,6 +26,7 @@
 
 import java.io.File;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
 
 /**
  * An implementation of {@link org.gradle.api.file.FileTreeElement FileTreeElement} meant
@@ -34,7 +35,7 @@
  * This implementation extracts the files from the archive to the supplied expansion directory.
  */
 public abstract class AbstractArchiveFileTreeElement extends AbstractFileTreeElement implements FileVisitDetails {
-    private final File expandedDir;
+    private final Supplier<File> expandedDir;
     private File file;
     private final AtomicBoolean stopFlag;
 
@@ -46,6 +47,17 @@ public abstract class AbstractArchiveFileTreeElement extends AbstractFileTreeEle
      * @param stopFlag the stop flag to use
      */
     protected AbstractArchiveFileTreeElement(Chmod chmod, File expandedDir, AtomicBoolean stopFlag) {
+        this(chmod, () -> expandedDir, stopFlag);
+    }
+
+    /**
+     * Creates a new instance that only determines the directory to extract the archived file to when the file is first requested.
+     *
+     * @param chmod the chmod instance to use
+     * @param expandedDir supplies the directory to extract the archived file to
+     * @param stopFlag the stop flag to use
+     */
+    protected AbstractArchiveFileTreeElement(Chmod chmod, Supplier<File> expandedDir, AtomicBoolean stopFlag) {
         super(chmod);
         this.expandedDir = expandedDir;
         this.stopFlag = stopFlag;
@@ -78,15 +90,24 @@ protected String safeEntryName() {
     @Override
     public File getFile() {
         if (file == null) {
-            file = new File(expandedDir, safeEntryName());
-            if (!file.exists()) {
-                GFileUtils.mkdirs(file.getParentFile());
-                copyTo(file);
-            }
+            File dir = expandedDir.get();
+            File expandedFile = new File(dir, safeEntryName());
+            expandTo(dir, expandedFile);
+            file = expandedFile;
         }
         return file;
     }
 
+    /**
+     * Extracts this element to the given file in the given expanded directory, unless the file already exists.
+     */
+    protected void expandTo(File expandedDir, File file) {
+        if (!file.exists()) {
+            GFileUtils.mkdirs(file.getParentFile());
+            copyTo(file);
+        }
+    }
+
     @Override
     public RelativePath getRelativePath() {
         return new RelativePath(!getArchiveEntry().isDirectory(), safeEntryName().split("/"));
@@ -46,4 +46,11 @@ public interface DecompressionCoordinator extends Closeable {
      * @param action The action to run while the cache is held for the given key
      */
     void exclusiveAccessTo(File expandedDir, Runnable action);
+
+    /**
+     * Whether archive trees visit their entries without exclusive access to the expanded directory, and only extract an entry, with exclusive access, when its file is requested.
+     */
+    default boolean isExtractOnDemand() {
+        return false;
+    }
 }
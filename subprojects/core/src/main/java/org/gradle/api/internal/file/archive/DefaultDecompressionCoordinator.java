@@ -17,34 +17,64 @@
 package org.gradle.api.internal.file.archive;
 
 import com.google.common.annotations.VisibleForTesting;
+import org.gradle.cache.CleanableStore;
+import org.gradle.cache.CleanupProgressMonitor;
+import org.gradle.cache.DefaultCacheCleanupStrategy;
 import org.gradle.cache.FileLockManager;
 import org.gradle.cache.PersistentCache;
+import org.gradle.cache.internal.LeastRecentlyUsedCacheCleanup;
 import org.gradle.cache.internal.ProducerGuard;
+import org.gradle.cache.internal.SingleDepthFilesFinder;
 import org.gradle.cache.scopes.ScopedCacheBuilderFactory;
+import org.gradle.internal.file.nio.ModificationTimeFileAccessTimeJournal;
 
 import java.io.File;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import static org.gradle.api.internal.cache.CacheConfigurationsInternal.DEFAULT_MAX_AGE_IN_DAYS_FOR_CREATED_CACHE_ENTRIES;
+import static org.gradle.internal.time.TimestampSuppliers.daysAgo;
 
 /**
  * The default implementation of {@link DecompressionCoordinator} that can be used to store decompressed data extracted from archive files like zip and tars.
  *
  * Will manage access to the cache, so that access to the archive's contents are only permitted to one client at a time.
+ *
+ * The modification time of an expanded directory is updated when it is first used by a coordinator. The cleanup of the cache removes the expanded directories
+ * next to the ones used by the coordinator that have not been used for {@value org.gradle.api.internal.cache.CacheConfigurationsInternal#DEFAULT_MAX_AGE_IN_DAYS_FOR_CREATED_CACHE_ENTRIES} days.
  */
 public class DefaultDecompressionCoordinator implements DecompressionCoordinator {
     private static final String EXPANSION_CACHE_KEY = "expanded";
     private static final String EXPANSION_CACHE_NAME = "Compressed Files Expansion Cache";
     private final PersistentCache cache;
     private final ProducerGuard<File> guard = ProducerGuard.adaptive();
+    private final Set<File> usedExpandedDirs = ConcurrentHashMap.newKeySet();
+    private final boolean extractOnDemand;
 
     public DefaultDecompressionCoordinator(ScopedCacheBuilderFactory cacheBuilderFactory) {
+        this(cacheBuilderFactory, false);
+    }
+
+    /**
+     * @param extractOnDemand whether archive trees only extract an entry when its file is requested, see {@link #isExtractOnDemand()}.
+     */
+    public DefaultDecompressionCoordinator(ScopedCacheBuilderFactory cacheBuilderFactory, boolean extractOnDemand) {
         this.cache = cacheBuilderFactory.createCacheBuilder(EXPANSION_CACHE_KEY)
                 .withDisplayName(EXPANSION_CACHE_NAME)
                 .withInitialLockMode(FileLockManager.LockMode.OnDemand)
+                .withCleanupStrategy(DefaultCacheCleanupStrategy.from(new UnusedExpandedDirsCleanup(usedExpandedDirs, daysAgo(DEFAULT_MAX_AGE_IN_DAYS_FOR_CREATED_CACHE_ENTRIES))))
                 .open();
+        this.extractOnDemand = extractOnDemand;
     }
 
     @VisibleForTesting
     public DefaultDecompressionCoordinator(PersistentCache cache) {
         this.cache = cache;
+        this.extractOnDemand = false;
     }
 
     @Override
@@ -55,13 +85,78 @@ public void exclusiveAccessTo(File expandedDir, Runnable action) {
             // guardByKey prevents multiple threads in this process from extracting into the same directory at the same time.
             guard.guardByKey(expandedDir, () -> {
                 action.run();
+                markUsed(expandedDir);
                 return null;
             });
         });
     }
 
+    private void markUsed(File expandedDir) {
+        // The modification time of an expanded directory records when it was last used
+        if (usedExpandedDirs.add(expandedDir) && expandedDir.isDirectory()) {
+            expandedDir.setLastModified(System.currentTimeMillis());
+        }
+    }
+
+    @Override
+    public boolean isExtractOnDemand() {
+        return extractOnDemand;
+    }
+
     @Override
     public void close() {
         cache.close();
     }
+
+    /**
+     * Removes the expanded directories that have not been used recently. The expanded directories are not stored in the directory of the cache,
+     * so this cleans the directories containing the expanded directories used by the coordinator. Those are never removed.
+     */
+    @VisibleForTesting
+    static class UnusedExpandedDirsCleanup extends LeastRecentlyUsedCacheCleanup {
+        private final Set<File> usedExpandedDirs;
+
+        UnusedExpandedDirsCleanup(Set<File> usedExpandedDirs, Supplier<Long> removeUnusedEntriesOlderThan) {
+            super(new SingleDepthFilesFinder(1), new ModificationTimeFileAccessTimeJournal(), removeUnusedEntriesOlderThan);
+            this.usedExpandedDirs = usedExpandedDirs;
+        }
+
+        @Override
+        public void clean(CleanableStore cleanableStore, CleanupProgressMonitor progressMonitor) {
+            Set<File> parentDirs = usedExpandedDirs.stream().map(File::getParentFile).collect(Collectors.toSet());
+            for (File parentDir : parentDirs) {
+                super.clean(new ExpandedDirs(parentDir, cleanableStore.getDisplayName()), progressMonitor);
+            }
+        }
+
+        @Override
+        protected boolean shouldDelete(File file) {
+            return !usedExpandedDirs.contains(file) && super.shouldDelete(file);
+        }
+    }
+
+    private static class ExpandedDirs implements CleanableStore {
+        private final File baseDir;
+        private final String displayName;
+
+        ExpandedDirs(File baseDir, String displayName) {
+            this.baseDir = baseDir;
+            this.displayName = displayName;
+        }
+
+        @Override
+        public File getBaseDir() {
+            return baseDir;
+        }
+
+        @Override
+        public Collection<File> getReservedCacheFiles() {
+            return Collections.emptySet();
+        }
+
+        @Override
+        public String getDisplayName() {
+            return displayName;
+        }
+    }
 }
@@ -0,0 +1,176 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.file.archive;
+
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.apache.commons.compress.archivers.zip.ZipMethod;
+import org.gradle.internal.concurrent.ParallelBatchExecutor;
+
+import javax.annotation.Nullable;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Deflates the entries of a ZIP concurrently and writes them to the archive in the order they were added.
+ *
+ * <p>
+ * The content of each entry is read by the thread adding it, and the entries are collected until they hold {@code maxPendingBytes} of content.
+ * Each batch is then deflated on the shared {@link ParallelBatchExecutor}, each entry into its own buffer, and the buffers are written to the archive
+ * as raw entries, in the same order as the entries were added, so the archive does not depend on how the work was scheduled.
+ * The thread adding entries takes part in deflating them, and all archives built concurrently share the threads of the executor.
+ * </p>
+ *
+ * <p>
+ * Larger entries are not accepted, and are written directly to the archive by the caller after {@link #flush()}.
+ * </p>
+ */
+class ParallelZipEntryWriter {
+    private final ZipArchiveOutputStream zipOutStr;
+    private final ParallelBatchExecutor executor;
+    private final int threads;
+    private final long maxPendingBytes;
+    private final List<PendingEntry> pending = new ArrayList<>();
+    private long pendingBytes;
+
+    ParallelZipEntryWriter(ZipArchiveOutputStream zipOutStr, ParallelBatchExecutor executor, int threads, long maxPendingBytes) {
+        this.zipOutStr = zipOutStr;
+        this.executor = executor;
+        this.threads = threads;
+        this.maxPendingBytes = maxPendingBytes;
+    }
+
+    /**
+     * Returns true if an entry of the given size is deflated concurrently, false if it must be written directly once {@link #flush()} returns.
+     */
+    boolean accepts(long size) {
+        return size <= maxPendingBytes;
+    }
+
+    /**
+     * Adds a file entry with the given content, to be deflated concurrently.
+     */
+    void addFile(ZipArchiveEntry entry, byte[] content) throws IOException {
+        if (pendingBytes + content.length > maxPendingBytes) {
+            flush();
+        }
+        pending.add(new PendingEntry(entry, content));
+        pendingBytes += content.length;
+    }
+
+    /**
+     * Adds a directory entry, to be written after the entries added before it.
+     */
+    void addDirectory(ZipArchiveEntry entry) {
+        pending.add(new PendingEntry(entry, null));
+    }
+
+    /**
+     * Deflates and writes all pending entries to the archive.
+     */
+    void flush() throws IOException {
+        executor.forEach(pending, threads, PendingEntry::deflate);
+        for (PendingEntry next : pending) {
+            write(next);
+        }
+        pending.clear();
+        pendingBytes = 0;
+    }
+
+    private void write(PendingEntry next) throws IOException {
+        ZipArchiveEntry entry = next.entry;
+        DeflatedContent content = next.deflated;
+        if (content == null) {
+            zipOutStr.putArchiveEntry(entry);
+            zipOutStr.closeArchiveEntry();
+            return;
+        }
+        entry.setMethod(ZipMethod.DEFLATED.getCode());
+        entry.setSize(content.size);
+        entry.setCompressedSize(content.length);
+        entry.setCrc(content.crc);
+        zipOutStr.addRawArchiveEntry(entry, new ByteArrayInputStream(content.bytes, 0, content.length));
+    }
+
+    private static DeflatedContent deflate(byte[] content) {
+        CRC32 crc = new CRC32();
+        crc.update(content, 0, content.length);
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        try {
+            deflater.setInput(content);
+            deflater.finish();
+            ExposedByteArrayOutputStream deflated = new ExposedByteArrayOutputStream(Math.max(64, content.length / 2));
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                int count = deflater.deflate(buffer);
+                deflated.write(buffer, 0, count);
+            }
+            return new DeflatedContent(deflated.buffer(), deflated.size(), content.length, crc.getValue());
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static class PendingEntry {
+        final ZipArchiveEntry entry;
+        // The content of a file entry until it is deflated, null for a directory entry
+        @Nullable
+        byte[] content;
+        @Nullable
+        DeflatedContent deflated;
+
+        PendingEntry(ZipArchiveEntry entry, @Nullable byte[] content) {
+            this.entry = entry;
+            this.content = content;
+        }
+
+        void deflate() {
+            if (content != null) {
+                deflated = ParallelZipEntryWriter.deflate(content);
+                content = null;
+            }
+        }
+    }
+
+    private static class DeflatedContent {
+        final byte[] bytes;
+        final int length;
+        final long size;
+        final long crc;
+
+        DeflatedContent(byte[] bytes, int length, long size, long crc) {
+            this.bytes = bytes;
+            this.length = length;
+            this.size = size;
+            this.crc = crc;
+        }
+    }
+
+    private static class ExposedByteArrayOutputStream extends ByteArrayOutputStream {
+        ExposedByteArrayOutputStream(int size) {
+            super(size);
+        }
+
+        byte[] buffer() {
+            return buf;
+        }
+    }
+}
@@ -31,7 +31,11 @@
 import org.gradle.api.tasks.WorkResults;
 import org.gradle.api.tasks.bundling.Zip;
 import org.gradle.internal.IoActions;
+import org.gradle.internal.buildoption.IntegerInternalOption;
+import org.gradle.internal.concurrent.ParallelBatchExecutor;
 
+import javax.annotation.Nullable;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.util.Calendar;
 import java.util.GregorianCalendar;
@@ -54,18 +58,38 @@ public class ZipCopyAction implements CopyAction {
      */
     public static final long CONSTANT_TIME_FOR_ZIP_ENTRIES = new GregorianCalendar(1980, Calendar.FEBRUARY, 1, 0, 0, 0).getTimeInMillis();
 
+    /**
+     * The number of threads used to deflate the entries of an archive, 1 to deflate them on the thread writing the archive.
+     * A value of 0 uses as many threads as the build has workers. The additional threads are those of the shared {@link ParallelBatchExecutor},
+     * so the archives built concurrently never use more threads than the build has workers in total.
+     */
+    public static final IntegerInternalOption DEFLATE_THREADS_OPTION = new IntegerInternalOption("org.gradle.internal.archives.deflate-threads", 1);
+
+    private static final long MAX_PENDING_BYTES = 64 * 1024 * 1024;
+
     private final File zipFile;
     private final ZipCompressor compressor;
     private final DocumentationRegistry documentationRegistry;
     private final String encoding;
     private final boolean preserveFileTimestamps;
+    private final ParallelBatchExecutor batchExecutor;
+    private final int deflateThreads;
 
     public ZipCopyAction(File zipFile, ZipCompressor compressor, DocumentationRegistry documentationRegistry, String encoding, boolean preserveFileTimestamps) {
+        this(zipFile, compressor, documentationRegistry, encoding, preserveFileTimestamps, ParallelBatchExecutor.SEQUENTIAL, 1);
+    }
+
+    /**
+     * @param deflateThreads the number of threads used to deflate entries concurrently. Only use more than 1 when the compressor deflates entries.
+     */
+    public ZipCopyAction(File zipFile, ZipCompressor compressor, DocumentationRegistry documentationRegistry, String encoding, boolean preserveFileTimestamps, ParallelBatchExecutor batchExecutor, int deflateThreads) {
         this.zipFile = zipFile;
         this.compressor = compressor;
         this.documentationRegistry = documentationRegistry;
         this.encoding = encoding;
         this.preserveFileTimestamps = preserveFileTimestamps;
+        this.batchExecutor = batchExecutor;
+        this.deflateThreads = deflateThreads;
     }
 
     @Override
@@ -80,7 +104,11 @@ public WorkResult execute(final CopyActionProcessingStream stream) {
 
         try {
             IoActions.withResource(zipOutStr, outputStream -> {
-                stream.process(new StreamAction(outputStream, encoding));
+                ParallelZipEntryWriter parallelWriter = deflateThreads > 1 ? new ParallelZipEntryWriter(outputStream, batchExecutor, deflateThreads, MAX_PENDING_BYTES) : null;
+                stream.process(new StreamAction(outputStream, encoding, parallelWriter));
+                if (parallelWriter != null) {
+                    flush(parallelWriter);
+                }
             });
         } catch (Exception e) {
             if (e.getCause() instanceof Zip64RequiredException) {
@@ -95,11 +123,22 @@ public WorkResult execute(final CopyActionProcessingStream stream) {
         return WorkResults.didWork(true);
     }
 
+    private void flush(ParallelZipEntryWriter parallelWriter) {
+        try {
+            parallelWriter.flush();
+        } catch (Exception e) {
+            throw new GradleException(String.format("Could not add entries to ZIP '%s'.", zipFile), e);
+        }
+    }
+
     private class StreamAction implements CopyActionProcessingStreamAction {
         private final ZipArchiveOutputStream zipOutStr;
+        @Nullable
+        private final ParallelZipEntryWriter parallelWriter;
 
-        public StreamAction(ZipArchiveOutputStream zipOutStr, String encoding) {
+        public StreamAction(ZipArchiveOutputStream zipOutStr, String encoding, @Nullable ParallelZipEntryWriter parallelWriter) {
             this.zipOutStr = zipOutStr;
+            this.parallelWriter = parallelWriter;
             if (encoding != null) {
                 this.zipOutStr.setEncoding(encoding);
             }
@@ -119,6 +158,13 @@ private void visitFile(FileCopyDetails fileDetails) {
                 ZipArchiveEntry archiveEntry = new ZipArchiveEntry(fileDetails.getRelativePath().getPathString());
                 archiveEntry.setTime(getArchiveTimeFor(fileDetails));
                 archiveEntry.setUnixMode(UnixStat.FILE_FLAG | fileDetails.getPermissions().toUnixNumeric());
+                if (parallelWriter != null) {
+                    if (parallelWriter.accepts(fileDetails.getSize())) {
+                        parallelWriter.addFile(archiveEntry, readContent(fileDetails));
+                        return;
+                    }
+                    parallelWriter.flush();
+                }
                 zipOutStr.putArchiveEntry(archiveEntry);
                 fileDetails.copyTo(zipOutStr);
                 zipOutStr.closeArchiveEntry();
@@ -133,6 +179,10 @@ private void visitDir(FileCopyDetails dirDetails) {
                 ZipArchiveEntry archiveEntry = new ZipArchiveEntry(dirDetails.getRelativePath().getPathString() + '/');
                 archiveEntry.setTime(getArchiveTimeFor(dirDetails));
                 archiveEntry.setUnixMode(UnixStat.DIR_FLAG | dirDetails.getPermissions().toUnixNumeric());
+                if (parallelWriter != null) {
+                    parallelWriter.addDirectory(archiveEntry);
+                    return;
+                }
                 zipOutStr.putArchiveEntry(archiveEntry);
                 zipOutStr.closeArchiveEntry();
             } catch (Exception e) {
@@ -141,6 +191,12 @@ private void visitDir(FileCopyDetails dirDetails) {
         }
     }
 
+    private static byte[] readContent(FileCopyDetails fileDetails) {
+        ByteArrayOutputStream content = new ByteArrayOutputStream((int) fileDetails.getSize());
+        fileDetails.copyTo(content);
+        return content.toByteArray();
+    }
+
     private long getArchiveTimeFor(FileCopyDetails details) {
         return preserveFileTimestamps ? details.getLastModified() : CONSTANT_TIME_FOR_ZIP_ENTRIES;
     }
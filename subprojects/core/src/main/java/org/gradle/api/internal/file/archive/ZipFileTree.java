@@ -15,6 +15,8 @@
  */
 package org.gradle.api.internal.file.archive;
 
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Suppliers;
 import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
 import org.apache.commons.compress.archivers.zip.ZipFile;
 import org.gradle.api.GradleException;
@@ -27,9 +29,11 @@
 import org.gradle.api.internal.file.collections.DirectoryFileTreeFactory;
 import org.gradle.api.internal.file.temp.TemporaryFileProvider;
 import org.gradle.api.provider.Provider;
+import org.gradle.internal.buildoption.InternalFlag;
 import org.gradle.internal.file.Chmod;
 import org.gradle.internal.hash.FileHasher;
 
+import javax.annotation.Nullable;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
@@ -38,10 +42,15 @@
 import java.util.Map;
 import java.util.TreeMap;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
 
 import static java.lang.String.format;
 
 public class ZipFileTree extends AbstractArchiveFileTree {
+    /**
+     * When set, entries are visited without taking exclusive access to the expanded directory, and an entry is only extracted when its file is requested.
+     */
+    public static final InternalFlag LAZY_EXPANSION_OPTION = new InternalFlag("org.gradle.internal.archives.lazy-zip-expansion");
     private static final String ZIP_ENTRY_PREFIX = "zip entry";
 
     private final Provider<File> fileProvider;
@@ -49,6 +58,7 @@ public class ZipFileTree extends AbstractArchiveFileTree {
     private final DirectoryFileTreeFactory directoryFileTreeFactory;
     private final FileHasher fileHasher;
     private final TemporaryFileProvider temporaryExtractionDir;
+    private final boolean lazyExpansion;
 
     public ZipFileTree(
         Provider<File> zipFile,
@@ -57,6 +67,19 @@ public ZipFileTree(
         FileHasher fileHasher,
         DecompressionCoordinator decompressionCoordinator,
         TemporaryFileProvider temporaryExtractionDir
+    ) {
+        this(zipFile, chmod, directoryFileTreeFactory, fileHasher, decompressionCoordinator, temporaryExtractionDir, decompressionCoordinator.isExtractOnDemand());
+    }
+
+    @VisibleForTesting
+    ZipFileTree(
+        Provider<File> zipFile,
+        Chmod chmod,
+        DirectoryFileTreeFactory directoryFileTreeFactory,
+        FileHasher fileHasher,
+        DecompressionCoordinator decompressionCoordinator,
+        TemporaryFileProvider temporaryExtractionDir,
+        boolean lazyExpansion
     ) {
         super(decompressionCoordinator);
         this.fileProvider = zipFile;
@@ -64,6 +87,7 @@ public ZipFileTree(
         this.directoryFileTreeFactory = directoryFileTreeFactory;
         this.fileHasher = fileHasher;
         this.temporaryExtractionDir = temporaryExtractionDir;
+        this.lazyExpansion = lazyExpansion;
     }
 
     @Override
@@ -91,28 +115,36 @@ public void visit(FileVisitor visitor) {
             throw new InvalidUserDataException(format("Cannot expand %s as it is not a file.", getDisplayName()));
         }
 
-        File expandedDir = getExpandedDir();
-        decompressionCoordinator.exclusiveAccessTo(expandedDir, () -> {
-            AtomicBoolean stopFlag = new AtomicBoolean();
-            try (ZipFile zip = ZipFile.builder().setFile(zipFile).get()) {
-                // The iteration order of zip.getEntries() is based on the hash of the zip entry. This isn't much use
-                // to us. So, collect the entries in a map and iterate over them in alphabetical order.
-                Iterator<ZipArchiveEntry> sortedEntries = entriesSortedByName(zip);
-                while (!stopFlag.get() && sortedEntries.hasNext()) {
-                    ZipArchiveEntry entry = sortedEntries.next();
-                    DetailsImpl details = new DetailsImpl(zipFile, expandedDir, entry, zip, stopFlag, chmod);
-                    if (entry.isDirectory()) {
-                        visitor.visitDir(details);
-                    } else {
-                        visitor.visitFile(details);
-                    }
+        if (lazyExpansion) {
+            // Entries are read from the zip file, and only extracted, with exclusive access to the expanded directory, when a visitor requests their file.
+            // The expanded directory is only determined at that point, as doing so requires hashing the zip file.
+            visitEntries(zipFile, Suppliers.memoize(this::getExpandedDir), decompressionCoordinator, visitor);
+        } else {
+            File expandedDir = getExpandedDir();
+            decompressionCoordinator.exclusiveAccessTo(expandedDir, () -> visitEntries(zipFile, () -> expandedDir, null, visitor));
+        }
+    }
+
+    private void visitEntries(File zipFile, Supplier<File> expandedDir, @Nullable DecompressionCoordinator extractionCoordinator, FileVisitor visitor) {
+        AtomicBoolean stopFlag = new AtomicBoolean();
+        try (ZipFile zip = ZipFile.builder().setFile(zipFile).get()) {
+            // The iteration order of zip.getEntries() is based on the hash of the zip entry. This isn't much use
+            // to us. So, collect the entries in a map and iterate over them in alphabetical order.
+            Iterator<ZipArchiveEntry> sortedEntries = entriesSortedByName(zip);
+            while (!stopFlag.get() && sortedEntries.hasNext()) {
+                ZipArchiveEntry entry = sortedEntries.next();
+                DetailsImpl details = new DetailsImpl(zipFile, expandedDir, extractionCoordinator, entry, zip, stopFlag, chmod);
+                if (entry.isDirectory()) {
+                    visitor.visitDir(details);
+                } else {
+                    visitor.visitFile(details);
                 }
-            } catch (GradleException e) {
-                throw e; // Gradle exceptions are already meant to be human-readable, so just rethrow it
-            } catch (Exception e) {
-                throw new GradleException(format("Cannot expand %s.", getDisplayName()), e);
             }
-        });
+        } catch (GradleException e) {
+            throw e; // Gradle exceptions are already meant to be human-readable, so just rethrow it
+        } catch (Exception e) {
+            throw new GradleException(format("Cannot expand %s.", getDisplayName()), e);
+        }
     }
 
     private Iterator<ZipArchiveEntry> entriesSortedByName(ZipFile zip) {
@@ -140,10 +172,13 @@ private static final class DetailsImpl extends AbstractArchiveFileTreeElement {
         private final File originalFile;
         private final ZipArchiveEntry entry;
         private final ZipFile zip;
+        @Nullable
+        private final DecompressionCoordinator extractionCoordinator;
 
-        public DetailsImpl(File originalFile, File expandedDir, ZipArchiveEntry entry, ZipFile zip, AtomicBoolean stopFlag, Chmod chmod) {
+        public DetailsImpl(File originalFile, Supplier<File> expandedDir, @Nullable DecompressionCoordinator extractionCoordinator, ZipArchiveEntry entry, ZipFile zip, AtomicBoolean stopFlag, Chmod chmod) {
             super(chmod, expandedDir, stopFlag);
             this.originalFile = originalFile;
+            this.extractionCoordinator = extractionCoordinator;
             this.entry = entry;
             this.zip = zip;
         }
@@ -163,6 +198,15 @@ protected ZipArchiveEntry getArchiveEntry() {
             return entry;
         }
 
+        @Override
+        protected void expandTo(File expandedDir, File file) {
+            if (extractionCoordinator == null) {
+                super.expandTo(expandedDir, file);
+            } else {
+                extractionCoordinator.exclusiveAccessTo(expandedDir, () -> super.expandTo(expandedDir, file));
+            }
+        }
+
         @Override
         public InputStream open() {
             try {
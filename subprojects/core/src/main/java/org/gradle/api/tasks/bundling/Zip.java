@@ -25,6 +25,8 @@
 import org.gradle.api.tasks.Input;
 import org.gradle.api.tasks.Internal;
 import org.gradle.api.tasks.Optional;
+import org.gradle.internal.buildoption.InternalOptions;
+import org.gradle.internal.concurrent.ParallelBatchExecutor;
 import org.gradle.internal.instrumentation.api.annotations.ToBeReplacedByLazyProperty;
 import org.gradle.work.DisableCachingByDefault;
 
@@ -63,7 +65,12 @@ protected ZipCompressor getCompressor() {
     @Override
     protected CopyAction createCopyAction() {
         DocumentationRegistry documentationRegistry = getServices().get(DocumentationRegistry.class);
-        return new ZipCopyAction(getArchiveFile().get().getAsFile(), getCompressor(), documentationRegistry, metadataCharset, isPreserveFileTimestamps());
+        ParallelBatchExecutor batchExecutor = getServices().get(ParallelBatchExecutor.class);
+        int deflateThreads = 1;
+        if (getEntryCompression() == ZipEntryCompression.DEFLATED) {
+            deflateThreads = batchExecutor.threadsFor(getServices().get(InternalOptions.class).getOption(ZipCopyAction.DEFLATE_THREADS_OPTION).get());
+        }
+        return new ZipCopyAction(getArchiveFile().get().getAsFile(), getCompressor(), documentationRegistry, metadataCharset, isPreserveFileTimestamps(), batchExecutor, deflateThreads);
     }
 
     /**
@@ -26,10 +26,13 @@
 import org.gradle.caching.internal.controller.impl.LifecycleAwareBuildCacheController;
 import org.gradle.caching.internal.controller.impl.LifecycleAwareBuildCacheControllerFactory;
 import org.gradle.caching.internal.origin.OriginMetadataFactory;
+import org.gradle.caching.internal.origin.OriginReader;
+import org.gradle.caching.internal.origin.OriginWriter;
 import org.gradle.caching.internal.packaging.BuildCacheEntryPacker;
+import org.gradle.caching.internal.packaging.impl.BuildCacheEntryCompression;
+import org.gradle.caching.internal.packaging.impl.CompressingBuildCacheEntryPacker;
 import org.gradle.caching.internal.packaging.impl.DefaultTarPackerFileSystemSupport;
 import org.gradle.caching.internal.packaging.impl.FilePermissionAccess;
-import org.gradle.caching.internal.packaging.impl.GZipBuildCacheEntryPacker;
 import org.gradle.caching.internal.packaging.impl.TarBuildCacheEntryPacker;
 import org.gradle.caching.internal.packaging.impl.TarPackerFileSystemSupport;
 import org.gradle.caching.internal.services.BuildCacheControllerFactory;
@@ -38,6 +41,12 @@
 import org.gradle.caching.local.internal.DirectoryBuildCacheServiceFactory;
 import org.gradle.internal.build.BuildState;
 import org.gradle.internal.build.RootBuildState;
+import org.gradle.internal.buildoption.InternalFlag;
+import org.gradle.internal.buildoption.InternalOptions;
+import org.gradle.internal.buildoption.StringInternalOption;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.concurrent.ManagedExecutor;
+import org.gradle.internal.concurrent.WorkerLimits;
 import org.gradle.internal.file.BufferProvider;
 import org.gradle.internal.file.Deleter;
 import org.gradle.internal.file.FileException;
@@ -55,15 +64,36 @@
 import org.gradle.internal.service.ServiceRegistrationProvider;
 import org.gradle.internal.service.ServiceRegistry;
 import org.gradle.internal.service.scopes.AbstractGradleModuleServices;
+import org.gradle.internal.snapshot.FileSystemSnapshot;
 import org.gradle.util.GradleVersion;
 
+import javax.annotation.Nullable;
+import java.io.Closeable;
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 
 /**
  * Build scoped services for build cache usage.
  */
 public final class BuildCacheServices extends AbstractGradleModuleServices {
+
+    /**
+     * Compression used for storing build cache entries, in the form {@code <codec>[:<level>]}.
+     *
+     * @see BuildCacheEntryCompression#parse(String)
+     */
+    public static final StringInternalOption ENTRY_COMPRESSION = new StringInternalOption("org.gradle.caching.internal.entry-compression", "gzip");
+
+    /**
+     * Unpack build cache entries by writing and hashing output files on a pool of threads.
+     */
+    public static final InternalFlag PARALLEL_UNPACK = new InternalFlag("org.gradle.caching.internal.parallel-unpack");
+
     @Override
     public void registerGlobalServices(ServiceRegistration registration) {
         registration.addProvider(new ServiceRegistrationProvider() {
@@ -125,10 +155,22 @@ BuildCacheEntryPacker createResultPacker(
                 FileSystem fileSystem,
                 StreamHasher fileHasher,
                 StringInterner stringInterner,
-                BufferProvider bufferProvider
+                BufferProvider bufferProvider,
+                ExecutorFactory executorFactory,
+                WorkerLimits workerLimits,
+                InternalOptions internalOptions
             ) {
-                return new GZipBuildCacheEntryPacker(
-                    new TarBuildCacheEntryPacker(fileSystemSupport, new FilePermissionsAccessAdapter(fileSystem), fileHasher, stringInterner, bufferProvider));
+                BuildCacheEntryCompression.Specification compression = BuildCacheEntryCompression.parse(internalOptions.getOption(ENTRY_COMPRESSION).get());
+                ManagedExecutor unpackExecutor = internalOptions.getOption(PARALLEL_UNPACK).get()
+                    ? executorFactory.create("Build cache unpack", workerLimits.getMaxWorkerCount())
+                    : null;
+                return new ExecutorOwningBuildCacheEntryPacker(
+                    new CompressingBuildCacheEntryPacker(
+                        new TarBuildCacheEntryPacker(fileSystemSupport, new FilePermissionsAccessAdapter(fileSystem), fileHasher, stringInterner, bufferProvider, unpackExecutor),
+                        compression
+                    ),
+                    unpackExecutor
+                );
             }
 
             @Provides
@@ -155,7 +197,9 @@ BuildCacheControllerFactory createBuildCacheControllerFactory(
                 TemporaryFileProvider temporaryFileProvider,
                 BuildCacheEntryPacker packer,
                 OriginMetadataFactory originMetadataFactory,
-                StringInterner stringInterner
+                StringInterner stringInterner,
+                ExecutorFactory executorFactory,
+                InternalOptions internalOptions
             ) {
                 return new DefaultBuildCacheControllerFactory(
                     startParameter,
@@ -164,12 +208,47 @@ BuildCacheControllerFactory createBuildCacheControllerFactory(
                     originMetadataFactory,
                     stringInterner,
                     temporaryFileProvider,
-                    packer
+                    packer,
+                    executorFactory,
+                    internalOptions
                 );
             }
         });
     }
 
+    private static final class ExecutorOwningBuildCacheEntryPacker implements BuildCacheEntryPacker, Closeable {
+        private final BuildCacheEntryPacker delegate;
+        @Nullable
+        private final ManagedExecutor executor;
+
+        public ExecutorOwningBuildCacheEntryPacker(BuildCacheEntryPacker delegate, @Nullable ManagedExecutor executor) {
+            this.delegate = delegate;
+            this.executor = executor;
+        }
+
+        @Override
+        public Optional<String> getEntryFormat() {
+            return delegate.getEntryFormat();
+        }
+
+        @Override
+        public PackResult pack(CacheableEntity entity, Map<String, ? extends FileSystemSnapshot> snapshots, OutputStream output, OriginWriter writeOrigin) throws IOException {
+            return delegate.pack(entity, snapshots, output, writeOrigin);
+        }
+
+        @Override
+        public UnpackResult unpack(CacheableEntity entity, InputStream input, OriginReader readOrigin) throws IOException {
+            return delegate.unpack(entity, input, readOrigin);
+        }
+
+        @Override
+        public void close() {
+            if (executor != null) {
+                executor.stop();
+            }
+        }
+    }
+
     private static final class FilePermissionsAccessAdapter implements FilePermissionAccess {
 
         private final FileSystem fileSystem;
@@ -29,6 +29,10 @@
 import org.gradle.caching.internal.packaging.BuildCacheEntryPacker;
 import org.gradle.caching.local.DirectoryBuildCache;
 import org.gradle.caching.local.internal.DirectoryBuildCacheService;
+import org.gradle.internal.buildoption.InternalFlag;
+import org.gradle.internal.buildoption.InternalOptions;
+import org.gradle.internal.buildoption.IntegerInternalOption;
+import org.gradle.internal.concurrent.ExecutorFactory;
 import org.gradle.internal.operations.BuildOperationProgressEventEmitter;
 import org.gradle.internal.operations.BuildOperationRunner;
 import org.gradle.util.Path;
@@ -37,9 +41,26 @@
 
 public class DefaultBuildCacheControllerFactory extends AbstractBuildCacheControllerFactory<DirectoryBuildCacheService> {
 
+    /**
+     * Store entries to the remote build cache in the background instead of on the worker executing the work.
+     */
+    public static final InternalFlag ASYNC_REMOTE_STORE = new InternalFlag("org.gradle.caching.internal.async-remote-store");
+
+    /**
+     * The number of concurrent uploads when storing to the remote build cache in the background.
+     */
+    public static final IntegerInternalOption ASYNC_REMOTE_STORE_UPLOADS = new IntegerInternalOption("org.gradle.caching.internal.async-remote-store.uploads", 4);
+
+    /**
+     * The maximum size in megabytes of the entries waiting to be stored to the remote build cache in the background.
+     */
+    public static final IntegerInternalOption ASYNC_REMOTE_STORE_MAX_QUEUED_MB = new IntegerInternalOption("org.gradle.caching.internal.async-remote-store.max-queued-mb", 512);
+
     private final TemporaryFileProvider temporaryFileProvider;
     private final BuildCacheEntryPacker packer;
     private final BuildOperationProgressEventEmitter buildOperationProgressEmitter;
+    private final ExecutorFactory executorFactory;
+    private final InternalOptions internalOptions;
 
     public DefaultBuildCacheControllerFactory(
         StartParameter startParameter,
@@ -48,7 +69,9 @@ public DefaultBuildCacheControllerFactory(
         OriginMetadataFactory originMetadataFactory,
         StringInterner stringInterner,
         TemporaryFileProvider temporaryFileProvider,
-        BuildCacheEntryPacker packer
+        BuildCacheEntryPacker packer,
+        ExecutorFactory executorFactory,
+        InternalOptions internalOptions
     ) {
         super(
             startParameter,
@@ -59,6 +82,8 @@ public DefaultBuildCacheControllerFactory(
         this.temporaryFileProvider = temporaryFileProvider;
         this.packer = packer;
         this.buildOperationProgressEmitter = buildOperationProgressEmitter;
+        this.executorFactory = executorFactory;
+        this.internalOptions = internalOptions;
     }
 
     @Override
@@ -84,7 +109,21 @@ protected BuildCacheController doCreateController(
             !Boolean.getBoolean(REMOTE_CONTINUE_ON_ERROR_PROPERTY),
             packer,
             originMetadataFactory,
-            stringInterner
+            stringInterner,
+            createAsyncRemoteStoreConfiguration(remoteDescribedService)
+        );
+    }
+
+    @Nullable
+    private DefaultBuildCacheController.AsyncRemoteStoreConfiguration createAsyncRemoteStoreConfiguration(@Nullable DescribedBuildCacheService<BuildCache, BuildCacheService> remote) {
+        if (remote == null || !remote.config.isPush() || !internalOptions.getOption(ASYNC_REMOTE_STORE).get()) {
+            return null;
+        }
+        int uploads = internalOptions.getOption(ASYNC_REMOTE_STORE_UPLOADS).get();
+        long maxBytesInFlight = internalOptions.getOption(ASYNC_REMOTE_STORE_MAX_QUEUED_MB).get() * 1024L * 1024L;
+        return new DefaultBuildCacheController.AsyncRemoteStoreConfiguration(
+            executorFactory.create("Build cache remote store", uploads),
+            maxBytesInFlight
         );
     }
 
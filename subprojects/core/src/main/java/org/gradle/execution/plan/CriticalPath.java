@@ -0,0 +1,183 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.execution.plan;
+
+import org.gradle.internal.logging.text.TreeFormatter;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tracks the critical path of an execution plan, which is the chain of dependent nodes that takes the longest to execute.
+ *
+ * <p>
+ * Each node is weighted with its predicted duration plus the largest weight of the nodes that depend on it, so nodes that start
+ * the longest downstream chains are selected first. Nodes without a known duration count as taking a millisecond, so that longer
+ * chains are still preferred. Nodes added after the plan has been finalized, like pre- and post-execution nodes, are not weighted.
+ * </p>
+ *
+ * <p>Instances are only accessed while holding the state lock.</p>
+ */
+class CriticalPath {
+    private static final long DEFAULT_DURATION_MILLIS = 1;
+
+    private final NodeDurationHistory durationHistory;
+    private final Map<Node, Long> predictedDurations = new IdentityHashMap<>();
+    private final Map<Node, Long> weights = new IdentityHashMap<>();
+    private final Map<Node, Long> startTimes = new IdentityHashMap<>();
+    private final Map<Node, Long> finishTimes = new IdentityHashMap<>();
+
+    /**
+     * Orders nodes by their weight, heaviest first, falling back to the {@link DefaultFinalizedExecutionPlan#NODE_EXECUTION_ORDER}.
+     * Priority nodes always come first.
+     */
+    final Comparator<Node> executionOrder = (node1, node2) -> {
+        if (node1.isPriority() != node2.isPriority()) {
+            return node1.isPriority() ? -1 : 1;
+        }
+        int byWeight = Long.compare(weightOf(node2), weightOf(node1));
+        if (byWeight != 0) {
+            return byWeight;
+        }
+        return DefaultFinalizedExecutionPlan.NODE_EXECUTION_ORDER.compare(node1, node2);
+    };
+
+    /**
+     * @param scheduledNodes the nodes of the plan, with dependencies ordered before the nodes depending on them.
+     */
+    CriticalPath(NodeDurationHistory durationHistory, List<Node> scheduledNodes) {
+        this.durationHistory = durationHistory;
+        for (int i = scheduledNodes.size() - 1; i >= 0; i--) {
+            Node node = scheduledNodes.get(i);
+            long predicted = durationHistory.getPredictedDurationMillis(node);
+            long duration = predicted == NodeDurationHistory.UNKNOWN_DURATION ? DEFAULT_DURATION_MILLIS : predicted;
+            predictedDurations.put(node, duration);
+            long downstream = 0;
+            for (Node dependent : node.getDependencyPredecessors()) {
+                downstream = Math.max(downstream, weightOf(dependent));
+            }
+            weights.put(node, duration + downstream);
+        }
+    }
+
+    long weightOf(Node node) {
+        Long weight = weights.get(node);
+        return weight == null ? 0 : weight;
+    }
+
+    void started(Node node) {
+        startTimes.put(node, System.nanoTime());
+    }
+
+    void finished(Node node) {
+        if (startTimes.containsKey(node)) {
+            finishTimes.put(node, System.nanoTime());
+        }
+    }
+
+    /**
+     * Records the durations of the executed nodes in the history and returns a report comparing the predicted with the actual critical path,
+     * or {@code null} when nothing was executed.
+     */
+    @Nullable
+    String complete() {
+        Map<Node, Long> actualDurations = new IdentityHashMap<>();
+        finishTimes.forEach((node, finishTime) -> actualDurations.put(node, TimeUnit.NANOSECONDS.toMillis(finishTime - startTimes.get(node))));
+        if (actualDurations.isEmpty()) {
+            return null;
+        }
+        durationHistory.recordDurations(actualDurations);
+
+        TreeFormatter formatter = new TreeFormatter();
+        formatter.node("Critical path");
+        formatter.startChildren();
+        List<Node> predictedPath = predictedPath();
+        formatter.node("Predicted (" + (predictedPath.isEmpty() ? 0 : weightOf(predictedPath.get(0))) + "ms)");
+        describePath(formatter, predictedPath, actualDurations);
+        List<Node> actualPath = actualPath();
+        long actualLength = TimeUnit.NANOSECONDS.toMillis(finishTimes.get(actualPath.get(actualPath.size() - 1)) - startTimes.get(actualPath.get(0)));
+        formatter.node("Actual (" + actualLength + "ms)");
+        describePath(formatter, actualPath, actualDurations);
+        formatter.endChildren();
+        return formatter.toString();
+    }
+
+    private void describePath(TreeFormatter formatter, List<Node> path, Map<Node, Long> actualDurations) {
+        formatter.startChildren();
+        for (Node node : path) {
+            Long actual = actualDurations.get(node);
+            formatter.node(node + " (predicted " + predictedDurations.get(node) + "ms, actual " + (actual == null ? "-" : actual + "ms") + ")");
+        }
+        formatter.endChildren();
+    }
+
+    /**
+     * Follows the heaviest dependents, starting from the heaviest node.
+     */
+    private List<Node> predictedPath() {
+        List<Node> path = new ArrayList<>();
+        Node current = heaviest(weights.keySet());
+        while (current != null) {
+            path.add(current);
+            current = heaviest(current.getDependencyPredecessors());
+        }
+        return path;
+    }
+
+    /**
+     * Follows the dependencies that finished last, starting from the node that finished last.
+     */
+    private List<Node> actualPath() {
+        List<Node> path = new ArrayList<>();
+        Node current = finishedLast(finishTimes.keySet());
+        while (current != null) {
+            path.add(current);
+            current = finishedLast(current.getDependencySuccessors());
+        }
+        Collections.reverse(path);
+        return path;
+    }
+
+    @Nullable
+    private Node heaviest(Iterable<Node> nodes) {
+        Node heaviest = null;
+        for (Node node : nodes) {
+            if (weights.containsKey(node) && (heaviest == null || weightOf(node) > weightOf(heaviest))) {
+                heaviest = node;
+            }
+        }
+        return heaviest;
+    }
+
+    @Nullable
+    private Node finishedLast(Iterable<Node> nodes) {
+        Node last = null;
+        for (Node node : nodes) {
+            Long finishTime = finishTimes.get(node);
+            if (finishTime != null && (last == null || finishTime > finishTimes.get(last))) {
+                last = node;
+            }
+        }
+        return last;
+    }
+}
@@ -23,6 +23,7 @@
 import org.gradle.api.NonNullApi;
 import org.gradle.internal.MutableBoolean;
 import org.gradle.internal.Pair;
+import org.gradle.internal.buildoption.InternalFlag;
 import org.gradle.internal.resources.ResourceLock;
 import org.gradle.internal.resources.ResourceLockCoordinationService;
 import org.gradle.internal.work.WorkerLeaseRegistry;
@@ -49,6 +50,11 @@
 @NonNullApi
 public class DefaultFinalizedExecutionPlan implements WorkSource<Node>, FinalizedExecutionPlan {
     private static final Logger LOGGER = LoggerFactory.getLogger(DefaultFinalizedExecutionPlan.class);
+    /**
+     * When enabled, ready nodes starting the longest chains of dependent work are selected first, based on the durations of previous builds.
+     * The predicted and actual critical path are logged at info level when the plan completes.
+     */
+    public static final InternalFlag CRITICAL_PATH_SCHEDULING = new InternalFlag("org.gradle.internal.execution.critical-path-scheduling");
     public static final Comparator<Node> NODE_EXECUTION_ORDER = new Comparator<Node>() {
         @Override
         public int compare(Node node1, Node node2) {
@@ -67,7 +73,7 @@ public int compare(Node node1, Node node2) {
     };
 
     private final Set<Node> waitingToStartNodes = new HashSet<>();
-    private final ExecutionQueue readyNodes = new ExecutionQueue();
+    private final ExecutionQueue readyNodes;
     private final List<Throwable> failures = new ArrayList<>();
     private final List<DiagnosticEvent> diagnosticEvents = new ArrayList<>();
     private final String displayName;
@@ -84,6 +90,8 @@ public int compare(Node node1, Node node2) {
     private final Map<Pair<Node, Node>, Boolean> reachableCache = new HashMap<>();
     private final OrdinalNodeAccess ordinalNodeAccess;
     private final Consumer<LocalTaskNode> completionHandler;
+    @Nullable
+    private final CriticalPath criticalPath;
 
     // When true, there may be nodes that are both ready and "selectable", which means their project and resources are able to be locked
     // When false, there are definitely no nodes that are "selectable"
@@ -100,7 +108,8 @@ public DefaultFinalizedExecutionPlan(
         List<Node> scheduledNodes,
         boolean continueOnFailure,
         QueryableExecutionPlan contents,
-        Consumer<LocalTaskNode> completionHandler
+        Consumer<LocalTaskNode> completionHandler,
+        NodeDurationHistory durationHistory
     ) {
         this.displayName = displayName;
         this.outputHierarchy = outputHierarchy;
@@ -110,6 +119,8 @@ public DefaultFinalizedExecutionPlan(
         this.continueOnFailure = continueOnFailure;
         this.contents = contents;
         this.completionHandler = completionHandler;
+        this.criticalPath = durationHistory.isEnabled() ? new CriticalPath(durationHistory, scheduledNodes) : null;
+        this.readyNodes = new ExecutionQueue(criticalPath != null ? criticalPath.executionOrder : NODE_EXECUTION_ORDER);
 
         SetMultimap<FinalizerGroup, FinalizerGroup> reachableGroups = LinkedHashMultimap.create();
         for (Node node : scheduledNodes) {
@@ -147,6 +158,12 @@ public WorkSource<Node> asWorkSource() {
     @Override
     public void close() {
         lockCoordinator.removeLockReleaseListener(resourceUnlockListener);
+        if (criticalPath != null) {
+            String report = criticalPath.complete();
+            if (report != null) {
+                LOGGER.info("{}", report);
+            }
+        }
         waitingToStartNodes.clear();
         readyNodes.clear();
         runningNodes.clear();
@@ -280,6 +297,9 @@ public Selection<Node> selectNext() {
                     readyNodes.remove();
                     waitingToStartNodes.remove(node);
                     node.getMutationInfo().started();
+                    if (criticalPath != null) {
+                        criticalPath.started(node);
+                    }
                     return Selection.of(node);
                 }
             }
@@ -547,6 +567,9 @@ public void finishedExecuting(Node node, @Nullable Throwable failure) {
         lockCoordinator.assertHasStateLock();
         try {
             runningNodes.remove(node);
+            if (criticalPath != null) {
+                criticalPath.finished(node);
+            }
 
             if (failure != null) {
                 node.setExecutionFailure(failure);
@@ -679,12 +702,16 @@ public boolean allExecutionComplete() {
     }
 
     /**
-     * An ordered queue of nodes, sorted by {@link #NODE_EXECUTION_ORDER}.
+     * An ordered queue of nodes, sorted by {@link #NODE_EXECUTION_ORDER} or by the critical path.
      */
     static class ExecutionQueue {
-        private final Set<Node> nodes = new TreeSet<>(NODE_EXECUTION_ORDER);
+        private final Set<Node> nodes;
         private Iterator<Node> current;
 
+        public ExecutionQueue(Comparator<Node> executionOrder) {
+            this.nodes = new TreeSet<>(executionOrder);
+        }
+
         public void clear() {
             nodes.clear();
             current = null;
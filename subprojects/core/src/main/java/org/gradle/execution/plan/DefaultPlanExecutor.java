@@ -61,6 +61,11 @@
 @NonNullApi
 public class DefaultPlanExecutor implements PlanExecutor, Stoppable {
     public static final InternalFlag STATS = new InternalFlag("org.gradle.internal.executor.stats");
+    /**
+     * When enabled, a worker marks its completed item as finished in the same state lock transition that selects its next item,
+     * rather than acquiring the state lock once for each of them. This halves the number of state lock acquisitions per executed item.
+     */
+    public static final InternalFlag COMBINED_STATE_TRANSITIONS = new InternalFlag("org.gradle.internal.executor.combined-state-transitions");
     private static final Logger LOGGER = Logging.getLogger(DefaultPlanExecutor.class);
     private final WorkerLimits workerLimits;
     private final WorkerLeaseService workerLeaseService;
@@ -70,6 +75,7 @@ public class DefaultPlanExecutor implements PlanExecutor, Stoppable {
     private final MergedQueues queue;
     private final ExecutorState state = new ExecutorState();
     private final ExecutorStats stats;
+    private final boolean combinedStateTransitions;
 
     public DefaultPlanExecutor(
         WorkerLimits workerLimits,
@@ -84,6 +90,7 @@ public DefaultPlanExecutor(
         this.coordinationService = coordinationService;
         this.workerLeaseService = workerLeaseService;
         this.stats = internalOptions.getOption(STATS).get() ? new CollectingExecutorStats(state) : state;
+        this.combinedStateTransitions = internalOptions.getOption(COMBINED_STATE_TRANSITIONS).get();
         this.queue = new MergedQueues(coordinationService, false);
         this.executor = executorFactory.create("Execution worker");
     }
@@ -108,7 +115,7 @@ public <T> ExecutionResult<Void> process(WorkSource<T> workSource, Action<T> wor
         WorkerLease currentWorkerLease = workerLeaseService.getCurrentWorkerLease();
         MergedQueues thisPlanOnly = new MergedQueues(coordinationService, true);
         thisPlanOnly.add(planDetails);
-        new ExecutorWorker(thisPlanOnly, currentWorkerLease, cancellationToken, coordinationService, workerLeaseService, stats).run();
+        new ExecutorWorker(thisPlanOnly, currentWorkerLease, cancellationToken, coordinationService, workerLeaseService, stats, combinedStateTransitions).run();
 
         List<Throwable> failures = new ArrayList<>();
         awaitCompletion(workSource, currentWorkerLease, failures);
@@ -178,7 +185,7 @@ private void maybeStartWorkers(MergedQueues queue, Executor executor) {
         state.maybeStartWorkers(() -> {
             LOGGER.debug("Using {} parallel executor threads", executorCount);
             for (int i = 1; i < executorCount; i++) {
-                executor.execute(new ExecutorWorker(queue, null, cancellationToken, coordinationService, workerLeaseService, stats));
+                executor.execute(new ExecutorWorker(queue, null, cancellationToken, coordinationService, workerLeaseService, stats, combinedStateTransitions));
             }
         });
     }
@@ -205,6 +212,19 @@ public WorkItem(WorkSource.Selection<Object> selection, WorkSource<Object> plan,
         }
     }
 
+    private static class CompletedItem {
+        final Object item;
+        final WorkSource<Object> plan;
+        @Nullable
+        final Throwable failure;
+
+        public CompletedItem(Object item, WorkSource<Object> plan, @Nullable Throwable failure) {
+            this.item = item;
+            this.plan = plan;
+            this.failure = failure;
+        }
+    }
+
     private static class MergedQueues implements Closeable {
         private final ResourceLockCoordinationService coordinationService;
         private final boolean autoFinish;
@@ -338,6 +358,7 @@ private static class ExecutorWorker implements Runnable {
         private final ResourceLockCoordinationService coordinationService;
         private final WorkerLeaseService workerLeaseService;
         private final WorkerStats stats;
+        private final boolean combinedStateTransitions;
 
         private ExecutorWorker(
             MergedQueues queue,
@@ -345,7 +366,8 @@ private ExecutorWorker(
             BuildCancellationToken cancellationToken,
             ResourceLockCoordinationService coordinationService,
             WorkerLeaseService workerLeaseService,
-            ExecutorStats executorStats
+            ExecutorStats executorStats,
+            boolean combinedStateTransitions
         ) {
             this.queue = queue;
             this.workerLease = workerLease;
@@ -353,6 +375,7 @@ private ExecutorWorker(
             this.coordinationService = coordinationService;
             this.workerLeaseService = workerLeaseService;
             this.stats = executorStats.startWorker();
+            this.combinedStateTransitions = combinedStateTransitions;
         }
 
         @Override
@@ -366,14 +389,20 @@ public void run() {
                     releaseLeaseOnCompletion = false;
                 }
 
+                CompletedItem completedItem = null;
                 while (true) {
-                    WorkItem workItem = getNextItem(workerLease);
+                    WorkItem workItem = getNextItem(workerLease, completedItem);
                     if (workItem == null) {
                         break;
                     }
                     Object selected = workItem.selection.getItem();
                     LOGGER.info("{} ({}) started.", selected, Thread.currentThread());
-                    execute(selected, workItem.plan, workItem.executor);
+                    if (combinedStateTransitions) {
+                        // Marked as finished when selecting the next item
+                        completedItem = executeWithoutMarkingFinished(selected, workItem.plan, workItem.executor);
+                    } else {
+                        execute(selected, workItem.plan, workItem.executor);
+                    }
                 }
 
                 if (releaseLeaseOnCompletion) {
@@ -388,15 +417,26 @@ public void run() {
          * Selects an item that's ready to execute and executes the provided action against it. If no item is ready, blocks until some
          * can be executed.
          *
+         * @param completedItem an item executed by this worker that still needs to be marked as finished before selecting the next item, if any
          * @return The next item to execute or {@code null} when there are no items remaining
          */
         @Nullable
-        private WorkItem getNextItem(final WorkerLease workerLease) {
+        private WorkItem getNextItem(final WorkerLease workerLease, @Nullable CompletedItem completedItem) {
             final MutableReference<WorkItem> selected;
+            final MutableReference<CompletedItem> toMarkFinished = MutableReference.of(completedItem);
             stats.startSelect();
             try {
                 selected = MutableReference.empty();
+                stats.startAcquiringStateLock();
                 coordinationService.withStateLock(resourceLockState -> {
+                    stats.stateLockAcquired();
+                    CompletedItem finished = toMarkFinished.get();
+                    if (finished != null) {
+                        // Only mark the item as finished once, even when this transition is retried
+                        toMarkFinished.set(null);
+                        stats.combinedStateTransition();
+                        finishedExecutingUnderLock(finished.item, finished.plan, finished.failure);
+                    }
                     stats.finishWaitingForNextItem();
                     if (cancellationToken.isCancellationRequested()) {
                         queue.cancelExecution();
@@ -467,23 +507,42 @@ private void execute(Object selected, WorkSource<Object> executionPlan, Action<O
             }
         }
 
+        private CompletedItem executeWithoutMarkingFinished(Object selected, WorkSource<Object> executionPlan, Action<Object> worker) {
+            Throwable failure = null;
+            stats.startExecute();
+            try {
+                worker.execute(selected);
+            } catch (Throwable t) {
+                failure = t;
+            } finally {
+                stats.finishExecute();
+            }
+            return new CompletedItem(selected, executionPlan, failure);
+        }
+
         private void markFinished(Object selected, WorkSource<Object> executionPlan, @Nullable Throwable failure) {
             stats.startMarkFinished();
             try {
+                stats.startAcquiringStateLock();
                 coordinationService.withStateLock(() -> {
-                    try {
-                        executionPlan.finishedExecuting(selected, failure);
-                    } catch (Throwable t) {
-                        queue.abortAllAndFail(t);
-                    }
-                    // Notify other threads that the item is finished as this may unblock further work
-                    // or this might be the last item in the queue
-                    coordinationService.notifyStateChange();
+                    stats.stateLockAcquired();
+                    finishedExecutingUnderLock(selected, executionPlan, failure);
                 });
             } finally {
                 stats.finishMarkFinished();
             }
         }
+
+        private void finishedExecutingUnderLock(Object selected, WorkSource<Object> executionPlan, @Nullable Throwable failure) {
+            try {
+                executionPlan.finishedExecuting(selected, failure);
+            } catch (Throwable t) {
+                queue.abortAllAndFail(t);
+            }
+            // Notify other threads that the item is finished as this may unblock further work
+            // or this might be the last item in the queue
+            coordinationService.notifyStateChange();
+        }
     }
 
     /**
@@ -520,6 +579,22 @@ private interface WorkerStats extends WorkerState {
 
         void finishMarkFinished();
 
+        /**
+         * Called before the worker starts to acquire the state lock.
+         */
+        void startAcquiringStateLock();
+
+        /**
+         * Called each time the worker runs a state transition while holding the state lock,
+         * either after acquiring the lock or after being woken up by a state change.
+         */
+        void stateLockAcquired();
+
+        /**
+         * Called when an item is marked as finished in the same state transition that selects the next item.
+         */
+        void combinedStateTransition();
+
         void finish();
     }
 
@@ -626,6 +701,18 @@ public void startMarkFinished() {
             public void finishMarkFinished() {
             }
 
+            @Override
+            public void startAcquiringStateLock() {
+            }
+
+            @Override
+            public void stateLockAcquired() {
+            }
+
+            @Override
+            public void combinedStateTransition() {
+            }
+
             @Override
             public void finish() {
                 state.set(ExecutionState.Stopped);
@@ -674,10 +761,19 @@ public void report() {
                 LOGGER.lifecycle("average select time: " + format(stats -> stats.totalSelectTime));
                 LOGGER.lifecycle("average execute time: " + format(stats -> stats.totalExecuteTime));
                 LOGGER.lifecycle("average finish time: " + format(stats -> stats.totalMarkFinishedTime));
+                LOGGER.lifecycle("average state lock wait time: " + format(stats -> stats.totalStateLockWaitTime));
+                LOGGER.lifecycle("items executed: " + sum(stats -> stats.itemsExecuted));
+                LOGGER.lifecycle("state lock acquisitions: " + sum(stats -> stats.stateLockAcquisitions));
+                LOGGER.lifecycle("state change wake ups: " + sum(stats -> stats.stateChangeWakeUps));
+                LOGGER.lifecycle("combined state transitions: " + sum(stats -> stats.combinedStateTransitions));
             }
             completedWorkers.clear();
         }
 
+        private long sum(ToLongFunction<CollectingWorkerStats> statsProperty) {
+            return completedWorkers.stream().mapToLong(statsProperty).sum();
+        }
+
         private String format(ToLongFunction<CollectingWorkerStats> statsProperty) {
             BigDecimal averageNanos = BigDecimal.valueOf(completedWorkers.stream().mapToLong(statsProperty).sum() / completedWorkers.size());
             return DecimalFormat.getNumberInstance().format(averageNanos.divide(BigDecimal.valueOf(1000000), RoundingMode.HALF_UP)) + "ms";
@@ -693,6 +789,12 @@ private static class CollectingWorkerStats implements WorkerStats {
         long totalSelectTime;
         long totalExecuteTime;
         long totalMarkFinishedTime;
+        long startAcquiringStateLock;
+        long totalStateLockWaitTime;
+        long itemsExecuted;
+        long stateLockAcquisitions;
+        long stateChangeWakeUps;
+        long combinedStateTransitions;
 
         public CollectingWorkerStats(CollectingExecutorStats owner, WorkerState delegate) {
             this.owner = owner;
@@ -721,6 +823,7 @@ public void finishSelect() {
 
         @Override
         public void startExecute() {
+            itemsExecuted++;
             startCurrentOperation = System.nanoTime();
         }
 
@@ -745,6 +848,31 @@ public void finishMarkFinished() {
             }
         }
 
+        @Override
+        public void startAcquiringStateLock() {
+            startAcquiringStateLock = System.nanoTime();
+        }
+
+        @Override
+        public void stateLockAcquired() {
+            if (startAcquiringStateLock == 0) {
+                // Woken up by a state change while waiting for work
+                stateChangeWakeUps++;
+                return;
+            }
+            stateLockAcquisitions++;
+            long duration = System.nanoTime() - startAcquiringStateLock;
+            if (duration > 0) {
+                totalStateLockWaitTime += duration;
+            }
+            startAcquiringStateLock = 0;
+        }
+
+        @Override
+        public void combinedStateTransition() {
+            combinedStateTransitions++;
+        }
+
         @Override
         public void startWaitingForNextItem() {
             delegate.startWaitingForNextItem();
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.execution.plan;
+
+import org.gradle.internal.service.scopes.Scope;
+import org.gradle.internal.service.scopes.ServiceScope;
+
+import java.util.Map;
+
+/**
+ * Durations of nodes executed by previous builds, used to prioritize the nodes on the critical path of the execution plan.
+ */
+@ServiceScope(Scope.Build.class)
+public interface NodeDurationHistory {
+    /**
+     * A history that does not know any durations, which disables critical path scheduling.
+     */
+    NodeDurationHistory NONE = new NodeDurationHistory() {
+        @Override
+        public boolean isEnabled() {
+            return false;
+        }
+
+        @Override
+        public long getPredictedDurationMillis(Node node) {
+            return UNKNOWN_DURATION;
+        }
+
+        @Override
+        public void recordDurations(Map<Node, Long> durationsMillis) {
+        }
+    };
+
+    long UNKNOWN_DURATION = -1;
+
+    /**
+     * Whether execution plans should be scheduled using the durations from this history.
+     */
+    boolean isEnabled();
+
+    /**
+     * Returns the predicted duration of the given node in milliseconds, or {@link #UNKNOWN_DURATION} when the node has not been executed before.
+     */
+    long getPredictedDurationMillis(Node node);
+
+    /**
+     * Records the durations of the nodes executed by the current build.
+     */
+    void recordDurations(Map<Node, Long> durationsMillis);
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.execution.plan;
+
+import org.gradle.api.internal.tasks.TaskExecutionOutcome;
+import org.gradle.api.internal.tasks.TaskStateInternal;
+import org.gradle.cache.IndexedCache;
+import org.gradle.cache.IndexedCacheParameters;
+import org.gradle.cache.PersistentCache;
+
+import javax.annotation.Nullable;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import static org.gradle.internal.serialize.BaseSerializerFactory.LONG_SERIALIZER;
+import static org.gradle.internal.serialize.BaseSerializerFactory.STRING_SERIALIZER;
+
+/**
+ * Stores the durations of local tasks which have executed their actions alongside the execution history of the build.
+ *
+ * The predicted duration of a task is a moving average of its previous durations, so that a single outlier does not dominate the prediction.
+ */
+public class PersistentNodeDurationHistory implements NodeDurationHistory {
+    private final IndexedCache<String, Long> durations;
+
+    public PersistentNodeDurationHistory(Supplier<PersistentCache> executionHistoryCache) {
+        this.durations = executionHistoryCache.get().createIndexedCache(
+            IndexedCacheParameters.of("nodeDurations", STRING_SERIALIZER, LONG_SERIALIZER)
+        );
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return true;
+    }
+
+    @Override
+    public long getPredictedDurationMillis(Node node) {
+        String key = keyFor(node);
+        if (key == null) {
+            return UNKNOWN_DURATION;
+        }
+        Long duration = durations.getIfPresent(key);
+        return duration == null ? UNKNOWN_DURATION : duration;
+    }
+
+    @Override
+    public void recordDurations(Map<Node, Long> durationsMillis) {
+        durationsMillis.forEach((node, duration) -> {
+            String key = keyFor(node);
+            if (key != null && hasExecutedActions(node)) {
+                Long previous = durations.getIfPresent(key);
+                durations.put(key, previous == null ? duration : (previous + duration) / 2);
+            }
+        });
+    }
+
+    /**
+     * Up-to-date, skipped, failed and from-cache tasks finish in a fraction of their execution time, so their durations are not recorded.
+     */
+    private static boolean hasExecutedActions(Node node) {
+        TaskStateInternal state = ((LocalTaskNode) node).getTask().getState();
+        return state.getOutcome() == TaskExecutionOutcome.EXECUTED && state.getFailure() == null;
+    }
+
+    @Nullable
+    private static String keyFor(Node node) {
+        if (node instanceof LocalTaskNode) {
+            return ((LocalTaskNode) node).getTask().getIdentityPath().toString();
+        }
+        return null;
+    }
+}
@@ -21,6 +21,8 @@
 import org.gradle.api.internal.changedetection.state.ResourceFilter;
 import org.gradle.api.internal.changedetection.state.ResourceSnapshotterCacheService;
 import org.gradle.api.internal.changedetection.state.RuntimeClasspathResourceHasher;
+import org.gradle.internal.buildoption.IntegerInternalOption;
+import org.gradle.internal.concurrent.ParallelBatchExecutor;
 import org.gradle.internal.execution.FileCollectionSnapshotter;
 import org.gradle.internal.execution.model.InputNormalizer;
 import org.gradle.internal.fingerprint.FileNormalizer;
@@ -31,6 +33,11 @@
 import java.util.Map;
 
 public class DefaultClasspathFingerprinter extends AbstractFileCollectionFingerprinter implements ClasspathFingerprinter {
+    /**
+     * The maximum number of jars of a classpath to hash concurrently, 0 to use as many threads as the build has workers.
+     */
+    public static final IntegerInternalOption HASHING_THREADS_OPTION = new IntegerInternalOption("org.gradle.internal.fingerprint.classpath-hashing-threads", 1);
+
     public DefaultClasspathFingerprinter(
         ResourceSnapshotterCacheService cacheService,
         FileCollectionSnapshotter fileCollectionSnapshotter,
@@ -39,6 +46,33 @@ public DefaultClasspathFingerprinter(
         Map<String, ResourceEntryFilter> propertiesFileFilters,
         StringInterner stringInterner,
         LineEndingSensitivity lineEndingSensitivity
+    ) {
+        this(
+            cacheService,
+            fileCollectionSnapshotter,
+            classpathResourceFilter,
+            manifestAttributeResourceEntryFilter,
+            propertiesFileFilters,
+            stringInterner,
+            lineEndingSensitivity,
+            ParallelBatchExecutor.SEQUENTIAL,
+            1
+        );
+    }
+
+    /**
+     * @param hashingThreads the maximum number of jars of a classpath to hash concurrently, see {@link ParallelBatchExecutor#threadsFor(int)}.
+     */
+    public DefaultClasspathFingerprinter(
+        ResourceSnapshotterCacheService cacheService,
+        FileCollectionSnapshotter fileCollectionSnapshotter,
+        ResourceFilter classpathResourceFilter,
+        ResourceEntryFilter manifestAttributeResourceEntryFilter,
+        Map<String, ResourceEntryFilter> propertiesFileFilters,
+        StringInterner stringInterner,
+        LineEndingSensitivity lineEndingSensitivity,
+        ParallelBatchExecutor hashingExecutor,
+        int hashingThreads
     ) {
         super(
             ClasspathFingerprintingStrategy.runtimeClasspath(
@@ -48,7 +82,9 @@ public DefaultClasspathFingerprinter(
                 new RuntimeClasspathResourceHasher(),
                 cacheService,
                 stringInterner,
-                lineEndingSensitivity
+                lineEndingSensitivity,
+                hashingExecutor,
+                hashingThreads
             ),
             fileCollectionSnapshotter
         );
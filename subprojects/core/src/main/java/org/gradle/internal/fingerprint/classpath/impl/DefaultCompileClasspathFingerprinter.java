@@ -20,6 +20,7 @@
 import org.gradle.api.internal.changedetection.state.AbiExtractingClasspathResourceHasher;
 import org.gradle.api.internal.changedetection.state.CachingResourceHasher;
 import org.gradle.api.internal.changedetection.state.ResourceSnapshotterCacheService;
+import org.gradle.internal.concurrent.ParallelBatchExecutor;
 import org.gradle.internal.execution.FileCollectionSnapshotter;
 import org.gradle.internal.execution.model.InputNormalizer;
 import org.gradle.internal.fingerprint.FileNormalizer;
@@ -28,10 +29,25 @@
 
 public class DefaultCompileClasspathFingerprinter extends AbstractFileCollectionFingerprinter implements CompileClasspathFingerprinter {
     public DefaultCompileClasspathFingerprinter(ResourceSnapshotterCacheService cacheService, FileCollectionSnapshotter fileCollectionSnapshotter, StringInterner stringInterner) {
+        this(cacheService, fileCollectionSnapshotter, stringInterner, ParallelBatchExecutor.SEQUENTIAL, 1);
+    }
+
+    /**
+     * @param hashingThreads the maximum number of jars of a classpath to hash concurrently, see {@link ParallelBatchExecutor#threadsFor(int)}.
+     */
+    public DefaultCompileClasspathFingerprinter(
+        ResourceSnapshotterCacheService cacheService,
+        FileCollectionSnapshotter fileCollectionSnapshotter,
+        StringInterner stringInterner,
+        ParallelBatchExecutor hashingExecutor,
+        int hashingThreads
+    ) {
         super(ClasspathFingerprintingStrategy.compileClasspath(
             new CachingResourceHasher(AbiExtractingClasspathResourceHasher.DEFAULT, cacheService),
             cacheService,
-            stringInterner
+            stringInterner,
+            hashingExecutor,
+            hashingThreads
         ), fileCollectionSnapshotter);
     }
 
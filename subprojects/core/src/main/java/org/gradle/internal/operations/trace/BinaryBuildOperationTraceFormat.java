@@ -0,0 +1,121 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.operations.trace;
+
+import org.gradle.internal.serialize.Decoder;
+import org.gradle.internal.serialize.Encoder;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The binary build operation trace format, written by {@link BinaryBuildOperationTraceWriter} and read by {@link BinaryBuildOperationTraceReader}.
+ *
+ * <p>
+ * A trace starts with a header, followed by one record per event, in the order the events were received.
+ * Each record starts with a kind byte, followed by:
+ * </p>
+ * <ul>
+ * <li>{@link #STARTED}: operation id, parent id or 0, time, display name and details class name.</li>
+ * <li>{@link #PROGRESS}: operation id, time and details class name.</li>
+ * <li>{@link #FINISHED}: operation id, time, result class name and failure message.</li>
+ * </ul>
+ * <p>
+ * Ids are zig-zag encoded variable length integers. Times are zig-zag encoded variable length differences to the time of the previous record,
+ * as events of concurrent operations are not received in time order.
+ * </p>
+ * <p>
+ * Strings are interned: a string is written inline the first time it is seen, and as a reference to its position in the table of
+ * interned strings afterwards. The table is capped at {@link #MAX_INTERNED_STRINGS} entries, after which new strings are always written inline.
+ * </p>
+ */
+final class BinaryBuildOperationTraceFormat {
+    static final int MAGIC = 0x47424f54;
+    static final int VERSION = 1;
+
+    static final byte STARTED = 1;
+    static final byte PROGRESS = 2;
+    static final byte FINISHED = 3;
+
+    static final int MAX_INTERNED_STRINGS = 1 << 16;
+
+    private static final int NULL_STRING = 0;
+    private static final int INLINE_STRING = 1;
+    private static final int FIRST_STRING_REFERENCE = 2;
+
+    private BinaryBuildOperationTraceFormat() {
+    }
+
+    static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * The table of interned strings of the writing side.
+     */
+    static class StringWriter {
+        private final Map<String, Integer> interned = new HashMap<>();
+
+        void write(@Nullable String value, Encoder encoder) throws IOException {
+            if (value == null) {
+                encoder.writeSmallInt(NULL_STRING);
+                return;
+            }
+            Integer index = interned.get(value);
+            if (index != null) {
+                encoder.writeSmallInt(FIRST_STRING_REFERENCE + index);
+                return;
+            }
+            encoder.writeSmallInt(INLINE_STRING);
+            encoder.writeString(value);
+            if (interned.size() < MAX_INTERNED_STRINGS) {
+                interned.put(value, interned.size());
+            }
+        }
+    }
+
+    /**
+     * The table of interned strings of the reading side.
+     */
+    static class StringReader {
+        private final List<String> interned = new ArrayList<>();
+
+        @Nullable
+        String read(Decoder decoder) throws IOException {
+            int code = decoder.readSmallInt();
+            if (code == NULL_STRING) {
+                return null;
+            }
+            if (code == INLINE_STRING) {
+                String value = decoder.readString();
+                if (interned.size() < MAX_INTERNED_STRINGS) {
+                    interned.add(value);
+                }
+                return value;
+            }
+            return interned.get(code - FIRST_STRING_REFERENCE);
+        }
+    }
+}
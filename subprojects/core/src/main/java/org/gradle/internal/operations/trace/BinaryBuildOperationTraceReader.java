@@ -0,0 +1,312 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.operations.trace;
+
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.serialize.kryo.KryoBackedDecoder;
+
+import javax.annotation.Nullable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.gradle.internal.operations.trace.BinaryBuildOperationTraceFormat.FINISHED;
+import static org.gradle.internal.operations.trace.BinaryBuildOperationTraceFormat.MAGIC;
+import static org.gradle.internal.operations.trace.BinaryBuildOperationTraceFormat.PROGRESS;
+import static org.gradle.internal.operations.trace.BinaryBuildOperationTraceFormat.STARTED;
+import static org.gradle.internal.operations.trace.BinaryBuildOperationTraceFormat.VERSION;
+import static org.gradle.internal.operations.trace.BinaryBuildOperationTraceFormat.unZigZag;
+
+/**
+ * Reads a trace written in the {@link BinaryBuildOperationTraceFormat binary trace format}, one event at a time.
+ * The views only keep the operations that are running at a given point of the trace in memory, except for the tree view,
+ * which also keeps the end time of each operation.
+ *
+ * <p>
+ * Can be run from the command line, with the Gradle distribution's {@code lib} directory on the classpath:
+ * </p>
+ * <pre>
+ * java -cp "gradle/lib/*" org.gradle.internal.operations.trace.BinaryBuildOperationTraceReader «path-base»-log.bin [tree|types|critical-path]
+ * </pre>
+ * <ul>
+ * <li>{@code tree}: the operation tree, with the duration of each operation. Reads the trace twice.</li>
+ * <li>{@code types}: the number, total and maximum duration of operations, by details type.</li>
+ * <li>{@code critical-path}: from each root operation, the chain of child operations that finished last.</li>
+ * </ul>
+ */
+public class BinaryBuildOperationTraceReader {
+
+    /**
+     * Receives the events of a trace.
+     */
+    public interface Visitor {
+        /**
+         * @param parentId the id of the parent operation, or 0 for a root operation
+         */
+        void started(long id, long parentId, long startTime, String displayName, @Nullable String detailsClassName);
+
+        void progress(long id, long time, @Nullable String detailsClassName);
+
+        void finished(long id, long endTime, @Nullable String resultClassName, @Nullable String failure);
+    }
+
+    /**
+     * Visits the events of the given trace in the order they were written. A trace that was truncated, for example because the build
+     * was killed, is read up to its last complete event.
+     */
+    public static void read(File traceFile, Visitor visitor) {
+        try (KryoBackedDecoder decoder = new KryoBackedDecoder(new FileInputStream(traceFile), 64 * 1024)) {
+            if (decoder.readInt() != MAGIC) {
+                throw new IllegalArgumentException(traceFile + " is not a binary build operation trace.");
+            }
+            int version = decoder.readSmallInt();
+            if (version != VERSION) {
+                throw new IllegalArgumentException(traceFile + " uses unsupported trace format version " + version + ".");
+            }
+            BinaryBuildOperationTraceFormat.StringReader strings = new BinaryBuildOperationTraceFormat.StringReader();
+            long time = 0;
+            while (true) {
+                byte kind;
+                try {
+                    kind = decoder.readByte();
+                } catch (EOFException e) {
+                    return;
+                }
+                try {
+                    long id = unZigZag(decoder.readSmallLong());
+                    switch (kind) {
+                        case STARTED: {
+                            long parentId = unZigZag(decoder.readSmallLong());
+                            time += unZigZag(decoder.readSmallLong());
+                            String displayName = strings.read(decoder);
+                            String detailsClassName = strings.read(decoder);
+                            visitor.started(id, parentId, time, displayName, detailsClassName);
+                            break;
+                        }
+                        case PROGRESS: {
+                            time += unZigZag(decoder.readSmallLong());
+                            visitor.progress(id, time, strings.read(decoder));
+                            break;
+                        }
+                        case FINISHED: {
+                            time += unZigZag(decoder.readSmallLong());
+                            String resultClassName = strings.read(decoder);
+                            String failure = decoder.readNullableString();
+                            visitor.finished(id, time, resultClassName, failure);
+                            break;
+                        }
+                        default:
+                            throw new IllegalStateException("Unexpected record kind " + kind + " in " + traceFile + ".");
+                    }
+                } catch (EOFException e) {
+                    return;
+                }
+            }
+        } catch (IOException e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        }
+    }
+
+    /**
+     * Prints the operation tree, in the order the operations started. Each operation is indented under its parent.
+     */
+    public static void printTree(File traceFile, PrintStream output) {
+        Map<Long, Long> endTimes = new HashMap<>();
+        read(traceFile, new VisitorAdapter() {
+            @Override
+            public void finished(long id, long endTime, @Nullable String resultClassName, @Nullable String failure) {
+                endTimes.put(id, endTime);
+            }
+        });
+        Map<Long, Integer> depths = new HashMap<>();
+        StringBuilder line = new StringBuilder();
+        read(traceFile, new VisitorAdapter() {
+            @Override
+            public void started(long id, long parentId, long startTime, String displayName, @Nullable String detailsClassName) {
+                Integer parentDepth = parentId == 0 ? null : depths.get(parentId);
+                int depth = parentDepth == null ? 0 : parentDepth + 1;
+                depths.put(id, depth);
+                line.setLength(0);
+                for (int i = 0; i < depth; i++) {
+                    line.append("  ");
+                }
+                line.append(displayName);
+                Long endTime = endTimes.remove(id);
+                line.append(endTime == null ? " [unfinished]" : " [" + (endTime - startTime) + "ms]");
+                line.append(" (").append(id).append(")");
+                output.println(line);
+            }
+
+            @Override
+            public void finished(long id, long endTime, @Nullable String resultClassName, @Nullable String failure) {
+                depths.remove(id);
+            }
+        });
+    }
+
+    /**
+     * Prints the number, total and maximum duration of finished operations, by details type, largest total duration first.
+     */
+    public static void printTypes(File traceFile, PrintStream output) {
+        Map<Long, RunningOperation> running = new HashMap<>();
+        Map<String, long[]> aggregates = new HashMap<>();
+        read(traceFile, new VisitorAdapter() {
+            @Override
+            public void started(long id, long parentId, long startTime, String displayName, @Nullable String detailsClassName) {
+                running.put(id, new RunningOperation(startTime, detailsClassName == null ? "<no details>" : detailsClassName));
+            }
+
+            @Override
+            public void finished(long id, long endTime, @Nullable String resultClassName, @Nullable String failure) {
+                RunningOperation operation = running.remove(id);
+                if (operation != null) {
+                    long duration = endTime - operation.startTime;
+                    long[] aggregate = aggregates.computeIfAbsent(operation.name, type -> new long[3]);
+                    aggregate[0]++;
+                    aggregate[1] += duration;
+                    aggregate[2] = Math.max(aggregate[2], duration);
+                }
+            }
+        });
+        List<Map.Entry<String, long[]>> types = new ArrayList<>(aggregates.entrySet());
+        types.sort((left, right) -> Long.compare(right.getValue()[1], left.getValue()[1]));
+        for (Map.Entry<String, long[]> type : types) {
+            long[] aggregate = type.getValue();
+            output.println(type.getKey() + ": count " + aggregate[0] + ", total " + aggregate[1] + "ms, max " + aggregate[2] + "ms");
+        }
+    }
+
+    /**
+     * Prints, for each root operation, the chain of operations found by repeatedly following the child operation that finished last.
+     */
+    public static void printCriticalPath(File traceFile, PrintStream output) {
+        Map<Long, RunningOperation> running = new HashMap<>();
+        List<PathElement> roots = new ArrayList<>();
+        read(traceFile, new VisitorAdapter() {
+            @Override
+            public void started(long id, long parentId, long startTime, String displayName, @Nullable String detailsClassName) {
+                running.put(id, new RunningOperation(startTime, displayName, parentId));
+            }
+
+            @Override
+            public void finished(long id, long endTime, @Nullable String resultClassName, @Nullable String failure) {
+                RunningOperation operation = running.remove(id);
+                if (operation == null) {
+                    return;
+                }
+                PathElement path = new PathElement(id, operation.name, operation.startTime, endTime, operation.lastFinishedChild);
+                RunningOperation parent = running.get(operation.parentId);
+                if (parent == null) {
+                    roots.add(path);
+                } else if (parent.lastFinishedChild == null || parent.lastFinishedChild.endTime <= endTime) {
+                    parent.lastFinishedChild = path;
+                }
+            }
+        });
+        for (PathElement root : roots) {
+            int depth = 0;
+            for (PathElement element = root; element != null; element = element.lastFinishedChild) {
+                StringBuilder line = new StringBuilder();
+                for (int i = 0; i < depth; i++) {
+                    line.append("  ");
+                }
+                line.append(element.displayName)
+                    .append(" [").append(element.endTime - element.startTime).append("ms, ends at +")
+                    .append(element.endTime - root.startTime).append("ms]")
+                    .append(" (").append(element.id).append(")");
+                output.println(line);
+                depth++;
+            }
+        }
+    }
+
+    public static void main(String[] args) {
+        if (args.length < 1 || args.length > 2) {
+            System.err.println("Usage: BinaryBuildOperationTraceReader <trace file> [tree|types|critical-path]");
+            System.exit(1);
+        }
+        File traceFile = new File(args[0]);
+        String view = args.length == 2 ? args[1] : "tree";
+        switch (view) {
+            case "tree":
+                printTree(traceFile, System.out);
+                break;
+            case "types":
+                printTypes(traceFile, System.out);
+                break;
+            case "critical-path":
+                printCriticalPath(traceFile, System.out);
+                break;
+            default:
+                System.err.println("Unknown view '" + view + "', expected one of tree, types or critical-path.");
+                System.exit(1);
+        }
+    }
+
+    private static class RunningOperation {
+        final long startTime;
+        final String name;
+        final long parentId;
+        PathElement lastFinishedChild;
+
+        RunningOperation(long startTime, String name) {
+            this(startTime, name, 0);
+        }
+
+        RunningOperation(long startTime, String name, long parentId) {
+            this.startTime = startTime;
+            this.name = name;
+            this.parentId = parentId;
+        }
+    }
+
+    private static class PathElement {
+        final long id;
+        final String displayName;
+        final long startTime;
+        final long endTime;
+        final PathElement lastFinishedChild;
+
+        PathElement(long id, String displayName, long startTime, long endTime, @Nullable PathElement lastFinishedChild) {
+            this.id = id;
+            this.displayName = displayName;
+            this.startTime = startTime;
+            this.endTime = endTime;
+            this.lastFinishedChild = lastFinishedChild;
+        }
+    }
+
+    private static class VisitorAdapter implements Visitor {
+        @Override
+        public void started(long id, long parentId, long startTime, String displayName, @Nullable String detailsClassName) {
+        }
+
+        @Override
+        public void progress(long id, long time, @Nullable String detailsClassName) {
+        }
+
+        @Override
+        public void finished(long id, long endTime, @Nullable String resultClassName, @Nullable String failure) {
+        }
+    }
+}
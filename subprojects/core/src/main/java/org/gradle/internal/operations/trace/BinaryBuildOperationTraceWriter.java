@@ -0,0 +1,213 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.operations.trace;
+
+import org.gradle.internal.UncheckedException;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.concurrent.ManagedExecutor;
+import org.gradle.internal.concurrent.Stoppable;
+import org.gradle.internal.operations.BuildOperationDescriptor;
+import org.gradle.internal.operations.BuildOperationListener;
+import org.gradle.internal.operations.OperationFinishEvent;
+import org.gradle.internal.operations.OperationIdentifier;
+import org.gradle.internal.operations.OperationProgressEvent;
+import org.gradle.internal.operations.OperationStartEvent;
+import org.gradle.internal.serialize.kryo.KryoBackedEncoder;
+
+import javax.annotation.Nullable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.gradle.internal.operations.trace.BinaryBuildOperationTraceFormat.FINISHED;
+import static org.gradle.internal.operations.trace.BinaryBuildOperationTraceFormat.MAGIC;
+import static org.gradle.internal.operations.trace.BinaryBuildOperationTraceFormat.PROGRESS;
+import static org.gradle.internal.operations.trace.BinaryBuildOperationTraceFormat.STARTED;
+import static org.gradle.internal.operations.trace.BinaryBuildOperationTraceFormat.VERSION;
+import static org.gradle.internal.operations.trace.BinaryBuildOperationTraceFormat.zigZag;
+
+/**
+ * Writes the build operation stream using the {@link BinaryBuildOperationTraceFormat binary trace format}.
+ *
+ * <p>
+ * Only the structure and timing of operations is recorded: ids, display names, times, the class names of details and results, and failure messages.
+ * Listener calls only capture these values and queue them, and a task on a dedicated executor encodes and writes them.
+ * When the queue is full, operations wait for the writer to catch up instead of buffering without bounds.
+ * </p>
+ *
+ * <p>
+ * The encoder writes its buffer to the file whenever it fills up. Events that do not fill the buffer are flushed
+ * at most {@value #FLUSH_INTERVAL_MILLIS}ms after they were encoded, and when the writer is stopped.
+ * </p>
+ */
+class BinaryBuildOperationTraceWriter implements BuildOperationListener, Stoppable {
+    private static final int MAX_QUEUED_EVENTS = 64 * 1024;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final long FLUSH_INTERVAL_MILLIS = 1000;
+    private static final Event END_OF_TRACE = new Event(STARTED, 0, 0, 0, null, null);
+
+    private final BlockingQueue<Event> events = new ArrayBlockingQueue<>(MAX_QUEUED_EVENTS);
+    private final KryoBackedEncoder encoder;
+    private final ManagedExecutor writer;
+    private volatile Throwable failure;
+    private boolean stopped;
+
+    BinaryBuildOperationTraceWriter(File traceFile, ExecutorFactory executorFactory) throws IOException {
+        this.encoder = new KryoBackedEncoder(new FileOutputStream(traceFile), BUFFER_SIZE);
+        encoder.writeInt(MAGIC);
+        encoder.writeSmallInt(VERSION);
+        this.writer = executorFactory.create("Build operation trace writer", 1);
+        writer.execute(this::writeEvents);
+    }
+
+    @Override
+    public void started(BuildOperationDescriptor buildOperation, OperationStartEvent startEvent) {
+        OperationIdentifier parentId = buildOperation.getParentId();
+        enqueue(new Event(STARTED, buildOperation.getId().getId(), parentId == null ? 0 : parentId.getId(), startEvent.getStartTime(), buildOperation.getDisplayName(), classNameOf(buildOperation.getDetails())));
+    }
+
+    @Override
+    public void progress(OperationIdentifier buildOperationId, OperationProgressEvent progressEvent) {
+        enqueue(new Event(PROGRESS, buildOperationId.getId(), 0, progressEvent.getTime(), null, classNameOf(progressEvent.getDetails())));
+    }
+
+    @Override
+    public void finished(BuildOperationDescriptor buildOperation, OperationFinishEvent finishEvent) {
+        Throwable operationFailure = finishEvent.getFailure();
+        enqueue(new Event(FINISHED, buildOperation.getId().getId(), 0, finishEvent.getEndTime(), operationFailure == null ? null : String.valueOf(operationFailure.getMessage()), classNameOf(finishEvent.getResult())));
+    }
+
+    @Nullable
+    private static String classNameOf(@Nullable Object value) {
+        return value == null ? null : value.getClass().getName();
+    }
+
+    private void enqueue(Event event) {
+        try {
+            events.put(event);
+        } catch (InterruptedException e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        }
+    }
+
+    private void writeEvents() {
+        BinaryBuildOperationTraceFormat.StringWriter strings = new BinaryBuildOperationTraceFormat.StringWriter();
+        List<Event> batch = new ArrayList<>();
+        long previousTime = 0;
+        boolean unflushed = false;
+        // The time the oldest event that was not flushed yet was encoded
+        long unflushedSince = 0;
+        try {
+            while (true) {
+                Event next = unflushed
+                    ? events.poll(FLUSH_INTERVAL_MILLIS - TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - unflushedSince), TimeUnit.MILLISECONDS)
+                    : events.take();
+                if (next == null) {
+                    encoder.flush();
+                    unflushed = false;
+                    continue;
+                }
+                batch.add(next);
+                events.drainTo(batch);
+                for (Event event : batch) {
+                    if (event == END_OF_TRACE) {
+                        encoder.flush();
+                        return;
+                    }
+                    encoder.writeByte(event.kind);
+                    encoder.writeSmallLong(zigZag(event.id));
+                    if (event.kind == STARTED) {
+                        encoder.writeSmallLong(zigZag(event.parentId));
+                    }
+                    encoder.writeSmallLong(zigZag(event.time - previousTime));
+                    previousTime = event.time;
+                    if (event.kind == STARTED) {
+                        strings.write(event.name, encoder);
+                    }
+                    strings.write(event.className, encoder);
+                    if (event.kind == FINISHED) {
+                        encoder.writeNullableString(event.name);
+                    }
+                }
+                batch.clear();
+                long now = System.nanoTime();
+                if (!unflushed) {
+                    unflushed = true;
+                    unflushedSince = now;
+                } else if (TimeUnit.NANOSECONDS.toMillis(now - unflushedSince) >= FLUSH_INTERVAL_MILLIS) {
+                    encoder.flush();
+                    unflushed = false;
+                }
+            }
+        } catch (Throwable t) {
+            failure = t;
+            // Keep taking events, so that operations do not block on a full queue
+            drainUntilEnd();
+        }
+    }
+
+    private void drainUntilEnd() {
+        try {
+            while (events.take() != END_OF_TRACE) {
+                // Discard
+            }
+        } catch (InterruptedException e) {
+            // Stopped
+        }
+    }
+
+    @Override
+    public void stop() {
+        if (stopped) {
+            return;
+        }
+        stopped = true;
+        try {
+            enqueue(END_OF_TRACE);
+            writer.stop();
+        } finally {
+            encoder.close();
+        }
+        if (failure != null) {
+            throw UncheckedException.throwAsUncheckedException(failure);
+        }
+    }
+
+    private static class Event {
+        final byte kind;
+        final long id;
+        final long parentId;
+        final long time;
+        // The display name for started events, the failure message for finished events
+        final String name;
+        final String className;
+
+        Event(byte kind, long id, long parentId, long time, @Nullable String name, @Nullable String className) {
+            this.kind = kind;
+            this.id = id;
+            this.parentId = parentId;
+            this.time = time;
+            this.name = name;
+            this.className = className;
+        }
+    }
+}
@@ -28,6 +28,7 @@
 import org.gradle.StartParameter;
 import org.gradle.api.NonNullApi;
 import org.gradle.internal.UncheckedException;
+import org.gradle.internal.concurrent.ExecutorFactory;
 import org.gradle.internal.concurrent.Stoppable;
 import org.gradle.internal.operations.BuildOperationDescriptor;
 import org.gradle.internal.operations.BuildOperationListener;
@@ -83,6 +84,9 @@
  * Generally, the simplified tree view is best for browsing.
  * The JSON tree view can be used for more detailed analysis — open in a JSON tree viewer, like Chrome.
  * <p>
+ * With `-Dorg.gradle.internal.operations.trace.format=binary`, a single compact «path-base»-log.bin file is written instead.
+ * See {@link #FORMAT_SYSPROP}.
+ * <p>
  * The «path-base» param is optional.
  * If invoked as `-Dorg.gradle.internal.operations.trace`, a base value of "operations" will be used.
  * <p>
@@ -113,6 +117,19 @@ public class BuildOperationTrace implements Stoppable {
      */
     public static final String FILTER_SEPARATOR = ";";
 
+    /**
+     * The format of the trace, either {@value #JSON_FORMAT} (the default) or {@value #BINARY_FORMAT}.
+     *
+     * The binary format only captures the structure and timing of operations, not their details and results,
+     * and is written on a background thread. It produces a single «path-base»-log.bin file, which can be
+     * inspected using {@link BinaryBuildOperationTraceReader}.
+     */
+    public static final String FORMAT_SYSPROP = SYSPROP + ".format";
+
+    public static final String JSON_FORMAT = "json";
+
+    public static final String BINARY_FORMAT = "binary";
+
     private static final byte[] NEWLINE = "\n".getBytes();
 
     private final boolean outputTree;
@@ -120,13 +137,26 @@ public class BuildOperationTrace implements Stoppable {
     private final String basePath;
 
     private final OutputStream logOutputStream;
+    private final BinaryBuildOperationTraceWriter binaryWriter;
     private final JsonGenerator jsonGenerator = createJsonGenerator();
     private final BuildOperationListenerManager buildOperationListenerManager;
 
-    public BuildOperationTrace(StartParameter startParameter, BuildOperationListenerManager buildOperationListenerManager) {
+    public BuildOperationTrace(StartParameter startParameter, BuildOperationListenerManager buildOperationListenerManager, ExecutorFactory executorFactory) {
         this.buildOperationListenerManager = buildOperationListenerManager;
+        this.basePath = getProperty(startParameter, SYSPROP);
 
         Set<String> filter = getFilter(startParameter);
+        boolean enabled = this.basePath != null && !basePath.equals(Boolean.FALSE.toString());
+        if (enabled && BINARY_FORMAT.equals(getProperty(startParameter, FORMAT_SYSPROP))) {
+            this.outputTree = false;
+            this.logOutputStream = null;
+            this.binaryWriter = createBinaryWriter(binaryLogFile(basePath), executorFactory);
+            this.listener = filter != null ? new FilteringBuildOperationListener(binaryWriter, filter) : binaryWriter;
+            buildOperationListenerManager.addListener(listener);
+            return;
+        }
+
+        this.binaryWriter = null;
         if (filter != null) {
             this.outputTree = false;
             this.listener = new FilteringBuildOperationListener(new SerializingBuildOperationListener(this::write), filter);
@@ -135,9 +165,7 @@ public BuildOperationTrace(StartParameter startParameter, BuildOperationListener
             this.listener = new SerializingBuildOperationListener(this::write);
         }
 
-        this.basePath = getProperty(startParameter, SYSPROP);
-
-        if (this.basePath == null || basePath.equals(Boolean.FALSE.toString())) {
+        if (!enabled) {
             this.logOutputStream = null;
             return;
         }
@@ -159,6 +187,18 @@ public BuildOperationTrace(StartParameter startParameter, BuildOperationListener
         buildOperationListenerManager.addListener(listener);
     }
 
+    private static BinaryBuildOperationTraceWriter createBinaryWriter(File traceFile, ExecutorFactory executorFactory) {
+        try {
+            GFileUtils.mkdirs(traceFile.getParentFile());
+            if (traceFile.isFile()) {
+                GFileUtils.forceDelete(traceFile);
+            }
+            return new BinaryBuildOperationTraceWriter(traceFile, executorFactory);
+        } catch (IOException e) {
+            throw UncheckedException.throwAsUncheckedException(e);
+        }
+    }
+
     private static String getProperty(StartParameter startParameter, String property) {
         Map<String, String> sysProps = startParameter.getSystemPropertiesArgs();
         String basePath = sysProps.get(property);
@@ -181,6 +221,9 @@ private static Set<String> getFilter(StartParameter startParameter) {
     @Override
     public void stop() {
         buildOperationListenerManager.removeListener(listener);
+        if (binaryWriter != null) {
+            binaryWriter.stop();
+        }
         if (logOutputStream != null) {
             try {
                 synchronized (logOutputStream) {
@@ -456,6 +499,10 @@ private static File logFile(String basePath) {
         return file(basePath, "-log.txt");
     }
 
+    private static File binaryLogFile(String basePath) {
+        return file(basePath, "-log.bin");
+    }
+
     private static File file(String base, String suffix) {
         return new File((base == null || base.trim().isEmpty() ? "operations" : base) + suffix).getAbsoluteFile();
     }
@@ -26,6 +26,7 @@
 import org.gradle.api.internal.file.FileResolver;
 import org.gradle.api.internal.file.archive.DecompressionCoordinator;
 import org.gradle.api.internal.file.archive.DefaultDecompressionCoordinator;
+import org.gradle.api.internal.file.archive.ZipFileTree;
 import org.gradle.api.internal.project.BuildOperationCrossProjectConfigurator;
 import org.gradle.api.internal.project.CrossProjectConfigurator;
 import org.gradle.api.model.ObjectFactory;
@@ -47,6 +48,7 @@
 import org.gradle.initialization.layout.ProjectCacheDir;
 import org.gradle.internal.build.BuildLayoutValidator;
 import org.gradle.internal.buildevents.BuildStartedTime;
+import org.gradle.internal.buildoption.DefaultInternalOptions;
 import org.gradle.internal.event.ListenerManager;
 import org.gradle.internal.file.Deleter;
 import org.gradle.internal.hash.ChecksumService;
@@ -125,8 +127,9 @@ BuildTreeScopedCacheBuilderFactory createBuildTreeScopedCache(ProjectCacheDir pr
     }
 
     @Provides
-    DecompressionCoordinator createDecompressionCoordinator(BuildTreeScopedCacheBuilderFactory cacheBuilderFactory) {
-        return new DefaultDecompressionCoordinator(cacheBuilderFactory);
+    DecompressionCoordinator createDecompressionCoordinator(BuildTreeScopedCacheBuilderFactory cacheBuilderFactory, StartParameter startParameter) {
+        boolean extractOnDemand = new DefaultInternalOptions(startParameter.getSystemPropertiesArgs()).getOption(ZipFileTree.LAZY_EXPANSION_OPTION).get();
+        return new DefaultDecompressionCoordinator(cacheBuilderFactory, extractOnDemand);
     }
 
     @Provides
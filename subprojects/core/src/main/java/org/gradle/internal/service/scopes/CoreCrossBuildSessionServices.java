@@ -24,8 +24,10 @@
 import org.gradle.configuration.internal.ListenerBuildOperationDecorator;
 import org.gradle.internal.code.DefaultUserCodeApplicationContext;
 import org.gradle.internal.code.UserCodeApplicationContext;
+import org.gradle.internal.concurrent.DefaultParallelBatchExecutor;
 import org.gradle.internal.concurrent.DefaultWorkerLimits;
 import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.concurrent.ParallelBatchExecutor;
 import org.gradle.internal.concurrent.WorkerLimits;
 import org.gradle.internal.event.ListenerManager;
 import org.gradle.internal.logging.sink.OutputEventListenerManager;
@@ -63,6 +65,11 @@ WorkerLimits createWorkerLimits(CrossBuildSessionParameters buildSessionParamete
         return new DefaultWorkerLimits(buildSessionParameters.getStartParameter().getMaxWorkerCount());
     }
 
+    @Provides
+    ParallelBatchExecutor createParallelBatchExecutor(ExecutorFactory executorFactory, WorkerLimits workerLimits) {
+        return new DefaultParallelBatchExecutor(executorFactory, workerLimits.getMaxWorkerCount());
+    }
+
     @Provides
     BuildOperationExecutor createBuildOperationExecutor(
         BuildOperationRunner buildOperationRunner,
@@ -101,8 +108,8 @@ LoggingBuildOperationProgressBroadcaster createLoggingBuildOperationProgressBroa
     }
 
     @Provides
-    BuildOperationTrace createBuildOperationTrace(BuildOperationListenerManager buildOperationListenerManager, CrossBuildSessionParameters buildSessionParameters) {
-        return new BuildOperationTrace(buildSessionParameters.getStartParameter(), buildOperationListenerManager);
+    BuildOperationTrace createBuildOperationTrace(BuildOperationListenerManager buildOperationListenerManager, CrossBuildSessionParameters buildSessionParameters, ExecutorFactory executorFactory) {
+        return new BuildOperationTrace(buildSessionParameters.getStartParameter(), buildOperationListenerManager, executorFactory);
     }
 
     @Provides
@@ -23,7 +23,11 @@
 import org.gradle.cache.internal.InMemoryCacheDecoratorFactory;
 import org.gradle.cache.scopes.BuildScopedCacheBuilderFactory;
 import org.gradle.caching.internal.controller.BuildCacheController;
+import org.gradle.execution.plan.DefaultFinalizedExecutionPlan;
+import org.gradle.execution.plan.NodeDurationHistory;
+import org.gradle.execution.plan.PersistentNodeDurationHistory;
 import org.gradle.initialization.BuildCancellationToken;
+import org.gradle.internal.buildoption.InternalOptions;
 import org.gradle.internal.event.ListenerManager;
 import org.gradle.internal.execution.BuildOutputCleanupRegistry;
 import org.gradle.internal.execution.ExecutionEngine;
@@ -116,6 +120,13 @@ ExecutionHistoryStore createExecutionHistoryStore(
         );
     }
 
+    @Provides
+    NodeDurationHistory createNodeDurationHistory(ExecutionHistoryCacheAccess executionHistoryCacheAccess, InternalOptions internalOptions) {
+        return internalOptions.getOption(DefaultFinalizedExecutionPlan.CRITICAL_PATH_SCHEDULING).get()
+            ? new PersistentNodeDurationHistory(executionHistoryCacheAccess)
+            : NodeDurationHistory.NONE;
+    }
+
     @Provides
     OutputFilesRepository createOutputFilesRepository(BuildScopedCacheBuilderFactory cacheBuilderFactory, InMemoryCacheDecoratorFactory inMemoryCacheDecoratorFactory) {
         PersistentCache cacheAccess = cacheBuilderFactory
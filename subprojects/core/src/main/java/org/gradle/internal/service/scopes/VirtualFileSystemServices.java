@@ -21,6 +21,7 @@
 import net.rubygrapefruit.platform.file.FileSystems;
 import org.apache.tools.ant.DirectoryScanner;
 import org.gradle.api.internal.DocumentationRegistry;
+import org.gradle.api.internal.StartParameterInternal;
 import org.gradle.api.internal.cache.StringInterner;
 import org.gradle.api.internal.changedetection.state.BuildSessionScopeFileTimeStampInspector;
 import org.gradle.api.internal.changedetection.state.CachingFileHasher;
@@ -36,6 +37,7 @@
 import org.gradle.api.internal.changedetection.state.SplitResourceSnapshotterCacheService;
 import org.gradle.api.internal.file.FileCollectionFactory;
 import org.gradle.api.internal.initialization.loadercache.DefaultClasspathHasher;
+import org.gradle.cache.FileLockManager;
 import org.gradle.cache.GlobalCacheLocations;
 import org.gradle.cache.IndexedCache;
 import org.gradle.cache.IndexedCacheParameters;
@@ -44,10 +46,13 @@
 import org.gradle.cache.scopes.GlobalScopedCacheBuilderFactory;
 import org.gradle.initialization.RootBuildLifecycleListener;
 import org.gradle.internal.build.BuildAddedListener;
+import org.gradle.internal.buildoption.DefaultInternalOptions;
 import org.gradle.internal.buildoption.IntegerInternalOption;
 import org.gradle.internal.buildoption.InternalFlag;
 import org.gradle.internal.buildoption.InternalOptions;
 import org.gradle.internal.classloader.ClasspathHasher;
+import org.gradle.internal.concurrent.ExecutorFactory;
+import org.gradle.internal.concurrent.ParallelBatchExecutor;
 import org.gradle.internal.event.ListenerManager;
 import org.gradle.internal.execution.FileCollectionFingerprinterRegistry;
 import org.gradle.internal.execution.FileCollectionSnapshotter;
@@ -69,6 +74,8 @@
 import org.gradle.internal.hash.DefaultFileHasher;
 import org.gradle.internal.hash.FileHasher;
 import org.gradle.internal.hash.HashCode;
+import org.gradle.internal.hash.HashFunction;
+import org.gradle.internal.hash.Hashing;
 import org.gradle.internal.hash.StreamHasher;
 import org.gradle.internal.nativeintegration.NativeCapabilities;
 import org.gradle.internal.nativeintegration.filesystem.FileSystem;
@@ -95,12 +102,14 @@
 import org.gradle.internal.watch.vfs.WatchableFileSystemDetector;
 import org.gradle.internal.watch.vfs.impl.DefaultWatchableFileSystemDetector;
 import org.gradle.internal.watch.vfs.impl.FileWatchingFilter;
+import org.gradle.internal.watch.vfs.impl.VirtualFileSystemImage;
 import org.gradle.internal.watch.vfs.impl.WatchingNotSupportedVirtualFileSystem;
 import org.gradle.internal.watch.vfs.impl.WatchingVirtualFileSystem;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
+import java.util.Locale;
 import java.util.Optional;
 import java.util.function.Predicate;
 
@@ -120,6 +129,33 @@ public class VirtualFileSystemServices extends AbstractGradleModuleServices {
     private static final int DEFAULT_MAX_HIERARCHIES_TO_WATCH = 50;
     public static final IntegerInternalOption MAX_HIERARCHIES_TO_WATCH_PROPERTY = new IntegerInternalOption("org.gradle.vfs.watch.hierarchies.max", DEFAULT_MAX_HIERARCHIES_TO_WATCH);
     private static final int FILE_HASHER_MEMORY_CACHE_SIZE = 400000;
+    private static final int FILE_HASHER_COMPACT_STORE_SIZE = 4000000;
+    /**
+     * When enabled, the files of a directory of the build are hashed in parallel when snapshotting it.
+     */
+    public static final InternalFlag PARALLEL_SNAPSHOTTING_PROPERTY = new InternalFlag("org.gradle.internal.vfs.parallel-snapshotting");
+    /**
+     * When enabled, file hashes are kept in memory in a compact store instead of as objects in the in-memory cache, see {@link CachingFileHasher}.
+     */
+    public static final InternalFlag COMPACT_FILE_HASHES_PROPERTY = new InternalFlag("org.gradle.internal.vfs.compact-file-hashes");
+    /**
+     * When enabled and file system watching is active, the virtual file system is written to disk after each build and restored by the next daemon.
+     */
+    public static final InternalFlag PERSIST_VFS_PROPERTY = new InternalFlag("org.gradle.internal.vfs.persist");
+
+    /**
+     * Content hashes created with different hash functions must not be mixed, so each one gets its own persistent cache.
+     */
+    private static String fileHashesCacheName() {
+        HashFunction contentHashFunction = WorkerSharedGlobalScopeServices.contentHashFunction();
+        return contentHashFunction == Hashing.defaultFunction()
+            ? "fileHashes"
+            : "fileHashes-" + contentHashFunction.getAlgorithm().toLowerCase(Locale.ROOT);
+    }
+
+    private static int compactFileHashesStoreSize(InternalOptions options) {
+        return options.getOption(COMPACT_FILE_HASHES_PROPERTY).get() ? FILE_HASHER_COMPACT_STORE_SIZE : 0;
+    }
 
     public static boolean isDropVfs(InternalOptions options) {
         return options.getOption(VFS_DROP_PROPERTY).get();
@@ -173,7 +209,7 @@ FileHasher createCachingFileHasher(
             StreamHasher streamHasher,
             StringInterner stringInterner
         ) {
-            CachingFileHasher fileHasher = new CachingFileHasher(new DefaultFileHasher(streamHasher), fileStore, stringInterner, fileTimeStampInspector, "fileHashes", fileSystem, FILE_HASHER_MEMORY_CACHE_SIZE, statisticsCollector);
+            CachingFileHasher fileHasher = new CachingFileHasher(new DefaultFileHasher(streamHasher), fileStore, stringInterner, fileTimeStampInspector, fileHashesCacheName(), fileSystem, FILE_HASHER_MEMORY_CACHE_SIZE, statisticsCollector, compactFileHashesStoreSize(DefaultInternalOptions.fromSystemProperties()));
             fileTimeStampInspector.attach(fileHasher);
             return fileHasher;
         }
@@ -210,10 +246,22 @@ BuildLifecycleAwareVirtualFileSystem createVirtualFileSystem(
             ListenerManager listenerManager,
             FileChangeListeners fileChangeListeners,
             FileSystem fileSystem,
-            WatchableFileSystemDetector watchableFileSystemDetector
+            WatchableFileSystemDetector watchableFileSystemDetector,
+            GlobalScopedCacheBuilderFactory cacheBuilderFactory,
+            ExecutorFactory executorFactory
         ) {
             CaseSensitivity caseSensitivity = fileSystem.isCaseSensitive() ? CASE_SENSITIVE : CASE_INSENSITIVE;
             SnapshotHierarchy root = DefaultSnapshotHierarchy.empty(caseSensitivity);
+            VirtualFileSystemImage image = DefaultInternalOptions.fromSystemProperties().getOption(PERSIST_VFS_PROPERTY).get()
+                ? new VirtualFileSystemImage(
+                    cacheBuilderFactory.createCacheBuilder("vfs")
+                        .withDisplayName("virtual file system images")
+                        .withInitialLockMode(FileLockManager.LockMode.OnDemand)
+                        .open(),
+                    WorkerSharedGlobalScopeServices.contentHashFunction().getAlgorithm(),
+                    executorFactory
+                )
+                : null;
 
             BuildLifecycleAwareVirtualFileSystem virtualFileSystem = determineWatcherRegistryFactory(
                 OperatingSystem.current(),
@@ -225,7 +273,8 @@ BuildLifecycleAwareVirtualFileSystem createVirtualFileSystem(
                     sectionId -> documentationRegistry.getDocumentationRecommendationFor("details", "gradle_daemon", sectionId),
                     fileWatchingFilter,
                     watchableFileSystemDetector,
-                    fileChangeListeners
+                    fileChangeListeners,
+                    image
                 ))
                 .orElse(new WatchingNotSupportedVirtualFileSystem(root));
             listenerManager.addListener((BuildAddedListener) buildState -> {
@@ -333,9 +382,11 @@ FileHasher createFileHasher(
             FileSystem fileSystem,
             StreamHasher streamHasher,
             StringInterner stringInterner,
-            FileHasherStatistics.Collector statisticsCollector
+            FileHasherStatistics.Collector statisticsCollector,
+            StartParameterInternal startParameter
         ) {
-            CachingFileHasher localHasher = new CachingFileHasher(new DefaultFileHasher(streamHasher), cacheAccess, stringInterner, fileTimeStampInspector, "fileHashes", fileSystem, FILE_HASHER_MEMORY_CACHE_SIZE, statisticsCollector);
+            InternalOptions internalOptions = new DefaultInternalOptions(startParameter.getSystemPropertiesArgs());
+            CachingFileHasher localHasher = new CachingFileHasher(new DefaultFileHasher(streamHasher), cacheAccess, stringInterner, fileTimeStampInspector, fileHashesCacheName(), fileSystem, FILE_HASHER_MEMORY_CACHE_SIZE, statisticsCollector, compactFileHashesStoreSize(internalOptions));
             return new SplitFileHasher(globalHasher, localHasher, globalCacheLocations);
         }
 
@@ -347,8 +398,11 @@ FileSystemAccess createFileSystemAccess(
             StringInterner stringInterner,
             VirtualFileSystem root,
             FileSystemAccess.WriteListener writeListener,
-            DirectorySnapshotterStatistics.Collector statisticsCollector
+            DirectorySnapshotterStatistics.Collector statisticsCollector,
+            StartParameterInternal startParameter,
+            ParallelBatchExecutor parallelBatchExecutor
         ) {
+            InternalOptions internalOptions = new DefaultInternalOptions(startParameter.getSystemPropertiesArgs());
             DefaultFileSystemAccess buildSessionsScopedVirtualFileSystem = new DefaultFileSystemAccess(
                 hasher,
                 stringInterner,
@@ -356,6 +410,7 @@ FileSystemAccess createFileSystemAccess(
                 root,
                 writeListener,
                 statisticsCollector,
+                internalOptions.getOption(PARALLEL_SNAPSHOTTING_PROPERTY).get() ? parallelBatchExecutor : ParallelBatchExecutor.SEQUENTIAL,
                 DirectoryScanner.getDefaultExcludes()
             );
 
@@ -379,15 +434,20 @@ OutputSnapshotter createOutputSnapshotter(FileCollectionSnapshotter fileCollecti
         FileCollectionFingerprinterRegistrations createFileCollectionFingerprinterRegistrations(
             StringInterner stringInterner,
             FileCollectionSnapshotter fileCollectionSnapshotter,
-            ResourceSnapshotterCacheService resourceSnapshotterCacheService
+            ResourceSnapshotterCacheService resourceSnapshotterCacheService,
+            StartParameterInternal startParameter,
+            ParallelBatchExecutor parallelBatchExecutor
         ) {
+            InternalOptions internalOptions = new DefaultInternalOptions(startParameter.getSystemPropertiesArgs());
             return new FileCollectionFingerprinterRegistrations(
                 stringInterner,
                 fileCollectionSnapshotter,
                 resourceSnapshotterCacheService,
                 ResourceFilter.FILTER_NOTHING,
                 ResourceEntryFilter.FILTER_NOTHING,
-                PropertiesFileFilter.FILTER_NOTHING
+                PropertiesFileFilter.FILTER_NOTHING,
+                parallelBatchExecutor,
+                internalOptions.getOption(DefaultClasspathFingerprinter.HASHING_THREADS_OPTION).get()
             );
         }
 
@@ -31,11 +31,17 @@
 import org.gradle.cache.FileLockManager;
 import org.gradle.cache.GlobalCache;
 import org.gradle.cache.internal.CacheFactory;
+import org.gradle.cache.internal.CacheStorageOptions;
 import org.gradle.cache.internal.CrossBuildInMemoryCacheFactory;
 import org.gradle.cache.internal.DefaultCacheFactory;
 import org.gradle.cache.internal.DefaultCrossBuildInMemoryCacheFactory;
 import org.gradle.initialization.DefaultLegacyTypesSupport;
 import org.gradle.initialization.LegacyTypesSupport;
+import org.gradle.internal.buildoption.DefaultInternalOptions;
+import org.gradle.internal.buildoption.IntegerInternalOption;
+import org.gradle.internal.buildoption.InternalFlag;
+import org.gradle.internal.buildoption.InternalOptions;
+import org.gradle.internal.buildoption.StringInternalOption;
 import org.gradle.internal.classloader.ClassLoaderFactory;
 import org.gradle.internal.classloader.DefaultClassLoaderFactory;
 import org.gradle.internal.classpath.ClassPath;
@@ -44,6 +50,8 @@
 import org.gradle.internal.file.Deleter;
 import org.gradle.internal.file.impl.DefaultDeleter;
 import org.gradle.internal.hash.DefaultStreamHasher;
+import org.gradle.internal.hash.HashFunction;
+import org.gradle.internal.hash.Hashing;
 import org.gradle.internal.hash.StreamHasher;
 import org.gradle.internal.installation.CurrentGradleInstallation;
 import org.gradle.internal.instantiation.InstantiatorFactory;
@@ -81,6 +89,21 @@
 
 public class WorkerSharedGlobalScopeServices extends BasicGlobalScopeServices {
 
+    /**
+     * Selects the hash function used for content hashing, either {@code MD5} (the default) or {@code MURMUR3-128}.
+     */
+    public static final StringInternalOption CONTENT_HASH_OPTION = new StringInternalOption("org.gradle.internal.content-hash", Hashing.defaultFunction().getAlgorithm());
+
+    /**
+     * When enabled, indexed caches read their blocks from a memory mapped view of the cache file. Ignored on Windows.
+     */
+    public static final InternalFlag MAPPED_BLOCK_STORE_OPTION = new InternalFlag("org.gradle.cache.internal.btree.mapped");
+
+    /**
+     * The number of shards to split the write-behind queue of each cache into. Defaults to a single queue.
+     */
+    public static final IntegerInternalOption WRITE_BEHIND_SHARDS_OPTION = new IntegerInternalOption("org.gradle.cache.internal.write-behind-shards", 1);
+
     protected final ClassPath additionalModuleClassPath;
 
     public WorkerSharedGlobalScopeServices(ClassPath additionalModuleClassPath) {
@@ -89,7 +112,15 @@ public WorkerSharedGlobalScopeServices(ClassPath additionalModuleClassPath) {
 
     @Provides
     protected CacheFactory createCacheFactory(FileLockManager fileLockManager, ExecutorFactory executorFactory, BuildOperationRunner buildOperationRunner) {
-        return new DefaultCacheFactory(fileLockManager, executorFactory, buildOperationRunner);
+        return new DefaultCacheFactory(fileLockManager, executorFactory, buildOperationRunner, cacheStorageOptions());
+    }
+
+    /**
+     * The cache factory lives as long as the process, so the storage options are read from the JVM system properties.
+     */
+    private static CacheStorageOptions cacheStorageOptions() {
+        InternalOptions options = DefaultInternalOptions.fromSystemProperties();
+        return new CacheStorageOptions(options.getOption(MAPPED_BLOCK_STORE_OPTION).get(), options.getOption(WRITE_BEHIND_SHARDS_OPTION).get());
     }
 
     @Provides
@@ -134,7 +165,15 @@ DefaultFilePropertyFactory createFilePropertyFactory(PropertyHost propertyHost,
 
     @Provides
     StreamHasher createStreamHasher() {
-        return new DefaultStreamHasher();
+        return new DefaultStreamHasher(contentHashFunction());
+    }
+
+    /**
+     * Returns the hash function selected for content hashing via {@link #CONTENT_HASH_OPTION}.
+     * The stream hasher lives as long as the process, so the option is read from the JVM system properties.
+     */
+    static HashFunction contentHashFunction() {
+        return DefaultStreamHasher.contentHashFunction(DefaultInternalOptions.fromSystemProperties().getOption(CONTENT_HASH_OPTION).get());
     }
 
     @Provides
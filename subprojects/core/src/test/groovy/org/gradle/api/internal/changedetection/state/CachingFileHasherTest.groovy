@@ -173,4 +173,40 @@ class CachingFileHasherTest extends Specification {
         1 * statisticsCollector.reportFileHashed(length)
         0 * _
     }
+
+    def "keeps hashes in the compact store instead of the in-memory cache when enabled"() {
+        def stat = fileSystem.stat(file)
+        def compactCacheAccess = Mock(CrossBuildFileHashCache)
+        1 * compactCacheAccess.createIndexedCache({ it.cacheName == "fileHashes" }, 1000, true) >> cache
+        def compactHasher = new CachingFileHasher(target, compactCacheAccess, new StringInterner(), timeStampInspector, "fileHashes", fileSystem, 400000, statisticsCollector, 100)
+
+        when:
+        def first = compactHasher.hash(file)
+        def second = compactHasher.hash(file)
+
+        then:
+        first == hash
+        second == hash
+
+        and:
+        2 * timeStampInspector.timestampCanBeUsedToDetectFileChange(file.absolutePath, stat.lastModified) >> true
+        1 * cache.getIfPresent(file.absolutePath) >> null
+        1 * target.hash(file) >> hash
+        1 * cache.put(file.absolutePath, _)
+        1 * statisticsCollector.reportFileHashed(file.length())
+        0 * _
+
+        when:
+        compactHasher.discard(file.absolutePath)
+        def result = compactHasher.hash(file)
+
+        then:
+        result == oldHash
+
+        and:
+        1 * cache.remove(file.absolutePath)
+        1 * timeStampInspector.timestampCanBeUsedToDetectFileChange(file.absolutePath, stat.lastModified) >> true
+        1 * cache.getIfPresent(file.absolutePath) >> new FileInfo(oldHash, stat.length, stat.lastModified)
+        0 * _
+    }
 }
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.api.internal.changedetection.state
+
+import org.gradle.api.internal.cache.StringInterner
+import org.gradle.internal.hash.HashCode
+import org.gradle.internal.hash.TestHashCodes
+import spock.lang.Specification
+
+class CompactFileInfoStoreTest extends Specification {
+    def separator = File.separator
+    def hash = TestHashCodes.hashCodeFrom(0x0123)
+    def otherHash = TestHashCodes.hashCodeFrom(0x0321)
+
+    def "stores hash, length and timestamp by path"() {
+        def store = new CompactFileInfoStore(100, new StringInterner())
+
+        when:
+        store.put(path("a", "b", "c.txt"), hash, 1, 2)
+        store.put(path("a", "b", "d.txt"), otherHash, 3, 4)
+
+        then:
+        store.getHash(path("a", "b", "c.txt"), 1, 2) == hash
+        store.getHash(path("a", "b", "d.txt"), 3, 4) == otherHash
+        store.size() == 2
+        store.nodeCount == 5
+    }
+
+    def "does not return the hash when the length or timestamp has changed"() {
+        def store = new CompactFileInfoStore(100, new StringInterner())
+        store.put(path("a", "c.txt"), hash, 1, 2)
+
+        expect:
+        store.getHash(path("a", "c.txt"), 1, 3) == null
+        store.getHash(path("a", "c.txt"), 2, 2) == null
+    }
+
+    def "does not return directories, unknown paths or paths with a trailing separator"() {
+        def store = new CompactFileInfoStore(100, new StringInterner())
+        store.put(path("a", "b", "c.txt"), hash, 1, 2)
+
+        expect:
+        store.getHash(path("a", "b"), 0, 0) == null
+        store.getHash(path("a", "b", "e.txt"), 1, 2) == null
+        store.getHash(path("a", "b", "c.txt") + separator, 1, 2) == null
+        store.getHash(path("a", "b", "c.tx"), 1, 2) == null
+    }
+
+    def "replaces and removes stored files"() {
+        def store = new CompactFileInfoStore(100, new StringInterner())
+        def file = path("a", "c.txt")
+        store.put(file, hash, 1, 2)
+
+        when:
+        store.put(file, otherHash, 3, 4)
+
+        then:
+        store.getHash(file, 3, 4) == otherHash
+        store.size() == 1
+
+        when:
+        store.remove(file)
+
+        then:
+        store.getHash(file, 3, 4) == null
+        store.size() == 0
+    }
+
+    def "grows beyond the initial capacity"() {
+        def store = new CompactFileInfoStore(100_000, new StringInterner())
+
+        when:
+        (0..<10_000).each { store.put(path("workspace", "dir${it % 100}", "file${it}"), TestHashCodes.hashCodeFrom(it), it, it) }
+
+        then:
+        store.size() == 10_000
+        (0..<10_000).every { store.getHash(path("workspace", "dir${it % 100}", "file${it}"), it, it) == TestHashCodes.hashCodeFrom(it) }
+    }
+
+    def "is cleared when full"() {
+        def store = new CompactFileInfoStore(10, new StringInterner())
+
+        when:
+        (0..<20).each { store.put(path("dir", "file${it}"), hash, it, it) }
+
+        then:
+        store.nodeCount <= 10
+        store.getHash(path("dir", "file19"), 19, 19) == hash
+        store.getHash(path("dir", "file0"), 0, 0) == null
+    }
+
+    def "clears only a part of the files when full"() {
+        def store = new CompactFileInfoStore(16 * 1024, new StringInterner())
+        def largestDrop = 0
+
+        when:
+        (0..<50_000).each {
+            def sizeBefore = store.size()
+            store.put(path("workspace", "file${it}"), TestHashCodes.hashCodeFrom(it), it, it)
+            largestDrop = Math.max(largestDrop, sizeBefore + 1 - store.size())
+        }
+
+        then:
+        store.nodeCount <= 16 * 1024
+        largestDrop > 0
+        largestDrop <= 1024
+        store.getHash(path("workspace", "file49999"), 49_999, 49_999) == TestHashCodes.hashCodeFrom(49_999)
+    }
+
+    def "stores hashes of other lengths after clearing the stored files"() {
+        def store = new CompactFileInfoStore(100, new StringInterner())
+        def longHash = HashCode.fromString("0123456789abcdef0123456789abcdef0123456789abcdef")
+        store.put(path("a.txt"), hash, 1, 2)
+
+        when:
+        store.put(path("b.txt"), longHash, 1, 2)
+
+        then:
+        store.getHash(path("a.txt"), 1, 2) == null
+        store.getHash(path("b.txt"), 1, 2) == longHash
+        store.size() == 1
+    }
+
+    private String path(String... segments) {
+        separator + segments.join(separator)
+    }
+}
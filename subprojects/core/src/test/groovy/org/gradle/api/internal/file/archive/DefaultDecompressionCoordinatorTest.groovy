@@ -0,0 +1,76 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.file.archive
+
+import org.gradle.cache.CleanableStore
+import org.gradle.cache.CleanupProgressMonitor
+import org.gradle.cache.PersistentCache
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+
+import java.util.function.Supplier
+
+class DefaultDecompressionCoordinatorTest extends Specification {
+    private static final long LONG_AGO = 1_000_000_000_000L
+
+    @Rule
+    TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider(getClass())
+
+    def cache = Stub(PersistentCache) {
+        withFileLock(_ as Runnable) >> { Runnable action -> action.run() }
+    }
+    def cacheStore = Stub(CleanableStore) {
+        getDisplayName() >> "expansion cache"
+    }
+    def expansionRoot = tmpDir.createDir("expanded")
+
+    def "marks the expanded directories it grants access to as used"() {
+        def coordinator = new DefaultDecompressionCoordinator(cache)
+        def dir = expansionRoot.createDir("zip_1")
+        dir.lastModified = LONG_AGO
+
+        when:
+        coordinator.exclusiveAccessTo(dir) {}
+
+        then:
+        dir.lastModified() > LONG_AGO
+    }
+
+    def "cleanup removes the expanded directories that were not used recently next to the ones used"() {
+        def dirs = (1..5).collect { expansionRoot.createDir("zip_$it") }
+        dirs.eachWithIndex { dir, i -> dir.lastModified = LONG_AGO + i * 1000L }
+        def cleanup = new DefaultDecompressionCoordinator.UnusedExpandedDirsCleanup([dirs[0]] as Set, { LONG_AGO + 2500L } as Supplier<Long>)
+
+        when:
+        cleanup.clean(cacheStore, CleanupProgressMonitor.NO_OP)
+
+        then:
+        expansionRoot.listFiles()*.name.sort() == ["zip_1", "zip_4", "zip_5"]
+    }
+
+    def "cleanup keeps all expanded directories when none were used"() {
+        def dirs = (1..3).collect { expansionRoot.createDir("zip_$it") }
+        dirs.each { dir -> dir.lastModified = LONG_AGO }
+        def cleanup = new DefaultDecompressionCoordinator.UnusedExpandedDirsCleanup([] as Set, { LONG_AGO + 2500L } as Supplier<Long>)
+
+        when:
+        cleanup.clean(cacheStore, CleanupProgressMonitor.NO_OP)
+
+        then:
+        expansionRoot.listFiles().length == 3
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.file.archive;
+
+import org.apache.commons.io.IOUtils;
+import org.gradle.api.file.FileVisitDetails;
+import org.gradle.api.file.FileVisitor;
+import org.gradle.api.internal.file.TestFiles;
+import org.gradle.api.internal.provider.Providers;
+import org.gradle.cache.internal.TestDecompressionCoordinators;
+import org.gradle.test.fixtures.file.TestFile;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.gradle.api.internal.file.TestFiles.directoryFileTreeFactory;
+import static org.gradle.api.internal.file.TestFiles.fileHasher;
+import static org.gradle.api.internal.file.TestFiles.fileSystem;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Runs the {@link ZipFileTreeTest} tests with lazy expansion, where entries are only extracted when their file is requested.
+ */
+public class LazyZipFileTreeTest extends ZipFileTreeTest {
+
+    @Override
+    protected ZipFileTree zipTree(File archiveFile) {
+        return new ZipFileTree(Providers.of(archiveFile),
+            fileSystem(),
+            directoryFileTreeFactory(),
+            fileHasher(),
+            TestDecompressionCoordinators.decompressionCoordinator(tempDirProvider.getTestDirectory().createDir("cache-dir")),
+            TestFiles.tmpDirTemporaryFileProvider(tempDirProvider.getTestDirectory()),
+            true);
+    }
+
+    @Test
+    public void streamsEntriesWithoutExpandingTheArchive() {
+        rootDir.file("META-INF/MANIFEST.MF").write("manifest");
+        rootDir.file("subdir/file1.txt").write("content");
+        archiveFileToRoot(getArchiveFile());
+
+        List<String> contents = new ArrayList<>();
+        getTree().visit(new FileVisitor() {
+            @Override
+            public void visitDir(FileVisitDetails dirDetails) {
+            }
+
+            @Override
+            public void visitFile(FileVisitDetails fileDetails) {
+                try (InputStream content = fileDetails.open()) {
+                    contents.add(fileDetails.getPath() + "=" + IOUtils.toString(content, StandardCharsets.UTF_8));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        });
+
+        assertThat(contents.toString(), equalTo("[META-INF/MANIFEST.MF=manifest, subdir/file1.txt=content]"));
+        assertFalse(expansionRoot().exists());
+    }
+
+    @Test
+    public void onlyExpandsTheEntriesWhoseFileIsRequested() {
+        rootDir.file("META-INF/MANIFEST.MF").write("manifest");
+        rootDir.file("subdir/file1.txt").write("content");
+        archiveFileToRoot(getArchiveFile());
+
+        List<File> files = new ArrayList<>();
+        getTree().visit(new FileVisitor() {
+            @Override
+            public void visitDir(FileVisitDetails dirDetails) {
+            }
+
+            @Override
+            public void visitFile(FileVisitDetails fileDetails) {
+                if (fileDetails.getPath().startsWith("META-INF/")) {
+                    files.add(fileDetails.getFile());
+                }
+            }
+        });
+
+        assertThat(files.size(), equalTo(1));
+        new TestFile(files.get(0)).assertContents(equalTo("manifest"));
+        File[] expandedDirs = expansionRoot().listFiles();
+        assertThat(expandedDirs.length, equalTo(1));
+        assertTrue(new File(expandedDirs[0], "META-INF/MANIFEST.MF").isFile());
+        assertFalse(new File(expandedDirs[0], "subdir").exists());
+    }
+
+    private TestFile expansionRoot() {
+        return tempDirProvider.getTestDirectory().file(".cache/expanded");
+    }
+}
@@ -25,6 +25,8 @@ import org.gradle.api.internal.file.copy.CopyActionProcessingStream
 import org.gradle.api.internal.file.copy.DefaultZipCompressor
 import org.gradle.api.internal.file.copy.FileCopyDetailsInternal
 import org.gradle.api.tasks.bundling.Zip
+import org.gradle.internal.concurrent.DefaultExecutorFactory
+import org.gradle.internal.concurrent.DefaultParallelBatchExecutor
 import org.gradle.test.fixtures.archive.ZipTestFixture
 import org.gradle.test.fixtures.file.TestFile
 import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
@@ -84,6 +86,53 @@ class ZipCopyActionTest extends Specification {
         zipFixture.assertFileMode("file", 1)
     }
 
+    void deflatesEntriesInParallel() {
+        given:
+        def executorFactory = new DefaultExecutorFactory()
+        def batchExecutor = new DefaultParallelBatchExecutor(executorFactory, 4)
+        visitor = new ZipCopyAction(zipFile, new DefaultZipCompressor(false, ZipArchiveOutputStream.DEFLATED), new DocumentationRegistry(), encoding, false, batchExecutor, 4)
+        zip(dir("dir"), *(1..20).collect { file("dir/file$it") }, dir("other"), file("file2"))
+
+        when:
+        TestFile expandDir = tmpDir.getTestDirectory().file("expanded")
+        zipFile.unzipTo(expandDir)
+
+        then:
+        (1..20).each { expandDir.file("dir/file$it").assertContents(equalTo("contents of dir/file$it")) }
+        expandDir.file("file2").assertContents(equalTo("contents of file2"))
+        def zipFixture = new ZipTestFixture(zipFile)
+        zipFixture.hasDescendantsInOrder([*(1..20).collect { "dir/file$it" }, "file2"] as String[])
+        zipFixture.hasDirs("dir", "other")
+        zipFixture.hasCompression("dir/file1", ZipArchiveOutputStream.DEFLATED)
+        zipFixture.assertFileMode("dir/", 2)
+        zipFixture.assertFileMode("dir/file1", 1)
+
+        cleanup:
+        batchExecutor.stop()
+        executorFactory.stop()
+    }
+
+    void deflatingEntriesInParallelDoesNotDependOnTheNumberOfThreads() {
+        given:
+        def executorFactory = new DefaultExecutorFactory()
+        def batchExecutor = new DefaultParallelBatchExecutor(executorFactory, 8)
+        def entries = [dir("dir"), *(1..50).collect { file("dir/file$it") }, file("file2")] as FileCopyDetailsInternal[]
+
+        when:
+        visitor = new ZipCopyAction(zipFile, new DefaultZipCompressor(false, ZipArchiveOutputStream.DEFLATED), new DocumentationRegistry(), encoding, false, batchExecutor, 2)
+        zip(entries)
+        def twoThreads = zipFile.bytes
+        visitor = new ZipCopyAction(zipFile, new DefaultZipCompressor(false, ZipArchiveOutputStream.DEFLATED), new DocumentationRegistry(), encoding, false, batchExecutor, 8)
+        zip(entries)
+
+        then:
+        zipFile.bytes == twoThreads
+
+        cleanup:
+        batchExecutor.stop()
+        executorFactory.stop()
+    }
+
     void wrapsFailureToOpenOutputFile() {
         given:
         def invalidZipFile = tmpDir.createDir("test.zip")
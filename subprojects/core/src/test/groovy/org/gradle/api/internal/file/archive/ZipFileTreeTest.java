@@ -40,7 +40,7 @@ public class ZipFileTreeTest extends AbstractArchiveFileTreeTest {
     private final TestFile archiveFile = tempDirProvider.getTestDirectory().file("test.zip");
     private final ZipFileTree tree = zipTree(archiveFile);
 
-    private ZipFileTree zipTree(File archiveFile) {
+    protected ZipFileTree zipTree(File archiveFile) {
         return new ZipFileTree(Providers.of(archiveFile),
             fileSystem(),
             directoryFileTreeFactory(),
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.caching.internal
+
+import org.gradle.api.internal.StartParameterInternal
+import org.gradle.api.internal.cache.StringInterner
+import org.gradle.api.internal.file.TestFiles
+import org.gradle.api.internal.file.temp.TemporaryFileProvider
+import org.gradle.caching.BuildCacheEntryReader
+import org.gradle.caching.BuildCacheEntryWriter
+import org.gradle.caching.BuildCacheKey
+import org.gradle.caching.BuildCacheService
+import org.gradle.caching.BuildCacheServiceFactory
+import org.gradle.caching.configuration.AbstractBuildCache
+import org.gradle.caching.configuration.internal.DefaultBuildCacheConfiguration
+import org.gradle.caching.configuration.internal.DefaultBuildCacheServiceRegistration
+import org.gradle.caching.internal.origin.OriginMetadataFactory
+import org.gradle.caching.internal.packaging.impl.BuildCacheEntryCompression
+import org.gradle.caching.internal.services.BuildCacheControllerFactory
+import org.gradle.caching.local.DirectoryBuildCache
+import org.gradle.caching.local.internal.DirectoryBuildCacheServiceFactory
+import org.gradle.internal.buildoption.DefaultInternalOptions
+import org.gradle.internal.buildoption.InternalOptions
+import org.gradle.internal.concurrent.ExecutorFactory
+import org.gradle.internal.concurrent.WorkerLimits
+import org.gradle.internal.file.BufferProvider
+import org.gradle.internal.file.Deleter
+import org.gradle.internal.hash.HashCode
+import org.gradle.internal.hash.Hashing
+import org.gradle.internal.hash.StreamHasher
+import org.gradle.internal.nativeintegration.filesystem.FileSystem
+import org.gradle.internal.operations.BuildOperationProgressEventEmitter
+import org.gradle.internal.operations.BuildOperationRunner
+import org.gradle.internal.operations.NoOpBuildOperationProgressEventEmitter
+import org.gradle.internal.operations.TestBuildOperationRunner
+import org.gradle.internal.service.DefaultServiceRegistry
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.gradle.util.Path
+import org.gradle.util.TestUtil
+import org.junit.Rule
+import spock.lang.Specification
+
+class BuildCacheServicesTest extends Specification {
+    @Rule
+    final TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider(getClass())
+
+    def key = new SimpleBuildCacheKey(HashCode.fromString("0123456789abcdef0123456789abcdef"))
+
+    def "stores entries under a key derived from the entry format when not using gzip"() {
+        def controller = createController(compression)
+
+        when:
+        controller.load(key, Stub(CacheableEntity))
+
+        then:
+        controller.remote.service.loadedKeys*.hashCode == [expectedKey(format).hashCode]
+
+        where:
+        compression | format
+        "gzip"      | null
+        "gzip:1"    | null
+        "store"     | BuildCacheEntryCompression.STORE.displayName
+        "lz4"       | BuildCacheEntryCompression.LZ4.displayName
+    }
+
+    private def createController(String compression) {
+        def services = new DefaultServiceRegistry()
+        services.add(StartParameterInternal, Stub(StartParameterInternal) {
+            isBuildCacheEnabled() >> true
+        })
+        services.add(InternalOptions, new DefaultInternalOptions([(BuildCacheServices.ENTRY_COMPRESSION.systemPropertyName): compression]))
+        services.add(BuildOperationRunner, new TestBuildOperationRunner())
+        services.add(BuildOperationProgressEventEmitter, new NoOpBuildOperationProgressEventEmitter())
+        services.add(TemporaryFileProvider, TestFiles.tmpDirTemporaryFileProvider(tmpDir.testDirectory))
+        services.add(OriginMetadataFactory, Stub(OriginMetadataFactory))
+        services.add(StringInterner, new StringInterner())
+        services.add(ExecutorFactory, Stub(ExecutorFactory))
+        services.add(WorkerLimits, Stub(WorkerLimits))
+        services.add(Deleter, Stub(Deleter))
+        services.add(FileSystem, Stub(FileSystem))
+        services.add(StreamHasher, Stub(StreamHasher))
+        services.add(BufferProvider, Stub(BufferProvider))
+        services.register { new BuildCacheServices().registerBuildServices(it) }
+
+        def config = new DefaultBuildCacheConfiguration(TestUtil.instantiatorFactory().inject(), [
+            new DefaultBuildCacheServiceRegistration(DirectoryBuildCache, DirectoryBuildCacheServiceFactory),
+            new DefaultBuildCacheServiceRegistration(RecordingBuildCache, RecordingBuildCacheServiceFactory),
+        ])
+        config.local.enabled = false
+        config.remote(RecordingBuildCache)
+        services.get(BuildCacheControllerFactory).createController(Path.path(":"), config, TestUtil.instantiatorFactory().inject())
+    }
+
+    private BuildCacheKey expectedKey(String format) {
+        if (format == null) {
+            return key
+        }
+        def hasher = Hashing.newHasher()
+        hasher.putHash(key.hashCodeInternal)
+        hasher.putString(format)
+        return new SimpleBuildCacheKey(hasher.hash())
+    }
+
+    static class RecordingBuildCache extends AbstractBuildCache {
+    }
+
+    static class RecordingBuildCacheServiceFactory implements BuildCacheServiceFactory<RecordingBuildCache> {
+        @Override
+        BuildCacheService createBuildCacheService(RecordingBuildCache configuration, Describer describer) {
+            describer.type("recording")
+            new RecordingBuildCacheService()
+        }
+    }
+
+    static class RecordingBuildCacheService implements BuildCacheService {
+        final List<BuildCacheKey> loadedKeys = []
+
+        @Override
+        boolean load(BuildCacheKey key, BuildCacheEntryReader reader) {
+            loadedKeys << key
+            return false
+        }
+
+        @Override
+        void store(BuildCacheKey key, BuildCacheEntryWriter writer) {
+        }
+
+        @Override
+        void close() {
+        }
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.execution.plan
+
+import spock.lang.Specification
+
+class CriticalPathTest extends Specification {
+    def history = new TestDurationHistory(a: 100, b: 500, c: 10, d: 50, e: 50, f: 5)
+    def a = new TestNode("a", [])
+    def b = new TestNode("b", [a])
+    def c = new TestNode("c", [b])
+    def d = new TestNode("d", [])
+    def e = new TestNode("e", [d])
+    def f = new TestNode("f", [])
+    def unknown = new TestNode("unknown", [])
+    def scheduledNodes = [a, d, f, unknown, b, e, c]
+
+    def "weighs nodes with the longest chain of dependent nodes"() {
+        def criticalPath = new CriticalPath(history, scheduledNodes)
+
+        expect:
+        criticalPath.weightOf(a) == 610
+        criticalPath.weightOf(b) == 510
+        criticalPath.weightOf(c) == 10
+        criticalPath.weightOf(d) == 100
+        criticalPath.weightOf(e) == 50
+        criticalPath.weightOf(f) == 5
+        criticalPath.weightOf(unknown) == 1
+        criticalPath.weightOf(new TestNode("added later", [])) == 0
+    }
+
+    def "orders heaviest nodes first"() {
+        def criticalPath = new CriticalPath(history, scheduledNodes)
+        def queue = new TreeSet<Node>(criticalPath.executionOrder)
+
+        when:
+        queue.addAll([unknown, f, e, d, a])
+
+        then:
+        queue as List == [a, d, e, f, unknown]
+    }
+
+    def "records actual durations and reports predicted and actual critical path"() {
+        def criticalPath = new CriticalPath(history, scheduledNodes)
+
+        when:
+        [a, d, b, e, c].each {
+            criticalPath.started(it)
+            criticalPath.finished(it)
+        }
+        def report = criticalPath.complete()
+
+        then:
+        history.recorded.keySet() == [a, d, b, e, c] as Set
+        report.startsWith("Critical path")
+        report.contains("Predicted (610ms)")
+        report.indexOf("a (predicted 100ms") < report.indexOf("b (predicted 500ms")
+        report.indexOf("b (predicted 500ms") < report.indexOf("c (predicted 10ms")
+        report.contains("Actual (")
+    }
+
+    def "does not report when nothing was executed"() {
+        def criticalPath = new CriticalPath(history, scheduledNodes)
+
+        expect:
+        criticalPath.complete() == null
+        history.recorded.isEmpty()
+    }
+
+    private static class TestDurationHistory implements NodeDurationHistory {
+        final Map<String, Long> durations
+        final Map<Node, Long> recorded = [:]
+
+        TestDurationHistory(Map<String, Long> durations) {
+            this.durations = durations
+        }
+
+        @Override
+        boolean isEnabled() {
+            return true
+        }
+
+        @Override
+        long getPredictedDurationMillis(Node node) {
+            return durations.getOrDefault(node.toString(), UNKNOWN_DURATION)
+        }
+
+        @Override
+        void recordDurations(Map<Node, Long> durationsMillis) {
+            recorded.putAll(durationsMillis)
+        }
+    }
+
+    private static class TestNode extends CreationOrderedNode {
+        final String name
+
+        TestNode(String name, List<Node> dependencies) {
+            this.name = name
+            dependencies.each { addDependencySuccessor(it) }
+        }
+
+        @Override
+        Throwable getNodeFailure() {
+            return null
+        }
+
+        @Override
+        void resolveDependencies(TaskDependencyResolver dependencyResolver) {
+        }
+
+        @Override
+        String toString() {
+            return name
+        }
+    }
+}
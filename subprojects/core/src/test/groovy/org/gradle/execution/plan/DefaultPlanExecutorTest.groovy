@@ -113,4 +113,37 @@ class DefaultPlanExecutorTest extends Specification {
         1 * workSource.collectFailures([])
         0 * workSource._
     }
+
+    def "marks item as finished when selecting the next item when using combined state transitions"() {
+        def combinedExecutor = new DefaultPlanExecutor(new DefaultWorkerLimits(1), executorFactory, workerLeaseService, cancellationHandler, coordinationService, new DefaultInternalOptions([(DefaultPlanExecutor.COMBINED_STATE_TRANSITIONS.systemPropertyName): "true"]))
+        def node = Mock(LocalTaskNode)
+        def failure = new RuntimeException("broken")
+
+        when:
+        def result = combinedExecutor.process(workSource, worker)
+
+        then:
+        result.failures.empty
+        1 * workerLeaseService.currentWorkerLease >> workerLease
+
+        then:
+        1 * cancellationHandler.isCancellationRequested() >> false
+        1 * workerLease.tryLock() >> true
+        1 * workSource.executionState() >> WorkSource.State.MaybeWorkReadyToStart
+        1 * workSource.selectNext() >> WorkSource.Selection.of(node)
+        1 * worker.execute(node) >> { throw failure }
+
+        then:
+        1 * workSource.finishedExecuting(node, failure)
+
+        then:
+        1 * cancellationHandler.isCancellationRequested() >> false
+        1 * workSource.executionState() >> WorkSource.State.NoMoreWorkToStart
+
+        then:
+        1 * workerLease.tryLock() >> true
+        3 * workSource.allExecutionComplete() >> true
+        1 * workSource.collectFailures([])
+        0 * workSource._
+    }
 }
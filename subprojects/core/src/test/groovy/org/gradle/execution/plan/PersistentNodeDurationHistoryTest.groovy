@@ -0,0 +1,85 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.execution.plan
+
+import org.gradle.api.internal.TaskInternal
+import org.gradle.api.internal.tasks.TaskExecutionOutcome
+import org.gradle.api.internal.tasks.TaskStateInternal
+import org.gradle.cache.IndexedCache
+import org.gradle.cache.PersistentCache
+import org.gradle.util.Path
+import spock.lang.Specification
+
+class PersistentNodeDurationHistoryTest extends Specification {
+    def durations = Mock(IndexedCache)
+    def cache = Stub(PersistentCache) {
+        createIndexedCache(_) >> durations
+    }
+    def history = new PersistentNodeDurationHistory({ cache })
+
+    def "averages durations of executed tasks"() {
+        def node = taskNode(":compile", TaskExecutionOutcome.EXECUTED)
+
+        when:
+        history.recordDurations([(node): 300L])
+
+        then:
+        1 * durations.getIfPresent(":compile") >> 100L
+        1 * durations.put(":compile", 200L)
+    }
+
+    def "does not record durations of tasks with #outcome outcome"() {
+        def node = taskNode(":compile", outcome)
+
+        when:
+        history.recordDurations([(node): 1L])
+
+        then:
+        0 * durations.put(_, _)
+
+        where:
+        outcome << [TaskExecutionOutcome.UP_TO_DATE, TaskExecutionOutcome.FROM_CACHE, TaskExecutionOutcome.SKIPPED, TaskExecutionOutcome.NO_SOURCE]
+    }
+
+    def "does not record durations of failed tasks"() {
+        def state = new TaskStateInternal()
+        state.setOutcome(new RuntimeException("broken"))
+        def node = taskNode(":compile", state)
+
+        when:
+        history.recordDurations([(node): 1L])
+
+        then:
+        0 * durations.put(_, _)
+    }
+
+    private LocalTaskNode taskNode(String path, TaskExecutionOutcome outcome) {
+        def state = new TaskStateInternal()
+        state.setOutcome(outcome)
+        return taskNode(path, state)
+    }
+
+    private LocalTaskNode taskNode(String path, TaskStateInternal state) {
+        def task = Stub(TaskInternal) {
+            getIdentityPath() >> Path.path(path)
+            getState() >> state
+        }
+        return Stub(LocalTaskNode) {
+            getTask() >> task
+        }
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.fingerprint.classpath.impl
+
+import org.gradle.api.internal.cache.StringInterner
+import org.gradle.api.internal.changedetection.state.DefaultResourceSnapshotterCacheService
+import org.gradle.api.internal.changedetection.state.PropertiesFileFilter
+import org.gradle.api.internal.changedetection.state.ResourceEntryFilter
+import org.gradle.api.internal.changedetection.state.ResourceFilter
+import org.gradle.api.internal.file.TestFiles
+import org.gradle.internal.concurrent.DefaultExecutorFactory
+import org.gradle.internal.concurrent.DefaultParallelBatchExecutor
+import org.gradle.internal.concurrent.ParallelBatchExecutor
+import org.gradle.internal.fingerprint.FileSystemLocationFingerprint
+import org.gradle.internal.fingerprint.LineEndingSensitivity
+import org.gradle.internal.fingerprint.impl.DefaultFileCollectionSnapshotter
+import org.gradle.internal.hash.HashCode
+import org.gradle.internal.serialize.HashCodeSerializer
+import org.gradle.test.fixtures.file.CleanupTestDirectory
+import org.gradle.test.fixtures.file.TestFile
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.gradle.testfixtures.internal.TestInMemoryIndexedCache
+import org.gradle.util.UsesNativeServices
+import org.junit.Rule
+import spock.lang.Specification
+
+@CleanupTestDirectory(fieldName = "tmpDir")
+@UsesNativeServices
+class ConcurrentHashingClasspathFingerprinterTest extends Specification {
+    @Rule
+    public final TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider(getClass())
+
+    def stringInterner = Stub(StringInterner) {
+        intern(_) >> { String s -> s }
+    }
+    def fileSystemAccess = TestFiles.fileSystemAccess()
+    def fileCollectionSnapshotter = new DefaultFileCollectionSnapshotter(fileSystemAccess, TestFiles.fileSystem())
+    def executorFactory = new DefaultExecutorFactory()
+    def hashingExecutor = new DefaultParallelBatchExecutor(executorFactory, 4)
+
+    TestInMemoryIndexedCache<HashCode, HashCode> concurrentCache = new TestInMemoryIndexedCache<>(new HashCodeSerializer())
+    TestInMemoryIndexedCache<HashCode, HashCode> sequentialCache = new TestInMemoryIndexedCache<>(new HashCodeSerializer())
+    def concurrentFingerprinter = fingerprinter(concurrentCache, hashingExecutor, 4)
+    def sequentialFingerprinter = fingerprinter(sequentialCache, ParallelBatchExecutor.SEQUENTIAL, 1)
+
+    def cleanup() {
+        hashingExecutor.stop()
+        executorFactory.stop()
+    }
+
+    def "fingerprints jars in classpath order when hashing them concurrently"() {
+        def classpath = (0..<50).collect { i ->
+            def jar = file("lib-${i}.jar")
+            file("contents-${i}").create {
+                file("Class${i}.class").text = "class ${i}"
+                subdir {
+                    file("resource.txt").text = "resource ${i % 5}"
+                }
+            }.zipTo(jar)
+            jar
+        }
+
+        when:
+        def fingerprints = fingerprint(concurrentFingerprinter, *classpath, classpath[3], classpath[0])
+        def sequentialFingerprints = fingerprint(sequentialFingerprinter, *classpath, classpath[3], classpath[0])
+
+        then:
+        fingerprints*.get(0) == classpath*.name
+        fingerprints == sequentialFingerprints
+        concurrentCache.keySet() == sequentialCache.keySet()
+    }
+
+    def "fingerprints malformed jars the same way as when hashing sequentially"() {
+        def goodJar = file("good.jar")
+        file("goodContents").create {
+            file("Good.class").text = "class Good"
+        }.zipTo(goodJar)
+        def badJar = file("bad.jar") << "not a zip file"
+
+        when:
+        def fingerprints = fingerprint(concurrentFingerprinter, goodJar, badJar)
+        def sequentialFingerprints = fingerprint(sequentialFingerprinter, goodJar, badJar)
+
+        then:
+        fingerprints*.get(0) == ["good.jar", "bad.jar"]
+        fingerprints == sequentialFingerprints
+    }
+
+    def fingerprinter(TestInMemoryIndexedCache<HashCode, HashCode> cache, ParallelBatchExecutor executor, int threads) {
+        new DefaultClasspathFingerprinter(
+            new DefaultResourceSnapshotterCacheService(cache),
+            fileCollectionSnapshotter,
+            ResourceFilter.FILTER_NOTHING,
+            ResourceEntryFilter.FILTER_NOTHING,
+            PropertiesFileFilter.FILTER_NOTHING,
+            stringInterner,
+            LineEndingSensitivity.DEFAULT,
+            executor,
+            threads
+        )
+    }
+
+    def fingerprint(DefaultClasspathFingerprinter fingerprinter, TestFile... classpath) {
+        fileSystemAccess.invalidate(classpath.collect { it.absolutePath })
+        def fileCollectionFingerprint = fingerprinter.fingerprint(TestFiles.fixed(classpath))
+        return fileCollectionFingerprint.fingerprints.collect { String path, FileSystemLocationFingerprint fingerprint ->
+            [new File(path).getName(), fingerprint.normalizedPath, fingerprint.normalizedContentHash.toString()]
+        }
+    }
+
+    def file(Object... path) {
+        tmpDir.file(path)
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.internal.operations.trace
+
+import org.gradle.internal.concurrent.DefaultExecutorFactory
+import org.gradle.internal.operations.BuildOperationDescriptor
+import org.gradle.internal.operations.OperationFinishEvent
+import org.gradle.internal.operations.OperationIdentifier
+import org.gradle.internal.operations.OperationProgressEvent
+import org.gradle.internal.operations.OperationStartEvent
+import org.gradle.test.fixtures.file.TestNameTestDirectoryProvider
+import org.junit.Rule
+import spock.lang.Specification
+import spock.util.concurrent.PollingConditions
+
+class BinaryBuildOperationTraceTest extends Specification {
+    @Rule
+    TestNameTestDirectoryProvider tmpDir = new TestNameTestDirectoryProvider(getClass())
+
+    def traceFile = tmpDir.file("operations-log.bin")
+    def executorFactory = new DefaultExecutorFactory()
+
+    def cleanup() {
+        executorFactory.stop()
+    }
+
+    def "reads events in the order they were written"() {
+        given:
+        writeTrace()
+        def events = []
+
+        when:
+        BinaryBuildOperationTraceReader.read(traceFile, new BinaryBuildOperationTraceReader.Visitor() {
+            @Override
+            void started(long id, long parentId, long startTime, String displayName, String detailsClassName) {
+                events << "started $id $parentId $startTime $displayName $detailsClassName"
+            }
+
+            @Override
+            void progress(long id, long time, String detailsClassName) {
+                events << "progress $id $time $detailsClassName"
+            }
+
+            @Override
+            void finished(long id, long endTime, String resultClassName, String failure) {
+                events << "finished $id $endTime $resultClassName $failure"
+            }
+        })
+
+        then:
+        events == [
+            "started 1 0 1000 Run build null",
+            "started 2 1 1010 Task :a java.lang.String",
+            "started 3 1 1005 Task :b java.lang.String",
+            "progress 2 1015 java.lang.Integer",
+            "finished 2 1050 null null",
+            "started 4 3 1060 Compile java.lang.String",
+            "finished 4 1100 java.lang.String boom",
+            "finished 3 1110 null null",
+            "finished 1 1120 null null",
+        ]
+    }
+
+    def "prints tree, aggregates by type and critical path"() {
+        given:
+        writeTrace()
+
+        expect:
+        view { BinaryBuildOperationTraceReader.printTree(traceFile, it) } == [
+            "Run build [120ms] (1)",
+            "  Task :a [40ms] (2)",
+            "  Task :b [105ms] (3)",
+            "    Compile [40ms] (4)",
+        ]
+        view { BinaryBuildOperationTraceReader.printTypes(traceFile, it) } == [
+            "java.lang.String: count 3, total 185ms, max 105ms",
+            "<no details>: count 1, total 120ms, max 120ms",
+        ]
+        view { BinaryBuildOperationTraceReader.printCriticalPath(traceFile, it) } == [
+            "Run build [120ms, ends at +120ms] (1)",
+            "  Task :b [105ms, ends at +110ms] (3)",
+            "    Compile [40ms, ends at +100ms] (4)",
+        ]
+    }
+
+    def "reads a truncated trace up to its last complete event"() {
+        given:
+        writeTrace()
+        def bytes = traceFile.bytes
+        traceFile.bytes = Arrays.copyOf(bytes, bytes.length - 3)
+
+        expect:
+        view { BinaryBuildOperationTraceReader.printTree(traceFile, it) } == [
+            "Run build [unfinished] (1)",
+            "  Task :a [40ms] (2)",
+            "  Task :b [105ms] (3)",
+            "    Compile [40ms] (4)",
+        ]
+    }
+
+    def "writes repeated strings once"() {
+        given:
+        def writer = new BinaryBuildOperationTraceWriter(traceFile, executorFactory)
+        def name = "Resolve dependencies of configuration ':compileClasspath'"
+
+        when:
+        (1..100).each { id ->
+            def operation = operation(name, id, null, "details")
+            writer.started(operation, new OperationStartEvent(id))
+            writer.finished(operation, new OperationFinishEvent(id, id + 1, null, null))
+        }
+        writer.stop()
+
+        then:
+        traceFile.length() < 100 * name.length()
+        view { BinaryBuildOperationTraceReader.printTypes(traceFile, it) } == ["java.lang.String: count 100, total 100ms, max 1ms"]
+    }
+
+    def "flushes events to the file while operations are still running"() {
+        given:
+        def writer = new BinaryBuildOperationTraceWriter(traceFile, executorFactory)
+        def conditions = new PollingConditions(timeout: 10)
+
+        when:
+        writer.started(operation("Run build", 1, null, null), new OperationStartEvent(1000))
+
+        then:
+        conditions.eventually {
+            assert traceFile.length() > 0
+        }
+
+        cleanup:
+        writer.stop()
+    }
+
+    private void writeTrace() {
+        def writer = new BinaryBuildOperationTraceWriter(traceFile, executorFactory)
+        def root = operation("Run build", 1, null, null)
+        def a = operation("Task :a", 2, 1, "a")
+        def b = operation("Task :b", 3, 1, "b")
+        def compile = operation("Compile", 4, 3, "compile")
+        writer.started(root, new OperationStartEvent(1000))
+        writer.started(a, new OperationStartEvent(1010))
+        writer.started(b, new OperationStartEvent(1005))
+        writer.progress(new OperationIdentifier(2), new OperationProgressEvent(1015, 42))
+        writer.finished(a, new OperationFinishEvent(1010, 1050, null, null))
+        writer.started(compile, new OperationStartEvent(1060))
+        writer.finished(compile, new OperationFinishEvent(1060, 1100, new RuntimeException("boom"), "result"))
+        writer.finished(b, new OperationFinishEvent(1005, 1110, null, null))
+        writer.finished(root, new OperationFinishEvent(1000, 1120, null, null))
+        writer.stop()
+    }
+
+    private static BuildOperationDescriptor operation(String displayName, long id, Long parentId, Object details) {
+        return BuildOperationDescriptor.displayName(displayName).details(details).build(new OperationIdentifier(id), parentId == null ? null : new OperationIdentifier(parentId))
+    }
+
+    private static List<String> view(Closure<?> action) {
+        def output = new ByteArrayOutputStream()
+        def printStream = new PrintStream(output, true)
+        action(printStream)
+        return output.toString().readLines()
+    }
+}
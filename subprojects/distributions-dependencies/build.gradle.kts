@@ -45,6 +45,7 @@ dependencies {
     api(platform("org.junit:junit-bom:${junit5Version}!!"))
 
     constraints {
+        api(libs.aircompressor)         { version { strictly("0.8") }}
         api(libs.ansiControlSequenceUtil) { version { strictly("0.3") }}
         api(libs.ant)                   { version { strictly(antVersion) }}
         api(libs.antLauncher)           { version { strictly(antVersion) }}
@@ -169,7 +170,6 @@ dependencies {
         api(libs.zinc)                  { version { strictly("1.9.6") }}
 
         // test only
-        api(libs.aircompressor)         { version { strictly("0.8") }}
         api(libs.archunit)              { version { strictly(archunitVersion) }}
         api(libs.archunitJunit5)        { version { strictly(archunitVersion) }}
         api(libs.archunitJunit5Api)     { version { strictly(archunitVersion) }}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2024 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.performance.experiment.corefeature
+
+import org.apache.commons.lang3.RandomStringUtils
+import org.gradle.performance.AbstractCrossBuildPerformanceTest
+import org.gradle.performance.annotations.RunFor
+import org.gradle.performance.annotations.Scenario
+import org.gradle.performance.fixture.GradleBuildExperimentSpec
+import org.gradle.profiler.BuildContext
+import org.gradle.profiler.BuildMutator
+import org.gradle.profiler.InvocationSettings
+import org.gradle.test.fixtures.file.TestFile
+
+import static org.gradle.performance.annotations.ScenarioType.PER_WEEK
+import static org.gradle.performance.results.OperatingSystem.LINUX
+
+@RunFor(
+    @Scenario(type = PER_WEEK, operatingSystems = [LINUX], testProjects = ["archivePerformanceProject"])
+)
+class ParallelDeflatePerformanceTest extends AbstractCrossBuildPerformanceTest {
+    private static final String DEFLATE_THREADS_PROPERTY = "org.gradle.internal.archives.deflate-threads"
+
+    def "zip and jar with parallel deflate"() {
+        given:
+        def archiveContentsDir = new TestFile("build/tmp/tmp-parallel-deflate-contents")
+        if (!archiveContentsDir.exists()) {
+            generateArchiveContents(archiveContentsDir)
+        }
+        runner.addBuildMutator { linkToArchiveContents(it, archiveContentsDir) }
+        runner.testGroup = "parallel deflate"
+        [2, 4, 8].each { threads ->
+            runner.buildSpec {
+                displayName("$threads deflate threads")
+                invocation {
+                    args("-D$DEFLATE_THREADS_PROPERTY=$threads")
+                }
+            }
+        }
+        runner.baseline {
+            displayName("1 deflate thread")
+            invocation {
+                args("-D$DEFLATE_THREADS_PROPERTY=1")
+            }
+        }
+
+        when:
+        def results = runner.run()
+
+        then:
+        results
+    }
+
+    @Override
+    protected void defaultSpec(GradleBuildExperimentSpec.GradleBuilder builder) {
+        super.defaultSpec(builder)
+        builder.warmUpCount = 2
+        builder.invocationCount = 5
+        builder.invocation {
+            tasksToRun("zip", "jar")
+            args("--rerun-tasks")
+        }
+    }
+
+    private static BuildMutator linkToArchiveContents(InvocationSettings invocationSettings, File source) {
+        new BuildMutator() {
+            @Override
+            void beforeBuild(BuildContext context) {
+                TestFile target = new TestFile(invocationSettings.projectDir, "archive-contents")
+                if (!target.exists()) {
+                    target.createLink(source)
+                }
+            }
+        }
+    }
+
+    private static generateArchiveContents(File target) {
+        def random = new Random(1234)
+        (1..2000).each { i ->
+            def folder = new File(target, "folder$i")
+            folder.mkdirs()
+            // Text of various sizes, so that deflating the entries dominates the time spent building the archives
+            new File(folder, "file.txt") << RandomStringUtils.random(1000 + random.nextInt(200000), 0, 0, true, true, null, random)
+        }
+    }
+}